@@ -208,6 +208,10 @@ public class Gosu implements IGosuLaunch
 
     reinitGosu( classpath );
     TypeSystem.refresh( true );
+    if( GosuInitialization.isSealRequested() )
+    {
+      TypeSystem.seal();
+    }
   }
 
   private static void reinitGosu( List<File> classpath )
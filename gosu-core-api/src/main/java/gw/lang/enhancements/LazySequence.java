@@ -0,0 +1,455 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.lang.enhancements;
+
+import gw.lang.function.IFunction1;
+import gw.lang.function.IFunction2;
+import gw.lang.reflect.IType;
+import gw.lang.reflect.TypeSystem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A lazy view of an Iterable, see CoreIterableEnhancement#lazy(). Intermediate operations
+ * (where, map, ...) only record a stage; a terminal operation (toList, firstWhere, ...) then pushes
+ * the source's elements through all stages in a single pass, without intermediate collections, and
+ * stops as soon as the result is known.
+ * <p/>
+ * A sequence is immutable and may be consumed more than once, each terminal operation iterates the
+ * source again. A null source is treated as empty, like the eager enhancement methods do.
+ * <p/>
+ * The methods here take blocks as Object and are meant to be called from the typed methods of
+ * CoreLazySequenceEnhancement and from compiled code.
+ */
+@SuppressWarnings({"UnusedDeclaration", "unchecked"}) // Used in Gosu core enhancements
+public class LazySequence<T>
+{
+  private static final Stage[] NO_STAGES = new Stage[0];
+
+  private final Iterable _source;
+  private final Stage[] _stages;
+
+  public LazySequence( Iterable<T> source )
+  {
+    this( source, NO_STAGES );
+  }
+
+  private LazySequence( Iterable source, Stage[] stages )
+  {
+    _source = source;
+    _stages = stages;
+  }
+
+  // ------------------------------------------- Intermediate operations
+
+  public LazySequence<T> filtered( Object cond )
+  {
+    return append( new Filter( (IFunction1)cond ) );
+  }
+
+  public LazySequence mapped( Object mapper )
+  {
+    return append( new Mapping( (IFunction1)mapper ) );
+  }
+
+  public LazySequence flatMapped( Object mapper )
+  {
+    return append( new FlatMap( (IFunction1)mapper ) );
+  }
+
+  public LazySequence typeFiltered( IType type )
+  {
+    return append( new TypeFilter( type ) );
+  }
+
+  public LazySequence<T> limited( int iCount )
+  {
+    if( iCount < 0 )
+    {
+      throw new IllegalArgumentException( "Count must not be negative: " + iCount );
+    }
+    return append( new Limit( iCount ) );
+  }
+
+  private LazySequence append( Stage stage )
+  {
+    Stage[] stages = new Stage[_stages.length + 1];
+    System.arraycopy( _stages, 0, stages, 0, _stages.length );
+    stages[_stages.length] = stage;
+    return new LazySequence( _source, stages );
+  }
+
+  // ------------------------------------------- Terminal operations
+
+  public List<T> collect()
+  {
+    final List<T> result = new ArrayList<T>();
+    run( new Sink()
+    {
+      boolean accept( Object elt )
+      {
+        result.add( (T)elt );
+        return true;
+      }
+    } );
+    return result;
+  }
+
+  /**
+   * @return The first element matching the condition, or the first element if the condition is null
+   */
+  public T findFirst( Object cond )
+  {
+    final IFunction1 block = (IFunction1)cond;
+    final Object[] found = {null};
+    run( new Sink()
+    {
+      boolean accept( Object elt )
+      {
+        if( block == null || isTrue( block.invoke( elt ) ) )
+        {
+          found[0] = elt;
+          return false;
+        }
+        return true;
+      }
+    } );
+    return (T)found[0];
+  }
+
+  public boolean anyMatch( Object cond )
+  {
+    final IFunction1 block = (IFunction1)cond;
+    final boolean[] bFound = {false};
+    run( new Sink()
+    {
+      boolean accept( Object elt )
+      {
+        if( isTrue( block.invoke( elt ) ) )
+        {
+          bFound[0] = true;
+          return false;
+        }
+        return true;
+      }
+    } );
+    return bFound[0];
+  }
+
+  public boolean matchesAll( Object cond )
+  {
+    final IFunction1 block = (IFunction1)cond;
+    final boolean[] bAll = {true};
+    run( new Sink()
+    {
+      boolean accept( Object elt )
+      {
+        if( !isTrue( block.invoke( elt ) ) )
+        {
+          bAll[0] = false;
+          return false;
+        }
+        return true;
+      }
+    } );
+    return bAll[0];
+  }
+
+  /**
+   * @return The number of elements matching the condition, or of all elements if the condition is null
+   */
+  public int countMatching( Object cond )
+  {
+    final IFunction1 block = (IFunction1)cond;
+    final int[] iCount = {0};
+    run( new Sink()
+    {
+      boolean accept( Object elt )
+      {
+        if( block == null || isTrue( block.invoke( elt ) ) )
+        {
+          iCount[0]++;
+        }
+        return true;
+      }
+    } );
+    return iCount[0];
+  }
+
+  public void forEach( Object operation )
+  {
+    final IFunction1 block = (IFunction1)operation;
+    run( new Sink()
+    {
+      boolean accept( Object elt )
+      {
+        block.invoke( elt );
+        return true;
+      }
+    } );
+  }
+
+  public Object accumulate( Object init, Object aggregator )
+  {
+    final IFunction2 block = (IFunction2)aggregator;
+    final Object[] value = {init};
+    run( new Sink()
+    {
+      boolean accept( Object elt )
+      {
+        value[0] = block.invoke( value[0], elt );
+        return true;
+      }
+    } );
+    return value[0];
+  }
+
+  public T foldAll( Object aggregator )
+  {
+    final IFunction2 block = (IFunction2)aggregator;
+    final Object[] value = {null};
+    final boolean[] bFirst = {true};
+    run( new Sink()
+    {
+      boolean accept( Object elt )
+      {
+        if( bFirst[0] )
+        {
+          bFirst[0] = false;
+          value[0] = elt;
+        }
+        else
+        {
+          value[0] = block.invoke( value[0], elt );
+        }
+        return true;
+      }
+    } );
+    return (T)value[0];
+  }
+
+  /**
+   * Pushes the source's elements through the stages into the terminal sink, until a sink stops.
+   */
+  private void run( Sink terminal )
+  {
+    if( _source == null )
+    {
+      return;
+    }
+    Sink head = terminal;
+    for( int i = _stages.length - 1; i >= 0; i-- )
+    {
+      head = _stages[i].wrap( head );
+    }
+    for( Object elt : _source )
+    {
+      if( !head.accept( elt ) )
+      {
+        return;
+      }
+    }
+  }
+
+  private static boolean isTrue( Object value )
+  {
+    return Boolean.TRUE.equals( value );
+  }
+
+  /**
+   * Describes the sequence without evaluating it, e.g., ArrayList.lazy().where(...).take(3). Evaluating
+   * would run the blocks, and would never end for an endless source. Use toList() for the elements.
+   */
+  @Override
+  public String toString()
+  {
+    StringBuilder sb = new StringBuilder();
+    if( _source == null )
+    {
+      sb.append( "null" );
+    }
+    else
+    {
+      Class sourceClass = _source.getClass();
+      sb.append( sourceClass.isAnonymousClass() ? sourceClass.getName() : sourceClass.getSimpleName() );
+    }
+    sb.append( ".lazy()" );
+    for( Stage stage : _stages )
+    {
+      sb.append( '.' ).append( stage );
+    }
+    return sb.toString();
+  }
+
+  // ------------------------------------------- Stages
+
+  private static abstract class Sink
+  {
+    /**
+     * @return false to stop the pass
+     */
+    abstract boolean accept( Object elt );
+  }
+
+  private interface Stage
+  {
+    Sink wrap( Sink downstream );
+  }
+
+  private static class Filter implements Stage
+  {
+    private final IFunction1 _cond;
+
+    Filter( IFunction1 cond )
+    {
+      _cond = cond;
+    }
+
+    @Override
+    public String toString()
+    {
+      return "where(...)";
+    }
+
+    public Sink wrap( final Sink downstream )
+    {
+      return new Sink()
+      {
+        boolean accept( Object elt )
+        {
+          return !isTrue( _cond.invoke( elt ) ) || downstream.accept( elt );
+        }
+      };
+    }
+  }
+
+  private static class Mapping implements Stage
+  {
+    private final IFunction1 _mapper;
+
+    Mapping( IFunction1 mapper )
+    {
+      _mapper = mapper;
+    }
+
+    @Override
+    public String toString()
+    {
+      return "map(...)";
+    }
+
+    public Sink wrap( final Sink downstream )
+    {
+      return new Sink()
+      {
+        boolean accept( Object elt )
+        {
+          return downstream.accept( _mapper.invoke( elt ) );
+        }
+      };
+    }
+  }
+
+  private static class FlatMap implements Stage
+  {
+    private final IFunction1 _mapper;
+
+    FlatMap( IFunction1 mapper )
+    {
+      _mapper = mapper;
+    }
+
+    @Override
+    public String toString()
+    {
+      return "flatMap(...)";
+    }
+
+    public Sink wrap( final Sink downstream )
+    {
+      return new Sink()
+      {
+        boolean accept( Object elt )
+        {
+          Iterable results = (Iterable)_mapper.invoke( elt );
+          if( results != null )
+          {
+            for( Object result : results )
+            {
+              if( !downstream.accept( result ) )
+              {
+                return false;
+              }
+            }
+          }
+          return true;
+        }
+      };
+    }
+  }
+
+  private static class TypeFilter implements Stage
+  {
+    private final IType _type;
+
+    TypeFilter( IType type )
+    {
+      _type = type;
+    }
+
+    @Override
+    public String toString()
+    {
+      return "whereTypeIs(" + _type.getName() + ")";
+    }
+
+    public Sink wrap( final Sink downstream )
+    {
+      return new Sink()
+      {
+        boolean accept( Object elt )
+        {
+          return elt == null || !_type.isAssignableFrom( TypeSystem.getFromObject( elt ) ) || downstream.accept( elt );
+        }
+      };
+    }
+  }
+
+  private static class Limit implements Stage
+  {
+    private final int _iLimit;
+
+    Limit( int iLimit )
+    {
+      _iLimit = iLimit;
+    }
+
+    @Override
+    public String toString()
+    {
+      return "take(" + _iLimit + ")";
+    }
+
+    public Sink wrap( final Sink downstream )
+    {
+      // A new count for every pass
+      return new Sink()
+      {
+        private int _iCount;
+
+        boolean accept( Object elt )
+        {
+          if( _iCount >= _iLimit )
+          {
+            return false;
+          }
+          _iCount++;
+          return downstream.accept( elt ) && _iCount < _iLimit;
+        }
+      };
+    }
+  }
+}
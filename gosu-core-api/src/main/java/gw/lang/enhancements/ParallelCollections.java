@@ -0,0 +1,435 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.lang.enhancements;
+
+import gw.lang.function.IFunction1;
+import gw.lang.function.IFunction2;
+import gw.lang.reflect.TypeSystem;
+import gw.lang.reflect.module.IModule;
+import gw.util.concurrent.LockingLazyVar;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork/join implementations of the parallel collection enhancements, see CoreListParallelEnhancement.
+ * <p/>
+ * The elements are split in halves until a chunk is at most the split threshold, chunks run on the
+ * pool and their results are combined left to right. So results keep the order of the source and,
+ * for a given pool parallelism and threshold, a reduction always groups its elements the same way.
+ * <p/>
+ * The pool defaults to one thread per processor, or the number in the "gosu.parallel.threads" system
+ * property. The threshold defaults to a quarter of an even share of the elements per thread but at
+ * least 64, or the number in the "gosu.parallel.threshold" system property. The caller's current
+ * module and context class loader are set on the worker threads while they run a chunk, so blocks see
+ * the same type system as the caller.
+ * <p/>
+ * Collections smaller than the minimum parallel size, 1024 or the number in the
+ * "gosu.parallel.min.size" system property, run on the caller's thread. So does everything called
+ * while holding the type system lock: the caller would block on the pool holding the lock, and a
+ * worker needing the type system would wait for it forever.
+ */
+@SuppressWarnings({"UnusedDeclaration", "unchecked"}) // Used in Gosu core enhancements
+public class ParallelCollections
+{
+  public static final String PARALLELISM_SYSTEM_PROP = "gosu.parallel.threads";
+  public static final String SPLIT_THRESHOLD_SYSTEM_PROP = "gosu.parallel.threshold";
+  public static final String MIN_PARALLEL_SIZE_SYSTEM_PROP = "gosu.parallel.min.size";
+  private static final int MIN_DEFAULT_SPLIT_THRESHOLD = 64;
+
+  private static final LockingLazyVar<ForkJoinPool> DEFAULT_POOL =
+    new LockingLazyVar<ForkJoinPool>()
+    {
+      protected ForkJoinPool init()
+      {
+        return new ForkJoinPool( Math.max( 1, Integer.getInteger( PARALLELISM_SYSTEM_PROP, Runtime.getRuntime().availableProcessors() ) ) );
+      }
+    };
+
+  private static volatile ForkJoinPool _pool;
+  private static volatile int _iSplitThreshold = Integer.getInteger( SPLIT_THRESHOLD_SYSTEM_PROP, 0 );
+  private static volatile int _iMinParallelSize = Integer.getInteger( MIN_PARALLEL_SIZE_SYSTEM_PROP, 1024 );
+
+  private ParallelCollections()
+  {
+  }
+
+  public static ForkJoinPool getPool()
+  {
+    ForkJoinPool pool = _pool;
+    return pool != null ? pool : DEFAULT_POOL.get();
+  }
+
+  /**
+   * @param pool The pool to run parallel operations on, or null for the default pool
+   */
+  public static void setPool( ForkJoinPool pool )
+  {
+    _pool = pool;
+  }
+
+  public static int getSplitThreshold()
+  {
+    return _iSplitThreshold;
+  }
+
+  /**
+   * @param iSplitThreshold The largest number of elements a chunk processes sequentially, or 0 to
+   *   derive it from the pool's parallelism
+   */
+  public static void setSplitThreshold( int iSplitThreshold )
+  {
+    if( iSplitThreshold < 0 )
+    {
+      throw new IllegalArgumentException( "Split threshold must not be negative: " + iSplitThreshold );
+    }
+    _iSplitThreshold = iSplitThreshold;
+  }
+
+  public static int getMinParallelSize()
+  {
+    return _iMinParallelSize;
+  }
+
+  /**
+   * @param iMinParallelSize The smallest number of elements worth running on the pool, smaller
+   *   collections run on the caller's thread
+   */
+  public static void setMinParallelSize( int iMinParallelSize )
+  {
+    if( iMinParallelSize < 0 )
+    {
+      throw new IllegalArgumentException( "Minimum parallel size must not be negative: " + iMinParallelSize );
+    }
+    _iMinParallelSize = iMinParallelSize;
+  }
+
+  // ------------------------------------------- Operations
+
+  public static List map( List source, Object mapper )
+  {
+    final IFunction1 block = (IFunction1)mapper;
+    // A copy we own, each element is replaced with its result
+    Object[] elts = source.toArray();
+    run( elts, new Op<Object>()
+    {
+      public Object leaf( Object[] elts, int iFrom, int iTo )
+      {
+        for( int i = iFrom; i < iTo; i++ )
+        {
+          elts[i] = block.invoke( elts[i] );
+        }
+        return null;
+      }
+
+      public Object combine( Object left, Object right )
+      {
+        return null;
+      }
+    } );
+    return new ArrayList( Arrays.asList( elts ) );
+  }
+
+  public static List filter( List source, Object cond )
+  {
+    final IFunction1 block = (IFunction1)cond;
+    return run( source.toArray(), new Op<List>()
+    {
+      public List leaf( Object[] elts, int iFrom, int iTo )
+      {
+        List matches = new ArrayList();
+        for( int i = iFrom; i < iTo; i++ )
+        {
+          if( Boolean.TRUE.equals( block.invoke( elts[i] ) ) )
+          {
+            matches.add( elts[i] );
+          }
+        }
+        return matches;
+      }
+
+      public List combine( List left, List right )
+      {
+        left.addAll( right );
+        return left;
+      }
+    } );
+  }
+
+  public static void each( List source, Object operation )
+  {
+    final IFunction1 block = (IFunction1)operation;
+    run( source.toArray(), new Op<Object>()
+    {
+      public Object leaf( Object[] elts, int iFrom, int iTo )
+      {
+        for( int i = iFrom; i < iTo; i++ )
+        {
+          block.invoke( elts[i] );
+        }
+        return null;
+      }
+
+      public Object combine( Object left, Object right )
+      {
+        return null;
+      }
+    } );
+  }
+
+  /**
+   * Reduces the elements with an associative operation. Every chunk starts from the identity, so it
+   * must not change a value it is combined with.
+   */
+  public static Object reduce( List source, final Object identity, Object operation )
+  {
+    final IFunction2 block = (IFunction2)operation;
+    return run( source.toArray(), new Op<Object>()
+    {
+      public Object leaf( Object[] elts, int iFrom, int iTo )
+      {
+        Object value = identity;
+        for( int i = iFrom; i < iTo; i++ )
+        {
+          value = block.invoke( value, elts[i] );
+        }
+        return value;
+      }
+
+      public Object combine( Object left, Object right )
+      {
+        return block.invoke( left, right );
+      }
+    } );
+  }
+
+  public static Map partition( List source, Object partitioner )
+  {
+    final IFunction1 block = (IFunction1)partitioner;
+    return run( source.toArray(), new Op<Map>()
+    {
+      public Map leaf( Object[] elts, int iFrom, int iTo )
+      {
+        Map<Object, List> partitions = new HashMap<Object, List>();
+        for( int i = iFrom; i < iTo; i++ )
+        {
+          Object key = block.invoke( elts[i] );
+          List partition = partitions.get( key );
+          if( partition == null )
+          {
+            partition = new ArrayList();
+            partitions.put( key, partition );
+          }
+          partition.add( elts[i] );
+        }
+        return partitions;
+      }
+
+      public Map combine( Map left, Map right )
+      {
+        for( Map.Entry<Object, List> entry : ((Map<Object, List>)right).entrySet() )
+        {
+          List partition = (List)left.get( entry.getKey() );
+          if( partition == null )
+          {
+            left.put( entry.getKey(), entry.getValue() );
+          }
+          else
+          {
+            partition.addAll( entry.getValue() );
+          }
+        }
+        return left;
+      }
+    } );
+  }
+
+  public static int sumInt( List source, Object mapper )
+  {
+    final IFunction1 block = (IFunction1)mapper;
+    return run( source.toArray(), new Op<Integer>()
+    {
+      public Integer leaf( Object[] elts, int iFrom, int iTo )
+      {
+        int sum = 0;
+        for( int i = iFrom; i < iTo; i++ )
+        {
+          sum += ((Number)block.invoke( elts[i] )).intValue();
+        }
+        return sum;
+      }
+
+      public Integer combine( Integer left, Integer right )
+      {
+        return left + right;
+      }
+    } );
+  }
+
+  public static long sumLong( List source, Object mapper )
+  {
+    final IFunction1 block = (IFunction1)mapper;
+    return run( source.toArray(), new Op<Long>()
+    {
+      public Long leaf( Object[] elts, int iFrom, int iTo )
+      {
+        long sum = 0;
+        for( int i = iFrom; i < iTo; i++ )
+        {
+          sum += ((Number)block.invoke( elts[i] )).longValue();
+        }
+        return sum;
+      }
+
+      public Long combine( Long left, Long right )
+      {
+        return left + right;
+      }
+    } );
+  }
+
+  public static double sumDouble( List source, Object mapper )
+  {
+    final IFunction1 block = (IFunction1)mapper;
+    return run( source.toArray(), new Op<Double>()
+    {
+      public Double leaf( Object[] elts, int iFrom, int iTo )
+      {
+        double sum = 0;
+        for( int i = iFrom; i < iTo; i++ )
+        {
+          sum += ((Number)block.invoke( elts[i] )).doubleValue();
+        }
+        return sum;
+      }
+
+      public Double combine( Double left, Double right )
+      {
+        return left + right;
+      }
+    } );
+  }
+
+  public static BigDecimal sumBigDecimal( List source, Object mapper )
+  {
+    final IFunction1 block = (IFunction1)mapper;
+    return run( source.toArray(), new Op<BigDecimal>()
+    {
+      public BigDecimal leaf( Object[] elts, int iFrom, int iTo )
+      {
+        BigDecimal sum = BigDecimal.ZERO;
+        for( int i = iFrom; i < iTo; i++ )
+        {
+          sum = sum.add( (BigDecimal)block.invoke( elts[i] ) );
+        }
+        return sum;
+      }
+
+      public BigDecimal combine( BigDecimal left, BigDecimal right )
+      {
+        return left.add( right );
+      }
+    } );
+  }
+
+  // ------------------------------------------- Fork/join
+
+  private interface Op<R>
+  {
+    R leaf( Object[] elts, int iFrom, int iTo );
+    R combine( R left, R right );
+  }
+
+  private static <R> R run( Object[] elts, Op<R> op )
+  {
+    if( elts.length < _iMinParallelSize || TypeSystem.isLockHeldByCurrentThread() )
+    {
+      // Not worth a hand-off, or not safe to block on the pool, see class comment
+      return op.leaf( elts, 0, elts.length );
+    }
+    ForkJoinPool pool = getPool();
+    int iThreshold = _iSplitThreshold;
+    if( iThreshold == 0 )
+    {
+      iThreshold = Math.max( MIN_DEFAULT_SPLIT_THRESHOLD, elts.length / (pool.getParallelism() * 4) );
+    }
+    if( elts.length <= iThreshold )
+    {
+      return op.leaf( elts, 0, elts.length );
+    }
+    return pool.invoke( new Chunk<R>( op, elts, 0, elts.length, iThreshold, TypeSystem.getCurrentModule(),
+                                      Thread.currentThread().getContextClassLoader() ) );
+  }
+
+  private static class Chunk<R> extends RecursiveTask<R>
+  {
+    private final Op<R> _op;
+    private final Object[] _elts;
+    private final int _iFrom;
+    private final int _iTo;
+    private final int _iThreshold;
+    private final IModule _module;
+    private final ClassLoader _contextLoader;
+
+    Chunk( Op<R> op, Object[] elts, int iFrom, int iTo, int iThreshold, IModule module, ClassLoader contextLoader )
+    {
+      _op = op;
+      _elts = elts;
+      _iFrom = iFrom;
+      _iTo = iTo;
+      _iThreshold = iThreshold;
+      _module = module;
+      _contextLoader = contextLoader;
+    }
+
+    @Override
+    protected R compute()
+    {
+      if( _iTo - _iFrom <= _iThreshold )
+      {
+        return computeLeaf();
+      }
+      int iMid = (_iFrom + _iTo) >>> 1;
+      Chunk<R> left = new Chunk<R>( _op, _elts, _iFrom, iMid, _iThreshold, _module, _contextLoader );
+      Chunk<R> right = new Chunk<R>( _op, _elts, iMid, _iTo, _iThreshold, _module, _contextLoader );
+      left.fork();
+      R rightResult = right.compute();
+      return _op.combine( left.join(), rightResult );
+    }
+
+    private R computeLeaf()
+    {
+      Thread thread = Thread.currentThread();
+      ClassLoader previousLoader = thread.getContextClassLoader();
+      thread.setContextClassLoader( _contextLoader );
+      try
+      {
+        if( _module == null )
+        {
+          return _op.leaf( _elts, _iFrom, _iTo );
+        }
+        TypeSystem.pushModule( _module );
+        try
+        {
+          return _op.leaf( _elts, _iFrom, _iTo );
+        }
+        finally
+        {
+          TypeSystem.popModule( _module );
+        }
+      }
+      finally
+      {
+        thread.setContextClassLoader( previousLoader );
+      }
+    }
+  }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.lang.function;
+
+/**
+ * Primitive-specialized invoke methods for blocks. A compiled block whose signature matches one of
+ * these interfaces implements it in addition to its IFunctionN interface, so a block invocation with
+ * a matching static type can call it without boxing the arguments or the result.
+ */
+@SuppressWarnings({"UnusedDeclaration"})
+public final class PrimitiveFunctions
+{
+  private PrimitiveFunctions() {}
+
+  public interface IntToBoolean { boolean invoke( int arg0 ); }
+  public interface IntToInt { int invoke( int arg0 ); }
+  public interface IntToLong { long invoke( int arg0 ); }
+  public interface IntToDouble { double invoke( int arg0 ); }
+
+  public interface LongToBoolean { boolean invoke( long arg0 ); }
+  public interface LongToInt { int invoke( long arg0 ); }
+  public interface LongToLong { long invoke( long arg0 ); }
+  public interface LongToDouble { double invoke( long arg0 ); }
+
+  public interface DoubleToBoolean { boolean invoke( double arg0 ); }
+  public interface DoubleToInt { int invoke( double arg0 ); }
+  public interface DoubleToLong { long invoke( double arg0 ); }
+  public interface DoubleToDouble { double invoke( double arg0 ); }
+
+  public interface IntIntToInt { int invoke( int arg0, int arg1 ); }
+  public interface LongLongToLong { long invoke( long arg0, long arg1 ); }
+  public interface DoubleDoubleToDouble { double invoke( double arg0, double arg1 ); }
+}
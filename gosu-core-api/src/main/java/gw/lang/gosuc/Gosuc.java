@@ -324,7 +324,8 @@ public class Gosuc implements IGosuc {
   public List<IType> compile( IModule module, List<String> types ) {
     TypeSystem.pushModule( module );
     try {
-      return new GosucCompiler().compile( _project, types );
+      String stateFile = GosucArg.INCREMENTAL.getValue();
+      return new GosucCompiler( getThreads(), stateFile == null ? null : new File( stateFile ), GosucArg.VERBOSE.isMatched() ).compile( _project, types );
     }
     finally {
       TypeSystem.popModule( module );
@@ -346,6 +347,20 @@ public class Gosuc implements IGosuc {
     gosuc.compile( (String)null, Collections.singletonList( "-all" ) );
   }
 
+  private static int getThreads() {
+    String threads = GosucArg.THREADS.getValue();
+    if( threads == null ) {
+      return 1;
+    }
+    try {
+      return Math.max( 1, Integer.parseInt( threads ) );
+    }
+    catch( NumberFormatException e ) {
+      System.err.println( "Invalid " + GosucArg.THREADS.getName() + " value: " + threads + ", compiling with one thread" );
+      return 1;
+    }
+  }
+
   private static ICustomParser maybeGetCustomParser() {
     String cls = GosucArg.PARSER.getValue();
     if( cls != null ) {
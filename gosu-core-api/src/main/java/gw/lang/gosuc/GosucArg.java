@@ -9,7 +9,10 @@ package gw.lang.gosuc;
 public class GosucArg {
   public static final GosucArg PROJECT = new GosucArg( true, false, "-project", "The GosuC project file to compile" );
   public static final GosucArg PARSER = new GosucArg( false, false, "-parser", "The fully qualified name of a custom parser class implementing " + ICustomParser.class.getName() );
-  public static final GosucArg[] ARGS = {PROJECT, PARSER,};
+  public static final GosucArg THREADS = new GosucArg( false, false, "-threads", "The number of threads to compile with, defaults to 1" );
+  public static final GosucArg INCREMENTAL = new GosucArg( false, false, "-incremental", "The build state file to compile incrementally against" );
+  public static final GosucArg VERBOSE = new GosucArg( false, true, "-verbose", "Report the number of types compiled and the time spent in each phase" );
+  public static final GosucArg[] ARGS = {PROJECT, PARSER, THREADS, INCREMENTAL, VERBOSE,};
 
   private String _name;
   private String _value;
@@ -26,33 +26,239 @@ import java.io.OutputStream;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Compiles Gosu types to class files in their module's output directory.
+ * <p/>
+ * With more than one thread each type is parsed, transformed and written on a worker pool. Inner
+ * types are compiled with their enclosing type; the type system's own locking orders the parsing of
+ * types that depend on each other. Console output is buffered per type so it isn't interleaved, and
+ * the time spent in each phase is reported at the end, or with one thread only when verbose.
+ * <p/>
+ * Given a build state file only the types that are out of date are compiled, see IncrementalBuildState.
+ */
 public class GosucCompiler {
+  private final int _iThreads;
+  private final File _stateFile;
+  private final boolean _bVerbose;
+  private IncrementalBuildState _state;
+  private Map<String, Long> _sourceFingerprints;
+  private final AtomicLong _parseNanos = new AtomicLong();
+  private final AtomicLong _generateNanos = new AtomicLong();
+  private final AtomicLong _writeNanos = new AtomicLong();
+
+  public GosucCompiler() {
+    this( 1 );
+  }
+
+  public GosucCompiler( int iThreads ) {
+    this( iThreads, null );
+  }
+
+  /**
+   * @param stateFile The incremental build state to compile against and update, or null to always
+   *   compile all the types given, see {@link IncrementalBuildState}
+   */
+  public GosucCompiler( int iThreads, File stateFile ) {
+    this( iThreads, stateFile, false );
+  }
+
+  /**
+   * @param bVerbose Report the number of types compiled and the time spent in each phase, which is
+   *   always reported with more than one thread
+   */
+  public GosucCompiler( int iThreads, File stateFile, boolean bVerbose ) {
+    _iThreads = Math.max( 1, iThreads );
+    _stateFile = stateFile;
+    _bVerbose = bVerbose;
+  }
+
   public List<IType> compile( GosucProject project, Collection<? extends CharSequence> typeNames ) {
     final List<IType> types = new ArrayList<IType>();
     if( !typeNames.isEmpty() ) {
-      if( typeNames.contains( "-all" ) ) {
+      boolean bAll = typeNames.contains( "-all" );
+      if( bAll ) {
         typeNames = project.getAllDefinedTypes();
       }
+      long start = System.nanoTime();
+      if( _stateFile != null && bAll ) {
+        // Only the complete set of types tells which types were removed
+        compileIncremental( typeNames, types );
+      }
+      else {
+        compileBatch( typeNames, types, null );
+      }
+      if( _bVerbose || _iThreads > 1 ) {
+        System.out.println( "Compiled " + types.size() + " types in " + toMillis( System.nanoTime() - start ) + "ms using " + _iThreads +
+                            " thread(s) (parse " + toMillis( _parseNanos.get() ) + "ms, generate " + toMillis( _generateNanos.get() ) +
+                            "ms, write " + toMillis( _writeNanos.get() ) + "ms)" );
+      }
+    }
+    return types;
+  }
+
+  private void compileIncremental( Collection<? extends CharSequence> typeNames, List<IType> types ) {
+    _state = IncrementalBuildState.load( _stateFile, getEnvironmentFingerprint( typeNames ) );
+    _sourceFingerprints = new LinkedHashMap<String, Long>();
+    for( CharSequence typeName : typeNames ) {
+      _sourceFingerprints.put( typeName.toString(), IncrementalBuildState.fingerprintSource( TypeSystem.getByFullNameIfValid( typeName.toString() ) ) );
+    }
+    Set<String> batch = _state.getTypesToCompile( _sourceFingerprints );
+    System.out.println( (_state.isFullBuild() ? "Full build, " : "Incremental build, ") + batch.size() + " of " + _sourceFingerprints.size() + " types to compile" );
+    Set<String> compiled = new HashSet<String>();
+    while( !batch.isEmpty() ) {
+      compiled.addAll( batch );
+      Set<String> dependents = Collections.synchronizedSet( new LinkedHashSet<String>() );
+      compileBatch( batch, types, dependents );
+      dependents.removeAll( compiled );
+      if( !dependents.isEmpty() ) {
+        System.out.println( "Compiling " + dependents.size() + " dependent types of changed signatures" );
+      }
+      batch = dependents;
+    }
+    try {
+      _state.save();
+    }
+    catch( IOException e ) {
+      System.out.println( "Can't save the build state to " + _stateFile + ": " + e.getMessage() );
+    }
+  }
+
+  private String getEnvironmentFingerprint( Collection<? extends CharSequence> typeNames ) {
+    List<File> classPath = new ArrayList<File>();
+    for( IModule module : TypeSystem.getExecutionEnvironment().getModules() ) {
+      for( IDirectory dir : module.getJavaClassPath() ) {
+        classPath.add( new File( dir.getPath().getFileSystemPathString() ) );
+      }
+    }
+    List<String> excludedTypes = new ArrayList<String>();
+    for( CharSequence typeName : typeNames ) {
+      excludedTypes.add( typeName.toString() );
+    }
+    return IncrementalBuildState.fingerprintFiles( classPath, excludedTypes );
+  }
+
+  /**
+   * @param dependents If compiling incrementally, collects the types to compile next
+   */
+  private void compileBatch( Collection<? extends CharSequence> typeNames, List<IType> types, Set<String> dependents ) {
+    if( _iThreads > 1 && typeNames.size() > 1 ) {
+      compileParallel( typeNames, types, dependents );
+    }
+    else {
       for( CharSequence typeName : typeNames ) {
-        System.out.println( "Compiling " + typeName + "..." );
-        final IType type = TypeSystem.getByFullNameIfValid( typeName.toString() );
+        StringBuilder log = new StringBuilder();
+        IType type = compileTypeName( typeName, log, dependents );
+        System.out.print( log );
         if( type != null ) {
-          if( compileType( type ) ) {
-            types.add( type );
-          }
+          types.add( type );
         }
-        else {
-          System.out.println( " - can't be compiled, name is invalid" );
+      }
+    }
+  }
+
+  private void compileParallel( Collection<? extends CharSequence> typeNames, List<IType> types, final Set<String> dependents ) {
+    final IModule module = TypeSystem.getCurrentModule();
+    ExecutorService executor = Executors.newFixedThreadPool( _iThreads, new ThreadFactory() {
+      private final AtomicInteger _iCount = new AtomicInteger();
+      public Thread newThread( Runnable r ) {
+        Thread thread = new Thread( r, "gosuc-" + _iCount.incrementAndGet() );
+        thread.setDaemon( true );
+        return thread;
+      }
+    } );
+    try {
+      List<Future<IType>> results = new ArrayList<Future<IType>>();
+      for( final CharSequence typeName : typeNames ) {
+        results.add( executor.submit( new Callable<IType>() {
+          public IType call() {
+            StringBuilder log = new StringBuilder();
+            TypeSystem.pushModule( module );
+            try {
+              return compileTypeName( typeName, log, dependents );
+            }
+            finally {
+              TypeSystem.popModule( module );
+              synchronized( System.out ) {
+                System.out.print( log );
+              }
+            }
+          }
+        } ) );
+      }
+      // Collect in the order the names were given
+      for( Future<IType> result : results ) {
+        IType type = result.get();
+        if( type != null ) {
+          types.add( type );
         }
       }
     }
-    return types;
+    catch( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException( e );
+    }
+    catch( ExecutionException e ) {
+      Throwable cause = e.getCause();
+      if( cause instanceof RuntimeException ) {
+        throw (RuntimeException)cause;
+      }
+      if( cause instanceof Error ) {
+        throw (Error)cause;
+      }
+      throw new RuntimeException( cause );
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private IType compileTypeName( CharSequence typeName, StringBuilder log, Set<String> dependents ) {
+    log.append( "Compiling " ).append( typeName ).append( "...\n" );
+    final IType type = TypeSystem.getByFullNameIfValid( typeName.toString() );
+    if( type == null ) {
+      log.append( " - can't be compiled, name is invalid\n" );
+      if( _state != null ) {
+        _state.recordFailed( typeName.toString() );
+      }
+      return null;
+    }
+    Map<File, byte[]> classFiles = new HashMap<File, byte[]>();
+    boolean bCompiled = compileType( type, log, classFiles );
+    if( _state != null ) {
+      long sourceFingerprint = _sourceFingerprints.get( typeName.toString() );
+      if( !bCompiled || !(type instanceof IGosuClass) ) {
+        dependents.addAll( _state.recordSkipped( typeName.toString(), sourceFingerprint ) );
+      }
+      else if( !((IGosuClass)type).isValid() ) {
+        _state.recordFailed( typeName.toString() );
+      }
+      else {
+        dependents.addAll( _state.recordCompiled( (IGosuClass)type, sourceFingerprint, classFiles ) );
+      }
+    }
+    return bCompiled ? type : null;
   }
 
-  private boolean compileType( IType type ) {
+  private boolean compileType( IType type, StringBuilder log, Map<File, byte[]> classFiles ) {
     if( !(type instanceof ICompilable) || !((ICompilable)type).isCompilable() ) {
       return false;
     }
@@ -70,17 +276,19 @@ public class GosucCompiler {
     TypeSystem.pushModule( module );
     try {
       IGosuClass gsClass = (IGosuClass)type;
+      long start = System.nanoTime();
       boolean bValid = gsClass.isValid();
+      _parseNanos.addAndGet( System.nanoTime() - start );
       final ParseResultsException parseException = gsClass.getParseResultsException();
       if( parseException != null ) {
         for( IParseIssue issue: parseException.getParseIssues() ) {
-          System.out.println( (issue instanceof ParseWarning ? "Warning: " : "Error: ") + issue.getConsoleMessage() );
+          log.append( issue instanceof ParseWarning ? "Warning: " : "Error: " ).append( issue.getConsoleMessage() ).append( '\n' );
         }
       }
 
       if( bValid ) {
         // Compile to bytecode (.class files) (and also copies source file)
-        makeClassFileForOut( (IGosuClass)type );
+        makeClassFileForOut( (IGosuClass)type, log, classFiles );
       }
       return true;
     }
@@ -89,7 +297,7 @@ public class GosucCompiler {
     }
   }
 
-  private File makeClassFileForOut(IGosuClass gsClass) {
+  private File makeClassFileForOut( IGosuClass gsClass, StringBuilder log, Map<File, byte[]> classFiles ) {
     IModule module = TypeSystem.getCurrentModule();
     final File[] classFile = new File[1];
     IDirectory moduleOutputDirectory = module.getOutputPath();
@@ -109,16 +317,19 @@ public class GosucCompiler {
             child.createNewFile();
           }
           else {
+            // Another thread may create the same package directory
             child.mkdir();
           }
         }
       }
-      createClassFile( child, gsClass );
+      createClassFile( child, gsClass, classFiles );
+      long start = System.nanoTime();
       maybeCopySourceFile( child.getParentFile(), gsClass );
+      _writeNanos.addAndGet( System.nanoTime() - start );
       classFile[0] = child;
     }
     catch( Exception e ) {
-      System.out.println( e.getMessage() );
+      log.append( e.getMessage() ).append( '\n' );
     }
     return classFile[0];
   }
@@ -139,29 +350,38 @@ public class GosucCompiler {
     }
   }
 
-  private void createClassFile( File outputFile, IGosuClass gosuClass ) throws IOException {
+  private void createClassFile( File outputFile, IGosuClass gosuClass, Map<File, byte[]> classFiles ) throws IOException {
     if (hasDoNotVerifyAnnotation(gosuClass)) {
       return;
     }
 
+    long start = System.nanoTime();
     final byte[] bytes = TypeSystem.getGosuClassLoader().getBytes(gosuClass);
+    long written = System.nanoTime();
+    _generateNanos.addAndGet( written - start );
     OutputStream out = new FileOutputStream( outputFile );
     try {
       out.write( bytes );
     }
     finally {
       out.close();
+      _writeNanos.addAndGet( System.nanoTime() - written );
     }
+    classFiles.put( outputFile, bytes );
     for (IGosuClass innerClass : gosuClass.getInnerClasses()) {
       final String innerClassName = String.format("%s$%s.class", outputFile.getName().substring( 0, outputFile.getName().lastIndexOf( '.' ) ), innerClass.getRelativeName());
       File innerClassFile = new File( outputFile.getParent(), innerClassName );
       if( innerClassFile.isFile() ) {
         innerClassFile.createNewFile();
       }
-      createClassFile( innerClassFile, innerClass );
+      createClassFile( innerClassFile, innerClass, classFiles );
     }
   }
 
+  private static long toMillis( long nanos ) {
+    return TimeUnit.NANOSECONDS.toMillis( nanos );
+  }
+
   private boolean hasDoNotVerifyAnnotation(IGosuClass gsClass) {
     for (IAnnotationInfo ai : gsClass.getTypeInfo().getAnnotations()) {
       if (ai.getType().getRelativeName().equals("DoNotVerifyResource")) {
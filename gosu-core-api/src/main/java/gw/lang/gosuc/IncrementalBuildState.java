@@ -0,0 +1,442 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.lang.gosuc;
+
+import gw.fs.IFile;
+import gw.lang.parser.IExpression;
+import gw.lang.reflect.IConstructorInfo;
+import gw.lang.reflect.IFeatureInfo;
+import gw.lang.reflect.IMethodInfo;
+import gw.lang.reflect.IOptionalParamCapable;
+import gw.lang.reflect.IType;
+import gw.lang.reflect.ITypeInfo;
+import gw.lang.reflect.gs.IGosuClass;
+import gw.lang.reflect.gs.ISourceFileHandle;
+import gw.util.ClassFileSummary;
+import gw.util.fingerprint.FP64;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * The on-disk state of an incremental build, used by GosucCompiler and the Maven compile mojos.
+ * <p/>
+ * For each top-level type it records the fingerprint of the source file, the fingerprint of the
+ * non-private signatures in the emitted class files and of the default parameter values, which
+ * callers inline (together the type's ABI), the class files written and the types the class files
+ * reference. A build then compiles only:
+ * <ul>
+ *   <li>types whose source changed or that are new
+ *   <li>types in the package of a new or removed type, since simple names may resolve differently
+ *   <li>types that reference a removed type
+ *   <li>types that reference a type whose ABI changed in this build, transitively
+ * </ul>
+ * Class files of removed types, and class files a recompiled type no longer emits, are deleted. If
+ * the state is missing, unreadable or was written for another classpath, everything is compiled.
+ */
+public class IncrementalBuildState {
+  private static final String HEADER = "# Gosu incremental build state v2";
+  private static final String CLASS_SUFFIX = ".class";
+
+  private final File _file;
+  private final String _environment;
+  private final boolean _bFullBuild;
+  private final Map<String, Entry> _entries;
+  private final Map<String, Set<String>> _dependents;
+  private Set<String> _knownTypes = Collections.emptySet();
+
+  private IncrementalBuildState( File file, String environment, Map<String, Entry> entries, boolean bFullBuild ) {
+    _file = file;
+    _environment = environment;
+    _entries = entries;
+    _bFullBuild = bFullBuild;
+    _dependents = new HashMap<String, Set<String>>();
+    for( Map.Entry<String, Entry> e : entries.entrySet() ) {
+      updateDependents( e.getKey(), Collections.<String>emptySet(), e.getValue()._dependencies );
+    }
+  }
+
+  /**
+   * @param environment A fingerprint of everything outside the sources the build depends on, such as
+   *   the classpath, see {@link #fingerprintFiles}. Any change forces a full build.
+   */
+  public static IncrementalBuildState load( File file, String environment ) {
+    Map<String, Entry> entries = new HashMap<String, Entry>();
+    if( !file.isFile() ) {
+      return new IncrementalBuildState( file, environment, entries, true );
+    }
+    try {
+      BufferedReader reader = new BufferedReader( new InputStreamReader( new FileInputStream( file ), "UTF-8" ) );
+      try {
+        if( !HEADER.equals( reader.readLine() ) || !environment.equals( reader.readLine() ) ) {
+          return new IncrementalBuildState( file, environment, entries, true );
+        }
+        for( String line = reader.readLine(); line != null; line = reader.readLine() ) {
+          String[] fields = line.split( "\t", -1 );
+          Entry entry = new Entry( Long.parseLong( fields[1], 16 ), Long.parseLong( fields[2], 16 ),
+                                   split( fields[3], File.pathSeparator ), new HashSet<String>( split( fields[4], "," ) ) );
+          entries.put( fields[0], entry );
+        }
+      }
+      finally {
+        reader.close();
+      }
+    }
+    catch( Exception e ) {
+      System.out.println( "Ignoring unreadable build state " + file + ": " + e );
+      return new IncrementalBuildState( file, environment, new HashMap<String, Entry>(), true );
+    }
+    return new IncrementalBuildState( file, environment, entries, false );
+  }
+
+  public boolean isFullBuild() {
+    return _bFullBuild;
+  }
+
+  /**
+   * Determines the types to compile first and deletes the class files of types that no longer exist.
+   *
+   * @param sourceFingerprints The source fingerprint of every type in the build, 0 if it has none,
+   *   see {@link #fingerprintSource}
+   */
+  public synchronized Set<String> getTypesToCompile( Map<String, Long> sourceFingerprints ) {
+    _knownTypes = new HashSet<String>( sourceFingerprints.keySet() );
+    if( _bFullBuild ) {
+      return new LinkedHashSet<String>( sourceFingerprints.keySet() );
+    }
+
+    Set<String> affected = new HashSet<String>();
+    Set<String> changedPackages = new HashSet<String>();
+    for( Map.Entry<String, Long> e : sourceFingerprints.entrySet() ) {
+      Entry entry = _entries.get( e.getKey() );
+      if( entry == null ) {
+        changedPackages.add( getPackage( e.getKey() ) );
+      }
+      if( entry == null || e.getValue() == 0 || entry._sourceFingerprint != e.getValue() ) {
+        affected.add( e.getKey() );
+      }
+    }
+    for( String removed : new ArrayList<String>( _entries.keySet() ) ) {
+      if( !sourceFingerprints.containsKey( removed ) ) {
+        changedPackages.add( getPackage( removed ) );
+        affected.addAll( getDependents( removed ) );
+        Entry entry = _entries.remove( removed );
+        updateDependents( removed, entry._dependencies, Collections.<String>emptySet() );
+        deleteClassFiles( entry._classFiles );
+      }
+    }
+
+    Set<String> toCompile = new LinkedHashSet<String>();
+    for( String typeName : sourceFingerprints.keySet() ) {
+      if( affected.contains( typeName ) || changedPackages.contains( getPackage( typeName ) ) ) {
+        toCompile.add( typeName );
+      }
+    }
+    return toCompile;
+  }
+
+  /**
+   * Records a successfully compiled type.
+   *
+   * @param classFiles The class files written for the type and its inner types
+   * @return The types to recompile because they reference this type and its ABI changed
+   */
+  public synchronized Set<String> recordCompiled( IGosuClass gsClass, long sourceFingerprint, Map<File, byte[]> classFiles ) {
+    String typeName = gsClass.getName();
+    FP64 abi = new FP64();
+    Set<String> dependencies = new TreeSet<String>();
+    List<String> files = new ArrayList<String>();
+    for( Map.Entry<File, byte[]> e : new TreeMap<File, byte[]>( classFiles ).entrySet() ) {
+      files.add( e.getKey().getAbsolutePath() );
+      summarize( e.getValue(), abi, dependencies );
+    }
+    extendWithDefaultValues( gsClass, abi );
+    dependencies.retainAll( _knownTypes );
+    dependencies.remove( typeName );
+
+    return record( typeName, new Entry( sourceFingerprint, abi.getRawFingerprint(), files, dependencies ) );
+  }
+
+  /**
+   * Records a type in the build that isn't compiled to class files e.g., a type that isn't a Gosu
+   * class, so it isn't taken for a new type next time.
+   *
+   * @return The types to recompile because they referenced class files this type no longer has
+   */
+  public synchronized Set<String> recordSkipped( String typeName, long sourceFingerprint ) {
+    return record( typeName, new Entry( sourceFingerprint, 0, Collections.<String>emptyList(), Collections.<String>emptySet() ) );
+  }
+
+  private Set<String> record( String typeName, Entry entry ) {
+    Entry old = _entries.put( typeName, entry );
+    if( old == null ) {
+      updateDependents( typeName, Collections.<String>emptySet(), entry._dependencies );
+      return Collections.emptySet();
+    }
+    // Keep the reverse index current, types compiled later in this build look up their dependents
+    updateDependents( typeName, old._dependencies, entry._dependencies );
+    List<String> staleFiles = new ArrayList<String>( old._classFiles );
+    staleFiles.removeAll( entry._classFiles );
+    deleteClassFiles( staleFiles );
+    return old._abiFingerprint == entry._abiFingerprint ? Collections.<String>emptySet() : getDependents( typeName );
+  }
+
+  /**
+   * Records a type that failed to compile, so the next build compiles it again.
+   */
+  public synchronized void recordFailed( String typeName ) {
+    Entry old = _entries.get( typeName );
+    _entries.put( typeName, old == null
+                            ? new Entry( 0, 0, Collections.<String>emptyList(), Collections.<String>emptySet() )
+                            : new Entry( 0, 0, old._classFiles, old._dependencies ) );
+  }
+
+  public synchronized void save() throws IOException {
+    File parent = _file.getAbsoluteFile().getParentFile();
+    if( parent != null ) {
+      parent.mkdirs();
+    }
+    BufferedWriter writer = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( _file ), "UTF-8" ) );
+    try {
+      writer.write( HEADER );
+      writer.newLine();
+      writer.write( _environment );
+      writer.newLine();
+      for( String typeName : new TreeSet<String>( _entries.keySet() ) ) {
+        Entry entry = _entries.get( typeName );
+        writer.write( typeName + '\t' + Long.toHexString( entry._sourceFingerprint ) + '\t' + Long.toHexString( entry._abiFingerprint ) + '\t' +
+                      join( entry._classFiles, File.pathSeparator ) + '\t' + join( entry._dependencies, "," ) );
+        writer.newLine();
+      }
+    }
+    finally {
+      writer.close();
+    }
+  }
+
+  private void updateDependents( String typeName, Set<String> oldDependencies, Set<String> newDependencies ) {
+    for( String dependency : oldDependencies ) {
+      if( !newDependencies.contains( dependency ) ) {
+        Set<String> dependents = _dependents.get( dependency );
+        if( dependents != null ) {
+          dependents.remove( typeName );
+        }
+      }
+    }
+    for( String dependency : newDependencies ) {
+      Set<String> dependents = _dependents.get( dependency );
+      if( dependents == null ) {
+        dependents = new HashSet<String>();
+        _dependents.put( dependency, dependents );
+      }
+      dependents.add( typeName );
+    }
+  }
+
+  private Set<String> getDependents( String typeName ) {
+    Set<String> dependents = _dependents.get( typeName );
+    return dependents == null ? Collections.<String>emptySet() : new HashSet<String>( dependents );
+  }
+
+  /**
+   * @return The fingerprint of the type's source file, or 0 if it doesn't have one
+   */
+  public static long fingerprintSource( IType type ) {
+    if( !(type instanceof IGosuClass) ) {
+      return 0;
+    }
+    ISourceFileHandle sfh = ((IGosuClass)type).getSourceFileHandle();
+    IFile file = sfh == null ? null : sfh.getFile();
+    if( file == null || !file.exists() ) {
+      return 0;
+    }
+    try {
+      InputStream in = file.openInputStream();
+      try {
+        return new FP64( in ).getRawFingerprint();
+      }
+      finally {
+        in.close();
+      }
+    }
+    catch( IOException e ) {
+      return 0;
+    }
+  }
+
+  /**
+   * A directory's timestamp doesn't change when a class file below it does, so each class file in a
+   * directory is fingerprinted by its relative path, size and modification time.
+   *
+   * @param excludedTypes The types being built, whose class files are skipped where the output
+   *   directory is also on the classpath
+   * @return A fingerprint of the paths, sizes and modification times of the files
+   */
+  public static String fingerprintFiles( Collection<File> files, Collection<String> excludedTypes ) {
+    Set<String> excluded = new HashSet<String>( excludedTypes );
+    FP64 fp = new FP64();
+    for( File file : files ) {
+      fp.extend( file.getAbsolutePath() );
+      if( file.isDirectory() ) {
+        fingerprintClassFiles( file, "", excluded, fp );
+      }
+      else {
+        fp.extend( file.length() );
+        fp.extend( file.lastModified() );
+      }
+    }
+    return fp.toHexString();
+  }
+
+  private static void fingerprintClassFiles( File dir, String path, Set<String> excludedTypes, FP64 fp ) {
+    File[] children = dir.listFiles();
+    if( children == null ) {
+      return;
+    }
+    // In the same order on every build
+    Arrays.sort( children );
+    for( File child : children ) {
+      String childPath = path + child.getName();
+      if( child.isDirectory() ) {
+        fingerprintClassFiles( child, childPath + '/', excludedTypes, fp );
+      }
+      else if( childPath.endsWith( CLASS_SUFFIX ) && !excludedTypes.contains( getTopLevelTypeName( childPath ) ) ) {
+        fp.extend( childPath );
+        fp.extend( child.length() );
+        fp.extend( child.lastModified() );
+      }
+    }
+  }
+
+  /**
+   * @param classFilePath e.g. a/b/C$Inner.class
+   * @return e.g. a.b.C
+   */
+  private static String getTopLevelTypeName( String classFilePath ) {
+    String name = classFilePath.substring( 0, classFilePath.length() - CLASS_SUFFIX.length() );
+    int iDollar = name.indexOf( '$', name.lastIndexOf( '/' ) + 1 );
+    if( iDollar > 0 ) {
+      name = name.substring( 0, iDollar );
+    }
+    return name.replace( '/', '.' );
+  }
+
+  private static void summarize( byte[] bytes, FP64 abi, Set<String> references ) {
+    try {
+      ClassFileSummary summary = ClassFileSummary.read( bytes );
+      summary.extendAbiFingerprint( abi );
+      references.addAll( summary.getReferences() );
+    }
+    catch( IOException e ) {
+      // Not a class file we understand, make sure the ABI counts as changed
+      abi.extend( System.nanoTime() );
+    }
+  }
+
+  /**
+   * Callers are compiled with the default parameter values of the functions they call, the class
+   * files don't have them
+   */
+  private static void extendWithDefaultValues( IGosuClass gsClass, FP64 abi ) {
+    Set<String> defaultValues = new TreeSet<String>();
+    addDefaultValues( gsClass, defaultValues );
+    for( String defaultValue : defaultValues ) {
+      abi.extend( defaultValue );
+    }
+  }
+
+  private static void addDefaultValues( IGosuClass gsClass, Set<String> defaultValues ) {
+    ITypeInfo typeInfo = gsClass.getTypeInfo();
+    for( IMethodInfo mi : typeInfo.getMethods() ) {
+      if( gsClass.equals( mi.getOwnersType() ) ) {
+        addDefaultValues( gsClass, mi, defaultValues );
+      }
+    }
+    for( IConstructorInfo ci : typeInfo.getConstructors() ) {
+      addDefaultValues( gsClass, ci, defaultValues );
+    }
+    for( IGosuClass innerClass : gsClass.getInnerClasses() ) {
+      addDefaultValues( innerClass, defaultValues );
+    }
+  }
+
+  private static void addDefaultValues( IGosuClass gsClass, IFeatureInfo feature, Set<String> defaultValues ) {
+    if( !(feature instanceof IOptionalParamCapable) ) {
+      return;
+    }
+    IExpression[] values = ((IOptionalParamCapable)feature).getDefaultValueExpressions();
+    for( int i = 0; i < values.length; i++ ) {
+      IExpression value = values[i];
+      if( value != null ) {
+        String text = value.getLocation() == null ? String.valueOf( value ) : value.getLocation().getTextFromTokens();
+        defaultValues.add( gsClass.getName() + '.' + feature.getName() + '#' + i + " = " + text );
+      }
+    }
+  }
+
+  private static String getPackage( String typeName ) {
+    int iDot = typeName.lastIndexOf( '.' );
+    return iDot < 0 ? "" : typeName.substring( 0, iDot );
+  }
+
+  private static void deleteClassFiles( List<String> files ) {
+    for( String file : files ) {
+      new File( file ).delete();
+    }
+  }
+
+  private static List<String> split( String field, String separator ) {
+    List<String> values = new ArrayList<String>();
+    if( field.length() > 0 ) {
+      Collections.addAll( values, field.split( Pattern.quote( separator ) ) );
+    }
+    return values;
+  }
+
+  private static String join( Collection<String> values, String separator ) {
+    StringBuilder sb = new StringBuilder();
+    for( String value : values ) {
+      if( sb.length() > 0 ) {
+        sb.append( separator );
+      }
+      sb.append( value );
+    }
+    return sb.toString();
+  }
+
+  private static class Entry {
+    private final long _sourceFingerprint;
+    private final long _abiFingerprint;
+    private final List<String> _classFiles;
+    private final Set<String> _dependencies;
+
+    Entry( long sourceFingerprint, long abiFingerprint, List<String> classFiles, Set<String> dependencies ) {
+      _sourceFingerprint = sourceFingerprint;
+      _abiFingerprint = abiFingerprint;
+      _classFiles = classFiles;
+      _dependencies = dependencies;
+    }
+  }
+}
@@ -5,6 +5,7 @@
 package gw.lang.init;
 
 import gw.lang.UnstableAPI;
+import gw.lang.reflect.TypeSystem;
 import gw.lang.reflect.module.IExecutionEnvironment;
 import gw.lang.reflect.module.IModule;
 import gw.util.GosuExceptionUtil;
@@ -17,6 +18,12 @@ import java.util.WeakHashMap;
 @UnstableAPI
 public class GosuInitialization
 {
+  /**
+   * Set this system property to true to seal the type system once the runtime is initialized, see
+   * {@link gw.lang.reflect.ITypeSystem#seal()}. Production runtimes that never reload types should.
+   */
+  public static final String SEALED_PROPERTY = "gosu.sealed";
+
   private static final Map<IExecutionEnvironment, GosuInitialization> INSTANCES = new WeakHashMap<IExecutionEnvironment, GosuInitialization>();
 
   private IExecutionEnvironment _execEnv;
@@ -34,6 +41,10 @@ public class GosuInitialization
     return !INSTANCES.isEmpty();
   }
 
+  public static boolean isSealRequested() {
+    return Boolean.getBoolean( SEALED_PROPERTY );
+  }
+
   private GosuInitialization( IExecutionEnvironment execEnv ) {
     _execEnv = execEnv;
     _initialized = false;
@@ -60,11 +71,21 @@ public class GosuInitialization
   }
 
   public void initializeRuntime( List<GosuPathEntry> pathEntries ) {
+    initializeRuntime( pathEntries, isSealRequested() );
+  }
+
+  /**
+   * @param bSealed Seal the type system once initialized, types can't be refreshed afterwards
+   */
+  public void initializeRuntime( List<GosuPathEntry> pathEntries, boolean bSealed ) {
     if (_initialized) {
       throw new IllegalStateException("Illegal attempt to re-initialize Gosu");
     }
     callMethod("initializeRuntime", pathEntries);
     _initialized = true;
+    if (bSealed) {
+      TypeSystem.seal();
+    }
   }
 
   public void reinitializeRuntime( List<GosuPathEntry> pathEntries ) {
@@ -91,6 +112,9 @@ public class GosuInitialization
       throw new RuntimeException(e);
     }
     _initialized = true;
+    if (isSealRequested()) {
+      TypeSystem.seal();
+    }
   }
 
   public void uninitializeMultipleModules() {
@@ -29,6 +29,7 @@ public class ParserOptions
   private boolean _bStatementsOnly;
   private IScriptPartId _partId;
   private boolean _throwawayProgram;
+  private boolean _cachedProgram;
   private Object _ctxInferenceMgr;
   private Set<ResourceKey> _ignoreWarnings = new HashSet<ResourceKey>();
   private boolean _allowUses;
@@ -111,6 +112,20 @@ public class ParserOptions
     return this;
   }
 
+  /**
+   * Reuse the compiled program for the same source, symbol table signature and options. The
+   * program may be shared with other callers, so it must not be modified. Only options that are
+   * fully described by values apply, with a parser, tokenizer instructor, file context, context
+   * inference manager, script part, DFS declarations or symbol capture the program is compiled
+   * anew every time. A cached program is compiled as a throwaway program, so once evicted it is
+   * unloaded with its class loader.
+   */
+  public ParserOptions asCachedProgram()
+  {
+    _cachedProgram = true;
+    return this;
+  }
+
   public ParserOptions withStatementsOnly()
   {
     _bStatementsOnly = true;
@@ -235,6 +250,11 @@ public class ParserOptions
     return _throwawayProgram;
   }
 
+  public boolean isCachedProgram()
+  {
+    return _cachedProgram;
+  }
+
   public boolean allowUses() {
     return _allowUses;
   }
@@ -244,6 +264,10 @@ public class ParserOptions
     return this;
   }
 
+  public Set<ResourceKey> getIgnoreWarnings() {
+    return _ignoreWarnings;
+  }
+
   public ParserOptions allowUsesInBody() {
     _allowUses = true;
     return this;
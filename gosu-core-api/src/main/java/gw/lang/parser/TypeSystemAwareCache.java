@@ -26,6 +26,14 @@ public class TypeSystemAwareCache<K, V> extends Cache<K, V>
     TypeSystem.addTypeLoaderListenerAsWeakRef( _cacheClearer );
   }
 
+  @Override
+  protected boolean canWaitForLoad()
+  {
+    // Miss handlers commonly need the type system lock or a type loading stripe, and the thread
+    // with the load in flight may be blocked on the one this thread holds
+    return !TypeSystem.isLockHeldByCurrentThread() && !TypeSystem.isTypeLoadingLockHeldByCurrentThread();
+  }
+
   private static class CacheClearer extends AbstractTypeSystemListener
   {
     TypeSystemAwareCache _cache;
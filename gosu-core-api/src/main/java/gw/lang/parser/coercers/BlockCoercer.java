@@ -8,12 +8,14 @@ import gw.lang.reflect.IFunctionType;
 import gw.lang.reflect.IType;
 import gw.lang.parser.IBlockClass;
 import gw.lang.function.IBlock;
+import gw.lang.function.PrimitiveFunctions;
 import gw.config.CommonServices;
 import gw.util.GosuClassUtil;
 
 import java.lang.reflect.Proxy;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.util.Iterator;
 import java.util.Set;
 
 public class BlockCoercer extends BaseCoercer
@@ -32,6 +34,15 @@ public class BlockCoercer extends BaseCoercer
     final IFunctionType funType = (IFunctionType)typeToCoerceTo;
 
     Set<Class> classes = GosuClassUtil.getAllInterfaces( aClass );
+    // The proxy answers to the coerced function type, so it must not claim the block's own primitive
+    // signature; callers test for it and would skip the return value coercion below
+    for( Iterator<Class> it = classes.iterator(); it.hasNext(); )
+    {
+      if( it.next().getDeclaringClass() == PrimitiveFunctions.class )
+      {
+        it.remove();
+      }
+    }
     Class<?>[] interfaces = classes.toArray( new Class<?>[classes.size()] );
 
     return Proxy.newProxyInstance( blk.getClass().getClassLoader(), interfaces, new InvocationHandler()
@@ -62,8 +73,9 @@ public class BlockCoercer extends BaseCoercer
     Method invokeMethod = null;
     for( Method method : aClass.getMethods() )
     {
-      if( method.getName().equals( IBlockClass.INVOKE_METHOD_NAME ) )
+      if( method.getName().equals( IBlockClass.INVOKE_METHOD_NAME ) && !hasPrimitiveParameter( method ) )
       {
+        // Skip the primitive-signature invoke some blocks also have, we want the erased one
         invokeMethod = method;
       }
     }
@@ -74,6 +86,18 @@ public class BlockCoercer extends BaseCoercer
     return invokeMethod;
   }
 
+  private static boolean hasPrimitiveParameter( Method method )
+  {
+    for( Class<?> paramType : method.getParameterTypes() )
+    {
+      if( paramType.isPrimitive() )
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
   public boolean isExplicitCoercion()
   {
     return false;
@@ -242,6 +242,21 @@ public interface ITypeSystem extends IService
 
   boolean isSingleModuleMode();
 
+  /**
+   * Forbids refreshing types from now on, for a production runtime that never reloads them. Type
+   * references then skip their staleness checks, and any attempt to refresh throws
+   * IllegalStateException. Uninitializing the runtime lifts the seal.
+   */
+  void seal();
+
+  boolean isSealed();
+
+  /**
+   * @return true if the current thread holds one of the per-name locks taken while loading a type
+   *   outside of the global type system lock
+   */
+  boolean isTypeLoadingLockHeldByCurrentThread();
+
   void addShutdownListener(TypeSystemShutdownListener listener);
 
   void pushModule(IModule gosuModule);
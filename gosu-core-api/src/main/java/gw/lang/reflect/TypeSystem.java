@@ -38,13 +38,17 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 @UnstableAPI
 public class TypeSystem
 {
-  private static final Lock GLOBAL_LOCK = new ReentrantLock();
+  private static final ReentrantLock GLOBAL_LOCK = new ReentrantLock();
+  private static final AtomicLong GLOBAL_LOCK_CONTENTION = new AtomicLong();
+  private static final AtomicLong GLOBAL_LOCK_WAIT_NANOS = new AtomicLong();
   public static InvocationCounter tyeRequestCounter = new InvocationCounter(false);
   public static InvocationCounter tyeLoadingCounter = new InvocationCounter(false);
 
@@ -263,7 +267,13 @@ public class TypeSystem
    */
   public static void lock()
   {
-    GLOBAL_LOCK.lock();
+    if( !GLOBAL_LOCK.tryLock() )
+    {
+      GLOBAL_LOCK_CONTENTION.incrementAndGet();
+      long start = System.nanoTime();
+      GLOBAL_LOCK.lock();
+      GLOBAL_LOCK_WAIT_NANOS.addAndGet( System.nanoTime() - start );
+    }
   }
 
   /**
@@ -279,6 +289,41 @@ public class TypeSystem
     return GLOBAL_LOCK;
   }
 
+  public static boolean isLockHeldByCurrentThread()
+  {
+    return GLOBAL_LOCK.isHeldByCurrentThread();
+  }
+
+  /**
+   * @see ITypeSystem#isTypeLoadingLockHeldByCurrentThread()
+   */
+  public static boolean isTypeLoadingLockHeldByCurrentThread()
+  {
+    return CommonServices.getTypeSystem().isTypeLoadingLockHeldByCurrentThread();
+  }
+
+  /**
+   * @return The number of times {@link #lock()} had to wait for another thread
+   */
+  public static long getGlobalLockContentionCount()
+  {
+    return GLOBAL_LOCK_CONTENTION.get();
+  }
+
+  /**
+   * @return The total time threads spent waiting in {@link #lock()}
+   */
+  public static long getGlobalLockWaitTime( TimeUnit unit )
+  {
+    return unit.convert( GLOBAL_LOCK_WAIT_NANOS.get(), TimeUnit.NANOSECONDS );
+  }
+
+  public static void resetGlobalLockStatistics()
+  {
+    GLOBAL_LOCK_CONTENTION.set( 0 );
+    GLOBAL_LOCK_WAIT_NANOS.set( 0 );
+  }
+
   public static IType getComponentType( IType valueType )
   {
     return CommonServices.getTypeSystem().getComponentType(valueType);
@@ -847,6 +892,17 @@ public class TypeSystem
     return CommonServices.getTypeSystem().isSingleModuleMode();
   }
 
+  /**
+   * @see ITypeSystem#seal()
+   */
+  public static void seal() {
+    CommonServices.getTypeSystem().seal();
+  }
+
+  public static boolean isSealed() {
+    return CommonServices.getTypeSystem().isSealed();
+  }
+
   public static IMetaType getDefaultType() {
     return CommonServices.getTypeSystem().getDefaultType();
   }
@@ -18,6 +18,28 @@ public class BytecodeOptions
   private static boolean TREE_VERIFICATION_ENABLED = false;
 
   public static final String RELOAD_CLASSES_SYSTEM_PROP = "gosu.can.reload.classes";
+  public static final String DYNAMIC_CALL_SITES_SYSTEM_PROP = "gosu.dynamic.call.sites";
+
+  public static final String CACHE_TYPE_LITERALS_SYSTEM_PROP = "gosu.cache.type.literals";
+  public static final String CACHE_BLOCKS_SYSTEM_PROP = "gosu.cache.blocks";
+
+  public static final String FUSE_ITERABLE_CHAINS_SYSTEM_PROP = "gosu.fuse.iterable.chains";
+
+  public static final String BYTECODE_CACHE_DIR_SYSTEM_PROP = "gosu.bytecode.cache.dir";
+
+  public static final String COMPUTE_FRAMES_SYSTEM_PROP = "gosu.compute.frames";
+  public static final String CLASS_FILE_VERSION_SYSTEM_PROP = "gosu.class.file.version";
+
+  /** Java 6, the newest class file version the JVM verifies without stack map frames */
+  public static final int LAST_CLASS_FILE_VERSION_WITHOUT_FRAMES = 50;
+
+  private static boolean DYNAMIC_CALL_SITES = Boolean.getBoolean( DYNAMIC_CALL_SITES_SYSTEM_PROP );
+  private static boolean CACHE_TYPE_LITERALS = Boolean.getBoolean( CACHE_TYPE_LITERALS_SYSTEM_PROP );
+  private static boolean CACHE_BLOCKS = Boolean.getBoolean( CACHE_BLOCKS_SYSTEM_PROP );
+  private static boolean FUSE_ITERABLE_CHAINS = Boolean.getBoolean( FUSE_ITERABLE_CHAINS_SYSTEM_PROP );
+  private static String BYTECODE_CACHE_DIR = System.getProperty( BYTECODE_CACHE_DIR_SYSTEM_PROP );
+  private static boolean COMPUTE_FRAMES = Boolean.getBoolean( COMPUTE_FRAMES_SYSTEM_PROP );
+  private static int CLASS_FILE_VERSION = Integer.getInteger( CLASS_FILE_VERSION_SYSTEM_PROP, LAST_CLASS_FILE_VERSION_WITHOUT_FRAMES );
 
   public static LocklessLazyVar<Boolean> JDWP_ENABLED =
     new LocklessLazyVar<Boolean>() {
@@ -100,6 +122,111 @@ public class BytecodeOptions
     return System.getProperty( "java.vm.name" ).contains( "Dynamic Code Evolution" );
   }
 
+  /**
+   * If true, reflective member access on dynamic, placeholder and structure-typed receivers
+   * dispatches through a per-site inline cache instead of resolving the member on every call.
+   */
+  public static boolean isDynamicCallSites()
+  {
+    return DYNAMIC_CALL_SITES;
+  }
+
+  public static void setDynamicCallSites( boolean bDynamicCallSites )
+  {
+    DYNAMIC_CALL_SITES = bDynamicCallSites;
+  }
+
+  /**
+   * If true, generated classes resolve each type literal once into a static field instead of
+   * looking it up by name every time the expression executes. Off by default.
+   */
+  public static boolean isCacheTypeLiterals()
+  {
+    return CACHE_TYPE_LITERALS;
+  }
+
+  public static void setCacheTypeLiterals( boolean bCacheTypeLiterals )
+  {
+    CACHE_TYPE_LITERALS = bCacheTypeLiterals;
+  }
+
+  /**
+   * If true, a block expression in a static feature that captures nothing evaluates to the same
+   * instance every time instead of a new one. Off by default since code may rely on each evaluation
+   * producing a distinct object e.g., as a map key or when removing a listener.
+   */
+  public static boolean isCacheBlocks()
+  {
+    return CACHE_BLOCKS;
+  }
+
+  public static void setCacheBlocks( boolean bCacheBlocks )
+  {
+    CACHE_BLOCKS = bCacheBlocks;
+  }
+
+  /**
+   * If true, a chain of where() and map() calls on an Iterable ending in first(), firstWhere(),
+   * hasMatch(), allMatch() or countWhere() compiles to a single lazy pass over the Iterable instead of
+   * building a list per call. Off by default since the blocks then run interleaved per element.
+   */
+  public static boolean isFuseIterableChains()
+  {
+    return FUSE_ITERABLE_CHAINS;
+  }
+
+  public static void setFuseIterableChains( boolean bFuseIterableChains )
+  {
+    FUSE_ITERABLE_CHAINS = bFuseIterableChains;
+  }
+
+  /**
+   * The directory where classes compiled at runtime are kept across JVM runs, or null if they are
+   * always compiled from source. Meant for deployments whose sources don't change while running.
+   */
+  public static String getBytecodeCacheDir()
+  {
+    return BYTECODE_CACHE_DIR;
+  }
+
+  public static void setBytecodeCacheDir( String strDir )
+  {
+    BYTECODE_CACHE_DIR = strDir;
+  }
+
+  /**
+   * If true, generated classes carry StackMapTable frames so the JVM verifies them with the faster
+   * type-checking verifier instead of inferring the types itself. Always true when the class file
+   * version is newer than Java 6, since the JVM requires frames from Java 7 on.
+   */
+  public static boolean isComputeFrames()
+  {
+    return COMPUTE_FRAMES || CLASS_FILE_VERSION > LAST_CLASS_FILE_VERSION_WITHOUT_FRAMES;
+  }
+
+  public static void setComputeFrames( boolean bComputeFrames )
+  {
+    COMPUTE_FRAMES = bComputeFrames;
+  }
+
+  /**
+   * The major class file version of generated classes e.g., 50 for Java 6 (the default) or 52 for
+   * Java 8.
+   */
+  public static int getClassFileVersion()
+  {
+    return CLASS_FILE_VERSION;
+  }
+
+  public static void setClassFileVersion( int iVersion )
+  {
+    if( iVersion < 49 )
+    {
+      throw new IllegalArgumentException( "Unsupported class file version: " + iVersion );
+    }
+    CLASS_FILE_VERSION = iVersion;
+  }
+
   public static boolean isTreeVerifcationEnabled()
   {
     return TREE_VERIFICATION_ENABLED;
@@ -24,6 +24,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class GosuClassTypeLoader extends SimpleTypeLoader
 {
@@ -46,7 +47,7 @@ public class GosuClassTypeLoader extends SimpleTypeLoader
 
   private IGosuClassRepository _repository;
   private IEnhancementIndex _enhancementIndex;
-  protected Set<String> _namespaces;
+  protected volatile Set<String> _namespaces;
 
   public static GosuClassTypeLoader getDefaultClassLoader()
   {
@@ -171,8 +172,10 @@ public class GosuClassTypeLoader extends SimpleTypeLoader
     {
       try
       {
-        _namespaces = TypeSystem.getNamespacesFromTypeNames( getAllTypeNames(), new HashSet<String>() );
-        _namespaces.add( "Libraries" );
+        // Published complete, it's read without the type system lock and updated on refresh
+        Set<String> namespaces = TypeSystem.getNamespacesFromTypeNames( getAllTypeNames(), Collections.newSetFromMap( new ConcurrentHashMap<String, Boolean>() ) );
+        namespaces.add( "Libraries" );
+        _namespaces = namespaces;
       }
       catch( NullPointerException e )
       {
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.util;
+
+import gw.util.fingerprint.FP64;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * What a class file exposes and what it refers to, read straight from its bytes without loading it:
+ * the class's non-private signatures (its ABI) and the names of the top-level types in its constant
+ * pool. Callers inline the values of constant fields and annotation element defaults, so those
+ * values are part of the signatures. A reference is a class name, a type in a descriptor or signature, or a string constant that
+ * may name a type e.g., a Gosu type literal; callers keep the names they know to be types.
+ */
+public class ClassFileSummary {
+  private static final Pattern DESCRIPTOR_REFERENCE = Pattern.compile( "L([\\w/$]+)[;<]" );
+
+  private final Set<String> _signatures;
+  private final Set<String> _references;
+
+  private ClassFileSummary( Set<String> signatures, Set<String> references ) {
+    _signatures = signatures;
+    _references = references;
+  }
+
+  /**
+   * @throws IOException if the bytes aren't a class file
+   */
+  public static ClassFileSummary read( byte[] bytes ) throws IOException {
+    Set<String> references = new HashSet<String>();
+    DataInputStream in = new DataInputStream( new ByteArrayInputStream( bytes ) );
+    if( in.readInt() != 0xCAFEBABE ) {
+      throw new IOException( "Not a class file" );
+    }
+    in.skipBytes( 4 ); // version
+    int iCount = in.readUnsignedShort();
+    String[] utf8 = new String[iCount];
+    int[] classNames = new int[iCount];
+    Object[] constants = new Object[iCount];
+    for( int i = 1; i < iCount; i++ ) {
+      int tag = in.readUnsignedByte();
+      switch( tag ) {
+        case 1: // Utf8
+          utf8[i] = in.readUTF();
+          addReferences( utf8[i], references );
+          break;
+        case 7: // Class
+          classNames[i] = in.readUnsignedShort();
+          break;
+        case 8: // String
+          // Resolved below, the Utf8 may come later
+          constants[i] = new StringRef( in.readUnsignedShort() );
+          break;
+        case 16: // MethodType
+          in.skipBytes( 2 );
+          break;
+        case 15: // MethodHandle
+          in.skipBytes( 3 );
+          break;
+        case 3: // Integer
+          constants[i] = in.readInt();
+          break;
+        case 4: // Float
+          constants[i] = in.readFloat();
+          break;
+        case 9: // Fieldref
+        case 10: // Methodref
+        case 11: // InterfaceMethodref
+        case 12: // NameAndType
+        case 18: // InvokeDynamic
+          in.skipBytes( 4 );
+          break;
+        case 5: // Long
+          constants[i++] = in.readLong();
+          break;
+        case 6: // Double
+          constants[i++] = in.readDouble();
+          break;
+        default:
+          throw new IOException( "Unknown constant pool tag " + tag );
+      }
+    }
+
+    for( int i = 1; i < iCount; i++ ) {
+      if( constants[i] instanceof StringRef ) {
+        constants[i] = utf8[((StringRef)constants[i])._index];
+      }
+    }
+
+    Set<String> signatures = new TreeSet<String>();
+    int access = in.readUnsignedShort();
+    signatures.add( "class " + access + ' ' + utf8[classNames[in.readUnsignedShort()]] );
+    int iSuper = in.readUnsignedShort();
+    signatures.add( "extends " + (iSuper == 0 ? "" : utf8[classNames[iSuper]]) );
+    for( int i = in.readUnsignedShort(); i > 0; i-- ) {
+      signatures.add( "implements " + utf8[classNames[in.readUnsignedShort()]] );
+    }
+    readMembers( in, utf8, constants, "field ", signatures );
+    readMembers( in, utf8, constants, "method ", signatures );
+    return new ClassFileSummary( signatures, references );
+  }
+
+  /**
+   * @return The class's non-private signatures, sorted so member order doesn't matter
+   */
+  public Set<String> getSignatures() {
+    return Collections.unmodifiableSet( _signatures );
+  }
+
+  /**
+   * @return The dot separated names of the top-level types the class may refer to
+   */
+  public Set<String> getReferences() {
+    return Collections.unmodifiableSet( _references );
+  }
+
+  public FP64 extendAbiFingerprint( FP64 fp ) {
+    for( String signature : _signatures ) {
+      fp.extend( signature );
+    }
+    return fp;
+  }
+
+  private static void readMembers( DataInputStream in, String[] utf8, Object[] constants, String kind, Set<String> signatures ) throws IOException {
+    for( int i = in.readUnsignedShort(); i > 0; i-- ) {
+      int access = in.readUnsignedShort();
+      String signature = kind + access + ' ' + utf8[in.readUnsignedShort()] + utf8[in.readUnsignedShort()];
+      for( int j = in.readUnsignedShort(); j > 0; j-- ) {
+        String attribute = utf8[in.readUnsignedShort()];
+        int iLength = in.readInt();
+        if( "Signature".equals( attribute ) ) {
+          signature += ' ' + utf8[in.readUnsignedShort()];
+          in.skipBytes( iLength - 2 );
+        }
+        else if( "ConstantValue".equals( attribute ) ) {
+          signature += " = " + constants[in.readUnsignedShort()];
+          in.skipBytes( iLength - 2 );
+        }
+        else if( "AnnotationDefault".equals( attribute ) ) {
+          StringBuilder value = new StringBuilder( " default " );
+          readElementValue( in, utf8, constants, value );
+          signature += value;
+        }
+        else {
+          in.skipBytes( iLength );
+        }
+      }
+      if( (access & 0x0002) == 0 ) { // not private
+        signatures.add( signature );
+      }
+    }
+  }
+
+  /**
+   * Appends an annotation element value, with its constants resolved so it doesn't change with the
+   * constant pool layout
+   */
+  private static void readElementValue( DataInputStream in, String[] utf8, Object[] constants, StringBuilder value ) throws IOException {
+    char tag = (char)in.readUnsignedByte();
+    value.append( tag );
+    switch( tag ) {
+      case 'e': // enum
+        value.append( utf8[in.readUnsignedShort()] ).append( '.' ).append( utf8[in.readUnsignedShort()] );
+        break;
+      case 'c': // class
+        value.append( utf8[in.readUnsignedShort()] );
+        break;
+      case '@': // annotation
+        value.append( utf8[in.readUnsignedShort()] ).append( '(' );
+        for( int i = in.readUnsignedShort(); i > 0; i-- ) {
+          value.append( utf8[in.readUnsignedShort()] ).append( '=' );
+          readElementValue( in, utf8, constants, value );
+          value.append( ',' );
+        }
+        value.append( ')' );
+        break;
+      case '[': // array
+        value.append( '{' );
+        for( int i = in.readUnsignedShort(); i > 0; i-- ) {
+          readElementValue( in, utf8, constants, value );
+          value.append( ',' );
+        }
+        value.append( '}' );
+        break;
+      case 's': // String, its Utf8 directly
+        value.append( utf8[in.readUnsignedShort()] );
+        break;
+      default: // primitives
+        value.append( constants[in.readUnsignedShort()] );
+    }
+  }
+
+  private static void addReferences( String constant, Set<String> references ) {
+    Matcher matcher = DESCRIPTOR_REFERENCE.matcher( constant );
+    while( matcher.find() ) {
+      references.add( toTopLevelTypeName( matcher.group( 1 ) ) );
+    }
+    // Internal class names, and type names loaded by name
+    references.add( toTopLevelTypeName( constant ) );
+  }
+
+  private static String toTopLevelTypeName( String name ) {
+    String typeName = name.replace( '/', '.' );
+    int iEnd = typeName.length();
+    int iDollar = typeName.indexOf( '$' );
+    if( iDollar >= 0 ) {
+      iEnd = iDollar;
+    }
+    int iParam = typeName.indexOf( '<' );
+    if( iParam >= 0 && iParam < iEnd ) {
+      iEnd = iParam;
+    }
+    return typeName.substring( 0, iEnd );
+  }
+
+  private static class StringRef {
+    private final int _index;
+
+    StringRef( int index ) {
+      _index = index;
+    }
+  }
+}
@@ -4,41 +4,49 @@
 
 package gw.util.concurrent;
 
-import java.io.Serializable;
-import java.util.AbstractMap;
-import java.util.AbstractSet;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
 import java.math.BigDecimal;
 
-import gw.util.concurrent.Cache.ConcurrentLinkedHashMap.Node.State;
+import gw.util.GosuExceptionUtil;
 import gw.util.ILogger;
 
 /**
  * static var MY_CACHE = new Cache<Foo, Bar>( 1000, \ foo -> getBar( foo ) )
+ * <p/>
+ * Concurrent misses on the same key are single-flight: one thread calls the
+ * MissHandler while the others wait for its result. Eviction is W-TinyLFU, a
+ * small LRU admission window in front of a segmented LRU main space, where an
+ * entry leaving the window only displaces a main space entry if it has been
+ * requested more often according to a compact frequency sketch.
  */
 public class Cache<K, V> {
 
-  private ConcurrentLinkedHashMap<K, V> _cacheImlp;
+  // Number of miss handlers, of any cache, running on the current thread
+  private static final ThreadLocal<int[]> LOAD_DEPTH = new ThreadLocal<int[]>() {
+    @Override
+    protected int[] initialValue() {
+      return new int[1];
+    }
+  };
+
+  private volatile TinyLfuMap<K, V> _cacheImlp;
+  private final ConcurrentMap<K, Loader<V>> _loaders = new ConcurrentHashMap<K, Loader<V>>();
   private final MissHandler<K,V> _missHandler;
   private final String _name;
   private final int _size;
 
   //statistics
-  private final AtomicInteger _requests = new AtomicInteger();
-  private final AtomicInteger _misses = new AtomicInteger();
-  private final AtomicInteger _hits = new AtomicInteger();
+  private final StripedCounter _requests = new StripedCounter();
+  private final StripedCounter _misses = new StripedCounter();
+  private final StripedCounter _hits = new StripedCounter();
 
   private ScheduledFuture<?> _loggingTask;
 
@@ -56,7 +64,7 @@ public class Cache<K, V> {
   }
 
   private void clearCacheImpl() {
-    _cacheImlp = new ConcurrentLinkedHashMap<K,V>(ConcurrentLinkedHashMap.EvictionPolicy.SECOND_CHANCE, _size);
+    _cacheImlp = new TinyLfuMap<K,V>(_size);
   }
 
   /** This will evict a specific key from the cache.
@@ -79,23 +87,78 @@ public class Cache<K, V> {
   }
 
   /** This will get a specific entry, it will call the missHandler if it is not found.
+   * Only one thread calls the missHandler for a given key at a time, other threads
+   * missing on that key wait for its result.
    *
    * @param key the object to find
    * @return the found object (may be null)
    */
   public V get(K key) {
     V value = _cacheImlp.get(key);
-    _requests.incrementAndGet();
+    _requests.increment();
     if (value == null) {
-      value = _missHandler.load(key);
-      _cacheImlp.put(key, value);
-      _misses.incrementAndGet();
+      _misses.increment();
+      value = load(key);
     } else {
-      _hits.incrementAndGet();
+      _hits.increment();
     }
     return value;
   }
 
+  private V load(K key) {
+    Loader<V> loader = new Loader<V>();
+    Loader<V> inFlight = _loaders.putIfAbsent(key, loader);
+    if (inFlight != null) {
+      if (LOAD_DEPTH.get()[0] > 0 || !canWaitForLoad()) {
+        // This thread may hold something the in-flight load needs, e.g. it is itself inside a miss
+        // handler that the other loader is waiting on, so load redundantly rather than risk deadlock
+        return loadAndPut(key);
+      }
+      return inFlight.await();
+    }
+    try {
+      V value = _cacheImlp.get(key);
+      if (value == null) {
+        value = loadAndPut(key);
+      }
+      loader.set(value);
+      return value;
+    } catch (RuntimeException e) {
+      loader.fail(e);
+      throw e;
+    } catch (Error e) {
+      loader.fail(e);
+      throw e;
+    } finally {
+      _loaders.remove(key, loader);
+    }
+  }
+
+  private V loadAndPut(K key) {
+    TinyLfuMap<K, V> cacheImpl = _cacheImlp;
+    int[] depth = LOAD_DEPTH.get();
+    V value;
+    depth[0]++;
+    try {
+      value = _missHandler.load(key);
+    } finally {
+      depth[0]--;
+    }
+    if (value != null && cacheImpl == _cacheImlp) {
+      // Don't resurrect a value loaded before the cache was cleared
+      cacheImpl.put(key, value);
+    }
+    return value;
+  }
+
+  /**
+   * Override to prevent a thread from waiting on another thread's load of the same key,
+   * e.g. if the thread holds a lock the miss handler might need.
+   */
+  protected boolean canWaitForLoad() {
+    return true;
+  }
+
   public int getConfiguredSize() {
     return _size;
   }
@@ -105,15 +168,15 @@ public class Cache<K, V> {
   }
 
   public int getRequests() {
-    return _requests.get();
+    return (int)_requests.sum();
   }
 
   public int getMisses() {
-    return _misses.get();
+    return (int)_misses.sum();
   }
 
   public int getHits() {
-    return _hits.get();
+    return (int)_hits.sum();
   }
 
   public double getHitRate() {
@@ -160,9 +223,9 @@ public class Cache<K, V> {
 
   public void clear() {
     clearCacheImpl();
-    _hits.set(0);
-    _misses.set(0);
-    _requests.set(0);
+    _hits.reset();
+    _misses.reset();
+    _requests.reset();
   }
 
   @Override
@@ -175,742 +238,372 @@ public class Cache<K, V> {
   }
 
   /**
-   * A {@link ConcurrentMap} with a doubly-linked list running through its entries.
-   * <p/>
-   * This class provides the same semantics as a {@link ConcurrentHashMap} in terms of
-   * iterators, acceptable keys, and concurrency characteristics, but perform slightly
-   * worse due to the added expense of maintaining the linked list. It differs from
-   * {@link java.util.LinkedHashMap} in that it does not provide predictable iteration
-   * order.
-   * <p/>
-   * This map is intended to be used for caches and provides the following eviction policies:
-   * <ul>
-   * <li> First-in, First-out: Also known as insertion order. This policy has excellent
-   * concurrency characteristics and an adequate hit rate.
-   * <li> Second-chance: An enhanced FIFO policy that marks entries that have been retrieved
-   * and saves them from being evicted until the next pass. This enhances the FIFO policy
-   * by making it aware of "hot" entries, which increases its hit rate to be equal to an
-   * LRU's under normal workloads. In the worst case, where all entries have been saved,
-   * this policy degrades to a FIFO.
-   * <li> Least Recently Used: An eviction policy based on the observation that entries that
-   * have been used recently will likely be used again soon. This policy provides a good
-   * approximation of an optimal algorithm, but suffers by being expensive to maintain.
-   * The cost of reordering entries on the list during every access operation reduces
-   * the concurrency and performance characteristics of this policy.
-   * </ul>
-   * <p/>
-   * The <i>Second Chance</i> eviction policy is recommended for common use cases as it provides
-   * the best mix of performance and efficiency of the supported replacement policies.
-   * <p/>
-   * If the <i>Least Recently Used</i> policy is chosen then the sizing should compensate for the
-   * proliferation of dead nodes on the linked list. While the values are removed immediately, the
-   * nodes are evicted only when they reach the head of the list. Under FIFO-based policies, dead
-   * nodes occur when explicit removals are requested and does not normally produce a noticeable
-   * impact on the map's hit rate. The LRU policy creates a dead node on every successful retrieval
-   * and a new node is placed at the tail of the list. For this reason, the LRU's efficiency cannot
-   * be compared directly to a {@link java.util.LinkedHashMap} evicting in access order.
-   *
-   * <a href="mailto:ben.manes@reardencommerce.com">Ben Manes</a>
+   * The result of an in-flight call to the miss handler, shared with the threads waiting on it.
    */
-  static class ConcurrentLinkedHashMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>, Serializable {
-    private static final long serialVersionUID = 8350170357874293408L;
-    final List<EvictionListener<K, V>> listeners;
-    final ConcurrentMap<K, Node<K, V>> data;
-    final AtomicInteger capacity;
-    final EvictionPolicy policy;
-    final AtomicInteger length;
-    final Node<K, V> head;
-    final Node<K, V> tail;
-
-    /**
-     * Creates a new, empty, unbounded map with the specified maximum capacity and the default
-     * concurrencyLevel.
-     *
-     * @param policy          The eviction policy to apply when the size exceeds the maximum capacity.
-     * @param maximumCapacity The maximum capacity to coerces to. The size may exceed it temporarily.
-     * @param listeners       The listeners registered for notification when an entry is evicted.
-     */
-    public ConcurrentLinkedHashMap(EvictionPolicy policy, int maximumCapacity, EvictionListener<K, V>... listeners) {
-      this(policy, maximumCapacity, 16, listeners);
-    }
-
-    /**
-     * Creates a new, empty, unbounded map with the specified maximum capacity and concurrency level.
-     *
-     * @param policy           The eviction policy to apply when the size exceeds the maximum capacity.
-     * @param maximumCapacity  The maximum capacity to coerces to. The size may exceed it temporarily.
-     * @param concurrencyLevel The estimated number of concurrently updating threads. The implementation
-     *                         performs internal sizing to try to accommodate this many threads.
-     * @param listeners        The listeners registered for notification when an entry is evicted.
-     */
-    public ConcurrentLinkedHashMap(EvictionPolicy policy, int maximumCapacity, int concurrencyLevel, EvictionListener<K, V>... listeners) {
-      if ((policy == null) || (maximumCapacity < 0) || (concurrencyLevel <= 0)) {
-        throw new IllegalArgumentException();
-      }
-      this.listeners = (listeners == null) ? Collections.<EvictionListener<K, V>>emptyList() : Arrays.asList(listeners);
-      this.data = new ConcurrentHashMap<K, Node<K, V>>(maximumCapacity, 0.75f, concurrencyLevel);
-      this.capacity = new AtomicInteger(maximumCapacity);
-      this.length = new AtomicInteger();
-      this.head = new Node<K, V>();
-      this.tail = new Node<K, V>();
-      this.policy = policy;
-
-      head.setPrev(head);
-      head.setNext(tail);
-      tail.setPrev(head);
-      tail.setNext(tail);
-    }
-
-    /**
-     * Determines whether the map has exceeded its capacity.
-     *
-     * @return Whether the map has overflowed and an entry should be evicted.
-     */
-    private boolean isOverflow() {
-      return length.get() > capacity();
-    }
-
-    /**
-     * Sets the maximum capacity of the map and eagerly evicts entries until the
-     * it shrinks to the appropriate size.
-     *
-     * @param capacity The maximum capacity of the map.
-     */
-    public void setCapacity(int capacity) {
-      if (capacity < 0) {
-        throw new IllegalArgumentException();
-      }
-      this.capacity.set(capacity);
-      while (isOverflow()) {
-        evict();
-      }
-    }
-
-    /**
-     * Retrieves the maximum capacity of the map.
-     *
-     * @return The maximum capacity.
-     */
-    public int capacity() {
-      return capacity.get();
-    }
+  private static final class Loader<V> {
+    private final CountDownLatch _done = new CountDownLatch(1);
+    private V _value;
+    private Throwable _failure;
 
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public int size() {
-      return data.size();
+    void set(V value) {
+      _value = value;
+      _done.countDown();
     }
 
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public void clear() {
-      for (K key : keySet()) {
-        remove(key);
-      }
+    void fail(Throwable t) {
+      _failure = t;
+      _done.countDown();
     }
 
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public boolean containsKey(Object key) {
-      return data.containsKey(key);
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public boolean containsValue(Object value) {
-      return data.containsValue(new Node<Object, Object>(null, value));
-    }
-
-    /**
-     * Evicts a single entry if the map exceeds the maximum capacity.
-     */
-    private void evict() {
-      while (isOverflow()) {
-        Node<K, V> node = poll();
-        if (node == null) {
-          return;
-        } else if (policy.onEvict(this, node)) {
-          V value = node.getValue();
-          if (value != null) {
-            K key = node.getKey();
-            data.remove(key);
-            notifyEviction(key, value);
-          }
-          length.decrementAndGet();
-          return;
+    V await() {
+      boolean bInterrupted = false;
+      while (true) {
+        try {
+          _done.await();
+          break;
+        } catch (InterruptedException e) {
+          bInterrupted = true;
         }
-        offer(node);
       }
-    }
-
-    /**
-     * Notifies the listeners that an entry was evicted from the map.
-     *
-     * @param key   The entry's key.
-     * @param value The entry's value.
-     */
-    private void notifyEviction(K key, V value) {
-      for (int i = 0; i < listeners.size(); i++) {
-        EvictionListener<K, V> listener = listeners.get(i);
-        listener.onEviction(key, value);
+      if (bInterrupted) {
+        Thread.currentThread().interrupt();
       }
+      if (_failure != null) {
+        throw GosuExceptionUtil.forceThrow(_failure);
+      }
+      return _value;
     }
+  }
 
+  /**
+   * A counter spread over several padded cells so that concurrent increments from
+   * different threads rarely contend on the same cache line.
+   */
+  static final class StripedCounter {
+    private static final int CELLS = ceilingPowerOfTwo(Runtime.getRuntime().availableProcessors());
+    // 8 longs per cell keeps each cell on its own 64 byte line
+    private static final int PAD = 8;
 
-    /**
-     * Retrieves and removes the first node on the list or <tt>null</tt> if empty.
-     *
-     * @return The first node on the list or <tt>null</tt> if empty.
-     */
-    private Node<K, V> poll() {
-      for (; ;) {
-        Node<K, V> node = head.getNext();
-        if (head.casNext(node, node.getNext())) {
-          for (; ;) {
-            if (node.casState(State.LINKED, State.UNLINKING)) {
-              node.getNext().setPrev(head);
-              node.setState(State.UNLINKED);
-              return node;
-            }
-            State state = node.getState();
-            if (state == State.SENTINEL) {
-              return null;
-            }
-          }
-        }
-      }
-    }
+    private final AtomicLongArray _cells = new AtomicLongArray(CELLS * PAD);
 
-    /**
-     * Inserts the specified node on to the tail of the list.
-     *
-     * @param node An unlinked node to append to the tail of the list.
-     */
-    private void offer(Node<K, V> node) {
-      node.setState(State.LINKING);
-      node.setNext(tail);
-      for (; ;) {
-        Node<K, V> prev = tail.getPrev();
-        node.setPrev(prev);
-        if (prev.casNext(tail, node)) {
-          Node<K, V> next = tail;
-          for (; ;) {
-            if (next.casPrev(prev, node)) {
-              node.setState(State.LINKED);
-              return;
-            }
-            // walk up the list until a node can be linked
-            next = next.getPrev();
-          }
-        }
-      }
+    void increment() {
+      int iCell = (int)(Thread.currentThread().getId() & (CELLS - 1));
+      _cells.incrementAndGet(iCell * PAD);
     }
 
-    /**
-     * Adds a node to the list and data store if it does not already exist.
-     *
-     * @param node An unlinked node to add.
-     * @return The previous value in the data store.
-     */
-    private Node<K, V> putIfAbsent(Node<K, V> node) {
-      Node<K, V> old = data.putIfAbsent(node.getKey(), node);
-      if (old == null) {
-        length.incrementAndGet();
-        offer(node);
-        evict();
+    long sum() {
+      long sum = 0;
+      for (int i = 0; i < CELLS; i++) {
+        sum += _cells.get(i * PAD);
       }
-      return old;
+      return sum;
     }
 
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public V get(Object key) {
-      Node<K, V> node = data.get(key);
-      if (node != null) {
-        V value = node.getValue();
-        policy.onGet(this, node);
-        return value;
+    void reset() {
+      for (int i = 0; i < CELLS; i++) {
+        _cells.set(i * PAD, 0);
       }
-      return null;
     }
+  }
 
-    /**
-     * {@inheritDoc}
-     */
-    public V put(K key, V value) {
-      if (value == null) {
-        throw new IllegalArgumentException();
-      }
-      Node<K, V> old = putIfAbsent(new Node<K, V>(key, value));
-      return (old == null) ? null : old.getAndSetValue(value);
-    }
+  static int ceilingPowerOfTwo(int x) {
+    return x <= 1 ? 1 : Integer.highestOneBit(x - 1) << 1;
+  }
 
-    /**
-     * {@inheritDoc}
-     */
-    public V putIfAbsent(K key, V value) {
-      if (value == null) {
+  /**
+   * A bounded map with W-TinyLFU eviction.
+   * <p/>
+   * Reads and writes go straight to a {@link ConcurrentHashMap}. The eviction policy, three
+   * intrusive LRU queues plus the frequency sketch, is guarded by a lock. Writes always take it,
+   * reads only try it and skip the bookkeeping when it is busy, which merely costs some accuracy.
+   * <ul>
+   * <li> window: about 1% of the capacity, new entries start here
+   * <li> probation: main space entries seen once since admission, eviction victims come from here
+   * <li> protected: about 80% of the main space, entries hit while in probation
+   * </ul>
+   */
+  static final class TinyLfuMap<K, V> {
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private final ConcurrentHashMap<K, Node<K, V>> _data;
+    private final ReentrantLock _evictionLock = new ReentrantLock();
+    private final FrequencySketch _sketch;
+    private final AccessQueue<K, V> _window = new AccessQueue<K, V>();
+    private final AccessQueue<K, V> _probation = new AccessQueue<K, V>();
+    private final AccessQueue<K, V> _protected = new AccessQueue<K, V>();
+    private final int _maxWindow;
+    private final int _maxMain;
+    private final int _maxProtected;
+
+    TinyLfuMap(int maximumSize) {
+      if (maximumSize < 0) {
         throw new IllegalArgumentException();
       }
-      Node<K, V> old = putIfAbsent(new Node<K, V>(key, value));
-      return (old == null) ? null : old.getValue();
+      _data = new ConcurrentHashMap<K, Node<K, V>>(Math.min(maximumSize, 1 << 16), 0.75f, 16);
+      _sketch = new FrequencySketch(maximumSize);
+      _maxWindow = maximumSize == 0 ? 0 : Math.max(1, maximumSize / 100);
+      _maxMain = maximumSize - _maxWindow;
+      _maxProtected = (int)(_maxMain * 0.8);
     }
 
-    /**
-     * {@inheritDoc}
-     */
-    public V remove(Object key) {
-      Node<K, V> node = data.remove(key);
-      if (node != null) {
-        V value = node.getValue();
-        policy.onRemove(this, node);
-        return value;
-      }
-      return null;
+    int size() {
+      return _data.size();
     }
 
-    /**
-     * {@inheritDoc}
-     */
-    public boolean remove(Object key, Object value) {
-      Node<K, V> node = data.get(key);
-      if ((node != null) && node.value.equals(value) && data.remove(key, node)) {
-        policy.onRemove(this, node);
-        return true;
+    V get(K key) {
+      Node<K, V> node = _data.get(key);
+      if (node == null) {
+        return null;
       }
-      return false;
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    public V replace(K key, V value) {
-      if (value == null) {
-        throw new IllegalArgumentException();
+      if (_evictionLock.tryLock()) {
+        try {
+          _sketch.increment(key);
+          onAccess(node);
+        } finally {
+          _evictionLock.unlock();
+        }
       }
-      Node<K, V> node = data.get(key);
-      return (node == null) ? null : node.getAndSetValue(value);
+      return node._value;
     }
 
-    /**
-     * {@inheritDoc}
-     */
-    public boolean replace(K key, V oldValue, V newValue) {
-      if (newValue == null) {
-        throw new IllegalArgumentException();
-      }
-      Node<K, V> node = data.get(key);
-      return (node != null) && node.casValue(oldValue, newValue);
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    public Set<Entry<K, V>> entrySet() {
-      return new EntrySetAdapter();
-    }
-
-    /**
-     * A listener registered for notification when an entry is evicted.
-     */
-    public interface EvictionListener<K, V> {
-
-      /**
-       * A call-back notification that the entry was evicted.
-       *
-       * @param key   The evicted key.
-       * @param value The evicted value.
-       */
-      void onEviction(K key, V value);
-    }
-
-    /**
-     * The replacement policy to apply to determine which entry to discard to when the capacity has been reached.
-     */
-    public enum EvictionPolicy {
-
-      /**
-       * Evicts entries based on insertion order.
-       */
-      FIFO() {
-        <K, V> void onGet(ConcurrentLinkedHashMap<K, V> map, Node<K, V> node) {
-          // do nothing
-        }
-        <K, V> boolean onEvict(ConcurrentLinkedHashMap<K, V> map, Node<K, V> node) {
-          return true;
-        }
-      },
-
-      /**
-       * Evicts entries based on insertion order, but gives an entry a "second chance" if it has been requested recently.
-       */
-      SECOND_CHANCE() {
-        <K, V> void onGet(ConcurrentLinkedHashMap<K, V> map, Node<K, V> node) {
-          node.setMarked(true);
-        }
-        <K, V> void onRemove(ConcurrentLinkedHashMap<K, V> map, Node<K, V> node) {
-          super.onRemove(map, node);
-          node.setMarked(false);
-        }
-        <K, V> boolean onEvict(ConcurrentLinkedHashMap<K, V> map, Node<K, V> node) {
-          if (node.isMarked()) {
-            node.setMarked(false);
-            return false;
-          }
-          return true;
-        }
-      },
-
-
-      /**
-       * Evicts entries based on how recently they are used, with the least recent evicted first.
-       */
-      LRU() {
-        <K, V> void onGet(ConcurrentLinkedHashMap<K, V> map, Node<K, V> node) {
-          Node<K, V> newNode = new Node<K, V>(node.getKey(), node.getValue());
-          if (map.data.replace(node.getKey(), node, newNode)) {
-            map.length.incrementAndGet();
-            onRemove(map, node);
-            map.offer(newNode);
-            map.evict();
-          }
+    V put(K key, V value) {
+      Node<K, V> node = new Node<K, V>(key, value);
+      Node<K, V> old = _data.put(key, node);
+      _evictionLock.lock();
+      try {
+        if (old != null) {
+          unlink(old);
         }
-        <K, V> boolean onEvict(ConcurrentLinkedHashMap<K, V> map, Node<K, V> node) {
-          return true;
+        _sketch.increment(key);
+        if (!node._bRemoved) {
+          node._iQueue = WINDOW;
+          _window.add(node);
+          evict();
         }
-      };
-
-      /**
-       * Performs any operations required by the policy after a node was successfully retrieved.
-       * @param map the map to for this listener
-       * @param node the specific node
-       */
-      abstract <K, V> void onGet(ConcurrentLinkedHashMap<K, V> map, Node<K, V> node);
-
-      /**
-       * Expires a node so that, for all intents and purposes, it is a dead on the list. The
-       * caller of this method should have already removed the node from the mapping so that
-       * no key can look it up. When the node reaches the head of the list it will be evicted.
-       * @param map the map to for this listener
-       * @param node the specific node
-       */
-      <K, V> void onRemove(ConcurrentLinkedHashMap<K, V> map, Node<K, V> node) {
-        node.setValue(null);
-      }
-
-      /**
-       * Determines whether to evict the node at the head of the list. If false, the node is offered
-       * to the tail.
-       * @param map the map to for this listener
-       * @param node the specific node
-       * @return whether this node is to be evicted
-       */
-      abstract <K, V> boolean onEvict(ConcurrentLinkedHashMap<K, V> map, Node<K, V> node);
-    }
-
-    /**
-     * A node on the double-linked list. This list cross-cuts the data store.
-     */
-    @SuppressWarnings("unchecked")
-    static final class Node<K, V> implements Serializable {
-      private static final long serialVersionUID = 1461281468985304519L;
-      private static final AtomicReferenceFieldUpdater<Node, Object> valueUpdater =
-              AtomicReferenceFieldUpdater.newUpdater(Node.class, Object.class, "value");
-      private static final AtomicReferenceFieldUpdater<Node, State> stateUpdater =
-              AtomicReferenceFieldUpdater.newUpdater(Node.class, State.class, "state");
-      private static final AtomicReferenceFieldUpdater<Node, Node> prevUpdater =
-              AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, "prev");
-      private static final AtomicReferenceFieldUpdater<Node, Node> nextUpdater =
-              AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, "next");
-
-      public static enum State {
-        SENTINEL, UNLINKED, UNLINKING, LINKING, LINKED
-      }
-
-      private final K key;
-      private volatile V value;
-      private volatile State state;
-      private volatile boolean marked;
-      private volatile Node<K, V> prev = null;
-      private volatile Node<K, V> next = null;
-
-      /**
-       * Creates a sentinel node.
-       */
-      public Node() {
-        this.key = null;
-        this.state = State.SENTINEL;
-      }
-
-      /**
-       * Creates a new, unlinked node.
-       * @param key the key
-       * @param value the value
-       */
-      public Node(K key, V value) {
-        this.key = key;
-        this.value = value;
-        this.state = State.UNLINKED;
-      }
-
-      public K getKey() {
-        return key;
-      }
-
-      public V getValue() {
-        return value;
-      }
-
-      public void setValue(V value) {
-        valueUpdater.set(this, value);
-      }
-
-      public V getAndSetValue(V value) {
-        return (V) valueUpdater.getAndSet(this, value);
-      }
-
-      public boolean casValue(V expect, V update) {
-        return valueUpdater.compareAndSet(this, expect, update);
-      }
-
-      public Node<K, V> getPrev() {
-        return prev;
-      }
-
-      public void setPrev(Node<K, V> node) {
-        prevUpdater.set(this, node);
-      }
-
-      public boolean casPrev(Node<K, V> expect, Node<K, V> update) {
-        return prevUpdater.compareAndSet(this, expect, update);
-      }
-
-      public Node<K, V> getNext() {
-        return next;
-      }
-
-      public void setNext(Node<K, V> node) {
-        nextUpdater.set(this, node);
-      }
-
-      public boolean casNext(Node<K, V> expect, Node<K, V> update) {
-        return nextUpdater.compareAndSet(this, expect, update);
-      }
-
-      public boolean isMarked() {
-        return marked;
-      }
-
-      public void setMarked(boolean marked) {
-        this.marked = marked;
-      }
-
-      public State getState() {
-        return state;
-      }
-
-      public void setState(State state) {
-        stateUpdater.set(this, state);
-      }
-
-      public boolean casState(State expect, State update) {
-        return stateUpdater.compareAndSet(this, expect, update);
-      }
-
-      /**
-       * Only ensures that the values are equal, as the key may be <tt>null</tt> for look-ups.
-       */
-      @Override
-      public boolean equals(Object obj) {
-        if (obj == this) {
-          return true;
-        } else if (!(obj instanceof Node)) {
-          return false;
-        }
-        V value = getValue();
-        Node<?, ?> node = (Node<?, ?>) obj;
-        return (value == null) ? (node.getValue() == null) : value.equals(node.getValue());
-      }
-
-      /**
-       * {@inheritDoc}
-       */
-      @Override
-      public int hashCode() {
-        return ((key == null) ? 0 : key.hashCode()) ^
-                ((value == null) ? 0 : value.hashCode());
-      }
-
-      @Override
-      public String toString() {
-        return String.format("Node[state=%s, marked=%b, key=%s, value=%s]", getState(), isMarked(), getKey(), getValue());
+      } finally {
+        _evictionLock.unlock();
       }
+      return old == null ? null : old._value;
     }
 
-    /**
-     * An adapter to represent the data store's entry set in the external type.
-     */
-    private final class EntrySetAdapter extends AbstractSet<Entry<K, V>> {
-      private final ConcurrentLinkedHashMap<K, V> map = ConcurrentLinkedHashMap.this;
-
-      /**
-       * {@inheritDoc}
-       */
-      @Override
-      public void clear() {
-        map.clear();
+    V remove(K key) {
+      Node<K, V> old = _data.remove(key);
+      if (old == null) {
+        return null;
+      }
+      _evictionLock.lock();
+      try {
+        unlink(old);
+      } finally {
+        _evictionLock.unlock();
+      }
+      return old._value;
+    }
+
+    // Called with the eviction lock held
+    private void onAccess(Node<K, V> node) {
+      if (node._bRemoved || !node.isLinked()) {
+        return;
+      }
+      switch (node._iQueue) {
+        case WINDOW:
+          _window.moveToBack(node);
+          break;
+        case PROBATION:
+          _probation.remove(node);
+          node._iQueue = PROTECTED;
+          _protected.add(node);
+          if (_protected.size() > _maxProtected) {
+            Node<K, V> demoted = _protected.poll();
+            demoted._iQueue = PROBATION;
+            _probation.add(demoted);
+          }
+          break;
+        case PROTECTED:
+          _protected.moveToBack(node);
+          break;
       }
+    }
 
-      /**
-       * {@inheritDoc}
-       */
-      public int size() {
-        return map.size();
+    // Called with the eviction lock held
+    private void unlink(Node<K, V> node) {
+      node._bRemoved = true;
+      if (node.isLinked()) {
+        queueOf(node).remove(node);
       }
+    }
 
-      /**
-       * {@inheritDoc}
-       */
-      public Iterator<Entry<K, V>> iterator() {
-        return new EntryIteratorAdapter(map.data.entrySet().iterator());
-      }
+    private AccessQueue<K, V> queueOf(Node<K, V> node) {
+      return node._iQueue == WINDOW ? _window : node._iQueue == PROBATION ? _probation : _protected;
+    }
 
-      /**
-       * {@inheritDoc}
-       */
-      @Override
-      public boolean contains(Object obj) {
-        if (!(obj instanceof Entry)) {
-          return false;
+    // Called with the eviction lock held
+    private void evict() {
+      while (_window.size() > _maxWindow) {
+        Node<K, V> candidate = _window.poll();
+        if (_probation.size() + _protected.size() < _maxMain) {
+          candidate._iQueue = PROBATION;
+          _probation.add(candidate);
+          continue;
+        }
+        AccessQueue<K, V> victimQueue = _probation.size() > 0 ? _probation : _protected;
+        Node<K, V> victim = victimQueue.peek();
+        if (victim != null && _sketch.frequency(candidate._key) > _sketch.frequency(victim._key)) {
+          victimQueue.poll();
+          discard(victim);
+          candidate._iQueue = PROBATION;
+          _probation.add(candidate);
+        } else {
+          discard(candidate);
         }
-        Entry<?, ?> entry = (Entry<?, ?>) obj;
-        Node<K, V> node = map.data.get(entry.getKey());
-        return (node != null) && (node.value.equals(entry.getValue()));
       }
+    }
 
+    private void discard(Node<K, V> node) {
+      node._bRemoved = true;
+      _data.remove(node._key, node);
+    }
+  }
 
-      /**
-       * {@inheritDoc}
-       */
-      @Override
-      public boolean add(Entry<K, V> entry) {
-        return (map.putIfAbsent(entry.getKey(), entry.getValue()) == null);
-      }
+  static final class Node<K, V> {
+    final K _key;
+    final V _value;
+    // The rest is guarded by the eviction lock
+    int _iQueue;
+    boolean _bRemoved;
+    Node<K, V> _prev;
+    Node<K, V> _next;
 
-      /**
-       * {@inheritDoc}
-       */
-      @Override
-      public boolean remove(Object obj) {
-        if (!(obj instanceof Entry)) {
-          return false;
-        }
-        Entry<?, ?> entry = (Entry<?, ?>) obj;
-        return map.remove(entry.getKey(), entry.getValue());
-      }
+    Node(K key, V value) {
+      _key = key;
+      _value = value;
     }
 
-    /**
-     * An adapter to represent the data store's entry iterator in the external type.
-     */
-    private final class EntryIteratorAdapter implements Iterator<Entry<K, V>> {
-      private final Iterator<Entry<K, Node<K, V>>> iterator;
-      private Entry<K, Node<K, V>> current;
-
-      public EntryIteratorAdapter(Iterator<Entry<K, Node<K, V>>> iterator) {
-        this.iterator = iterator;
-      }
+    boolean isLinked() {
+      return _prev != null;
+    }
+  }
 
-      /**
-       * {@inheritDoc}
-       */
-      public boolean hasNext() {
-        return iterator.hasNext();
-      }
+  /**
+   * An intrusive, doubly-linked LRU queue, least recently used first. Not thread-safe.
+   */
+  static final class AccessQueue<K, V> {
+    private final Node<K, V> _sentinel = new Node<K, V>(null, null);
+    private int _size;
 
-      /**
-       * {@inheritDoc}
-       */
-      public Entry<K, V> next() {
-        current = iterator.next();
-        K key = current.getKey();
-        Node<K, V> node = current.getValue();
-        V value = node == null ? null : node.getValue();
-        return new SimpleEntry<K, V>( key, value );
-      }
+    AccessQueue() {
+      _sentinel._prev = _sentinel;
+      _sentinel._next = _sentinel;
+    }
 
-      /**
-       * {@inheritDoc}
-       */
-      public void remove() {
-        if (current == null) {
-          throw new IllegalStateException();
-        }
-        ConcurrentLinkedHashMap.this.remove(current.getKey(), current.getValue());
-        current = null;
-      }
+    int size() {
+      return _size;
     }
 
-    /**
-     * This duplicates {@link java.util.AbstractMap.SimpleEntry} until the class is made accessible.
-     * Update: SimpleEntry is public in JDK 6.
-     */
-    private static final class SimpleEntry<K, V> implements Entry<K, V> {
-      private final K key;
-      private V value;
+    Node<K, V> peek() {
+      return _size == 0 ? null : _sentinel._next;
+    }
 
-      public SimpleEntry(K key, V value) {
-        this.key = key;
-        this.value = value;
+    Node<K, V> poll() {
+      Node<K, V> node = peek();
+      if (node != null) {
+        remove(node);
       }
+      return node;
+    }
 
-      public K getKey() {
-        return key;
-      }
+    void add(Node<K, V> node) {
+      Node<K, V> last = _sentinel._prev;
+      node._prev = last;
+      node._next = _sentinel;
+      last._next = node;
+      _sentinel._prev = node;
+      _size++;
+    }
 
-      public V getValue() {
-        return value;
-      }
+    void remove(Node<K, V> node) {
+      node._prev._next = node._next;
+      node._next._prev = node._prev;
+      node._prev = null;
+      node._next = null;
+      _size--;
+    }
 
-      public V setValue(V value) {
-        V oldValue = this.value;
-        this.value = value;
-        return oldValue;
-      }
+    void moveToBack(Node<K, V> node) {
+      remove(node);
+      add(node);
+    }
+  }
 
-      public boolean equals(Object obj) {
-        if (obj == this) {
-          return true;
-        } else if (!(obj instanceof Entry)) {
-          return false;
+  /**
+   * A count-min sketch of 4-bit counters estimating how often each key was requested. Counters
+   * are halved once the number of increments reaches ten times the cache size, so the estimate
+   * favors recent history. Not thread-safe.
+   */
+  static final class FrequencySketch {
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] _table;
+    private final int _tableMask;
+    private final int _sampleSize;
+    private int _iIncrements;
+
+    FrequencySketch(int maximumSize) {
+      int iCapacity = ceilingPowerOfTwo(Math.max(16, Math.min(maximumSize, 1 << 24)));
+      _table = new long[iCapacity];
+      _tableMask = iCapacity - 1;
+      _sampleSize = 10 * Math.max(1, Math.min(maximumSize, Integer.MAX_VALUE / 10));
+    }
+
+    int frequency(Object key) {
+      int hash = spread(key.hashCode());
+      int start = (hash & 3) << 2;
+      int frequency = Integer.MAX_VALUE;
+      for (int i = 0; i < 4; i++) {
+        int index = indexOf(hash, i);
+        int count = (int)((_table[index] >>> ((start + i) << 2)) & 0xfL);
+        frequency = Math.min(frequency, count);
+      }
+      return frequency;
+    }
+
+    void increment(Object key) {
+      int hash = spread(key.hashCode());
+      int start = (hash & 3) << 2;
+      boolean bAdded = false;
+      for (int i = 0; i < 4; i++) {
+        int index = indexOf(hash, i);
+        int offset = (start + i) << 2;
+        if (((_table[index] >>> offset) & 0xfL) != 0xfL) {
+          _table[index] += 1L << offset;
+          bAdded = true;
         }
-        Entry<?, ?> entry = (Entry<?, ?>) obj;
-        return eq(key, entry.getKey()) && eq(value, entry.getValue());
       }
-
-      public int hashCode() {
-        return ((key == null) ? 0 : key.hashCode()) ^
-                ((value == null) ? 0 : value.hashCode());
+      if (bAdded && ++_iIncrements >= _sampleSize) {
+        reset();
       }
+    }
 
-      public String toString() {
-        return key + "=" + value;
+    private void reset() {
+      for (int i = 0; i < _table.length; i++) {
+        _table[i] = (_table[i] >>> 1) & RESET_MASK;
       }
+      _iIncrements /= 2;
+    }
 
-      private static boolean eq(Object o1, Object o2) {
-        return (o1 == null) ? (o2 == null) : o1.equals(o2);
-      }
+    private int indexOf(int hash, int i) {
+      long h = (hash + SEEDS[i]) * SEEDS[i];
+      h += h >>> 32;
+      return ((int)h) & _tableMask;
     }
-  }
 
+    private static int spread(int x) {
+      x = ((x >>> 16) ^ x) * 0x45d9f3b;
+      x = ((x >>> 16) ^ x) * 0x45d9f3b;
+      return (x >>> 16) ^ x;
+    }
+  }
 }
@@ -42,6 +42,17 @@ public class UnmodifiableArraySet<T> extends AbstractSet<T> {
     };
   }
 
+  @Override
+  public boolean contains(Object o) {
+    // Elements are usually canonical e.g., type references, so try identity before equals()
+    for (Object element : array) {
+      if (element == o) {
+        return true;
+      }
+    }
+    return super.contains(o);
+  }
+
   @Override
   public int size() {
     return array.length;
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.util.concurrent;
+
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class CacheTest extends Assert {
+
+  @Test
+  public void missIsLoadedOnceThenHit() {
+    CountingHandler handler = new CountingHandler();
+    Cache<String, String> cache = Cache.make("test", 10, handler);
+    assertEquals("a!", cache.get("a"));
+    assertEquals("a!", cache.get("a"));
+    assertEquals(1, handler._loads.get());
+    assertEquals(2, cache.getRequests());
+    assertEquals(1, cache.getMisses());
+    assertEquals(1, cache.getHits());
+  }
+
+  @Test
+  public void nullIsNotCached() {
+    final AtomicInteger loads = new AtomicInteger();
+    Cache<String, String> cache = Cache.make("test", 10, new Cache.MissHandler<String, String>() {
+      public String load(String key) {
+        loads.incrementAndGet();
+        return null;
+      }
+    });
+    assertNull(cache.get("a"));
+    assertNull(cache.get("a"));
+    assertEquals(2, loads.get());
+    assertEquals(0, cache.getUtilizedSize());
+  }
+
+  @Test
+  public void evictAndClearDropEntries() {
+    CountingHandler handler = new CountingHandler();
+    Cache<String, String> cache = Cache.make("test", 10, handler);
+    cache.get("a");
+    cache.get("b");
+    assertEquals("a!", cache.evict("a"));
+    cache.get("a");
+    assertEquals(3, handler._loads.get());
+    cache.clear();
+    assertEquals(0, cache.getUtilizedSize());
+    cache.get("b");
+    assertEquals(4, handler._loads.get());
+  }
+
+  @Test
+  public void sizeStaysWithinTheConfiguredSize() {
+    Cache<String, String> cache = Cache.make("test", 100, new CountingHandler());
+    for (int i = 0; i < 1000; i++) {
+      cache.get("key" + i);
+      assertTrue(cache.getUtilizedSize() <= 100);
+    }
+    assertEquals(100, cache.getConfiguredSize());
+  }
+
+  @Test
+  public void frequentlyUsedEntriesSurviveAScan() {
+    CountingHandler handler = new CountingHandler();
+    Cache<String, String> cache = Cache.make("test", 100, handler);
+    for (int iRound = 0; iRound < 5; iRound++) {
+      for (int i = 0; i < 50; i++) {
+        cache.get("hot" + i);
+      }
+    }
+    assertEquals(50, handler._loads.get());
+
+    // Each is requested once, less often than any hot entry, so none is admitted in place of one
+    for (int i = 0; i < 400; i++) {
+      cache.get("cold" + i);
+    }
+    assertTrue(cache.getUtilizedSize() <= 100);
+
+    handler._loads.set(0);
+    for (int i = 0; i < 50; i++) {
+      cache.get("hot" + i);
+    }
+    assertEquals(0, handler._loads.get());
+  }
+
+  @Test
+  public void concurrentMissesOnAKeyLoadOnce() throws Exception {
+    BlockingHandler handler = new BlockingHandler();
+    final Cache<String, String> cache = Cache.make("test", 10, handler);
+    ExecutorService threads = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<String>> results = new ArrayList<Future<String>>();
+      results.add(threads.submit(get(cache, "a")));
+      assertTrue(handler._entered.await(10, TimeUnit.SECONDS));
+      for (int i = 1; i < 8; i++) {
+        results.add(threads.submit(get(cache, "a")));
+      }
+      // The others have missed too, they find the load in flight or, once it's done, the value
+      while (cache.getMisses() < 8) {
+        Thread.sleep(1);
+      }
+      handler._release.countDown();
+      for (Future<String> result : results) {
+        assertEquals("a!", result.get(10, TimeUnit.SECONDS));
+      }
+      assertEquals(1, handler._loads.get());
+    } finally {
+      handler._release.countDown();
+      threads.shutdownNow();
+    }
+  }
+
+  @Test
+  public void failedLoadIsRethrownAndNotCached() {
+    final AtomicInteger loads = new AtomicInteger();
+    Cache<String, String> cache = Cache.make("test", 10, new Cache.MissHandler<String, String>() {
+      public String load(String key) {
+        if (loads.incrementAndGet() == 1) {
+          throw new IllegalStateException(key);
+        }
+        return key;
+      }
+    });
+    try {
+      cache.get("a");
+      fail();
+    } catch (IllegalStateException e) {
+      assertEquals("a", e.getMessage());
+    }
+    assertEquals("a", cache.get("a"));
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  public void missThatCannotWaitLoadsItself() throws Exception {
+    // Stands in for TypeSystemAwareCache on a thread holding the type system lock
+    final ThreadLocal<Boolean> holdsLock = new ThreadLocal<Boolean>();
+    BlockingHandler handler = new BlockingHandler();
+    final Cache<String, String> cache = new Cache<String, String>("test", 10, handler) {
+      @Override
+      protected boolean canWaitForLoad() {
+        return holdsLock.get() == null;
+      }
+    };
+    ExecutorService threads = Executors.newFixedThreadPool(2);
+    try {
+      Future<String> blocked = threads.submit(get(cache, "a"));
+      assertTrue(handler._entered.await(10, TimeUnit.SECONDS));
+      handler._bBlock = false;
+      Future<String> locked = threads.submit(new Callable<String>() {
+        public String call() {
+          holdsLock.set(Boolean.TRUE);
+          return cache.get("a");
+        }
+      });
+      // Returns while the first load is still blocked, instead of waiting for it
+      assertEquals("a!", locked.get(10, TimeUnit.SECONDS));
+      assertFalse(blocked.isDone());
+      handler._release.countDown();
+      assertEquals("a!", blocked.get(10, TimeUnit.SECONDS));
+      assertEquals(2, handler._loads.get());
+    } finally {
+      handler._release.countDown();
+      threads.shutdownNow();
+    }
+  }
+
+  @Test
+  public void missInsideAMissHandlerDoesNotWait() throws Exception {
+    final CountDownLatch entered = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger loads = new AtomicInteger();
+    final AtomicReference<Cache<String, String>> cache = new AtomicReference<Cache<String, String>>();
+    cache.set(Cache.make("test", 10, new Cache.MissHandler<String, String>() {
+      public String load(String key) {
+        loads.incrementAndGet();
+        if (key.equals("a") && entered.getCount() > 0) {
+          entered.countDown();
+          await(release);
+        } else if (key.equals("b")) {
+          // "a" is in flight on a thread that might be waiting for this load
+          return cache.get().get("a") + "b";
+        }
+        return key;
+      }
+    }));
+    ExecutorService threads = Executors.newFixedThreadPool(2);
+    try {
+      Future<String> blocked = threads.submit(get(cache.get(), "a"));
+      assertTrue(entered.await(10, TimeUnit.SECONDS));
+      Future<String> nested = threads.submit(get(cache.get(), "b"));
+      assertEquals("ab", nested.get(10, TimeUnit.SECONDS));
+      release.countDown();
+      assertEquals("a", blocked.get(10, TimeUnit.SECONDS));
+      assertEquals(3, loads.get());
+    } finally {
+      release.countDown();
+      threads.shutdownNow();
+    }
+  }
+
+  private static Callable<String> get(final Cache<String, String> cache, final String key) {
+    return new Callable<String>() {
+      public String call() {
+        return cache.get(key);
+      }
+    };
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      if (!latch.await(10, TimeUnit.SECONDS)) {
+        throw new IllegalStateException("not released");
+      }
+    } catch (InterruptedException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static class CountingHandler implements Cache.MissHandler<String, String> {
+    final AtomicInteger _loads = new AtomicInteger();
+
+    public String load(String key) {
+      _loads.incrementAndGet();
+      return key + "!";
+    }
+  }
+
+  /**
+   * Blocks the loads until released, while _bBlock is set
+   */
+  private static class BlockingHandler extends CountingHandler {
+    final CountDownLatch _entered = new CountDownLatch(1);
+    final CountDownLatch _release = new CountDownLatch(1);
+    volatile boolean _bBlock = true;
+
+    @Override
+    public String load(String key) {
+      String value = super.load(key);
+      if (_bBlock) {
+        _entered.countDown();
+        await(_release);
+      }
+      return value;
+    }
+  }
+}
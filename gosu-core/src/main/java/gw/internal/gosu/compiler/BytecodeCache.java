@@ -0,0 +1,503 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.internal.gosu.compiler;
+
+import gw.fs.IDirectory;
+import gw.fs.IFile;
+import gw.lang.gosuc.IncrementalBuildState;
+import gw.lang.reflect.IType;
+import gw.lang.reflect.TypeSystem;
+import gw.lang.reflect.gs.BytecodeOptions;
+import gw.lang.reflect.gs.IGosuClass;
+import gw.lang.reflect.gs.ISourceFileHandle;
+import gw.lang.reflect.module.IModule;
+import gw.util.ClassFileSummary;
+import gw.util.fingerprint.FP64;
+import gw.util.concurrent.LockingLazyVar;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the bytecode of Gosu classes compiled at runtime in a directory across JVM runs, see
+ * {@link BytecodeOptions#getBytecodeCacheDir()}. The gosuclass: protocol handler asks here before
+ * compiling a class from source.
+ * <p/>
+ * An entry records the fingerprint of its type's source file and of the source file of each Gosu
+ * type its constant pool refers to. It is used only if all of them still match and the cached
+ * entries of the referenced types are themselves valid, so a signature that changed through a type
+ * the class doesn't name directly is caught too. The whole cache is dropped if the classpath, including
+ * any class file in a classpath directory, the Gosu runtime or the bytecode options change.
+ */
+public class BytecodeCache
+{
+  private static final int MAGIC = 0x47424331; // GBC1
+  private static final String ENTRY_EXTENSION = ".gbc";
+  private static final String ENVIRONMENT_FILE = "environment";
+
+  private static volatile BytecodeCache INSTANCE;
+  private static final ThreadLocal<Set<String>> VALIDATING =
+    new ThreadLocal<Set<String>>()
+    {
+      @Override
+      protected Set<String> initialValue()
+      {
+        return new HashSet<String>();
+      }
+    };
+
+  private final File _dir;
+  private final LockingLazyVar<Boolean> _environmentChecked;
+  private final ConcurrentHashMap<String, Long> _sourceFingerprints = new ConcurrentHashMap<String, Long>();
+  private final ConcurrentHashMap<String, Boolean> _validEntries = new ConcurrentHashMap<String, Boolean>();
+  private final AtomicLong _hits = new AtomicLong();
+  private final AtomicLong _misses = new AtomicLong();
+  private final AtomicLong _invalidated = new AtomicLong();
+  private final AtomicLong _stores = new AtomicLong();
+
+  BytecodeCache( File dir )
+  {
+    _dir = dir;
+    _environmentChecked =
+      new LockingLazyVar<Boolean>()
+      {
+        protected Boolean init()
+        {
+          checkEnvironment();
+          return Boolean.TRUE;
+        }
+      };
+  }
+
+  /**
+   * @return The cache for the configured directory, or null if there isn't one
+   */
+  public static BytecodeCache get()
+  {
+    String strDir = BytecodeOptions.getBytecodeCacheDir();
+    if( strDir == null || strDir.length() == 0 )
+    {
+      return null;
+    }
+    BytecodeCache cache = INSTANCE;
+    if( cache == null || !cache._dir.equals( new File( strDir ) ) )
+    {
+      synchronized( BytecodeCache.class )
+      {
+        cache = INSTANCE;
+        if( cache == null || !cache._dir.equals( new File( strDir ) ) )
+        {
+          INSTANCE = cache = new BytecodeCache( new File( strDir ) );
+        }
+      }
+    }
+    return cache;
+  }
+
+  /**
+   * @param strClassName The slash separated binary name of the class e.g., foo/Bar$Baz
+   * @return The cached bytes of the class if they are still valid, otherwise null
+   */
+  public byte[] load( String strClassName )
+  {
+    _environmentChecked.get();
+    if( !isValidEntry( strClassName ) )
+    {
+      _misses.incrementAndGet();
+      return null;
+    }
+    try
+    {
+      Entry entry = readEntry( strClassName, true );
+      if( entry != null )
+      {
+        _hits.incrementAndGet();
+        return entry._bytes;
+      }
+    }
+    catch( IOException e )
+    {
+      // fall through
+    }
+    // Truncated or corrupt, it'll be compiled and stored again
+    invalidate( strClassName );
+    _misses.incrementAndGet();
+    return null;
+  }
+
+  /**
+   * Caches the bytes of a class just compiled from source.
+   */
+  public void store( String strClassName, byte[] bytes )
+  {
+    _environmentChecked.get();
+    String strTopLevel = getTopLevelTypeName( strClassName );
+    long sourceFingerprint = getSourceFingerprint( strTopLevel );
+    if( sourceFingerprint == 0 )
+    {
+      return;
+    }
+    Map<String, Long> references = new TreeMap<String, Long>();
+    File temp = null;
+    try
+    {
+      for( String strRef : ClassFileSummary.read( bytes ).getReferences() )
+      {
+        if( !strRef.equals( strTopLevel ) )
+        {
+          long refFingerprint = getSourceFingerprint( strRef );
+          if( refFingerprint != 0 )
+          {
+            references.put( strRef, refFingerprint );
+          }
+        }
+      }
+
+      File file = getFile( strClassName );
+      // A unique name, concurrent stores replace the entry whole
+      temp = File.createTempFile( file.getName() + '.', ".tmp", _dir );
+      DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( temp ) ) );
+      try
+      {
+        out.writeInt( MAGIC );
+        out.writeUTF( strClassName );
+        out.writeLong( sourceFingerprint );
+        out.writeInt( references.size() );
+        for( Map.Entry<String, Long> ref : references.entrySet() )
+        {
+          out.writeUTF( ref.getKey() );
+          out.writeLong( ref.getValue() );
+        }
+        out.writeInt( bytes.length );
+        out.write( bytes );
+      }
+      finally
+      {
+        out.close();
+      }
+      if( !temp.renameTo( file ) )
+      {
+        file.delete();
+        if( !temp.renameTo( file ) )
+        {
+          temp.delete();
+          return;
+        }
+      }
+      _validEntries.put( strClassName, Boolean.TRUE );
+      _stores.incrementAndGet();
+    }
+    catch( IOException e )
+    {
+      // Not cached, it'll be compiled again next time
+      if( temp != null )
+      {
+        temp.delete();
+      }
+    }
+  }
+
+  private boolean isValidEntry( String strClassName )
+  {
+    Boolean bValid = _validEntries.get( strClassName );
+    if( bValid != null )
+    {
+      return bValid;
+    }
+    Set<String> inProgress = VALIDATING.get();
+    if( !inProgress.add( strClassName ) )
+    {
+      // Optimistic for a reference cycle, the entries in it are checked on their own
+      return true;
+    }
+    boolean bResult;
+    try
+    {
+      Entry entry = readEntry( strClassName, false );
+      bResult = entry != null && isCurrent( entry );
+    }
+    catch( IOException e )
+    {
+      bResult = false;
+    }
+    finally
+    {
+      inProgress.remove( strClassName );
+    }
+    if( bResult )
+    {
+      _validEntries.put( strClassName, Boolean.TRUE );
+    }
+    else
+    {
+      invalidate( strClassName );
+    }
+    return bResult;
+  }
+
+  private void invalidate( String strClassName )
+  {
+    _validEntries.put( strClassName, Boolean.FALSE );
+    if( getFile( strClassName ).delete() )
+    {
+      _invalidated.incrementAndGet();
+    }
+  }
+
+  private boolean isCurrent( Entry entry )
+  {
+    if( entry._sourceFingerprint != getSourceFingerprint( getTopLevelTypeName( entry._strClassName ) ) )
+    {
+      return false;
+    }
+    for( Map.Entry<String, Long> ref : entry._references.entrySet() )
+    {
+      if( ref.getValue() != getSourceFingerprint( ref.getKey() ) )
+      {
+        return false;
+      }
+      String strRefClass = ref.getKey().replace( '.', '/' );
+      if( getFile( strRefClass ).isFile() && !isValidEntry( strRefClass ) )
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private Entry readEntry( String strClassName, boolean bWithBytes ) throws IOException
+  {
+    File file = getFile( strClassName );
+    if( !file.isFile() )
+    {
+      return null;
+    }
+    DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( file ) ) );
+    try
+    {
+      if( in.readInt() != MAGIC || !strClassName.equals( in.readUTF() ) )
+      {
+        return null;
+      }
+      long sourceFingerprint = in.readLong();
+      Map<String, Long> references = new TreeMap<String, Long>();
+      for( int i = in.readInt(); i > 0; i-- )
+      {
+        references.put( in.readUTF(), in.readLong() );
+      }
+      byte[] bytes = null;
+      if( bWithBytes )
+      {
+        bytes = new byte[in.readInt()];
+        in.readFully( bytes );
+      }
+      return new Entry( strClassName, sourceFingerprint, references, bytes );
+    }
+    finally
+    {
+      in.close();
+    }
+  }
+
+  /**
+   * @return The fingerprint of the Gosu type's source file, or 0 if the name isn't a Gosu type with one
+   */
+  private long getSourceFingerprint( String strTypeName )
+  {
+    Long fingerprint = _sourceFingerprints.get( strTypeName );
+    if( fingerprint == null )
+    {
+      fingerprint = computeSourceFingerprint( strTypeName );
+      _sourceFingerprints.put( strTypeName, fingerprint );
+    }
+    return fingerprint;
+  }
+
+  private long computeSourceFingerprint( String strTypeName )
+  {
+    IModule global = TypeSystem.getGlobalModule();
+    IType type;
+    TypeSystem.pushModule( global );
+    try
+    {
+      type = TypeSystem.getByFullNameIfValidNoJava( strTypeName );
+    }
+    finally
+    {
+      TypeSystem.popModule( global );
+    }
+    if( !(type instanceof IGosuClass) )
+    {
+      return 0;
+    }
+    ISourceFileHandle sfh = ((IGosuClass)type).getSourceFileHandle();
+    IFile file = sfh == null ? null : sfh.getFile();
+    if( file == null || !file.exists() )
+    {
+      return 0;
+    }
+    try
+    {
+      InputStream in = file.openInputStream();
+      try
+      {
+        return new FP64( in ).getRawFingerprint();
+      }
+      finally
+      {
+        in.close();
+      }
+    }
+    catch( IOException e )
+    {
+      return 0;
+    }
+  }
+
+  private void checkEnvironment()
+  {
+    _dir.mkdirs();
+    String strEnvironment = computeEnvironment();
+    File file = new File( _dir, ENVIRONMENT_FILE );
+    try
+    {
+      if( file.isFile() )
+      {
+        DataInputStream in = new DataInputStream( new FileInputStream( file ) );
+        try
+        {
+          if( strEnvironment.equals( in.readUTF() ) )
+          {
+            return;
+          }
+        }
+        finally
+        {
+          in.close();
+        }
+      }
+      File[] entries = _dir.listFiles();
+      if( entries != null )
+      {
+        for( File entry : entries )
+        {
+          if( entry.getName().endsWith( ENTRY_EXTENSION ) )
+          {
+            entry.delete();
+          }
+        }
+      }
+      DataOutputStream out = new DataOutputStream( new FileOutputStream( file ) );
+      try
+      {
+        out.writeUTF( strEnvironment );
+      }
+      finally
+      {
+        out.close();
+      }
+    }
+    catch( IOException e )
+    {
+      // Entries are still validated individually
+    }
+  }
+
+  private String computeEnvironment()
+  {
+    List<File> classPath = new ArrayList<File>();
+    for( IModule module : TypeSystem.getExecutionEnvironment().getModules() )
+    {
+      for( IDirectory dir : module.getJavaClassPath() )
+      {
+        classPath.add( new File( dir.getPath().getFileSystemPathString() ) );
+      }
+    }
+    // Covers each class file in a directory, the directory's own timestamp doesn't change with them
+    FP64 fp = new FP64( IncrementalBuildState.fingerprintFiles( classPath, Collections.<String>emptySet() ) );
+    CodeSource codeSource = BytecodeCache.class.getProtectionDomain().getCodeSource();
+    URL location = codeSource == null ? null : codeSource.getLocation();
+    if( location != null && "file".equals( location.getProtocol() ) )
+    {
+      extend( fp, new File( location.getPath() ) );
+    }
+    fp.extend( String.valueOf( BytecodeOptions.isCacheTypeLiterals() ) );
+    fp.extend( String.valueOf( BytecodeOptions.isCacheBlocks() ) );
+    fp.extend( String.valueOf( BytecodeOptions.isDynamicCallSites() ) );
+    fp.extend( String.valueOf( BytecodeOptions.isFuseIterableChains() ) );
+    fp.extend( String.valueOf( BytecodeOptions.isGenerateAnnotationsToClassFiles() ) );
+    fp.extend( String.valueOf( BytecodeOptions.isComputeFrames() ) );
+    fp.extend( BytecodeOptions.getClassFileVersion() );
+    return fp.toHexString();
+  }
+
+  private static void extend( FP64 fp, File file )
+  {
+    fp.extend( file.getAbsolutePath() );
+    fp.extend( file.length() );
+    fp.extend( file.lastModified() );
+  }
+
+  private File getFile( String strClassName )
+  {
+    return new File( _dir, strClassName.replace( '/', '.' ) + ENTRY_EXTENSION );
+  }
+
+  private static String getTopLevelTypeName( String strClassName )
+  {
+    int iDollar = strClassName.indexOf( '$' );
+    return (iDollar < 0 ? strClassName : strClassName.substring( 0, iDollar )).replace( '/', '.' );
+  }
+
+  public long getHitCount()
+  {
+    return _hits.get();
+  }
+
+  public long getMissCount()
+  {
+    return _misses.get();
+  }
+
+  public String getStatistics()
+  {
+    return "bytecode cache " + _dir + ": " + _hits.get() + " hits, " + _misses.get() + " misses, " +
+           _invalidated.get() + " invalidated, " + _stores.get() + " stored";
+  }
+
+  private static class Entry
+  {
+    private final String _strClassName;
+    private final long _sourceFingerprint;
+    private final Map<String, Long> _references;
+    private final byte[] _bytes;
+
+    Entry( String strClassName, long sourceFingerprint, Map<String, Long> references, byte[] bytes )
+    {
+      _strClassName = strClassName;
+      _sourceFingerprint = sourceFingerprint;
+      _references = references;
+      _bytes = bytes;
+    }
+  }
+}
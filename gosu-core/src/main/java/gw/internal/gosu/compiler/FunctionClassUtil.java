@@ -4,10 +4,16 @@
 
 package gw.internal.gosu.compiler;
 
+import gw.lang.reflect.IFunctionType;
+import gw.lang.reflect.IType;
 import gw.lang.reflect.TypeSystem;
 import gw.lang.reflect.java.IJavaType;
 import gw.util.GosuExceptionUtil;
 import gw.lang.function.IBlock;
+import gw.lang.function.PrimitiveFunctions;
+
+import java.util.HashMap;
+import java.util.Map;
 
 public class FunctionClassUtil extends ClassLoader
 {
@@ -27,6 +33,14 @@ public class FunctionClassUtil extends ClassLoader
       ARGS[i] = classes1;
     }
   }
+  private static final Map<String, Class> PRIMITIVE_FUNCTIONS = new HashMap<String, Class>();
+  static
+  {
+    for( Class iface : PrimitiveFunctions.class.getClasses() )
+    {
+      PRIMITIVE_FUNCTIONS.put( iface.getSimpleName(), iface );
+    }
+  }
 
   private FunctionClassUtil() {}
 
@@ -68,6 +82,36 @@ public class FunctionClassUtil extends ClassLoader
     return null;
   }
 
+  /**
+   * @return The interface from {@link PrimitiveFunctions} whose invoke method has the function type's
+   *   primitive signature, or null if there is none
+   */
+  public static Class getPrimitiveFunctionInterface( IFunctionType funcType )
+  {
+    IType returnType = funcType.getReturnType();
+    if( returnType == null || !returnType.isPrimitive() )
+    {
+      return null;
+    }
+    StringBuilder name = new StringBuilder();
+    for( IType paramType : funcType.getParameterTypes() )
+    {
+      if( !paramType.isPrimitive() )
+      {
+        return null;
+      }
+      appendCapitalized( name, paramType.getName() );
+    }
+    name.append( "To" );
+    appendCapitalized( name, returnType.getName() );
+    return PRIMITIVE_FUNCTIONS.get( name.toString() );
+  }
+
+  private static void appendCapitalized( StringBuilder sb, String str )
+  {
+    sb.append( Character.toUpperCase( str.charAt( 0 ) ) ).append( str, 1, str.length() );
+  }
+
   public static Class[] getArgArrayForArity( int i )
   {
     return ARGS[i];
@@ -4,6 +4,7 @@
 
 package gw.internal.gosu.compiler.protocols.gosuclass;
 
+import gw.internal.gosu.compiler.BytecodeCache;
 import gw.internal.gosu.compiler.GosuClassLoader;
 import gw.internal.gosu.compiler.SingleServingGosuClassLoader;
 import gw.internal.gosu.ir.TransformingCompiler;
@@ -35,6 +36,8 @@ public class GosuClassesUrlConnection extends URLConnection {
     "java/", "javax/", "sun/"
   };
   private ICompilableType _type;
+  private String _strClassName;
+  private byte[] _cachedBytes;
   private boolean _bInterfaceAnnotationMethods;
   private boolean _bDirectory;
   private boolean _bInvalid;
@@ -66,29 +69,41 @@ public class GosuClassesUrlConnection extends URLConnection {
     if( _bInvalid ) {
       return false;
     }
-    if( _type == null && !_bDirectory ) {
+    if( _type == null && _cachedBytes == null && !_bDirectory ) {
       String strPath = URLDecoder.decode(getURL().getPath());
       String strClass = strPath.substring( 1 );
       if( !ignoreJavaClass( strClass ) ) {
         String strType = strClass.replace( '/', '.' );
         int iIndexClass = strType.lastIndexOf( ".class" );
         if( iIndexClass > 0 ) {
+          _strClassName = strClass.substring( 0, strClass.lastIndexOf( ".class" ) );
           strType = strType.substring( 0, iIndexClass ).replace( '$', '.' );
           if( strType.endsWith( '.' + GosuClass.ANNOTATION_METHODS_FOR_INTERFACE_INNER_CLASS ) ) {
             _bInterfaceAnnotationMethods = true;
             strType = strType.substring( 0, strType.lastIndexOf( '.' ) );
           }
-          maybeAssignGosuType( strType );
+          maybeLoadCachedBytes( strType );
+          if( _cachedBytes == null ) {
+            maybeAssignGosuType( strType );
+          }
         }
         else if( strPath.endsWith( "/" ) ) {
           _bDirectory = true;
         }
       }
-      _bInvalid = _type == null && !_bDirectory;
+      _bInvalid = _type == null && _cachedBytes == null && !_bDirectory;
     }
     return !_bInvalid;
   }
 
+  private void maybeLoadCachedBytes( String strType ) {
+    BytecodeCache cache = BytecodeCache.get();
+    if( cache != null && !strType.contains( IGosuProgram.NAME_PREFIX ) ) {
+      // Skips resolving and compiling the type altogether
+      _cachedBytes = cache.load( _strClassName );
+    }
+  }
+
   private void maybeAssignGosuType( String strType ) {
     if( strType.contains( IGosuProgram.NAME_PREFIX + "eval_" ) ) {
       // Never load an eval class here, they should always load in a single-serving loader
@@ -142,7 +157,10 @@ public class GosuClassesUrlConnection extends URLConnection {
 
   @Override
   public InputStream getInputStream() throws IOException {
-    if( _type != null ) {
+    if( _cachedBytes != null ) {
+      return new ByteArrayInputStream( _cachedBytes );
+    }
+    else if( _type != null ) {
       // Avoid compiling until the bytes are actually requested;
       // sun.misc.URLClassPath grabs the inputstream twice, the first time is for practice :)
       return new LazyByteArrayInputStream();
@@ -176,6 +194,10 @@ public class GosuClassesUrlConnection extends URLConnection {
             //System.out.println( "Compiling: " + _type.getName() );
             _buf = GosuClassLoader.instance().getBytes( _type);
           }
+          BytecodeCache cache = BytecodeCache.get();
+          if( cache != null && !(_type instanceof IGosuProgram) ) {
+            cache.store( _strClassName, _buf );
+          }
           _pos = 0;
           _count = _buf.length;
         }
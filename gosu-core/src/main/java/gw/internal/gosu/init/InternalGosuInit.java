@@ -20,11 +20,13 @@ public class InternalGosuInit {
   }
 
   public static void reinitializeRuntime( IExecutionEnvironment execEnv, List<? extends GosuPathEntry> pathEntries ) {
+    TypeLoaderAccess.instance().unseal();
     ((ExecutionEnvironment)execEnv).initializeDefaultSingleModule( pathEntries );
     TypeLoaderAccess.instance().incrementChecksums();
   }
 
   public static void uninitializeRuntime( IExecutionEnvironment execEnv ) {
+    TypeLoaderAccess.instance().unseal();
     ((ExecutionEnvironment)execEnv).uninitializeDefaultSingleModule();
   }
 
@@ -38,6 +40,7 @@ public class InternalGosuInit {
     if (execEnv.isSingleModuleMode()) {
       throw new IllegalStateException( "The typestem is not in multi-module mode." );
     }
+    TypeLoaderAccess.instance().unseal();
     ((ExecutionEnvironment)execEnv).uninitializeMultipleModules();
   }
 }
@@ -4,14 +4,75 @@
 
 package gw.internal.gosu.ir.compiler.bytecode;
 
+import gw.internal.ext.org.objectweb.asm.ClassReader;
 import gw.internal.ext.org.objectweb.asm.ClassWriter;
 import gw.internal.ext.org.objectweb.asm.MethodVisitor;
+import gw.internal.ext.org.objectweb.asm.Opcodes;
+import gw.internal.gosu.ir.nodes.GosuClassIRType;
+import gw.internal.gosu.ir.transform.util.IRTypeResolver;
+import gw.lang.ir.IRClass;
+import gw.lang.ir.IRType;
+import gw.lang.reflect.IType;
+import gw.lang.reflect.TypeSystem;
+import gw.lang.reflect.gs.BytecodeOptions;
+import gw.lang.reflect.gs.GosuClassTypeLoader;
+import gw.lang.reflect.gs.ICompilableType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 public class GosuClassWriter extends ClassWriter
 {
+  private static final String OBJECT = "java/lang/Object";
+
+  private final Map<String, ClassInfo> _hierarchy = new HashMap<String, ClassInfo>();
+  private final Map<String, ICompilableType> _compiling = new HashMap<String, ICompilableType>();
+
   public GosuClassWriter()
   {
-    super( ClassWriter.COMPUTE_MAXS );
+    this( null );
+  }
+
+  /**
+   * @param irClass The class being compiled. Its Gosu types, including the enclosing and inner
+   *   classes, are resolved from it since the type system may not find them by name e.g., programs
+   *   and fragments.
+   */
+  public GosuClassWriter( IRClass irClass )
+  {
+    super( BytecodeOptions.isComputeFrames() ? ClassWriter.COMPUTE_FRAMES : ClassWriter.COMPUTE_MAXS );
+    if( irClass != null )
+    {
+      addCompiling( irClass.getThisType() );
+      for( IRClass.InnerClassInfo innerClass : irClass.getInnerClasses() )
+      {
+        addCompiling( innerClass.getInnerClass() );
+        addCompiling( innerClass.getEnclosingType() );
+      }
+    }
+  }
+
+  private void addCompiling( IRType irType )
+  {
+    if( !(irType instanceof GosuClassIRType) )
+    {
+      return;
+    }
+    for( IType type = ((GosuClassIRType)irType).getType(); type instanceof ICompilableType; type = type.getEnclosingType() )
+    {
+      _compiling.put( IRTypeResolver.getDescriptor( type ).getSlashName(), (ICompilableType)type );
+    }
+  }
+
+  @Override
+  public void visit( int version, int access, String name, String signature, String superName, String[] interfaces )
+  {
+    _hierarchy.put( name, new ClassInfo( superName, (access & Opcodes.ACC_INTERFACE) != 0 ) );
+    super.visit( version, access, name, signature, superName, interfaces );
   }
 
   @Override
@@ -20,5 +81,170 @@ public class GosuClassWriter extends ClassWriter
     return new GosuMethodVisitor( super.visitMethod( i, s, s2, s3, strings ) );
   }
 
+  /**
+   * Merges two reference types for frame computation. ASM's default loads both classes with
+   * Class.forName, which doesn't see Gosu types that are still being compiled and would load and
+   * initialize the classes they reference. Here Gosu types, including inner classes and blocks, are
+   * resolved from the class being compiled or the type system and only Java classes are read as
+   * class files, so nothing is compiled or defined. A type that resolves neither way merges to
+   * Object, as the verifier sees an interface.
+   */
+  @Override
+  protected String getCommonSuperClass( String type1, String type2 )
+  {
+    if( type1.equals( type2 ) )
+    {
+      return type1;
+    }
+    ClassInfo info1 = getClassInfo( type1 );
+    ClassInfo info2 = getClassInfo( type2 );
+    if( info1._bInterface || info2._bInterface )
+    {
+      // The verifier treats interfaces as Object
+      return OBJECT;
+    }
+
+    Set<String> supers1 = new HashSet<String>();
+    for( String name = type1; name != null; name = getClassInfo( name )._superName )
+    {
+      supers1.add( name );
+    }
+    for( String name = type2; name != null; name = getClassInfo( name )._superName )
+    {
+      if( supers1.contains( name ) )
+      {
+        return name;
+      }
+    }
+    return OBJECT;
+  }
+
+  private ClassInfo getClassInfo( String name )
+  {
+    ClassInfo info = _hierarchy.get( name );
+    if( info == null )
+    {
+      info = OBJECT.equals( name ) ? new ClassInfo( null, false ) : findClassInfo( name );
+      _hierarchy.put( name, info );
+    }
+    return info;
+  }
+
+  private ClassInfo findClassInfo( String name )
+  {
+    ICompilableType gsClass = findGosuClass( name );
+    if( gsClass != null )
+    {
+      IType supertype = gsClass.getSupertype();
+      return new ClassInfo( supertype == null ? OBJECT : IRTypeResolver.getDescriptor( supertype ).getSlashName(),
+                            gsClass.isInterface() );
+    }
+    if( isGosuName( name ) )
+    {
+      // Never fall back to the class loader for a Gosu name, it would compile the class
+      return new ClassInfo( OBJECT, false );
+    }
+
+    // Not a Gosu name, so the class file comes from a Java class path entry and reading it compiles nothing
+    ClassLoader loader = TypeSystem.getGosuClassLoader().getActualLoader();
+    InputStream in = loader.getResourceAsStream( name + ".class" );
+    if( in == null )
+    {
+      // Unknown, as far as the frames are concerned it merges to Object
+      return new ClassInfo( OBJECT, false );
+    }
+    try
+    {
+      try
+      {
+        ClassReader reader = new ClassReader( in );
+        return new ClassInfo( reader.getSuperName(), (reader.getAccess() & Opcodes.ACC_INTERFACE) != 0 );
+      }
+      finally
+      {
+        in.close();
+      }
+    }
+    catch( IOException e )
+    {
+      return new ClassInfo( OBJECT, false );
+    }
+  }
+
+  /**
+   * Resolves a class name to its Gosu class, walking from the top-level class through the inner
+   * classes and blocks the name's $ separated parts denote e.g., foo/Bar$Baz$block_0_. Names of
+   * the class being compiled and its enclosing classes resolve without the type system.
+   *
+   * @return The Gosu class, program or fragment or null if the name doesn't resolve to one
+   */
+  private ICompilableType findGosuClass( String name )
+  {
+    ICompilableType gsClass = _compiling.get( name );
+    if( gsClass != null )
+    {
+      return gsClass;
+    }
+    String[] parts = name.split( "\\$" );
+    gsClass = _compiling.get( parts[0] );
+    if( gsClass == null )
+    {
+      IType type = TypeSystem.getByFullNameIfValidNoJava( parts[0].replace( '/', '.' ) );
+      if( !(type instanceof ICompilableType) )
+      {
+        return null;
+      }
+      gsClass = (ICompilableType)type;
+    }
+    for( int i = 1; i < parts.length && gsClass != null; i++ )
+    {
+      IType inner = isBlockName( parts[i] )
+                    ? gsClass.getBlock( Integer.parseInt( parts[i].substring( GosuClassTypeLoader.BLOCK_PREFIX.length(),
+                                                                              parts[i].length() - GosuClassTypeLoader.BLOCK_POSTFIX.length() ) ) )
+                    : gsClass.getInnerClass( parts[i] );
+      gsClass = inner instanceof ICompilableType ? (ICompilableType)inner : null;
+    }
+    return gsClass;
+  }
 
+  /**
+   * @return True if the name's top-level class is a Gosu class
+   */
+  private boolean isGosuName( String name )
+  {
+    int iDollar = name.indexOf( '$' );
+    String strTopLevel = iDollar < 0 ? name : name.substring( 0, iDollar );
+    return _compiling.containsKey( strTopLevel ) ||
+           TypeSystem.getByFullNameIfValidNoJava( strTopLevel.replace( '/', '.' ) ) instanceof ICompilableType;
+  }
+
+  private static boolean isBlockName( String part )
+  {
+    int iLast = part.length() - GosuClassTypeLoader.BLOCK_POSTFIX.length();
+    if( !part.startsWith( GosuClassTypeLoader.BLOCK_PREFIX ) || !part.endsWith( GosuClassTypeLoader.BLOCK_POSTFIX ) ||
+        iLast <= GosuClassTypeLoader.BLOCK_PREFIX.length() )
+    {
+      return false;
+    }
+    for( int i = GosuClassTypeLoader.BLOCK_PREFIX.length(); i < iLast; i++ )
+    {
+      if( !Character.isDigit( part.charAt( i ) ) )
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static class ClassInfo
+  {
+    private final String _superName;
+    private final boolean _bInterface;
+
+    ClassInfo( String superName, boolean bInterface )
+    {
+      _superName = superName;
+      _bInterface = bInterface;
+    }
+  }
 }
@@ -32,7 +32,7 @@ public class IRClassCompiler extends AbstractBytecodeCompiler
 {
   private static boolean COMPILE_WITH_DEBUG_INFO = true;
 
-  //## todo: this s/b configurable
+  /** The class file version of generated classes that don't vary with BytecodeOptions */
   public static final int JAVA_VER = Opcodes.V1_6;
 
   private ClassVisitor _cv;
@@ -65,7 +65,7 @@ public class IRClassCompiler extends AbstractBytecodeCompiler
 
   private byte[] compile( )
   {
-    ClassWriter writer = new GosuClassWriter();
+    ClassWriter writer = new GosuClassWriter( _irClass );
     StringWriter trace = configClassVisitor( writer );
 
     try
@@ -145,7 +145,7 @@ public class IRClassCompiler extends AbstractBytecodeCompiler
   private void compileClassHeader()
   {
     int modifiers = _irClass.getModifiers();
-    _cv.visit( JAVA_VER,
+    _cv.visit( BytecodeOptions.getClassFileVersion(),
             modifiers,
                _irClass.getThisType().getSlashName(),
                getClassSignature(),
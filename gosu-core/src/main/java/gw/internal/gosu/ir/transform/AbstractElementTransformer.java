@@ -29,6 +29,7 @@ import gw.internal.gosu.parser.IGosuClassInternal;
 import gw.internal.gosu.parser.IGosuTemplateInternal;
 import gw.internal.gosu.parser.MetaType;
 import gw.internal.gosu.parser.NewIntrospector;
+import gw.internal.gosu.parser.PrimitiveBlockInvokeFunctionSymbol;
 import gw.internal.gosu.parser.ReducedDynamicFunctionSymbol;
 import gw.internal.gosu.parser.ScopedDynamicSymbol;
 import gw.internal.gosu.parser.Symbol;
@@ -38,6 +39,7 @@ import gw.internal.gosu.parser.TypeVariableType;
 import gw.internal.gosu.parser.expressions.BlockType;
 import gw.internal.gosu.parser.fragments.GosuFragment;
 import gw.internal.gosu.parser.types.FunctionLiteralType;
+import gw.internal.gosu.runtime.DynamicCallSite;
 import gw.internal.gosu.runtime.GosuRuntimeMethods;
 import gw.lang.ir.IRElement;
 import gw.lang.ir.IRExpression;
@@ -119,6 +121,7 @@ import gw.lang.reflect.java.IJavaConstructorInfo;
 import gw.lang.reflect.java.IJavaType;
 import gw.lang.reflect.java.JavaTypes;
 import gw.lang.reflect.module.IModule;
+import gw.util.Pair;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
@@ -474,6 +477,63 @@ public abstract class AbstractElementTransformer<T extends IParsedElement>
   }
 
   public IRExpression pushType( IType type, boolean bKeepLiteralType )
+  {
+    if( isTypeLiteralCachingEnabled() && isConstantType( type ) )
+    {
+      // Resolve the type once per class instead of every time the expression executes
+      Object key = bKeepLiteralType ? new Pair<IType, Boolean>( type, Boolean.TRUE ) : type;
+      String strField = _cc().getOrAddSyntheticStaticField( key, "$type$", IRTypeConstants.ITYPE() );
+      return pushLazyStaticFieldNamed( strField, IRTypeConstants.ITYPE(), pushTypeUncached( type, bKeepLiteralType ) );
+    }
+    return pushTypeUncached( type, bKeepLiteralType );
+  }
+
+  private boolean isTypeLiteralCachingEnabled()
+  {
+    return BytecodeOptions.isCacheTypeLiterals() && _cc() != null && _cc().canAddSyntheticStaticFields();
+  }
+
+  /**
+   * @return true if the type resolves to the same IType every time i.e., it doesn't depend on the
+   *   runtime type of a type variable
+   */
+  protected static boolean isConstantType( IType type )
+  {
+    if( type.isArray() )
+    {
+      return isConstantType( type.getComponentType() );
+    }
+    if( type instanceof MetaType )
+    {
+      return isConstantType( ((MetaType)type).getType() );
+    }
+    if( type instanceof CompoundType )
+    {
+      for( IType component : ((CompoundType)type).getTypes() )
+      {
+        if( !isConstantType( component ) )
+        {
+          return false;
+        }
+      }
+      return true;
+    }
+    if( type instanceof IFunctionType )
+    {
+      IFunctionType funcType = (IFunctionType)type;
+      for( IType paramType : funcType.getParameterTypes() )
+      {
+        if( !isConstantType( paramType ) )
+        {
+          return false;
+        }
+      }
+      return funcType.getReturnType() == null || isConstantType( funcType.getReturnType() );
+    }
+    return !TypeLord.hasTypeVariable( type );
+  }
+
+  private IRExpression pushTypeUncached( IType type, boolean bKeepLiteralType )
   {
     IType genType = TypeLord.getPureGenericType( type );
 
@@ -652,6 +712,55 @@ public abstract class AbstractElementTransformer<T extends IParsedElement>
     return buildInitializedArray(IRTypeConstants.ITYPE(), values );
   }
 
+  /**
+   * Pushes the value of a synthetic static field on the class being compiled, assigning the field
+   * from the init expression the first time through:
+   * <pre>
+   *   if( $prefix$N == null ) $prefix$N = init
+   *   $prefix$N
+   * </pre>
+   * Racing threads may each evaluate the init expression, so it must be idempotent. The field is
+   * volatile, so a thread that reads it non-null sees the value fully constructed.
+   */
+  protected IRExpression pushLazyStaticField( String strPrefix, IRType type, IRExpression init )
+  {
+    return pushLazyStaticFieldNamed( _cc().addSyntheticStaticField( strPrefix, type ), type, init );
+  }
+
+  private IRExpression pushLazyStaticFieldNamed( String strField, IRType type, IRExpression init )
+  {
+    IRType ownersType = _cc().getIRTypeForCurrentClass();
+    return buildComposite(
+      buildIf( buildEquals( buildFieldGet( ownersType, strField, type, null ), nullLiteral() ),
+               buildFieldSet( ownersType, strField, type, null, init ) ),
+      buildFieldGet( ownersType, strField, type, null ) );
+  }
+
+  /**
+   * @return true if compiling the primitive-signature invoke method of a block, see
+   *   {@link PrimitiveBlockInvokeFunctionSymbol}
+   */
+  protected boolean isPrimitiveBlockInvoke()
+  {
+    return _cc().isBlockInvoke() && _cc().getCurrentFunction() instanceof PrimitiveBlockInvokeFunctionSymbol;
+  }
+
+  protected boolean isDynamicCallSitesEnabled()
+  {
+    return BytecodeOptions.isDynamicCallSites() && _cc().canAddSyntheticStaticFields();
+  }
+
+  /**
+   * Pushes the {@link DynamicCallSite} for a reflective access to the named member.
+   * Each call creates a new site.
+   */
+  protected IRExpression pushDynamicCallSite( String strMemberName )
+  {
+    return pushLazyStaticField( "$callSite$", getDescriptor( DynamicCallSite.class ),
+                                callStaticMethod( DynamicCallSite.class, "bootstrap", new Class[]{String.class},
+                                                  exprList( pushConstant( strMemberName ) ) ) );
+  }
+
   public static boolean requiresImplicitEnhancementArg( ReducedDynamicFunctionSymbol dfs )
   {
     return isEnhancementType( dfs.getGosuClass() ) && !dfs.isStatic();
@@ -64,7 +64,7 @@ public class FunctionStatementTransformer extends AbstractElementTransformer<Fun
   IRStatement compile()
   {
     List<IRStatement> statements = new ArrayList<IRStatement>();
-    if( _cc().isBlockInvoke() )
+    if( _cc().isBlockInvoke() && !isPrimitiveBlockInvoke() )
     {
       checkcastArgs( statements );
     }
@@ -67,6 +67,22 @@ public class GosuClassTransformationContext extends TransformationContextBase {
     _classTransformer.setHasAsserts();
   }
 
+  @Override
+  public boolean canAddSyntheticStaticFields() {
+    // Interface fields must be final
+    return !_gsClass.isInterface();
+  }
+
+  @Override
+  public String addSyntheticStaticField( String strPrefix, IRType type ) {
+    return _classTransformer.addSyntheticStaticField( strPrefix, type );
+  }
+
+  @Override
+  public String getOrAddSyntheticStaticField( Object key, String strPrefix, IRType type ) {
+    return _classTransformer.getOrAddSyntheticStaticField( key, strPrefix, type );
+  }
+
   // --------------- Methods implemented directly here
 
   @Override
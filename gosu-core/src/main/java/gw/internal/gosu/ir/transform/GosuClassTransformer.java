@@ -5,6 +5,7 @@
 package gw.internal.gosu.ir.transform;
 
 import gw.internal.ext.org.objectweb.asm.Opcodes;
+import gw.internal.gosu.compiler.FunctionClassUtil;
 import gw.internal.gosu.annotations.AnnotationMap;
 import gw.internal.gosu.ir.nodes.GosuClassIRType;
 import gw.internal.gosu.ir.nodes.IRMethod;
@@ -24,8 +25,10 @@ import gw.internal.gosu.parser.EnumDisplayNamePropertySymbol;
 import gw.internal.gosu.parser.EnumNamePropertySymbol;
 import gw.internal.gosu.parser.EnumValueOfFunctionSymbol;
 import gw.internal.gosu.parser.EnumValuesFunctionSymbol;
+import gw.internal.gosu.parser.Expression;
 import gw.internal.gosu.parser.GosuAnnotationInfo;
 import gw.internal.gosu.parser.GosuClass;
+import gw.internal.gosu.parser.IBlockClassInternal;
 import gw.internal.gosu.parser.ICompilableTypeInternal;
 import gw.internal.gosu.parser.IGosuClassInternal;
 import gw.internal.gosu.parser.IGosuEnhancementInternal;
@@ -33,9 +36,11 @@ import gw.internal.gosu.parser.IGosuTemplateInternal;
 import gw.internal.gosu.parser.IJavaTypeInternal;
 import gw.internal.gosu.parser.MemberFieldSymbol;
 import gw.internal.gosu.parser.ParameterizedDynamicFunctionSymbol;
+import gw.internal.gosu.parser.PrimitiveBlockInvokeFunctionSymbol;
 import gw.internal.gosu.parser.Symbol;
 import gw.internal.gosu.parser.TemplateRenderFunctionSymbol;
 import gw.internal.gosu.parser.TypeLord;
+import gw.internal.gosu.parser.expressions.BlockExpression;
 import gw.internal.gosu.parser.statements.ClassStatement;
 import gw.internal.gosu.parser.statements.StatementList;
 import gw.internal.gosu.parser.statements.VarStatement;
@@ -65,6 +70,7 @@ import gw.lang.parser.Keyword;
 import gw.lang.parser.expressions.IVarStatement;
 import gw.lang.parser.statements.IFunctionStatement;
 import gw.lang.reflect.IAnnotationInfo;
+import gw.lang.reflect.IFunctionType;
 import gw.lang.reflect.IMethodInfo;
 import gw.lang.reflect.IModifierInfo;
 import gw.lang.reflect.IParameterInfo;
@@ -91,6 +97,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -108,6 +115,8 @@ public class GosuClassTransformer extends AbstractElementTransformer<ClassStatem
   private IRClass _irClass;
   private GosuClassTransformationContext _context;
   private boolean _bHasAsserts;
+  private int _iSyntheticStaticFieldCount;
+  private Map<Object, String> _syntheticStaticFieldsByKey;
 
   public static IRClass compile( IGosuClassInternal gsClass )
   {
@@ -1127,6 +1136,16 @@ public class GosuClassTransformer extends AbstractElementTransformer<ClassStatem
       return;
     }
 
+    if( isBlockInvoke( dfs ) )
+    {
+      Class primitiveIface = getPrimitiveFunctionInterface();
+      if( primitiveIface != null )
+      {
+        compilePrimitiveBlockInvoke( dfs, primitiveIface );
+        return;
+      }
+    }
+
     List<IRSymbol> parameters = new ArrayList<IRSymbol>();
 
     maybeAddImplicitEnhancementParameters( dfs, parameters );
@@ -1185,6 +1204,65 @@ public class GosuClassTransformer extends AbstractElementTransformer<ClassStatem
     _irClass.addMethod( method );
   }
 
+  /**
+   * @return The PrimitiveFunctions interface the block being compiled can implement, if any. Only
+   *   expression-bodied blocks whose expression has exactly the block's primitive return type qualify.
+   */
+  private Class getPrimitiveFunctionInterface()
+  {
+    BlockExpression block = (BlockExpression)((IBlockClassInternal)_gsClass).getBlock();
+    IFunctionType blockType = block.getType();
+    if( !(block.getBody() instanceof Expression) ||
+        ((Expression)block.getBody()).getType() != blockType.getReturnType() )
+    {
+      return null;
+    }
+    return FunctionClassUtil.getPrimitiveFunctionInterface( blockType );
+  }
+
+  /**
+   * Compiles the block's body into an invoke method with the block's primitive signature, and the
+   * erased invoke method as a bridge that unboxes the arguments and boxes the result.
+   */
+  private void compilePrimitiveBlockInvoke( DynamicFunctionSymbol dfs, Class primitiveIface )
+  {
+    BlockExpression block = (BlockExpression)((IBlockClassInternal)_gsClass).getBlock();
+    PrimitiveBlockInvokeFunctionSymbol primitiveDfs = new PrimitiveBlockInvokeFunctionSymbol( dfs, block );
+
+    List<IRSymbol> primitiveParams = new ArrayList<IRSymbol>();
+    List<IRType> primitiveParamTypes = new ArrayList<IRType>();
+    for( ISymbol param : primitiveDfs.getArgs() )
+    {
+      String name = param.isValueBoxed() ? param.getName() + "$$unboxedParam" : param.getName();
+      IRSymbol irParam = makeParamSymbol( param, name );
+      primitiveParams.add( irParam );
+      primitiveParamTypes.add( irParam.getType() );
+    }
+    setUpFunctionContext( primitiveDfs, true, primitiveParams );
+    IRStatement body = new FunctionStatementTransformer( primitiveDfs, _context ).compile();
+    IType returnType = primitiveDfs.getReturnType();
+    _irClass.addMethod( new IRMethodStatement( body, BlockClass.INVOKE_METHOD_NAME, getModifiers( dfs ),
+                                               getDescriptor( returnType ), primitiveParams ) );
+    _irClass.addInterface( getDescriptor( primitiveIface ) );
+
+    List<IRSymbol> erasedParams = new ArrayList<IRSymbol>();
+    for( ISymbol param : dfs.getArgs() )
+    {
+      erasedParams.add( makeParamSymbol( param, param.getName() + "$$blockParam" ) );
+    }
+    setUpFunctionContext( dfs, true, erasedParams );
+    List<IRExpression> args = new ArrayList<IRExpression>();
+    for( int i = 0; i < erasedParams.size(); i++ )
+    {
+      args.add( unboxValueToType( primitiveDfs.getArgs().get( i ).getType(), identifier( erasedParams.get( i ) ) ) );
+    }
+    IRExpression call = buildMethodCall( _context.getIRTypeForCurrentClass(), BlockClass.INVOKE_METHOD_NAME, false,
+                                         getDescriptor( returnType ), primitiveParamTypes, pushThis(), args );
+    _irClass.addMethod( new IRMethodStatement( new IRReturnStatement( null, boxValue( returnType, call ) ),
+                                               NameResolver.getFunctionName( dfs ), getModifiers( dfs ),
+                                               getDescriptor( dfs.getReturnType() ), erasedParams ) );
+  }
+
   private boolean isStaticEnumMethod( DynamicFunctionSymbol dfs )
   {
     return getGosuClass().isEnum() && (dfs instanceof EnumValueOfFunctionSymbol ||
@@ -1821,6 +1899,33 @@ public class GosuClassTransformer extends AbstractElementTransformer<ClassStatem
     _irClass.addField( fieldDecl );
   }
 
+  public String addSyntheticStaticField( String strPrefix, IRType type )
+  {
+    String strName = strPrefix + _iSyntheticStaticFieldCount++;
+    // Volatile so a lazily assigned value is published safely, see AbstractElementTransformer.pushLazyStaticField()
+    IRFieldDecl fieldDecl = new IRFieldDecl( Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC | Opcodes.ACC_VOLATILE,
+                                             strName,
+                                             type,
+                                             null );
+    _irClass.addField( fieldDecl );
+    return strName;
+  }
+
+  public String getOrAddSyntheticStaticField( Object key, String strPrefix, IRType type )
+  {
+    if( _syntheticStaticFieldsByKey == null )
+    {
+      _syntheticStaticFieldsByKey = new HashMap<Object, String>();
+    }
+    String strName = _syntheticStaticFieldsByKey.get( key );
+    if( strName == null )
+    {
+      strName = addSyntheticStaticField( strPrefix, type );
+      _syntheticStaticFieldsByKey.put( key, strName );
+    }
+    return strName;
+  }
+
   //
 //  public void addCtxMethod( List<IType> args )
 //  {
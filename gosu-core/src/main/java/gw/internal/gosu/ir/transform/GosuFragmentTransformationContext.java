@@ -104,6 +104,24 @@ public class GosuFragmentTransformationContext extends TransformationContextBase
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  public boolean canAddSyntheticStaticFields()
+  {
+    return false;
+  }
+
+  @Override
+  public String addSyntheticStaticField( String strPrefix, IRType type )
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public String getOrAddSyntheticStaticField( Object key, String strPrefix, IRType type )
+  {
+    throw new UnsupportedOperationException();
+  }
+
   // --------------------- Overrides of methods that reference the underlying context
 
   @Override
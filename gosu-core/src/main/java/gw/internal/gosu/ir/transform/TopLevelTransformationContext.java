@@ -35,6 +35,20 @@ public interface TopLevelTransformationContext {
 
   void addAssertionsStaticField();
 
+  boolean canAddSyntheticStaticFields();
+
+  /**
+   * Adds a synthetic static field to the class being compiled.
+   * @return the unique name of the new field, starting with strPrefix
+   */
+  String addSyntheticStaticField( String strPrefix, IRType type );
+
+  /**
+   * Like {@link #addSyntheticStaticField(String, IRType)}, but returns the field already added
+   * for an equal key, if any.
+   */
+  String getOrAddSyntheticStaticField( Object key, String strPrefix, IRType type );
+
   ICompilableTypeInternal getGosuClass();
 
   boolean shouldUseReflection( IType declaringClass, IRelativeTypeInfo.Accessibility accessibility );
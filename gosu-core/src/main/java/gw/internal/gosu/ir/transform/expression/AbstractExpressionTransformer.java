@@ -9,6 +9,7 @@ import gw.internal.gosu.ir.transform.AbstractElementTransformer;
 import gw.internal.gosu.ir.transform.ExpressionTransformer;
 import gw.internal.gosu.ir.transform.TopLevelTransformationContext;
 import gw.internal.gosu.parser.ParameterizedGosuConstructorInfo;
+import gw.internal.gosu.parser.ParserBase;
 import gw.internal.gosu.parser.TypeLord;
 import gw.lang.ir.IRExpression;
 import gw.lang.ir.IRType;
@@ -16,8 +17,10 @@ import gw.lang.parser.IExpression;
 import gw.lang.reflect.IConstructorInfo;
 import gw.lang.reflect.IPlaceholder;
 import gw.lang.reflect.IType;
+import gw.lang.reflect.TypeSystem;
 import gw.lang.reflect.gs.IGosuConstructorInfo;
 import gw.lang.reflect.java.IJavaConstructorInfo;
+import gw.lang.reflect.java.JavaTypes;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -109,6 +112,61 @@ public abstract class AbstractExpressionTransformer<T extends IExpression> exten
     }
   }
 
+  /**
+   * @return The primitive type ConditionalExpression.compareNumbers() compares two numeric operands
+   *   in, if the compiler can compare them directly: int, long or double. Null for other operands e.g.,
+   *   BigDecimal, float, char or dimension operands.
+   */
+  protected static IType getNumericComparisonType( IType lhsType, IType rhsType )
+  {
+    if( !isDirectlyComparableNumber( lhsType ) || !isDirectlyComparableNumber( rhsType ) )
+    {
+      return null;
+    }
+    IType type = ParserBase.resolveType( lhsType, '>', rhsType );
+    if( !type.isPrimitive() )
+    {
+      type = TypeSystem.getPrimitiveType( type );
+    }
+    return type == JavaTypes.pINT() || type == JavaTypes.pLONG() || type == JavaTypes.pDOUBLE() ? type : null;
+  }
+
+  private static boolean isDirectlyComparableNumber( IType type )
+  {
+    return type == JavaTypes.pBYTE() || type == JavaTypes.BYTE() ||
+           type == JavaTypes.pSHORT() || type == JavaTypes.SHORT() ||
+           type == JavaTypes.pINT() || type == JavaTypes.INTEGER() ||
+           type == JavaTypes.pLONG() || type == JavaTypes.LONG() ||
+           type == JavaTypes.pDOUBLE() || type == JavaTypes.DOUBLE();
+  }
+
+  /**
+   * @return The pair of values to compare with a relational or equality operator to compare two non-null
+   *   numbers as compareNumbers() does: the values widened to the comparison type, or for doubles
+   *   Double.compare() and zero, since compareNumbers() orders NaN and -0.0 as Double.compareTo() does
+   */
+  protected IRExpression[] getNumericComparisonOperands( IType comparisonType, IType lhsType, IRExpression lhs, IType rhsType, IRExpression rhs )
+  {
+    lhs = unboxNumber( comparisonType, lhsType, lhs );
+    rhs = unboxNumber( comparisonType, rhsType, rhs );
+    if( comparisonType == JavaTypes.pDOUBLE() )
+    {
+      return new IRExpression[] {callStaticMethod( Double.class, "compare", new Class[]{double.class, double.class}, exprList( lhs, rhs ) ),
+                                 pushConstant( 0 )};
+    }
+    return new IRExpression[] {lhs, rhs};
+  }
+
+  private IRExpression unboxNumber( IType comparisonType, IType type, IRExpression value )
+  {
+    if( !type.isPrimitive() )
+    {
+      type = TypeSystem.getPrimitiveType( type );
+      value = unboxValueToType( type, value );
+    }
+    return numberConvert( type, comparisonType, value );
+  }
+
   protected void pushArgumentsNoCasting( IRMethod irMethod, IExpression[] args, List<IRExpression> irArgs )
   {
     _pushArguments( irMethod, args, irArgs, false );
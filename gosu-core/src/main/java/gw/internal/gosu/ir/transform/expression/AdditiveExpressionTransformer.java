@@ -8,8 +8,10 @@ import gw.internal.gosu.ir.nodes.IRMethodFactory;
 import gw.internal.gosu.ir.transform.ExpressionTransformer;
 import gw.internal.gosu.ir.transform.TopLevelTransformationContext;
 import gw.internal.gosu.parser.BeanAccess;
+import gw.internal.gosu.parser.Expression;
 import gw.internal.gosu.parser.expressions.AdditiveExpression;
 import gw.internal.gosu.parser.expressions.Identifier;
+import gw.internal.gosu.parser.expressions.StringLiteral;
 import gw.internal.gosu.runtime.GosuRuntimeMethods;
 import gw.lang.ir.IRExpression;
 import gw.lang.ir.expression.IRArithmeticExpression;
@@ -18,12 +20,15 @@ import gw.lang.parser.IParseTree;
 import gw.lang.parser.IParsedElement;
 import gw.lang.parser.StandardSymbolTable;
 import gw.lang.reflect.IMethodInfo;
+import gw.lang.reflect.IPlaceholder;
 import gw.lang.reflect.IType;
 import gw.lang.reflect.java.JavaTypes;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
 /**
  */
@@ -67,16 +72,14 @@ public class AdditiveExpressionTransformer extends AbstractExpressionTransformer
       }
       else
       {
-        if( isCompileTimeConstantConcatenation() )
+        if( isCompileTimeConstantConcatenation( _expr() ) )
         {
           return concatenate();
         }
-//## todo: handle other cases efficiently
-//   (ex var a = "1" var b = "2" var c = a + b  -> we should generate code using a StringBuilder)
-//        else
-//        {
-//
-//        }
+        if( isStringConcatenation( _expr() ) )
+        {
+          return stringBuilderConcatenation();
+        }
         return complexAddition( bNumeric );
       }
     }
@@ -159,6 +162,133 @@ public class AdditiveExpressionTransformer extends AbstractExpressionTransformer
     return unboxValueToType( _expr().getType(), evaluateCall );
   }
 
+  /**
+   * Compiles a chain of string concatenations e.g., a + b + c + d, to a single presized StringBuilder
+   * with an append() call per operand, specialized for primitive operands so they aren't boxed.
+   * Adjacent string literals are appended as one.
+   * <p/>
+   * Strings, primitives and boxed primitives (other than BigDecimal and BigInteger) are appended
+   * directly and don't go through ICoercionManager.makeStringFrom(), so a custom coercion manager
+   * only converts the other operands. The standard one converts all of them with toString().
+   */
+  private IRExpression stringBuilderConcatenation()
+  {
+    List<Expression> operands = new ArrayList<Expression>();
+    addConcatenationOperands( _expr(), operands );
+
+    List<IRExpression> appends = new ArrayList<IRExpression>();
+    List<Class> paramTypes = new ArrayList<Class>();
+    int iCapacity = 0;
+    StringBuilder literal = null;
+    for( Expression operand : operands )
+    {
+      if( operand instanceof StringLiteral )
+      {
+        String strValue = ((StringLiteral)operand).getValue();
+        iCapacity += strValue.length();
+        literal = literal == null ? new StringBuilder( strValue ) : literal.append( strValue );
+        continue;
+      }
+      if( literal != null )
+      {
+        appends.add( pushConstant( literal.toString() ) );
+        paramTypes.add( String.class );
+        literal = null;
+      }
+      iCapacity += 16;
+      appendOperand( operand, appends, paramTypes );
+    }
+    if( literal != null )
+    {
+      appends.add( pushConstant( literal.toString() ) );
+      paramTypes.add( String.class );
+    }
+
+    IRExpression sb = buildNewExpression( StringBuilder.class, new Class[]{int.class}, exprList( pushConstant( iCapacity ) ) );
+    for( int i = 0; i < appends.size(); i++ )
+    {
+      sb = callMethod( StringBuilder.class, "append", new Class[]{paramTypes.get( i )}, sb, exprList( appends.get( i ) ) );
+    }
+    return callMethod( StringBuilder.class, "toString", new Class[0], sb, exprList() );
+  }
+
+  private void appendOperand( Expression operand, List<IRExpression> appends, List<Class> paramTypes )
+  {
+    IType type = operand.getType();
+    IRExpression value = ExpressionTransformer.compile( operand, _cc() );
+    if( type == JavaTypes.pBOOLEAN() )
+    {
+      paramTypes.add( boolean.class );
+    }
+    else if( type == JavaTypes.pCHAR() )
+    {
+      paramTypes.add( char.class );
+    }
+    else if( type == JavaTypes.pBYTE() || type == JavaTypes.pSHORT() || type == JavaTypes.pINT() )
+    {
+      value = numberConvert( type, JavaTypes.pINT(), value );
+      paramTypes.add( int.class );
+    }
+    else if( type == JavaTypes.pLONG() )
+    {
+      paramTypes.add( long.class );
+    }
+    else if( type == JavaTypes.pFLOAT() )
+    {
+      paramTypes.add( float.class );
+    }
+    else if( type == JavaTypes.pDOUBLE() )
+    {
+      paramTypes.add( double.class );
+    }
+    else if( type == JavaTypes.STRING() )
+    {
+      paramTypes.add( String.class );
+    }
+    else if( type == JavaTypes.BOOLEAN() || isNonBigBoxedNumberType( type ) )
+    {
+      // toString() is the string value of a boxed primitive, null appends as "null"
+      paramTypes.add( Object.class );
+    }
+    else
+    {
+      // Other objects convert as they do at runtime, see AdditiveExpression.evaluate()
+      value = callStaticMethod( AdditiveExpression.class, "makeStringFrom", new Class[]{Object.class},
+                                exprList( boxValue( type, value ) ) );
+      paramTypes.add( String.class );
+    }
+    appends.add( value );
+  }
+
+  private void addConcatenationOperands( Expression operand, List<Expression> operands )
+  {
+    if( operand instanceof AdditiveExpression &&
+        isStringConcatenation( (AdditiveExpression)operand ) &&
+        !isCompileTimeConstantConcatenation( (AdditiveExpression)operand ) )
+    {
+      addConcatenationOperands( ((AdditiveExpression)operand).getLHS(), operands );
+      addConcatenationOperands( ((AdditiveExpression)operand).getRHS(), operands );
+    }
+    else
+    {
+      operands.add( operand );
+    }
+  }
+
+  private static boolean isStringConcatenation( AdditiveExpression expr )
+  {
+    // A dynamic operand may turn out to be a number at runtime, leave those to AdditiveExpression.evaluate()
+    return expr.isAdditive() &&
+           expr.getType() == JavaTypes.STRING() &&
+           !isPlaceholder( expr.getLHS().getType() ) &&
+           !isPlaceholder( expr.getRHS().getType() );
+  }
+
+  private static boolean isPlaceholder( IType type )
+  {
+    return type instanceof IPlaceholder && ((IPlaceholder)type).isPlaceholder();
+  }
+
   public boolean isSimpleAddition()
   {
     return isPrimitiveNumberType( _expr().getType() ) &&
@@ -166,11 +296,11 @@ public class AdditiveExpressionTransformer extends AbstractExpressionTransformer
            isPrimitiveNumberType( _expr().getRHS().getType() );
   }
 
-  private boolean isCompileTimeConstantConcatenation()
+  private boolean isCompileTimeConstantConcatenation( AdditiveExpression expr )
   {
-    return  _expr().getType() == JavaTypes.STRING() &&
-            _expr().isCompileTimeConstant() &&
-            !containsIdentifier( _expr().isAssignment() ? _expr().getParent() : _expr() );
+    return  expr.getType() == JavaTypes.STRING() &&
+            expr.isCompileTimeConstant() &&
+            !containsIdentifier( expr.isAssignment() ? expr.getParent() : expr );
   }
 
   private boolean containsIdentifier( IParsedElement expr )
@@ -10,10 +10,13 @@ import gw.internal.gosu.ir.nodes.IRMethodFromMethodInfo;
 import gw.internal.gosu.ir.transform.ExpressionTransformer;
 import gw.internal.gosu.ir.transform.TopLevelTransformationContext;
 import gw.internal.gosu.parser.ArrayExpansionMethodInfo;
+import gw.internal.gosu.parser.TypeLord;
 import gw.internal.gosu.parser.expressions.BeanMethodCallExpression;
 import gw.internal.gosu.parser.expressions.Identifier;
 import gw.internal.gosu.parser.statements.BeanMethodCallStatement;
+import gw.internal.gosu.runtime.DynamicCallSite;
 import gw.internal.gosu.runtime.GosuRuntimeMethods;
+import gw.lang.enhancements.LazySequence;
 import gw.lang.ir.IRElement;
 import gw.lang.ir.IRExpression;
 import gw.lang.ir.IRSymbol;
@@ -27,6 +30,7 @@ import gw.lang.parser.MemberAccessKind;
 import gw.lang.reflect.IMethodInfo;
 import gw.lang.reflect.IType;
 import gw.lang.reflect.ITypeInfoMethodInfo;
+import gw.lang.reflect.gs.BytecodeOptions;
 import gw.lang.reflect.gs.IGosuClass;
 import gw.lang.reflect.java.JavaTypes;
 
@@ -37,6 +41,8 @@ import java.util.List;
  */
 public class BeanMethodCallExpressionTransformer extends AbstractExpressionTransformer<BeanMethodCallExpression>
 {
+  private static final String CORE_ITERABLE_ENHANCEMENT = "gw.lang.enhancements.CoreIterableEnhancement";
+
   public static IRExpression compile( TopLevelTransformationContext cc, BeanMethodCallExpression expr )
   {
     BeanMethodCallExpressionTransformer compiler = new BeanMethodCallExpressionTransformer( cc, expr );
@@ -55,6 +61,15 @@ public class BeanMethodCallExpressionTransformer extends AbstractExpressionTrans
       return BeanMethodCallExpansionTransformer.compile( _cc(), _expr() );
     }
 
+    if( BytecodeOptions.isFuseIterableChains() )
+    {
+      IRExpression fused = compileFusedIterableChain();
+      if( fused != null )
+      {
+        return fused;
+      }
+    }
+
     IRExpression result;
     IExpression rootExpr = _expr().getRootExpression();
     IMethodInfo mi = getMethodInfo();
@@ -144,6 +159,91 @@ public class BeanMethodCallExpressionTransformer extends AbstractExpressionTrans
     }
   }
 
+  /**
+   * Compiles e.g. list.where( \ e -> ... ).map( \ e -> ... ).firstWhere( \ e -> ... ) as a single
+   * pass over a LazySequence that stops at the first match, instead of a list for every call.
+   *
+   * @return null if this call doesn't end such a chain
+   */
+  private IRExpression compileFusedIterableChain()
+  {
+    String strTerminal = getFusableIterableMethod( _expr() );
+    if( strTerminal == null || strTerminal.equals( "where" ) || strTerminal.equals( "map" ) )
+    {
+      return null;
+    }
+
+    List<BeanMethodCallExpression> stages = new ArrayList<BeanMethodCallExpression>();
+    IExpression source = _expr().getRootExpression();
+    while( source instanceof BeanMethodCallExpression )
+    {
+      BeanMethodCallExpression stage = (BeanMethodCallExpression)source;
+      String strStage = getFusableIterableMethod( stage );
+      if( !"where".equals( strStage ) && !"map".equals( strStage ) )
+      {
+        break;
+      }
+      stages.add( 0, stage );
+      source = stage.getRootExpression();
+    }
+    if( stages.isEmpty() )
+    {
+      // Nothing to fuse, a lone terminal is as good as it gets
+      return null;
+    }
+
+    IRExpression sequence = buildNewExpression( LazySequence.class, new Class[]{Iterable.class},
+                                                exprList( ExpressionTransformer.compile( source, _cc() ) ) );
+    for( BeanMethodCallExpression stage : stages )
+    {
+      String strMethod = stage.getMethodDescriptor().getDisplayName().equals( "where" ) ? "filtered" : "mapped";
+      sequence = callMethod( LazySequence.class, strMethod, new Class[]{Object.class}, sequence,
+                             exprList( ExpressionTransformer.compile( stage.getArgs()[0], _cc() ) ) );
+    }
+
+    if( strTerminal.equals( "first" ) )
+    {
+      return checkCast( _expr().getType(), callMethod( LazySequence.class, "findFirst", new Class[]{Object.class}, sequence, exprList( nullLiteral() ) ) );
+    }
+    IRExpression irCond = ExpressionTransformer.compile( _expr().getArgs()[0], _cc() );
+    if( strTerminal.equals( "firstWhere" ) )
+    {
+      return checkCast( _expr().getType(), callMethod( LazySequence.class, "findFirst", new Class[]{Object.class}, sequence, exprList( irCond ) ) );
+    }
+    String strMethod = strTerminal.equals( "hasMatch" )
+                       ? "anyMatch"
+                       : strTerminal.equals( "allMatch" )
+                         ? "matchesAll"
+                         : "countMatching";
+    return callMethod( LazySequence.class, strMethod, new Class[]{Object.class}, sequence, exprList( irCond ) );
+  }
+
+  /**
+   * @return The name of the CoreIterableEnhancement method the call fuses as, or null if it can't be fused
+   */
+  private static String getFusableIterableMethod( BeanMethodCallExpression call )
+  {
+    if( call.getMemberAccessKind() != MemberAccessKind.NORMAL ||
+        call.getExpressionRuntime() instanceof ICustomExpressionRuntime ||
+        call.getMethodDescriptor() == null ||
+        !CORE_ITERABLE_ENHANCEMENT.equals( TypeLord.getPureGenericType( call.getMethodDescriptor().getOwnersType() ).getName() ) )
+    {
+      return null;
+    }
+    String strMethod = call.getMethodDescriptor().getDisplayName();
+    int iArgs = call.getArgs() == null ? 0 : call.getArgs().length;
+    if( strMethod.equals( "first" ) )
+    {
+      return iArgs == 0 ? strMethod : null;
+    }
+    if( strMethod.equals( "where" ) || strMethod.equals( "map" ) || strMethod.equals( "firstWhere" ) ||
+        strMethod.equals( "hasMatch" ) || strMethod.equals( "allMatch" ) || strMethod.equals( "countWhere" ) )
+    {
+      return iArgs == 1 ? strMethod : null;
+    }
+    return null;
+  }
+
   private boolean shouldNullShortCircuit()
   {
     return _expr().getMemberAccessKind() == MemberAccessKind.NULL_SAFE;
@@ -234,13 +334,27 @@ public class BeanMethodCallExpressionTransformer extends AbstractExpressionTrans
       irRoot = irRootExpr;
     }
 
-    IRExpression miCall = callStaticMethod( GosuRuntimeMethods.class, "invokeMethodInfo", new Class[]{IType.class, String.class, IType[].class, Object.class, Object[].class},
-            exprList(
-                    pushType( mi.getOwnersType(), true ),
-                    pushConstant( mi.getDisplayName() ),
-                    pushParamTypes( mi.getParameters() ),
-                    irRoot,
-                    pushArgumentsAsArray( explicitArgs ) ) );
+    IRExpression miCall;
+    if( isDynamicCallSitesEnabled() )
+    {
+      miCall = callMethod( DynamicCallSite.class, "invokeMethodInfo", new Class[]{IType.class, IType[].class, Object.class, Object[].class},
+              pushDynamicCallSite( mi.getDisplayName() ),
+              exprList(
+                      pushType( mi.getOwnersType(), true ),
+                      pushParamTypes( mi.getParameters() ),
+                      irRoot,
+                      pushArgumentsAsArray( explicitArgs ) ) );
+    }
+    else
+    {
+      miCall = callStaticMethod( GosuRuntimeMethods.class, "invokeMethodInfo", new Class[]{IType.class, String.class, IType[].class, Object.class, Object[].class},
+              exprList(
+                      pushType( mi.getOwnersType(), true ),
+                      pushConstant( mi.getDisplayName() ),
+                      pushParamTypes( mi.getParameters() ),
+                      irRoot,
+                      pushArgumentsAsArray( explicitArgs ) ) );
+    }
     miCall = unboxValueToType( mi.getReturnType(), miCall );
     if( callElements.size() > 0 )
     {
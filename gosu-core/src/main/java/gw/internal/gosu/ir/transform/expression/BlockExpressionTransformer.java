@@ -17,6 +17,7 @@ import gw.lang.ir.IRType;
 import gw.lang.parser.expressions.IBlockExpression;
 import gw.lang.reflect.IBlockType;
 import gw.lang.reflect.IType;
+import gw.lang.reflect.gs.BytecodeOptions;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -51,10 +52,16 @@ public class BlockExpressionTransformer extends AbstractExpressionTransformer<IB
     IRSymbol temp = _cc().makeAndIndexTempSymbol( getDescriptor( blockClazz ) );
     IRAssignmentStatement tempAssignment = buildAssignment( temp, newExpr );
 
-    IRStatement setReturnType = buildFieldSet( getDescriptor( blockClazz ), "_returnType", JavaClassIRType.get( IType.class ), identifier( temp ), pushType( ((IBlockType)blk.getReturnType()).getReturnType() ) );
+    IType returnType = ((IBlockType)blk.getReturnType()).getReturnType();
+    IRStatement setReturnType = buildFieldSet( getDescriptor( blockClazz ), "_returnType", JavaClassIRType.get( IType.class ), identifier( temp ), pushType( returnType ) );
 
     IRCompositeExpression blockExpr = buildComposite( tempAssignment, setReturnType, identifier( temp ) );
     blockExpr.setImplicit( true );
+    if( BytecodeOptions.isCacheBlocks() && args.isEmpty() && isConstantType( returnType ) && _cc().canAddSyntheticStaticFields() )
+    {
+      // The block captures nothing, not even 'this', so one instance serves every evaluation
+      return pushLazyStaticField( "$block$", getDescriptor( blockClazz ), blockExpr );
+    }
     return blockExpr;
   }
 
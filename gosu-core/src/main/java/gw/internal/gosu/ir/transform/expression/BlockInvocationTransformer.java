@@ -7,11 +7,15 @@ package gw.internal.gosu.ir.transform.expression;
 import gw.internal.gosu.parser.expressions.BlockInvocation;
 import gw.lang.ir.IRElement;
 import gw.lang.ir.IRExpression;
+import gw.lang.ir.IRSymbol;
+import gw.lang.ir.IRType;
 import gw.internal.gosu.ir.transform.ExpressionTransformer;
 import gw.internal.gosu.ir.transform.TopLevelTransformationContext;
 import gw.internal.gosu.compiler.FunctionClassUtil;
 import gw.lang.ir.expression.IRCompositeExpression;
+import gw.lang.ir.expression.IRInstanceOfExpression;
 import gw.lang.parser.IExpression;
+import gw.lang.reflect.IFunctionType;
 import gw.lang.reflect.IType;
 import gw.lang.reflect.java.IJavaClassInfo;
 import gw.lang.reflect.java.IJavaType;
@@ -34,6 +38,12 @@ public class BlockInvocationTransformer extends AbstractExpressionTransformer<Bl
 
   protected IRExpression compile_impl()
   {
+    Class primitiveIface = getPrimitiveFunctionInterface();
+    if( primitiveIface != null )
+    {
+      return compilePrimitiveInvocation( primitiveIface );
+    }
+
     List<IRExpression> explicitArgs = boxArgs();
     List<IRElement> callElements = handleNamedArgs( explicitArgs, _expr().getNamedArgOrder() );
 
@@ -60,6 +70,70 @@ public class BlockInvocationTransformer extends AbstractExpressionTransformer<Bl
     return call;
   }
 
+  private Class getPrimitiveFunctionInterface()
+  {
+    int[] namedArgOrder = _expr().getNamedArgOrder();
+    IType rootType = _expr().getRoot().getType();
+    if( (namedArgOrder != null && namedArgOrder.length > 0) || !(rootType instanceof IFunctionType) )
+    {
+      return null;
+    }
+    IFunctionType funcType = (IFunctionType)rootType;
+    IType[] paramTypes = funcType.getParameterTypes();
+    List<IExpression> args = _expr().getArgs();
+    if( funcType.getReturnType() != _expr().getType() || paramTypes.length != args.size() )
+    {
+      return null;
+    }
+    for( int i = 0; i < paramTypes.length; i++ )
+    {
+      if( args.get( i ).getType() != paramTypes[i] )
+      {
+        return null;
+      }
+    }
+    return FunctionClassUtil.getPrimitiveFunctionInterface( funcType );
+  }
+
+  /**
+   * Calls the block's primitive invoke method if it implements the interface, otherwise the erased one.
+   * Blocks compiled from Gosu expressions with a matching signature always implement it, other
+   * implementations of the function interface may not.
+   */
+  private IRExpression compilePrimitiveInvocation( Class primitiveIface )
+  {
+    List<IRElement> elements = new ArrayList<IRElement>();
+    IRExpression root = ExpressionTransformer.compile( _expr().getRoot(), _cc() );
+    IRSymbol rootSymbol = _cc().makeAndIndexTempSymbol( root.getType() );
+    elements.add( buildAssignment( rootSymbol, root ) );
+
+    List<IExpression> args = _expr().getArgs();
+    List<IRExpression> primitiveArgs = new ArrayList<IRExpression>();
+    List<IRExpression> boxedArgs = new ArrayList<IRExpression>();
+    List<IRType> paramTypes = new ArrayList<IRType>();
+    for( IExpression arg : args )
+    {
+      IRExpression irArg = ExpressionTransformer.compile( arg, _cc() );
+      IRSymbol argSymbol = _cc().makeAndIndexTempSymbol( irArg.getType() );
+      elements.add( buildAssignment( argSymbol, irArg ) );
+      primitiveArgs.add( identifier( argSymbol ) );
+      boxedArgs.add( boxValue( arg.getType(), identifier( argSymbol ) ) );
+      paramTypes.add( getDescriptor( arg.getType() ) );
+    }
+
+    IType returnType = _expr().getType();
+    IRType ifaceType = getDescriptor( primitiveIface );
+    IRExpression primitiveCall = buildMethodCall( ifaceType, "invoke", true, getDescriptor( returnType ), paramTypes,
+                                                  buildCast( ifaceType, identifier( rootSymbol ) ), primitiveArgs );
+    IJavaType interfaceForArity = FunctionClassUtil.getFunctionInterfaceForArity( args.size() );
+    IRExpression erasedCall = unboxValueToType( returnType,
+                                                callMethod( interfaceForArity.getBackingClassInfo(), "invoke", FunctionClassUtil.getArgArrayForArity( args.size() ),
+                                                            identifier( rootSymbol ), boxedArgs ) );
+    elements.add( buildTernary( new IRInstanceOfExpression( identifier( rootSymbol ), ifaceType ),
+                                primitiveCall, erasedCall, getDescriptor( returnType ) ) );
+    return new IRCompositeExpression( elements );
+  }
+
   private List<IRExpression> boxArgs()
   {
     List<IRExpression> irArgs = new ArrayList<IRExpression>();
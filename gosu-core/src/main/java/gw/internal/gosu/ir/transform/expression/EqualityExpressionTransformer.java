@@ -65,6 +65,10 @@ public class EqualityExpressionTransformer extends AbstractExpressionTransformer
       }
       return compareWithEquals();
     }
+    else if( getNumericComparisonType( lhsType, rhsType ) != null )
+    {
+      return compareNumbers( getNumericComparisonType( lhsType, rhsType ) );
+    }
     //## todo: maybe do a quick identity compare, if same we can avoid calling into gs runtime
 //    else if( !lhsType.isPrimitive() && !rhsType.isPrimitive() )
 //    {
@@ -96,6 +100,41 @@ public class EqualityExpressionTransformer extends AbstractExpressionTransformer
     return new IREqualityExpression( lhs, rhs, _expr().isEquals() );
   }
 
+  private IRExpression compareNumbers( IType comparisonType )
+  {
+    // Generates following code for mixed number types e.g., Integer and long:
+    // <lhs-type> lhs = <lhs-expr>
+    // <rhs-type> rhs = <rhs-expr>
+    // [!]((lhs != null && rhs != null && <unboxed-lhs> == <unboxed-rhs>) || (lhs == null && rhs == null))
+    // where the null checks are only for boxed operands, see getNumericComparisonOperands()
+
+    IType lhsType = _expr().getLHS().getType();
+    IType rhsType = _expr().getRHS().getType();
+    IRSymbol lhsTemp = _cc().makeAndIndexTempSymbol( getDescriptor( lhsType ) );
+    IRAssignmentStatement tempLhsAssignment = buildAssignment( lhsTemp, ExpressionTransformer.compile( _expr().getLHS(), _cc() ) );
+    IRSymbol rhsTemp = _cc().makeAndIndexTempSymbol( getDescriptor( rhsType ) );
+    IRAssignmentStatement tempRhsAssignment = buildAssignment( rhsTemp, ExpressionTransformer.compile( _expr().getRHS(), _cc() ) );
+    IRExpression[] operands = getNumericComparisonOperands( comparisonType, lhsType, identifier( lhsTemp ), rhsType, identifier( rhsTemp ) );
+    IRExpression theExpr = buildEquals( operands[0], operands[1] );
+    if( !rhsType.isPrimitive() )
+    {
+      theExpr = new IRConditionalAndExpression( buildNotEquals( identifier( rhsTemp ), nullLiteral() ), theExpr );
+    }
+    if( !lhsType.isPrimitive() )
+    {
+      theExpr = new IRConditionalAndExpression( buildNotEquals( identifier( lhsTemp ), nullLiteral() ), theExpr );
+    }
+    if( !lhsType.isPrimitive() && !rhsType.isPrimitive() )
+    {
+      theExpr = new IRConditionalOrExpression( theExpr,
+                                               new IRConditionalAndExpression( buildEquals( identifier( lhsTemp ), nullLiteral() ),
+                                                                               buildEquals( identifier( rhsTemp ), nullLiteral() ) ) );
+    }
+    return buildComposite( tempLhsAssignment,
+                           tempRhsAssignment,
+                           _expr().isEquals() ? theExpr : new IRNotExpression( theExpr ) );
+  }
+
   private IRExpression compareToNull()
   {
 
@@ -20,6 +20,7 @@ import gw.internal.gosu.parser.expressions.Literal;
 import gw.internal.gosu.parser.expressions.MemberAccess;
 import gw.internal.gosu.parser.expressions.MemberExpansionAccess;
 import gw.internal.gosu.parser.optimizer.SinglePropertyMemberAccessRuntime;
+import gw.internal.gosu.runtime.DynamicCallSite;
 import gw.internal.gosu.runtime.GosuRuntimeMethods;
 import gw.lang.IAutocreate;
 import gw.lang.ShortCircuitingProperty;
@@ -466,16 +467,34 @@ public class MemberAccessTransformer extends AbstractExpressionTransformer<Membe
         {
           throw new IllegalArgumentException( "Cannot invoke a static property reflectively on a placeholder type" );
         }
-        result = callStaticMethod( GosuRuntimeMethods.class, "getPropertyDynamically", new Class[]{Object.class, String.class},
-                                   exprList( root, pushPropertyName( pi ) ) );
+        String strPropertyName = getConstantPropertyName( pi );
+        if( strPropertyName != null && isDynamicCallSitesEnabled() )
+        {
+          result = callMethod( DynamicCallSite.class, "getPropertyDynamically", new Class[]{Object.class},
+                               pushDynamicCallSite( strPropertyName ), exprList( root ) );
+        }
+        else
+        {
+          result = callStaticMethod( GosuRuntimeMethods.class, "getPropertyDynamically", new Class[]{Object.class, String.class},
+                                     exprList( root, pushPropertyName( pi ) ) );
+        }
       }
       else
       {
         // Everything else should get the property from the statically-determined type.  Not all type systems will want
         // to do full dynamic dispatch, so we can't just grab the property off of the runtime object type, since that might
         // result in a different property being invoked than the one expected at compile time
-        result = callStaticMethod( GosuRuntimeMethods.class, "getProperty", new Class[]{Object.class, IType.class, String.class},
-                                   exprList( root, pushType( rootType ), pushPropertyName( pi ) ) );
+        String strPropertyName = getConstantPropertyName( pi );
+        if( strPropertyName != null && isDynamicCallSitesEnabled() )
+        {
+          result = callMethod( DynamicCallSite.class, "getProperty", new Class[]{Object.class, IType.class},
+                               pushDynamicCallSite( strPropertyName ), exprList( root, pushType( rootType ) ) );
+        }
+        else
+        {
+          result = callStaticMethod( GosuRuntimeMethods.class, "getProperty", new Class[]{Object.class, IType.class, String.class},
+                                     exprList( root, pushType( rootType ), pushPropertyName( pi ) ) );
+        }
       }
     }
     else
@@ -555,13 +574,7 @@ public class MemberAccessTransformer extends AbstractExpressionTransformer<Membe
   {
     if( pi != null )
     {
-      if ( pi instanceof IUncacheableFeature ) {
-        // In the case of snapshot types, the property's name is garbage, so we need to go back to
-        // the name from the member access itself
-        return pushConstant( _expr().getMemberName() );
-      } else {
-        return pushConstant( pi.getName() );
-      }
+      return pushConstant( getConstantPropertyName( pi ) );
     }
     else
     {
@@ -569,6 +582,21 @@ public class MemberAccessTransformer extends AbstractExpressionTransformer<Membe
     }
   }
 
+  private String getConstantPropertyName( IPropertyInfo pi )
+  {
+    if( pi == null )
+    {
+      return null;
+    }
+    if ( pi instanceof IUncacheableFeature ) {
+      // In the case of snapshot types, the property's name is garbage, so we need to go back to
+      // the name from the member access itself
+      return _expr().getMemberName();
+    } else {
+      return pi.getName();
+    }
+  }
+
   private IRExpression pushRootExpression( IType rootType, IExpression rootExpr, IRProperty pi )
   {
     // Push the root expression value
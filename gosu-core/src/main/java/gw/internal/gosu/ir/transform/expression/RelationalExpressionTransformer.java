@@ -6,6 +6,7 @@ package gw.internal.gosu.ir.transform.expression;
 
 import gw.internal.gosu.parser.BeanAccess;
 import gw.internal.gosu.parser.ParserBase;
+import gw.internal.gosu.parser.TypeLord;
 import gw.internal.gosu.parser.expressions.RelationalExpression;
 import gw.internal.gosu.parser.expressions.ConditionalExpression;
 import gw.internal.gosu.ir.transform.ExpressionTransformer;
@@ -17,6 +18,7 @@ import gw.lang.ir.expression.IRRelationalExpression;
 import gw.lang.ir.statement.IRAssignmentStatement;
 import gw.lang.parser.GosuParserTypes;
 import gw.lang.parser.ICoercionManager;
+import gw.lang.reflect.IPlaceholder;
 import gw.lang.reflect.IType;
 import gw.lang.reflect.java.JavaTypes;
 import gw.config.CommonServices;
@@ -53,6 +55,14 @@ public class RelationalExpressionTransformer extends AbstractExpressionTransform
     {
       return compareWithCompareTo();
     }
+    else if( getNumericComparisonType( lhsType, rhsType ) != null )
+    {
+      return compareNumbers( getNumericComparisonType( lhsType, rhsType ) );
+    }
+    else if( isComparableSubtypeComparison( lhsType, rhsType ) )
+    {
+      return compareWithCompareTo();
+    }
     else
     {
       return compareDynamically();
@@ -82,6 +92,56 @@ public class RelationalExpressionTransformer extends AbstractExpressionTransform
                            theExpr );
   }
 
+  /**
+   * True if evaluate() would call compareTo() for any pair of non-null values i.e., the LHS is a
+   * Comparable bean type other than a number or date and the RHS is statically one of its subtypes.
+   * Types with type variables are excluded since the runtime may see them resolved differently.
+   */
+  private boolean isComparableSubtypeComparison( IType lhsType, IType rhsType )
+  {
+    return !isPlaceholder( lhsType ) && !isPlaceholder( rhsType ) &&
+           !TypeLord.hasTypeVariable( lhsType ) && !TypeLord.hasTypeVariable( rhsType ) &&
+           BeanAccess.isBeanType( lhsType ) && BeanAccess.isBeanType( rhsType ) &&
+           !BeanAccess.isNumericType( lhsType ) &&
+           lhsType != GosuParserTypes.DATETIME_TYPE() &&
+           JavaTypes.COMPARABLE().isAssignableFrom( lhsType ) &&
+           lhsType.isAssignableFrom( rhsType );
+  }
+
+  private static boolean isPlaceholder( IType type )
+  {
+    return type instanceof IPlaceholder && ((IPlaceholder)type).isPlaceholder();
+  }
+
+  private IRExpression compareNumbers( IType comparisonType )
+  {
+    // Generates following code:
+    // <lhs-type> lhs = <lhs-expr>
+    // <rhs-type> rhs = <rhs-expr>
+    // ([lhs != null &&] [rhs != null &&] <unboxed-lhs> [>, <, >=, <=] <unboxed-rhs>)
+    // where the null checks are only for boxed operands, see getNumericComparisonOperands()
+
+    IType lhsType = _expr().getLHS().getType();
+    IType rhsType = _expr().getRHS().getType();
+    IRSymbol lhsTemp = _cc().makeAndIndexTempSymbol( getDescriptor( lhsType ) );
+    IRAssignmentStatement tempLhsAssignment = buildAssignment( lhsTemp, ExpressionTransformer.compile( _expr().getLHS(), _cc() ) );
+    IRSymbol rhsTemp = _cc().makeAndIndexTempSymbol( getDescriptor( rhsType ) );
+    IRAssignmentStatement tempRhsAssignment = buildAssignment( rhsTemp, ExpressionTransformer.compile( _expr().getRHS(), _cc() ) );
+    IRExpression[] operands = getNumericComparisonOperands( comparisonType, lhsType, identifier( lhsTemp ), rhsType, identifier( rhsTemp ) );
+    IRExpression theExpr = new IRRelationalExpression( operands[0], operands[1], IRRelationalExpression.Operation.get( _expr().getOperator() ) );
+    if( !rhsType.isPrimitive() )
+    {
+      theExpr = new IRConditionalAndExpression( buildNotEquals( identifier( rhsTemp ), nullLiteral() ), theExpr );
+    }
+    if( !lhsType.isPrimitive() )
+    {
+      theExpr = new IRConditionalAndExpression( buildNotEquals( identifier( lhsTemp ), nullLiteral() ), theExpr );
+    }
+    return buildComposite( tempLhsAssignment,
+                           tempRhsAssignment,
+                           theExpr );
+  }
+
   private IRExpression comparePrimitives()
   {
     // Get the upper bound type
@@ -17,6 +17,7 @@ import gw.internal.gosu.parser.JavaFieldPropertyInfo;
 import gw.internal.gosu.parser.JavaPropertyInfo;
 import gw.internal.gosu.parser.expressions.Identifier;
 import gw.internal.gosu.parser.statements.MemberAssignmentStatement;
+import gw.internal.gosu.runtime.DynamicCallSite;
 import gw.internal.gosu.runtime.GosuRuntimeMethods;
 import gw.lang.ir.IRExpression;
 import gw.lang.ir.IRStatement;
@@ -108,7 +109,7 @@ public class MemberAssignmentStatementTransformer extends AbstractStatementTrans
       }
     }
     else {
-      return reflectivelySetProperty( pi.getOwnersType(), pushConstant( pi.getDisplayName() ), root, false );
+      return reflectivelySetProperty( pi.getOwnersType(), pi.getDisplayName(), root );
     }
   }
 
@@ -165,6 +166,26 @@ public class MemberAssignmentStatementTransformer extends AbstractStatementTrans
     return type;
   }
 
+  private IRStatement reflectivelySetProperty( IType type, String strPropertyName, IRExpression root ) {
+    if( !isDynamicCallSitesEnabled() ) {
+      return reflectivelySetProperty( type, pushConstant( strPropertyName ), root, false );
+    }
+    IRExpression value = ExpressionTransformer.compile( _stmt().getExpression(), _cc() );
+    IRExpression setter;
+    if( type instanceof IPlaceholder ) {
+      if( root == null ) {
+        throw new IllegalArgumentException( "Cannot invoke a static property reflectively on a placeholder type or via dynamic reflection" );
+      }
+      setter = callMethod( DynamicCallSite.class, "setPropertyDynamically", new Class[]{Object.class, Object.class},
+                           pushDynamicCallSite( strPropertyName ), exprList( root, value ) );
+    }
+    else {
+      setter = callMethod( DynamicCallSite.class, "setProperty", new Class[]{Object.class, IType.class, Object.class},
+                           pushDynamicCallSite( strPropertyName ), exprList( root, pushType( type ), value ) );
+    }
+    return buildMethodCall( setter );
+  }
+
   private IRStatement reflectivelySetProperty( IType type, IRExpression propertyName, IRExpression root, boolean forceDynamic ) {
     IRExpression value = ExpressionTransformer.compile( _stmt().getExpression(), _cc() );
     IRExpression setter;
@@ -206,7 +227,7 @@ public class MemberAssignmentStatementTransformer extends AbstractStatementTrans
         }
       }
       else {
-        return reflectivelySetProperty( pi.getOwnersType(), pushConstant( pi.getDisplayName() ), nullLiteral(), false );
+        return reflectivelySetProperty( pi.getOwnersType(), pi.getDisplayName(), nullLiteral() );
       }
     }
   }
@@ -112,7 +112,7 @@ public class ReturnStatementTransformer extends AbstractStatementTransformer<Ret
     IRExpression expression = ExpressionTransformer.compile( _stmt().getValue(), _cc() );
 
     // handle implicit boxing/unbocking in block invoke methods or 
-    if( (_cc().isBlockInvoke() || _cc().isFragmentEvaluation() ) && retType.isPrimitive() )
+    if( (_cc().isBlockInvoke() && !isPrimitiveBlockInvoke() || _cc().isFragmentEvaluation() ) && retType.isPrimitive() )
     {
       expression = boxValue( retType, expression );
     }
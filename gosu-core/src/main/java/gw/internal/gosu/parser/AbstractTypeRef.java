@@ -311,6 +311,12 @@ public abstract class AbstractTypeRef implements Serializable, ITypeRef
   final protected void _reload()
   {
     checkNotDeleted();
+    if( TypeLoaderAccess.isTypeSystemSealed() )
+    {
+      // Types never change once sealed; a ref explicitly made stale, such as an evicted eval program,
+      // still re-resolves in _getType()
+      return;
+    }
     if( !isStale() )
     {
       return;
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.internal.gosu.parser;
+
+import gw.lang.reflect.AbstractTypeSystemListener;
+import gw.lang.reflect.IType;
+import gw.lang.reflect.RefreshRequest;
+import gw.lang.reflect.TypeSystem;
+import gw.lang.reflect.gs.IGosuClass;
+import gw.lang.reflect.gs.IGosuProgram;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * A small per-type memo of isAssignableFrom() results, so repeated tests against the same type
+ * (typeis, coercion, method resolution) don't scan the other type's hierarchy every time.
+ * <p/>
+ * The memo is direct-mapped on the identity of the type assigned from: a lookup is one array
+ * read and an identity compare, and a colliding type simply replaces the entry. Entries are
+ * immutable, so unsynchronized readers at worst miss and recompute. Any type system refresh
+ * invalidates every memo, the same as TypeLord.ASSIGNABILITY_CACHE, and a type drops its memo when
+ * its type info is unloaded.
+ * <p/>
+ * An entry holds the type weakly, so a memo on a long-lived type doesn't keep types replaced by a
+ * refresh reachable. An entry found stale is cleared.
+ */
+class AssignabilityMemo
+{
+  private static final int SIZE = 16;
+
+  private static volatile int g_iEpoch;
+
+  @SuppressWarnings({"UnusedDeclaration"})
+  private static final AbstractTypeSystemListener EPOCH_BUMPER = makeEpochBumper();
+
+  private final Entry[] _entries = new Entry[SIZE];
+
+  /**
+   * @return TRUE or FALSE if the memo has a current result for the type, otherwise null
+   */
+  Boolean get( IType from )
+  {
+    int iIndex = indexOf( from );
+    Entry entry = _entries[iIndex];
+    if( entry == null )
+    {
+      return null;
+    }
+    if( entry._iEpoch != g_iEpoch )
+    {
+      _entries[iIndex] = null;
+      return null;
+    }
+    return entry.get() == from ? entry._bAssignable : null;
+  }
+
+  /**
+   * @param iEpoch The epoch read with {@link #getEpoch()} before the result was computed, so a
+   *   refresh during the computation discards it
+   */
+  void put( IType from, boolean bAssignable, int iEpoch )
+  {
+    if( isMemoizable( from ) )
+    {
+      _entries[indexOf( from )] = new Entry( from, bAssignable, iEpoch );
+    }
+  }
+
+  static int getEpoch()
+  {
+    return g_iEpoch;
+  }
+
+  private static boolean isMemoizable( IType from )
+  {
+    // Programs are compiled and discarded all the time, don't keep them around. A Gosu class whose
+    // header isn't compiled yet reports an empty hierarchy, which is not its final answer.
+    return !(from instanceof IGosuProgram) &&
+           !(from instanceof IGosuClass && !((IGosuClass)from).isHeaderCompiled());
+  }
+
+  private static int indexOf( IType from )
+  {
+    int h = System.identityHashCode( from );
+    return (h ^ (h >>> 16)) & (SIZE - 1);
+  }
+
+  private static AbstractTypeSystemListener makeEpochBumper()
+  {
+    AbstractTypeSystemListener listener =
+      new AbstractTypeSystemListener()
+      {
+        @Override
+        public void refreshedTypes( RefreshRequest request )
+        {
+          g_iEpoch++;
+        }
+
+        @Override
+        public void refreshed()
+        {
+          g_iEpoch++;
+        }
+      };
+    TypeSystem.addTypeLoaderListenerAsWeakRef( listener );
+    return listener;
+  }
+
+  private static class Entry extends WeakReference<IType>
+  {
+    private final boolean _bAssignable;
+    private final int _iEpoch;
+
+    Entry( IType from, boolean bAssignable, int iEpoch )
+    {
+      super( from );
+      _bAssignable = bAssignable;
+      _iEpoch = iEpoch;
+    }
+  }
+}
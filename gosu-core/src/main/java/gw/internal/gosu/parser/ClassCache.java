@@ -17,15 +17,18 @@ import gw.util.concurrent.LockingLazyVar;
 
 import java.io.IOException;
 import java.lang.reflect.Method;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ClassCache {
   @SuppressWarnings({"unchecked"})
-  private final Map<String, Class> _classMap = new HashMap<String, Class>();
-  private Set<CharSequence> _packages = new HashSet<CharSequence>();
+  // Read without the type system lock
+  private final Map<String, Class> _classMap = new ConcurrentHashMap<String, Class>();
+  // Read and added to by concurrent striped loads
+  private final Set<CharSequence> _packages = Collections.newSetFromMap(new ConcurrentHashMap<CharSequence, Boolean>());
   private IModule _module;
   private LockingLazyVar<ClassPath> _classPathCache;
   private LockingLazyVar<Set<String>> _allTypeNamesCache = new LockingLazyVar<Set<String>>() {
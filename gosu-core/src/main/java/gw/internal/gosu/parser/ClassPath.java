@@ -60,6 +60,11 @@ public class ClassPath implements IClassPath
       return null;
     }
     Object value = node.getUserData();
+    if( value instanceof Location ) {
+      // Listed from the class path index, resolve the file on first use
+      value = ((Location)value).resolve();
+      node.setUserData( value );
+    }
     if( value instanceof IFile ) {
       if( _bStableFiles ) {
         // Files are assumed stable outside an IDE
@@ -92,30 +97,45 @@ public class ClassPath implements IClassPath
   private void loadClasspathInfo()
   {
     List<IDirectory> javaClassPath = _module.getJavaClassPath();
-    IDirectory[] paths = javaClassPath.toArray(new IDirectory[javaClassPath.size()]);
-    for (int i = 0; i < paths.length; i++) {
-      addClassNames(paths[i], paths[i], _filter );
+    List<List<String>> listings = ClassPathIndexFile.list( _module, "classpath", javaClassPath,
+      new ClassPathIndexFile.Lister()
+      {
+        public List<String> list( IDirectory root )
+        {
+          List<String> classFiles = new ArrayList<String>();
+          addClassFiles( root, root, classFiles );
+          return classFiles;
+        }
+      } );
+    // Merged in class path order so a class in more than one root resolves as before
+    for( int i = 0; i < listings.size(); i++ )
+    {
+      IDirectory root = javaClassPath.get( i );
+      for( String strPath : listings.get( i ) )
+      {
+        String strClassName = getClassNameFromPath( strPath );
+        if( isValidClassName( strClassName ) )
+        {
+          putClassName( new Location( root, strPath ), strClassName, _filter );
+        }
+      }
     }
   }
 
-  private void addClassNames(final IDirectory root, IDirectory dir, final ClassPathFilter filter)
+  private void addClassFiles( IDirectory root, IDirectory dir, List<String> classFiles )
   {
     for (IFile file : dir.listFiles()) {
       if( isClassFileName( file.getName() ) )
       {
-        String strClassName = getClassNameFromFile( root, file );
-        if( isValidClassName( strClassName ) )
-        {
-          putClassName( file, strClassName, filter );
-        }
+        classFiles.add( root.relativePath( file ) );
       }
     }
     for (IDirectory subDir : dir.listDirs()) {
-      addClassNames(root, subDir, filter);
+      addClassFiles( root, subDir, classFiles );
     }
   }
 
-  private void putClassName( final IFile file, String strClassName, ClassPathFilter filter )
+  private void putClassName( Location location, String strClassName, ClassPathFilter filter )
   {
     boolean bFiltered = filter != null && !filter.acceptClass( strClassName );
     if( bFiltered )
@@ -125,8 +145,8 @@ public class ClassPath implements IClassPath
     }
     if( strClassName != null )
     {
-      // Store the abstract file, not the URL; we compute and recache that lazily, see #get()
-      _cache.add( strClassName, file );
+      // Store where the file is, not the file or its URL; we resolve and recache those lazily, see #get()
+      _cache.add( strClassName, location );
     }
   }
 
@@ -140,18 +160,16 @@ public class ClassPath implements IClassPath
     return null;
   }
 
-  private String getClassNameFromFile( IDirectory root, IFile file )
+  private String getClassNameFromPath( String strPath )
   {
-    String strQualifiedClassName = root.relativePath(file);
-    if( !isClassFileName( strQualifiedClassName ) )
+    if( !isClassFileName( strPath ) )
     {
       throw new IllegalArgumentException(
-        file.getPath() + " is not a legal Java class name. " +
+        strPath + " is not a legal Java class name. " +
         "It does not end with " + CLASS_FILE_EXT );
     }
-    strQualifiedClassName =
-      strQualifiedClassName.substring( 0, strQualifiedClassName.length() -
-                                          CLASS_FILE_EXT.length() );
+    String strQualifiedClassName =
+      strPath.substring( 0, strPath.length() - CLASS_FILE_EXT.length() );
     return strQualifiedClassName.replace('/', '.');
   }
 
@@ -200,4 +218,21 @@ public class ClassPath implements IClassPath
   public String toString() {
     return _module.getName();
   }
+
+  private static class Location
+  {
+    private final IDirectory _root;
+    private final String _strPath;
+
+    Location( IDirectory root, String strPath )
+    {
+      _root = root;
+      _strPath = strPath;
+    }
+
+    IFile resolve()
+    {
+      return _root.file( _strPath );
+    }
+  }
 }
@@ -0,0 +1,380 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.internal.gosu.parser;
+
+import gw.config.CommonServices;
+import gw.fs.IDirectory;
+import gw.fs.jar.IJarFileDirectory;
+import gw.internal.gosu.module.fs.FileSystemImpl;
+import gw.lang.reflect.gs.BytecodeOptions;
+import gw.lang.reflect.module.IModule;
+import gw.util.GosuExceptionUtil;
+import gw.util.fingerprint.FP64;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Lists the contents of classpath or source path roots for {@link ClassPath} and
+ * {@link FileSystemGosuClassRepository}, which otherwise walk every root at startup.
+ * <p/>
+ * If a bytecode cache directory is configured (see {@link BytecodeOptions#getBytecodeCacheDir()})
+ * the listings of jar roots are kept there across runs, each with the size and timestamp of its
+ * jar. The index is memory-mapped and only the listings of unchanged jars are read from it. Other
+ * roots are listed again, in parallel. Directories are always listed since their timestamps don't
+ * reflect changes below them.
+ */
+class ClassPathIndexFile
+{
+  private static final int MAGIC = 0x47435031; // GCP1
+  private static final Charset UTF8 = Charset.forName( "UTF-8" );
+
+  interface Lister
+  {
+    /**
+     * Called concurrently for different roots
+     *
+     * @return The relative paths of the root's entries of interest, in the order the caller
+     *   should process them
+     */
+    List<String> list( IDirectory root );
+  }
+
+  private ClassPathIndexFile()
+  {
+  }
+
+  /**
+   * @param strKind Distinguishes the listings of different callers in the same module
+   * @return The listing of each root, in the order given
+   */
+  static List<List<String>> list( IModule module, String strKind, List<IDirectory> roots, Lister lister )
+  {
+    // Other file systems e.g., in an IDE, may not list concurrently or share our notion of a jar
+    boolean bStableFiles = CommonServices.getFileSystem() instanceof FileSystemImpl;
+    File indexFile = bStableFiles ? getIndexFile( module, strKind ) : null;
+    Index stored = indexFile == null ? null : Index.open( indexFile );
+
+    int iCount = roots.size();
+    List<List<String>> listings = new ArrayList<List<String>>( iCount );
+    long[] stamps = new long[iCount];
+    List<Integer> stale = new ArrayList<Integer>();
+    int iReused = 0;
+    for( int i = 0; i < iCount; i++ )
+    {
+      IDirectory root = roots.get( i );
+      stamps[i] = getStamp( root );
+      List<String> listing = stored == null || stamps[i] == 0 ? null : stored.getListing( getPath( root ), stamps[i] );
+      if( listing == null )
+      {
+        stale.add( i );
+      }
+      else
+      {
+        iReused++;
+      }
+      listings.add( listing );
+    }
+
+    listStale( roots, stale, listings, lister, bStableFiles );
+
+    if( indexFile != null )
+    {
+      boolean bChanged = stored == null || iReused != stored.size();
+      for( int i : stale )
+      {
+        bChanged |= stamps[i] != 0;
+      }
+      if( bChanged )
+      {
+        write( indexFile, roots, stamps, listings );
+      }
+    }
+    return listings;
+  }
+
+  private static void listStale( final List<IDirectory> roots, List<Integer> stale, List<List<String>> listings,
+                                 final Lister lister, boolean bParallel )
+  {
+    int iThreads = Math.min( Runtime.getRuntime().availableProcessors(), stale.size() );
+    if( !bParallel || iThreads <= 1 )
+    {
+      for( int i : stale )
+      {
+        listings.set( i, lister.list( roots.get( i ) ) );
+      }
+      return;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool( iThreads, new ListerThreadFactory() );
+    try
+    {
+      List<Future<List<String>>> futures = new ArrayList<Future<List<String>>>( stale.size() );
+      for( final int i : stale )
+      {
+        futures.add( executor.submit(
+          new Callable<List<String>>()
+          {
+            public List<String> call()
+            {
+              return lister.list( roots.get( i ) );
+            }
+          } ) );
+      }
+      for( int i = 0; i < stale.size(); i++ )
+      {
+        listings.set( stale.get( i ), futures.get( i ).get() );
+      }
+    }
+    catch( InterruptedException e )
+    {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException( e );
+    }
+    catch( ExecutionException e )
+    {
+      throw GosuExceptionUtil.forceThrow( e.getCause() );
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * @return A fingerprint of the jar's path, size and timestamp, or 0 if the root isn't a jar
+   */
+  private static long getStamp( IDirectory root )
+  {
+    if( !(root instanceof IJarFileDirectory) || !root.isJavaFile() )
+    {
+      return 0;
+    }
+    File jar = root.toJavaFile();
+    if( !jar.isFile() )
+    {
+      return 0;
+    }
+    FP64 fp = new FP64( jar.getAbsolutePath() );
+    fp.extend( jar.length() );
+    fp.extend( jar.lastModified() );
+    return fp.getRawFingerprint();
+  }
+
+  private static String getPath( IDirectory root )
+  {
+    return root.toJavaFile().getAbsolutePath();
+  }
+
+  private static File getIndexFile( IModule module, String strKind )
+  {
+    String strDir = BytecodeOptions.getBytecodeCacheDir();
+    if( strDir == null || strDir.length() == 0 )
+    {
+      return null;
+    }
+    // One index per module
+    FP64 fp = new FP64( String.valueOf( module.getName() ) );
+    return new File( strDir, strKind + '.' + fp.toHexString() + ".idx" );
+  }
+
+  private static void write( File indexFile, List<IDirectory> roots, long[] stamps, List<List<String>> listings )
+  {
+    File dir = indexFile.getParentFile();
+    dir.mkdirs();
+    File temp = null;
+    try
+    {
+      // A unique name, concurrent writers replace the index whole
+      temp = File.createTempFile( indexFile.getName() + '.', ".tmp", dir );
+      DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( temp ) ) );
+      try
+      {
+        int iCount = 0;
+        for( long stamp : stamps )
+        {
+          iCount += stamp == 0 ? 0 : 1;
+        }
+        out.writeInt( MAGIC );
+        out.writeInt( iCount );
+        for( int i = 0; i < stamps.length; i++ )
+        {
+          if( stamps[i] != 0 )
+          {
+            writeString( out, getPath( roots.get( i ) ) );
+            out.writeLong( stamps[i] );
+            List<String> listing = listings.get( i );
+            out.writeInt( listing.size() );
+            for( String strPath : listing )
+            {
+              writeString( out, strPath );
+            }
+          }
+        }
+      }
+      finally
+      {
+        out.close();
+      }
+      if( !temp.renameTo( indexFile ) )
+      {
+        indexFile.delete();
+        if( !temp.renameTo( indexFile ) )
+        {
+          temp.delete();
+        }
+      }
+    }
+    catch( IOException e )
+    {
+      // Not persisted, it'll be rebuilt next time
+      if( temp != null )
+      {
+        temp.delete();
+      }
+    }
+  }
+
+  private static void writeString( DataOutputStream out, String str ) throws IOException
+  {
+    byte[] bytes = str.getBytes( UTF8 );
+    out.writeInt( bytes.length );
+    out.write( bytes );
+  }
+
+  /**
+   * The stored index, mapped. Opening it reads only the header of each root, a root's listing is
+   * decoded when it's asked for.
+   */
+  private static class Index
+  {
+    private final MappedByteBuffer _buffer;
+    private final Map<String, long[]> _stampAndPositionByRoot;
+
+    private Index( MappedByteBuffer buffer, Map<String, long[]> stampAndPositionByRoot )
+    {
+      _buffer = buffer;
+      _stampAndPositionByRoot = stampAndPositionByRoot;
+    }
+
+    static Index open( File indexFile )
+    {
+      if( !indexFile.isFile() )
+      {
+        return null;
+      }
+      try
+      {
+        FileInputStream in = new FileInputStream( indexFile );
+        try
+        {
+          FileChannel channel = in.getChannel();
+          // The mapping stays valid after the channel is closed
+          MappedByteBuffer buffer = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+          if( buffer.getInt() != MAGIC )
+          {
+            return null;
+          }
+          Map<String, long[]> stampAndPositionByRoot = new HashMap<String, long[]>();
+          for( int i = buffer.getInt(); i > 0; i-- )
+          {
+            String strRoot = readString( buffer );
+            long stamp = buffer.getLong();
+            stampAndPositionByRoot.put( strRoot, new long[] {stamp, buffer.position()} );
+            for( int j = buffer.getInt(); j > 0; j-- )
+            {
+              buffer.position( buffer.position() + buffer.getInt() );
+            }
+          }
+          return new Index( buffer, stampAndPositionByRoot );
+        }
+        finally
+        {
+          in.close();
+        }
+      }
+      catch( IOException e )
+      {
+        // Rebuilt from the roots
+        return null;
+      }
+      catch( RuntimeException e )
+      {
+        // Truncated or otherwise corrupt, rebuilt from the roots
+        return null;
+      }
+    }
+
+    int size()
+    {
+      return _stampAndPositionByRoot.size();
+    }
+
+    /**
+     * @return The stored listing of the root if its stamp matches, otherwise null
+     */
+    List<String> getListing( String strRoot, long stamp )
+    {
+      long[] stampAndPosition = _stampAndPositionByRoot.get( strRoot );
+      if( stampAndPosition == null || stampAndPosition[0] != stamp )
+      {
+        return null;
+      }
+      try
+      {
+        // Each reader gets its own position
+        ByteBuffer buffer = _buffer.duplicate();
+        buffer.position( (int)stampAndPosition[1] );
+        int iSize = buffer.getInt();
+        List<String> listing = new ArrayList<String>( iSize );
+        for( int i = 0; i < iSize; i++ )
+        {
+          listing.add( readString( buffer ) );
+        }
+        return listing;
+      }
+      catch( BufferUnderflowException e )
+      {
+        return null;
+      }
+    }
+
+    private static String readString( ByteBuffer buffer )
+    {
+      byte[] bytes = new byte[buffer.getInt()];
+      buffer.get( bytes );
+      return new String( bytes, UTF8 );
+    }
+  }
+
+  private static class ListerThreadFactory implements ThreadFactory
+  {
+    public Thread newThread( Runnable r )
+    {
+      Thread thread = new Thread( r, "Gosu class path lister" );
+      thread.setDaemon( true );
+      return thread;
+    }
+  }
+}
@@ -43,7 +43,7 @@ public class DefaultTypeLoader extends SimpleTypeLoader implements IExtendedType
   private ClassCache _classCache;
   private IGosuClassLoader _gosuClassLoader;            //## todo: use a ConcurrentWeakValueHashMap here?
   private Map<String, IJavaClassInfo> _classInfoCache = new ConcurrentHashMap<String, IJavaClassInfo>(1000);
-  protected Set<String> _namespaces;
+  protected volatile Set<String> _namespaces;
 
   public static DefaultTypeLoader instance(IModule module) {
     if (module == null) {
@@ -347,7 +347,8 @@ public class DefaultTypeLoader extends SimpleTypeLoader implements IExtendedType
   public Set<String> getAllNamespaces() {
     if (_namespaces == null) {
       try {
-        _namespaces = TypeSystem.getNamespacesFromTypeNames(getAllTypeNames(), new HashSet<String>());
+        // Read without the type system lock and updated on refresh
+        _namespaces = TypeSystem.getNamespacesFromTypeNames(getAllTypeNames(), Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>()));
       } catch (NullPointerException e) {
         //!! hack to get past dependency issue with tests
         return Collections.emptySet();
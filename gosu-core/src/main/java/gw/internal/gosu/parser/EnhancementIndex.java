@@ -42,6 +42,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  */
@@ -51,8 +54,9 @@ public class EnhancementIndex implements IEnhancementIndex
   private static final boolean LOCAL_DEBUG = false;
 
   private GosuClassTypeLoader _loader;
-  private Map<String, ArrayList<String>> _typeToEnhancementsMap;
-  private ArrayList<String> _arrayEnhancements;
+  // Published complete and read without the type system lock, see maybeLoadEnhancementIndex()
+  private volatile ConcurrentMap<String, CopyOnWriteArrayList<String>> _typeToEnhancementsMap;
+  private CopyOnWriteArrayList<String> _arrayEnhancements;
 
   private boolean _loadingIndex;
   private String _currentEnhName;
@@ -166,20 +170,48 @@ public class EnhancementIndex implements IEnhancementIndex
       return;
     }
 
+    // Type loaders may run without the global lock (see TypeLoadingLocks), so the index is built
+    // once under it and published only when complete
+    TypeSystem.lock();
     try
     {
-      _loadingIndex = true;
-      _typeToEnhancementsMap = new HashMap<String, ArrayList<String>>();
-      _arrayEnhancements = new ArrayList<String>();
+      if( _typeToEnhancementsMap != null || _loadingIndex )
+      {
+        // Loaded by another thread, or a circular request from this one that checkNotIndexing() reports
+        return;
+      }
+
+      ConcurrentMap<String, CopyOnWriteArrayList<String>> typeToEnhancementsMap = new ConcurrentHashMap<String, CopyOnWriteArrayList<String>>();
+      CopyOnWriteArrayList<String> arrayEnhancements = new CopyOnWriteArrayList<String>();
+      try
+      {
+        _loadingIndex = true;
 
-      Set<String> allEnhancements = _loader.getRepository().getAllTypeNames(new String[]{GosuClassTypeLoader.GOSU_ENHANCEMENT_FILE_EXT});
+        Set<String> allEnhancements = _loader.getRepository().getAllTypeNames(new String[]{GosuClassTypeLoader.GOSU_ENHANCEMENT_FILE_EXT});
 
-      indexEnhancements(allEnhancements.toArray(new String[allEnhancements.size()]));
+        // Stored from a previous run where the files are unchanged, the rest tokenized in parallel
+        Map<String, String> enhancedTypes = EnhancementIndexFile.findEnhancedTypes( _loader, allEnhancements );
+        for( Map.Entry<String, String> entry : enhancedTypes.entrySet() )
+        {
+          _currentEnhName = entry.getKey();
+          String enhancedTypeName = entry.getValue();
+          if( enhancedTypeName != null && !IErrorType.NAME.equals( enhancedTypeName ) )
+          {
+            getEnhancementIndexForType( typeToEnhancementsMap, arrayEnhancements, enhancedTypeName ).addIfAbsent( entry.getKey() );
+          }
+        }
+      }
+      finally
+      {
+        _loadingIndex = false;
+        _currentEnhName = null;
+      }
+      _arrayEnhancements = arrayEnhancements;
+      _typeToEnhancementsMap = typeToEnhancementsMap;
     }
     finally
     {
-      _loadingIndex = false;
-      _currentEnhName = null;
+      TypeSystem.unlock();
     }
   }
 
@@ -191,15 +223,7 @@ public class EnhancementIndex implements IEnhancementIndex
       _currentEnhName = enhancementName;
       ISourceFileHandle sfh = repository.findClass(enhancementName, GosuClassTypeLoader.ALL_EXTS);
       if (sfh != null && sfh.getClassType() == ClassType.Enhancement && sfh.getParentType() == null) {
-        String enhancedTypeName = parseEnhancedTypeName(sfh);
-        if( enhancedTypeName != null && !IErrorType.NAME.equals( enhancedTypeName ) )
-        {
-          ArrayList<String> enhancements = getEnhancementIndexForType( enhancedTypeName );
-          if (!enhancements.contains(enhancementName)) {
-            enhancements.add(enhancementName);
-            enhancedTypes.add(enhancedTypeName);
-          }
-        }
+        addToIndex( enhancementName, parseEnhancedTypeName( sfh ), enhancedTypes );
       } else {
         // remove the enhancement
       }
@@ -207,6 +231,17 @@ public class EnhancementIndex implements IEnhancementIndex
     return enhancedTypes;
   }
 
+  private void addToIndex( String enhancementName, String enhancedTypeName, Set<String> enhancedTypes ) {
+    if( enhancedTypeName != null && !IErrorType.NAME.equals( enhancedTypeName ) )
+    {
+      if (getEnhancementIndexForType( enhancedTypeName ).addIfAbsent(enhancementName)) {
+        if( enhancedTypes != null ) {
+          enhancedTypes.add(enhancedTypeName);
+        }
+      }
+    }
+  }
+
   private Set<String> indexEnhancements(RefreshRequest request) {
     Set<String> enhancedTypes = new HashSet<String>();
     if (request.file != null &&
@@ -218,9 +253,7 @@ public class EnhancementIndex implements IEnhancementIndex
       _currentEnhName = enhancementName;
       String enhancedTypeName = parseEnhancedTypeName(request);
       if (enhancedTypeName != null && !IErrorType.NAME.equals(enhancedTypeName)) {
-        ArrayList<String> enhancements = getEnhancementIndexForType(enhancedTypeName);
-        if (!enhancements.contains(enhancementName)) {
-          enhancements.add(enhancementName);
+        if (getEnhancementIndexForType(enhancedTypeName).addIfAbsent(enhancementName)) {
           enhancedTypes.add(enhancedTypeName);
         }
       }
@@ -304,21 +337,32 @@ public class EnhancementIndex implements IEnhancementIndex
     return !token.getText().equals(text);
   }
 
-  private ArrayList<String> getEnhancementIndexForType( String strEnhancedTypeName )
+  private CopyOnWriteArrayList<String> getEnhancementIndexForType( String strEnhancedTypeName )
   {
     maybeLoadEnhancementIndex();
 
+    return getEnhancementIndexForType( _typeToEnhancementsMap, _arrayEnhancements, strEnhancedTypeName );
+  }
+
+  private static CopyOnWriteArrayList<String> getEnhancementIndexForType( ConcurrentMap<String, CopyOnWriteArrayList<String>> typeToEnhancementsMap,
+                                                                          CopyOnWriteArrayList<String> arrayEnhancements,
+                                                                          String strEnhancedTypeName )
+  {
     if( strEnhancedTypeName.contains( "[" ) )
     {
-      return _arrayEnhancements;
+      return arrayEnhancements;
     }
     else
     {
-      ArrayList<String> enhancements = _typeToEnhancementsMap.get( strEnhancedTypeName );
+      CopyOnWriteArrayList<String> enhancements = typeToEnhancementsMap.get( strEnhancedTypeName );
       if( enhancements == null )
       {
-        enhancements = new ArrayList<String>();
-        _typeToEnhancementsMap.put( strEnhancedTypeName, enhancements );
+        enhancements = new CopyOnWriteArrayList<String>();
+        CopyOnWriteArrayList<String> existing = typeToEnhancementsMap.putIfAbsent( strEnhancedTypeName, enhancements );
+        if( existing != null )
+        {
+          enhancements = existing;
+        }
       }
       return enhancements;
     }
@@ -370,7 +414,7 @@ public class EnhancementIndex implements IEnhancementIndex
       for (String enhancedType : enhancedTypes) {
         IType type = TypeSystem.getByFullNameIfValid(enhancedType, _loader.getModule());
         if (type != null) {
-          TypeSystem.refresh((ITypeRef)type);
+          TypeLoaderAccess.instance().refreshInternal((ITypeRef)type);
         }
       }
     } else if (request.kind == RefreshKind.DELETION) {
@@ -384,7 +428,7 @@ public class EnhancementIndex implements IEnhancementIndex
 
   public String getOrphanedEnhancement(String typeName) {
     String name = typeName.substring(typeName.lastIndexOf('.') + 1);
-    ArrayList<String> enhancementNames = getEnhancementIndexForType(name);
+    List<String> enhancementNames = getEnhancementIndexForType(name);
     for (String enhancement : enhancementNames) {
       return enhancement;
     }
@@ -449,6 +493,12 @@ public class EnhancementIndex implements IEnhancementIndex
     String typeToEnhanceName = typeToGetEnhancementsFor.getName();
     StringBuilder possibleName = new StringBuilder();
     Set<String> enhancements = new TreeSet<String>();
+    Map<String, CopyOnWriteArrayList<String>> typeToEnhancementsMap = _typeToEnhancementsMap;
+    if( typeToEnhancementsMap == null )
+    {
+      // Asked for while indexing
+      return enhancements;
+    }
     int currPos = typeToEnhanceName.length();
     do {
       int nextDot = typeToEnhanceName.lastIndexOf('.', currPos-1);
@@ -456,14 +506,14 @@ public class EnhancementIndex implements IEnhancementIndex
       currPos = nextDot;
       possibleName.insert( 0, string );
 
-      ArrayList<String> enhancementTypes;
+      List<String> enhancementTypes;
       if( typeToGetEnhancementsFor.isArray() )
       {
         enhancementTypes = _arrayEnhancements;
       }
       else
       {
-        enhancementTypes = _typeToEnhancementsMap.get( possibleName.toString() );
+        enhancementTypes = typeToEnhancementsMap.get( possibleName.toString() );
       }
 
       if( enhancementTypes != null )
@@ -482,10 +532,11 @@ public class EnhancementIndex implements IEnhancementIndex
 
   public void removeEnhancement(String enhancementName)
   {
-    if (_typeToEnhancementsMap != null) {
-      for( Map.Entry<String, ArrayList<String>> entry : _typeToEnhancementsMap.entrySet())
+    Map<String, CopyOnWriteArrayList<String>> typeToEnhancementsMap = _typeToEnhancementsMap;
+    if (typeToEnhancementsMap != null) {
+      for( Map.Entry<String, CopyOnWriteArrayList<String>> entry : typeToEnhancementsMap.entrySet())
       {
-        ArrayList<String> value = entry.getValue();
+        List<String> value = entry.getValue();
         if( value.remove( enhancementName ) )
         {
           break;
@@ -496,10 +547,7 @@ public class EnhancementIndex implements IEnhancementIndex
 
   public void addEntry( IType enhancedType, IGosuEnhancement enhancement )
   {
-    ArrayList<String> enhancementIndexForType = getEnhancementIndexForType( enhancedType.getName() );
-    if( !enhancementIndexForType.contains( enhancement.getName() ) ) {
-      enhancementIndexForType.add( enhancement.getName() );
-    }
+    getEnhancementIndexForType( enhancedType.getName() ).addIfAbsent( enhancement.getName() );
   }
 
   /**
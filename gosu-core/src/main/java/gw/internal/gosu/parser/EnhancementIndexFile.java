@@ -0,0 +1,312 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.internal.gosu.parser;
+
+import gw.fs.IFile;
+import gw.lang.reflect.gs.BytecodeOptions;
+import gw.lang.reflect.gs.ClassType;
+import gw.lang.reflect.gs.GosuClassTypeLoader;
+import gw.lang.reflect.gs.IGosuClassRepository;
+import gw.lang.reflect.gs.ISourceFileHandle;
+import gw.util.GosuExceptionUtil;
+import gw.util.fingerprint.FP64;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Finds the type each enhancement enhances for the {@link EnhancementIndex}, which otherwise means
+ * tokenizing every enhancement's source at the first enhancement lookup.
+ * <p/>
+ * If a bytecode cache directory is configured (see {@link BytecodeOptions#getBytecodeCacheDir()})
+ * the results are kept there across runs, each with the size and timestamp of its source file. Only
+ * enhancements whose files changed, or that aren't plain files e.g., in a jar, are tokenized again,
+ * and those in parallel.
+ */
+class EnhancementIndexFile
+{
+  private static final int MAGIC = 0x47454931; // GEI1
+  private static final int MIN_PARALLEL = 8;
+
+  private EnhancementIndexFile()
+  {
+  }
+
+  /**
+   * @param enhancementNames The names of the enhancements in the loader's repository
+   * @return The name of the type enhanced by each top-level enhancement, in the order given. The
+   *   value may be null or the error type's name if the enhancement doesn't parse.
+   */
+  static Map<String, String> findEnhancedTypes( GosuClassTypeLoader loader, Collection<String> enhancementNames )
+  {
+    File indexFile = getIndexFile( loader );
+    Map<String, Entry> stored = indexFile == null ? new HashMap<String, Entry>() : read( indexFile );
+
+    IGosuClassRepository repository = loader.getRepository();
+    Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+    List<String> staleNames = new ArrayList<String>();
+    List<ISourceFileHandle> stale = new ArrayList<ISourceFileHandle>();
+    int iReused = 0;
+    for( String enhancementName : enhancementNames )
+    {
+      ISourceFileHandle sfh = repository.findClass( enhancementName, GosuClassTypeLoader.ALL_EXTS );
+      if( sfh == null || sfh.getClassType() != ClassType.Enhancement || sfh.getParentType() != null )
+      {
+        continue;
+      }
+      long stamp = getStamp( sfh );
+      Entry entry = stored.get( enhancementName );
+      if( stamp != 0 && entry != null && entry._stamp == stamp )
+      {
+        entries.put( enhancementName, entry );
+        iReused++;
+      }
+      else
+      {
+        entries.put( enhancementName, null );
+        staleNames.add( enhancementName );
+        stale.add( sfh );
+      }
+    }
+
+    List<String> enhancedTypes = parseEnhancedTypeNames( stale );
+    boolean bChanged = iReused != stored.size();
+    for( int i = 0; i < stale.size(); i++ )
+    {
+      long stamp = getStamp( stale.get( i ) );
+      entries.put( staleNames.get( i ), new Entry( stamp, enhancedTypes.get( i ) ) );
+      bChanged |= stamp != 0;
+    }
+
+    if( indexFile != null && bChanged )
+    {
+      write( indexFile, entries );
+    }
+
+    Map<String, String> result = new LinkedHashMap<String, String>();
+    for( Map.Entry<String, Entry> entry : entries.entrySet() )
+    {
+      result.put( entry.getKey(), entry.getValue()._strEnhancedType );
+    }
+    return result;
+  }
+
+  private static List<String> parseEnhancedTypeNames( List<ISourceFileHandle> sfhs )
+  {
+    List<String> enhancedTypes = new ArrayList<String>( sfhs.size() );
+    int iThreads = Math.min( Runtime.getRuntime().availableProcessors(), sfhs.size() / MIN_PARALLEL );
+    if( iThreads <= 1 )
+    {
+      for( ISourceFileHandle sfh : sfhs )
+      {
+        enhancedTypes.add( EnhancementIndex.parseEnhancedTypeName( sfh ) );
+      }
+      return enhancedTypes;
+    }
+
+    // Tokenizing touches nothing shared, each task reads its own source
+    ExecutorService executor = Executors.newFixedThreadPool( iThreads, new IndexerThreadFactory() );
+    try
+    {
+      List<Future<String>> futures = new ArrayList<Future<String>>( sfhs.size() );
+      for( final ISourceFileHandle sfh : sfhs )
+      {
+        futures.add( executor.submit(
+          new Callable<String>()
+          {
+            public String call()
+            {
+              return EnhancementIndex.parseEnhancedTypeName( sfh );
+            }
+          } ) );
+      }
+      for( Future<String> future : futures )
+      {
+        enhancedTypes.add( future.get() );
+      }
+      return enhancedTypes;
+    }
+    catch( InterruptedException e )
+    {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException( e );
+    }
+    catch( ExecutionException e )
+    {
+      throw GosuExceptionUtil.forceThrow( e.getCause() );
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * @return A fingerprint of the enhancement's file path, size and timestamp, or 0 if it isn't a plain file
+   */
+  private static long getStamp( ISourceFileHandle sfh )
+  {
+    IFile file = sfh.getFile();
+    if( file == null || !file.isJavaFile() )
+    {
+      return 0;
+    }
+    File javaFile = file.toJavaFile();
+    if( !javaFile.isFile() )
+    {
+      return 0;
+    }
+    FP64 fp = new FP64( javaFile.getAbsolutePath() );
+    fp.extend( javaFile.length() );
+    fp.extend( javaFile.lastModified() );
+    return fp.getRawFingerprint();
+  }
+
+  private static File getIndexFile( GosuClassTypeLoader loader )
+  {
+    String strDir = BytecodeOptions.getBytecodeCacheDir();
+    if( strDir == null || strDir.length() == 0 )
+    {
+      return null;
+    }
+    // One index per module
+    FP64 fp = new FP64( String.valueOf( loader.getModule().getName() ) );
+    return new File( strDir, "enhancements." + fp.toHexString() + ".idx" );
+  }
+
+  private static Map<String, Entry> read( File indexFile )
+  {
+    Map<String, Entry> entries = new HashMap<String, Entry>();
+    if( !indexFile.isFile() )
+    {
+      return entries;
+    }
+    try
+    {
+      DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( indexFile ) ) );
+      try
+      {
+        if( in.readInt() != MAGIC )
+        {
+          return entries;
+        }
+        for( int i = in.readInt(); i > 0; i-- )
+        {
+          String strName = in.readUTF();
+          long stamp = in.readLong();
+          String strEnhancedType = in.readBoolean() ? in.readUTF() : null;
+          entries.put( strName, new Entry( stamp, strEnhancedType ) );
+        }
+      }
+      finally
+      {
+        in.close();
+      }
+    }
+    catch( IOException e )
+    {
+      // Rebuilt from source
+      entries.clear();
+    }
+    return entries;
+  }
+
+  private static void write( File indexFile, Map<String, Entry> entries )
+  {
+    File dir = indexFile.getParentFile();
+    dir.mkdirs();
+    File temp = null;
+    try
+    {
+      // A unique name, concurrent writers replace the index whole
+      temp = File.createTempFile( indexFile.getName() + '.', ".tmp", dir );
+      DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( temp ) ) );
+      try
+      {
+        int iCount = 0;
+        for( Entry entry : entries.values() )
+        {
+          iCount += entry._stamp == 0 ? 0 : 1;
+        }
+        out.writeInt( MAGIC );
+        out.writeInt( iCount );
+        for( Map.Entry<String, Entry> entry : entries.entrySet() )
+        {
+          Entry value = entry.getValue();
+          if( value._stamp != 0 )
+          {
+            out.writeUTF( entry.getKey() );
+            out.writeLong( value._stamp );
+            out.writeBoolean( value._strEnhancedType != null );
+            if( value._strEnhancedType != null )
+            {
+              out.writeUTF( value._strEnhancedType );
+            }
+          }
+        }
+      }
+      finally
+      {
+        out.close();
+      }
+      if( !temp.renameTo( indexFile ) )
+      {
+        indexFile.delete();
+        if( !temp.renameTo( indexFile ) )
+        {
+          temp.delete();
+        }
+      }
+    }
+    catch( IOException e )
+    {
+      // Not persisted, it'll be rebuilt next time
+      if( temp != null )
+      {
+        temp.delete();
+      }
+    }
+  }
+
+  private static class Entry
+  {
+    private final long _stamp;
+    private final String _strEnhancedType;
+
+    Entry( long stamp, String strEnhancedType )
+    {
+      _stamp = stamp;
+      _strEnhancedType = strEnhancedType;
+    }
+  }
+
+  private static class IndexerThreadFactory implements ThreadFactory
+  {
+    public Thread newThread( Runnable r )
+    {
+      Thread thread = new Thread( r, "Gosu enhancement indexer" );
+      thread.setDaemon( true );
+      return thread;
+    }
+  }
+}
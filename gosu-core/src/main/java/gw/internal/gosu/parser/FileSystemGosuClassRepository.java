@@ -353,22 +353,54 @@ public class FileSystemGosuClassRepository implements IFileSystemGosuClassReposi
     gw.createChildForDir( null, "lang" );
     gw.createChildForDir( null, "util" );
     root.createChildForDir(null, IGosuProgram.PACKAGE);
-    for( ClassPathEntry dir : _sourcePath)
+    List<ClassPathEntry> sourcePath = new ArrayList<ClassPathEntry>( _sourcePath );
+    List<IDirectory> roots = new ArrayList<IDirectory>( sourcePath.size() );
+    for( ClassPathEntry dir : sourcePath )
     {
+      roots.add( dir.getPath() );
+    }
+    List<List<String>> listings = ClassPathIndexFile.list( _module, "packages", roots,
+      new ClassPathIndexFile.Lister()
+      {
+        public List<String> list( IDirectory root )
+        {
+          List<String> dirs = new ArrayList<String>();
+          addDirectories( root, root, dirs );
+          return dirs;
+        }
+      } );
+    for( int i = 0; i < sourcePath.size(); i++ )
+    {
+      ClassPathEntry dir = sourcePath.get( i );
       root.addClassPathEntry( dir );
-      processDirectory( root, dir, dir.getPath() );
+      processDirectories( root, dir, listings.get( i ) );
     }
     return root;
   }
 
-  private void processDirectory(PackageToClassPathEntryTreeMap node, IFileSystemGosuClassRepository.ClassPathEntry entry, IDirectory path) {
-    IDirectory entryPath = entry.getPath();
-    if (entryPath.equals(path) || !CommonServices.getPlatformHelper().isPathIgnored(entryPath.relativePath(path))) {
-      List<? extends IDirectory> dirs = path.listDirs();
-      for (IDirectory dir : dirs) {
-        if (isValidDirectory(dir)) {
-          PackageToClassPathEntryTreeMap child = node.createChildForDir(entry, dir.getName());
-          processDirectory(child, entry, dir);
+  private void addDirectories( IDirectory root, IDirectory path, List<String> dirs ) {
+    for (IDirectory dir : path.listDirs()) {
+      if (isValidDirectory(dir)) {
+        dirs.add(root.relativePath(dir));
+        addDirectories(root, dir, dirs);
+      }
+    }
+  }
+
+  /**
+   * @param dirs The relative paths of the entry's directories, each after its parent
+   */
+  private void processDirectories(PackageToClassPathEntryTreeMap root, IFileSystemGosuClassRepository.ClassPathEntry entry, List<String> dirs) {
+    // Like walking the entry, a directory is a package unless its parent's path is ignored
+    Map<String, PackageToClassPathEntryTreeMap> expanded = new HashMap<String, PackageToClassPathEntryTreeMap>();
+    expanded.put("", root);
+    for (String dir : dirs) {
+      int iSlash = dir.lastIndexOf('/');
+      PackageToClassPathEntryTreeMap parent = expanded.get(iSlash < 0 ? "" : dir.substring(0, iSlash));
+      if (parent != null) {
+        PackageToClassPathEntryTreeMap child = parent.createChildForDir(entry, dir.substring(iSlash + 1));
+        if (!CommonServices.getPlatformHelper().isPathIgnored(dir)) {
+          expanded.put(dir, child);
         }
       }
     }
@@ -102,6 +102,7 @@ public class GosuClass extends AbstractType implements IGosuClassInternal
   transient private boolean _bEnum;
   transient private Map<CharSequence, IGosuClassInternal> _mapInnerClasses;
   transient private volatile Set<IType> _setTypes;
+  transient private AssignabilityMemo _assignabilityMemo;
   transient private IType[] _interfaces;
   transient private IType _superType;
   transient private IType _enclosingType;
@@ -109,6 +110,7 @@ public class GosuClass extends AbstractType implements IGosuClassInternal
   transient private volatile Class<?> _javaClass;
   transient private IGosuClassInternal _genericClass;
   transient private Map<String, IGosuClassInternal> _parameterizationByParamsName;
+  transient volatile private ParameterizationIndex<IGosuClassInternal> _parameterizationIndex;
   transient private volatile GosuClassTypeInfo _typeInfo;
   transient private IType _gsArrayClass;
   transient private volatile Boolean _bHasSessionVarStatements;
@@ -651,6 +653,17 @@ public class GosuClass extends AbstractType implements IGosuClassInternal
       throw new IllegalArgumentException( "Parameter types required. Invoked on type: " + _strFullName);
     }
 
+    ParameterizationIndex<IGosuClassInternal> index = _parameterizationIndex;
+    if( index != null )
+    {
+      // Fast path, no boxing, name building or locking
+      IGosuClassInternal parameterizedClass = index.get( paramTypes );
+      if( parameterizedClass != null )
+      {
+        return parameterizedClass;
+      }
+    }
+
     if( _parameterizationByParamsName == null )
     {
       TypeSystem.lock();
@@ -659,6 +672,7 @@ public class GosuClass extends AbstractType implements IGosuClassInternal
         if( _parameterizationByParamsName == null )
         {
           _parameterizationByParamsName = new ConcurrentHashMap<String, IGosuClassInternal>( 2 );
+          _parameterizationIndex = new ParameterizationIndex<IGosuClassInternal>();
         }
       }
       finally
@@ -667,6 +681,8 @@ public class GosuClass extends AbstractType implements IGosuClassInternal
       }
     }
 
+    // Read before the map, so an entry found in a map that was cleared since can't land in the new index
+    index = _parameterizationIndex;
     paramTypes = TypeSystem.boxPrimitiveTypeParams( paramTypes );
     String strNameOfParams = TypeLord.getNameOfParams( paramTypes, false, true );
     IGosuClassInternal parameterizedClass = _parameterizationByParamsName.get( strNameOfParams );
@@ -688,6 +704,7 @@ public class GosuClass extends AbstractType implements IGosuClassInternal
         TypeSystem.unlock();
       }
     }
+    index.put( paramTypes, parameterizedClass );
     return parameterizedClass;
   }
 
@@ -816,6 +833,28 @@ public class GosuClass extends AbstractType implements IGosuClassInternal
   }
 
   public boolean isAssignableFrom( IType type )
+  {
+    if( type == null )
+    {
+      return false;
+    }
+    AssignabilityMemo memo = _assignabilityMemo;
+    if( memo == null )
+    {
+      _assignabilityMemo = memo = new AssignabilityMemo();
+    }
+    Boolean bMemo = memo.get( type );
+    if( bMemo != null )
+    {
+      return bMemo;
+    }
+    int iEpoch = AssignabilityMemo.getEpoch();
+    boolean bAssignable = isAssignableFromImpl( type );
+    memo.put( type, bAssignable, iEpoch );
+    return bAssignable;
+  }
+
+  private boolean isAssignableFromImpl( IType type )
   {
     IType pThis = getOrCreateTypeReference();
 
@@ -995,9 +1034,11 @@ public class GosuClass extends AbstractType implements IGosuClassInternal
       _typeInfo.unload();
     }
     _valid.clear();
+    _assignabilityMemo = null;
     if( _parameterizationByParamsName != null )
     {
       _parameterizationByParamsName.clear();
+      _parameterizationIndex = new ParameterizationIndex<IGosuClassInternal>();
 //## Note we can't just clear the tyep info because the type params could get stale e.g., _proxy_.Map<Foo, MyGosuClass>
 //      for( GosuClass parameteredClass : _parameterizationByParamsName.values() )
 //      {
@@ -86,15 +86,27 @@ public class GosuClassProxyFactory
       type = (IJavaTypeInternal)type.getGenericType();
     }
 
-    IGosuClassInternal gsAdapterClass;
-
-    gsAdapterClass = type.getAdapterClass();
-
+    IGosuClassInternal gsAdapterClass = type.getAdapterClass();
     if( gsAdapterClass != null )
     {
       return gsAdapterClass;
     }
-    return createJavaProxyImmediately( type );
+
+    // Striped loads resolve proxies without the global lock, make sure only one is created per type
+    TypeSystem.lock();
+    try
+    {
+      gsAdapterClass = type.getAdapterClass();
+      if( gsAdapterClass != null )
+      {
+        return gsAdapterClass;
+      }
+      return createJavaProxyImmediately( type );
+    }
+    finally
+    {
+      TypeSystem.unlock();
+    }
   }
 
   private IGosuClass createJavaProxyImmediately( IJavaTypeInternal type )
@@ -111,7 +123,7 @@ public class GosuClassProxyFactory
         gsAdapterClass = (IGosuClassInternal)outerProxy.getInnerClass( type.getRelativeName().substring( type.getRelativeName().indexOf( '.' ) + 1 ) );
         if( gsAdapterClass == null )
         {
-          TypeSystem.refresh( (ITypeRef)outerProxy);
+          TypeLoaderAccess.instance().refreshInternal( (ITypeRef)outerProxy );
           gsAdapterClass = (IGosuClassInternal)outerProxy.getInnerClass( type.getRelativeName().substring( type.getRelativeName().indexOf( '.' ) + 1 ) );
         }
       }
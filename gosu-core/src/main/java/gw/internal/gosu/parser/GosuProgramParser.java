@@ -13,11 +13,14 @@ import gw.lang.parser.IGosuProgramParser;
 import gw.lang.parser.IParseResult;
 import gw.lang.parser.IParseTree;
 import gw.lang.parser.IParsedElement;
+import gw.lang.parser.ISymbol;
 import gw.lang.parser.ISymbolTable;
 import gw.lang.parser.ITypeUsesMap;
 import gw.lang.parser.ParseResult;
 import gw.lang.parser.ParserOptions;
+import gw.lang.parser.TypeSystemAwareCache;
 import gw.lang.parser.exceptions.ParseResultsException;
+import gw.lang.parser.resources.ResourceKey;
 import gw.lang.parser.statements.IClassStatement;
 import gw.lang.reflect.IType;
 import gw.lang.reflect.TypeSystem;
@@ -28,9 +31,14 @@ import gw.lang.reflect.gs.IGosuProgram;
 import gw.lang.reflect.gs.StringSourceFileHandle;
 import gw.lang.reflect.module.IModule;
 import gw.util.GosuStringUtil;
+import gw.util.concurrent.Cache;
 import gw.util.fingerprint.FP64;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 /**
  */
@@ -38,6 +46,16 @@ public class GosuProgramParser implements IGosuProgramParser
 {
   private static int g_iIndex;
 
+  private static final TypeSystemAwareCache<ProgramKey, IGosuProgramInternal> PROGRAM_CACHE =
+    TypeSystemAwareCache.make( "Compiled Program Cache", Integer.getInteger( "gosu.program.cache.size", 1000 ),
+                               new Cache.MissHandler<ProgramKey, IGosuProgramInternal>()
+                               {
+                                 public IGosuProgramInternal load( ProgramKey key )
+                                 {
+                                   return key.compile();
+                                 }
+                               } );
+
   public IParseResult parseEval( String strSource, List<ICapturedSymbol> captured, IType enclosingClass, IParsedElement ctxElem, ISymbolTable extSyms )
   {
     TypeSystem.lock();
@@ -137,6 +155,28 @@ public class GosuProgramParser implements IGosuProgramParser
 
   @Override
   public IParseResult parseExpressionOrProgram( String strSource, ISymbolTable symTable, ParserOptions options ) throws ParseResultsException
+  {
+    if( options.isCachedProgram() && isCacheable( options ) )
+    {
+      ProgramKey key = new ProgramKey( strSource, symTable, options );
+      try
+      {
+        return new ParseResult( PROGRAM_CACHE.get( key ) );
+      }
+      catch( CompileFailure e )
+      {
+        throw e._pre;
+      }
+      finally
+      {
+        // The cache keeps the key, don't let it keep the caller's symbols too
+        key.release();
+      }
+    }
+    return parseExpressionOrProgram( strSource, symTable, options, options.isThrowawayProgram() );
+  }
+
+  private IParseResult parseExpressionOrProgram( String strSource, ISymbolTable symTable, ParserOptions options, boolean bThrowaway ) throws ParseResultsException
   {
     TypeSystem.lock();
     try
@@ -178,7 +218,7 @@ public class GosuProgramParser implements IGosuProgramParser
       program.setSuperType( options.getSuperType() );
       program.setAdditionalDFSDecls( options.getAdditionalDFSDecls() );
       program.setStatementsOnly( options.isStatementsOnly() );
-      program.setThrowaway( options.isThrowawayProgram() );
+      program.setThrowaway( bThrowaway );
       program.setAllowUses( options.allowUses() );
       program.setCtxInferenceMgr( options.getCtxInferenceMgr() );
       if( options.getScriptPartId() != null )
@@ -302,4 +342,141 @@ public class GosuProgramParser implements IGosuProgramParser
   {
     return g_iIndex++;
   }
+
+  /**
+   * A cached program must be determined entirely by its source, symbols and the options' values.
+   */
+  private static boolean isCacheable( ParserOptions options )
+  {
+    return options.getParser() == null &&
+           options.getTi() == null &&
+           options.getFileContext() == null &&
+           options.getCtxInferenceMgr() == null &&
+           options.getScriptPartId() == null &&
+           options.getAdditionalDFSDecls() == null &&
+           options.getDeclSymbols() == null &&
+           !options.isCaptureSymbolsForEval();
+  }
+
+  /**
+   * Identifies a compiled program by its source and a signature of everything else it was compiled
+   * with: the current module, the names and types of the symbols in scope, the type uses and the
+   * options. Symbol values are not part of it, they are supplied when the program is evaluated.
+   */
+  private static class ProgramKey
+  {
+    private final String _strSource;
+    private final String _strSignature;
+    private final int _iHash;
+    private ISymbolTable _symTable;
+    private ParserOptions _options;
+
+    ProgramKey( String strSource, ISymbolTable symTable, ParserOptions options )
+    {
+      _strSource = strSource;
+      _strSignature = makeSignature( symTable, options );
+      _iHash = 31 * strSource.hashCode() + _strSignature.hashCode();
+      _symTable = symTable;
+      _options = options;
+    }
+
+    private static String makeSignature( ISymbolTable symTable, ParserOptions options )
+    {
+      StringBuilder sb = new StringBuilder();
+      IModule module = TypeSystem.getCurrentModule();
+      sb.append( module == null ? null : module.getName() ).append( '\n' );
+      if( symTable != null )
+      {
+        // Sorted, the table's iteration order is arbitrary
+        Map<String, String> symbols = new TreeMap<String, String>();
+        for( Object value : symTable.getSymbols().values() )
+        {
+          ISymbol symbol = (ISymbol)value;
+          IType type = symbol.getType();
+          symbols.put( symbol.getName(), symbol.getClass().getName() + ' ' + (type == null ? null : type.getName()) );
+        }
+        sb.append( symbols ).append( '\n' );
+      }
+      ITypeUsesMap typeUses = options.getTypeUsesMap();
+      if( typeUses != null )
+      {
+        sb.append( new TreeSet<String>( typeUses.getTypeUses() ) )
+          .append( new TreeSet<String>( typeUses.getNamespaces() ) )
+          .append( typeUses.isSupportRelativePackageResolution() ).append( '\n' );
+      }
+      sb.append( options.getEnclosingType() ).append( ' ' )
+        .append( getName( options.getExpectedType() ) ).append( ' ' )
+        .append( getName( options.getSuperType() ) ).append( ' ' )
+        .append( options.isBGenRootExprAccess() ).append( ' ' )
+        .append( options.isStatementsOnly() ).append( ' ' )
+        .append( options.allowUses() ).append( ' ' )
+        .append( options.isShouldOptimize() ).append( ' ' );
+      Set<String> ignoreWarnings = new TreeSet<String>();
+      for( ResourceKey msgKey : options.getIgnoreWarnings() )
+      {
+        ignoreWarnings.add( msgKey.getKey() );
+      }
+      sb.append( ignoreWarnings );
+      return sb.toString();
+    }
+
+    private static String getName( IType type )
+    {
+      return type == null ? null : type.getName();
+    }
+
+    IGosuProgramInternal compile()
+    {
+      try
+      {
+        // Throwaway programs load in a single-serving loader, so an evicted program unloads
+        return (IGosuProgramInternal)new GosuProgramParser().parseExpressionOrProgram( _strSource, _symTable, _options, true ).getProgram();
+      }
+      catch( ParseResultsException e )
+      {
+        throw new CompileFailure( e );
+      }
+    }
+
+    void release()
+    {
+      _symTable = null;
+      _options = null;
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+      if( this == o )
+      {
+        return true;
+      }
+      if( !(o instanceof ProgramKey) )
+      {
+        return false;
+      }
+      ProgramKey that = (ProgramKey)o;
+      return _iHash == that._iHash && _strSource.equals( that._strSource ) && _strSignature.equals( that._strSignature );
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return _iHash;
+    }
+  }
+
+  /**
+   * Carries a ParseResultsException out of the cache's miss handler; failures are not cached.
+   */
+  private static class CompileFailure extends RuntimeException
+  {
+    private final ParseResultsException _pre;
+
+    CompileFailure( ParseResultsException pre )
+    {
+      super( pre );
+      _pre = pre;
+    }
+  }
 }
@@ -78,11 +78,7 @@ public interface IGosuClassInternal extends IGosuClass, ICompilableTypeInternal
 
       if( type instanceof IJavaType )
       {
-        IGosuClassInternal adapterClass = ((IJavaTypeInternal)type).getAdapterClass();
-        if( adapterClass == null )
-        {
-          adapterClass = GosuClassProxyFactory.instance().createImmediately( type );
-        }
+        IGosuClassInternal adapterClass = GosuClassProxyFactory.instance().create( type );
         if( adapterClass != null && type.isParameterizedType() )
         {
           return (IGosuClassInternal)adapterClass.getParameterizedType( type.getTypeParameters() );
@@ -377,7 +377,7 @@ public class JavaMethodInfo extends JavaBaseFeatureInfo implements IJavaMethodIn
     if (!(method instanceof MethodJavaClassMethod)) {
       return null;
     }
-    return _callHandler = new MethodCallAdapter( ((MethodJavaClassMethod)method).getJavaMethod() );
+    return _callHandler = MethodHandleCallAdapter.create( ((MethodJavaClassMethod)method).getJavaMethod() );
   }
 
   @Override
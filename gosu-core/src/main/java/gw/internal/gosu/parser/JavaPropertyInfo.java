@@ -34,6 +34,7 @@ import gw.util.GosuExceptionUtil;
 import gw.util.GosuStringUtil;
 import gw.util.concurrent.LockingLazyVar;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
 import java.util.List;
@@ -567,6 +568,23 @@ public class JavaPropertyInfo extends JavaBaseFeatureInfo implements IJavaProper
 
   public class PropertyAccessorAdaptor implements IPropertyAccessor
   {
+    private final MethodHandle _getHandle;
+    private final MethodHandle _setHandle;
+
+    public PropertyAccessorAdaptor()
+    {
+      // Spread handles are (Object, Object[])Object, see MethodHandleCallAdapter
+      _getHandle = makeHandle( _getMethod );
+      _setHandle = makeHandle( _setMethod );
+    }
+
+    private MethodHandle makeHandle( IJavaClassMethod method )
+    {
+      return MethodHandleCallAdapter.isEnabled() && method instanceof MethodJavaClassMethod
+             ? MethodHandleCallAdapter.makeSpreadHandle( ((MethodJavaClassMethod)method).getJavaMethod() )
+             : null;
+    }
+
     @Override
     public Object getValue( Object ctx )
     {
@@ -579,7 +597,9 @@ public class JavaPropertyInfo extends JavaBaseFeatureInfo implements IJavaProper
       try
       {
         Object rVal;
-        if (_getMethod != null) {
+        if (_getHandle != null) {
+          rVal = MethodHandleCallAdapter.invokeSpread( _getHandle, ctx, args );
+        } else if (_getMethod != null) {
           rVal = _getMethod.invoke( ctx, args );
         } else {
           rVal = ((FieldJavaClassField)_publicField).get(ctx);
@@ -622,7 +642,12 @@ public class JavaPropertyInfo extends JavaBaseFeatureInfo implements IJavaProper
                     args, ((MethodJavaClassMethod)_setMethod).getJavaParameterTypes(), getOwningClass() );
           }
 
-          _setMethod.invoke( ctx, args );
+          if( _setHandle != null ) {
+            MethodHandleCallAdapter.invokeSpread( _setHandle, ctx, args );
+          }
+          else {
+            _setMethod.invoke( ctx, args );
+          }
         } else {
           value = CommonServices.getCoercionManager().convertValue(value, TypeSystem.get(_publicField.getType()));
           ((FieldJavaClassField)_publicField).set(ctx, value);
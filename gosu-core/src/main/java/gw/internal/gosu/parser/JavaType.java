@@ -66,6 +66,7 @@ class JavaType extends AbstractType implements IJavaTypeInternal
   transient private ITypeInfo _typeInfo;
   transient private String _strRelativeName;
   transient volatile private Set<IType> _allTypesInHierarchy; //!! Do NOT make this a lazy var, it's init needs to be re-entrant
+  transient private AssignabilityMemo _assignabilityMemo;
   transient private boolean _bArray;
   transient private boolean _bPrimitive;
   transient private LockingLazyVar<Boolean> _bHasSuperType = new LockingLazyVar<Boolean>() {
@@ -83,7 +84,7 @@ class JavaType extends AbstractType implements IJavaTypeInternal
   transient volatile private IType _superType;  //!! Do NOT make this a lazy var, it's init needs to be re-entrant
   transient private List<IType> _tempInterfaces;
   transient volatile private IType[] _interfaces; //!! Do NOT make this a lazy var, it's init needs to be re-entrant
-  transient private IGosuClassInternal _adapterClass;
+  transient volatile private IGosuClassInternal _adapterClass;
   transient private GenericTypeVariable[] _tempGenericTypeVars;
   transient private LockingLazyVar<GenericTypeVariable[]> _lazyGenericTypeVars = new LockingLazyVar<GenericTypeVariable[]>() {
   protected GenericTypeVariable[] init() {
@@ -92,6 +93,7 @@ class JavaType extends AbstractType implements IJavaTypeInternal
   };
   transient private boolean _bDefiningGenericTypes;
   transient private ConcurrentMap<String, IJavaTypeInternal> _parameterizationByParamsName;
+  transient volatile private ParameterizationIndex<IJavaTypeInternal> _parameterizationIndex;
   transient volatile private IJavaTypeInternal _arrayType;
   private IJavaTypeInternal _componentType;
   transient private DefaultTypeLoader _typeLoader;
@@ -357,7 +359,28 @@ class JavaType extends AbstractType implements IJavaTypeInternal
     if (TypeSystem.isDeleted(type)) {
       return false;
     }
+    if( type == null )
+    {
+      return false;
+    }
+    AssignabilityMemo memo = _assignabilityMemo;
+    if( memo == null )
+    {
+      _assignabilityMemo = memo = new AssignabilityMemo();
+    }
+    Boolean bMemo = memo.get( type );
+    if( bMemo != null )
+    {
+      return bMemo;
+    }
+    int iEpoch = AssignabilityMemo.getEpoch();
+    boolean bAssignable = isAssignableFromImpl( type );
+    memo.put( type, bAssignable, iEpoch );
+    return bAssignable;
+  }
 
+  private boolean isAssignableFromImpl( IType type )
+  {
     IType pThis = thisRef();
 
     // Short-circuit if the types are the same
@@ -483,24 +506,44 @@ class JavaType extends AbstractType implements IJavaTypeInternal
       return getGenericType().getAdapterClass();
     }
 
-    if( _adapterClass == null )
+    IGosuClassInternal adapterClass = _adapterClass;
+    if( adapterClass == null )
     {
       return null;
     }
+    if( !isAdapterClassOutdated( adapterClass ) )
+    {
+      return adapterClass;
+    }
 
-    if( _adapterClass.isStale())
+    // Recreate under the global lock, the striped loading path can get here on several threads
+    TypeSystem.lock();
+    try
     {
-      _adapterClass = createAdapterClass();
-      return _adapterClass;
+      adapterClass = _adapterClass;
+      if( adapterClass.isStale() )
+      {
+        return createAdapterClass();
+      }
+                                          // must check against adapter's checksum
+      if( haveAncestorsBeenUpdated( this, adapterClass.getTypeInfoChecksum(), new HashSet<IType>() ) )
+      {
+        _typeInfo = null;   // clear the typeinfo
+        _tiChecksum = TypeSystem.getSingleRefreshChecksum(); // and update the checksum (the type info will be created on next request)
+        adapterClass = createAdapterClass();  // recreate the adapter class
+      }
+      return adapterClass;
     }
-                                        // must check against adapter's checksum
-    if( haveAncestorsBeenUpdated( this, _adapterClass.getTypeInfoChecksum(), new HashSet<IType>() ) )
+    finally
     {
-      _typeInfo = null;   // clear the typeinfo
-      _tiChecksum = TypeSystem.getSingleRefreshChecksum(); // and update the checksum (the type info will be created on next request)
-      _adapterClass = createAdapterClass();  // recreate the adapter class
+      TypeSystem.unlock();
     }
-    return _adapterClass;
+  }
+
+  private boolean isAdapterClassOutdated( IGosuClassInternal adapterClass )
+  {
+    return adapterClass.isStale() ||
+           haveAncestorsBeenUpdated( this, adapterClass.getTypeInfoChecksum(), new HashSet<IType>() );
   }
 
   public IGosuClassInternal getAdapterClassDirectly()
@@ -530,6 +573,7 @@ class JavaType extends AbstractType implements IJavaTypeInternal
           parameteredClass.unloadTypeInfo();
         }
         _parameterizationByParamsName.clear();
+        _parameterizationIndex = new ParameterizationIndex<IJavaTypeInternal>();
       }
       if( _adapterClass != null )
       {
@@ -542,6 +586,7 @@ class JavaType extends AbstractType implements IJavaTypeInternal
       _lazyGenericTypeVars.clearNoLock();
 
       _allTypesInHierarchy = null;
+      _assignabilityMemo = null;
       _typeInfo = null;
     }
     finally
@@ -852,6 +897,17 @@ class JavaType extends AbstractType implements IJavaTypeInternal
 //      throw new IllegalStateException( "Cannot parameterize non-generic type: " + getName() );
 //    }
 
+    ParameterizationIndex<IJavaTypeInternal> index = _parameterizationIndex;
+    if( index != null )
+    {
+      // Fast path, no boxing, name building or locking
+      IJavaTypeInternal parameterizedType = index.get( paramTypes );
+      if( parameterizedType != null )
+      {
+        return parameterizedType;
+      }
+    }
+
     if( _parameterizationByParamsName == null )
     {
       TypeSystem.lock();
@@ -860,6 +916,7 @@ class JavaType extends AbstractType implements IJavaTypeInternal
         if( _parameterizationByParamsName == null )
         {
           _parameterizationByParamsName = new ConcurrentHashMap<String, IJavaTypeInternal>( 2 );
+          _parameterizationIndex = new ParameterizationIndex<IJavaTypeInternal>();
         }
       }
       finally
@@ -867,6 +924,8 @@ class JavaType extends AbstractType implements IJavaTypeInternal
         TypeSystem.unlock();
       }
     }
+    // Read before the map, so an entry found in a map that was cleared since can't land in the new index
+    index = _parameterizationIndex;
     paramTypes = TypeSystem.boxPrimitiveTypeParams( paramTypes );
     String strNameOfParams = TypeLord.getNameOfParams( paramTypes, false, true, true );
     IJavaTypeInternal parameterizedType = _parameterizationByParamsName.get( strNameOfParams );
@@ -894,6 +953,7 @@ class JavaType extends AbstractType implements IJavaTypeInternal
         TypeSystem.unlock();
       }
     }
+    index.put( paramTypes, parameterizedType );
     return parameterizedType;
   }
 
@@ -1246,8 +1306,16 @@ class JavaType extends AbstractType implements IJavaTypeInternal
     {
       return (IGosuClassInternal)getGenericType().createAdapterClass();
     }
-    _adapterClass = GosuClassProxyFactory.instance().createImmediately( thisRef() );
-    return _adapterClass;
+    TypeSystem.lock();
+    try
+    {
+      _adapterClass = GosuClassProxyFactory.instance().createImmediately( thisRef() );
+      return _adapterClass;
+    }
+    finally
+    {
+      TypeSystem.unlock();
+    }
   }
 
   public static IJavaType[] convertClassArray( Class[] args )
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.internal.gosu.parser;
+
+import gw.config.CommonServices;
+import gw.lang.parser.EvaluationException;
+import gw.lang.reflect.IMethodCallHandler;
+import gw.lang.reflect.Modifier;
+import gw.lang.reflect.TypeSystem;
+import gw.util.GosuClassUtil;
+import gw.util.GosuExceptionUtil;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Handles Gosu->Java method call adaptation via a pre-adapted MethodHandle. This is
+ * an alternative to {@link MethodCallAdapter}, which calls Method.invoke(), enabled with
+ * the "gosu.method.handle.calls" system property.
+ * <p/>
+ * The handle is adapted once to the uniform (Object, Object[])Object shape so a call
+ * spreads the caller's argument array directly into the target without copying. Calls go
+ * through one static final exact invoker, and like Method.invoke() the handle wraps the
+ * target's exceptions in an InvocationTargetException. The thread's context class loader
+ * is only swapped if it isn't already the Gosu loader.
+ */
+public class MethodHandleCallAdapter implements IMethodCallHandler
+{
+  public static final String METHOD_HANDLE_CALLS_SYSTEM_PROP = "gosu.method.handle.calls";
+  private static final boolean ENABLED = Boolean.getBoolean( METHOD_HANDLE_CALLS_SYSTEM_PROP );
+
+  private static final MethodType SPREAD_TYPE = MethodType.methodType( Object.class, Object.class, Object[].class );
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+  private static final MethodHandle INVOKER = MethodHandles.exactInvoker( SPREAD_TYPE );
+  private static final MethodHandle WRAP_TARGET_EXCEPTION;
+  static
+  {
+    try
+    {
+      WRAP_TARGET_EXCEPTION = LOOKUP.findStatic( MethodHandleCallAdapter.class, "wrapTargetException",
+                                                 MethodType.methodType( Object.class, Throwable.class ) );
+    }
+    catch( ReflectiveOperationException e )
+    {
+      throw new ExceptionInInitializerError( e );
+    }
+  }
+
+  private final Method _method;
+  private final Class _declaringClass;
+  private final Class[] _argTypes;
+  private final MethodHandle _handle;
+  private final boolean _bStatic;
+  private final boolean _bMethodOnThread;
+  private final boolean _external;
+
+  public static boolean isEnabled()
+  {
+    return ENABLED;
+  }
+
+  /**
+   * @return a call handler for the method, using a MethodHandle if enabled and possible
+   */
+  public static IMethodCallHandler create( Method method )
+  {
+    if( ENABLED )
+    {
+      MethodHandle handle = makeSpreadHandle( method );
+      if( handle != null )
+      {
+        return new MethodHandleCallAdapter( method, handle );
+      }
+    }
+    return new MethodCallAdapter( method );
+  }
+
+  /**
+   * Unreflects the method into a handle of type (Object, Object[])Object. For static methods the
+   * leading receiver argument is ignored. Returns null if the method can't be unreflected.
+   */
+  static MethodHandle makeSpreadHandle( Method method )
+  {
+    MethodHandle handle;
+    try
+    {
+      method.setAccessible( true );
+      handle = LOOKUP.unreflect( method );
+    }
+    catch( IllegalAccessException e )
+    {
+      return null;
+    }
+    catch( SecurityException e )
+    {
+      return null;
+    }
+
+    // Only the target's own exceptions, not failed argument conversions
+    handle = MethodHandles.catchException( handle, Throwable.class,
+                                           WRAP_TARGET_EXCEPTION.asType( MethodType.methodType( handle.type().returnType(), Throwable.class ) ) );
+    if( Modifier.isStatic( method.getModifiers() ) )
+    {
+      handle = MethodHandles.dropArguments( handle, 0, Object.class );
+    }
+    int iParams = method.getParameterTypes().length;
+    handle = handle.asType( handle.type().generic() );
+    return handle.asSpreader( Object[].class, iParams ).asType( SPREAD_TYPE );
+  }
+
+  /**
+   * Calls a handle made by {@link #makeSpreadHandle(Method)}. Fails the same way Method.invoke() does.
+   *
+   * @throws InvocationTargetException if the target threw
+   * @throws IllegalArgumentException if the receiver or an argument has the wrong type, or a
+   *   primitive argument is null
+   */
+  static Object invokeSpread( MethodHandle handle, Object ctx, Object[] args ) throws Throwable
+  {
+    try
+    {
+      return (Object)INVOKER.invokeExact( handle, ctx, args );
+    }
+    catch( ClassCastException e )
+    {
+      // The target's exceptions are wrapped, so this comes from converting the receiver or an argument
+      throw new IllegalArgumentException( e );
+    }
+    catch( NullPointerException e )
+    {
+      // Unboxing a null argument
+      throw new IllegalArgumentException( e );
+    }
+  }
+
+  private static Object wrapTargetException( Throwable t ) throws InvocationTargetException
+  {
+    throw new InvocationTargetException( t );
+  }
+
+  MethodHandleCallAdapter( Method method, MethodHandle handle )
+  {
+    _method = method;
+    _declaringClass = method.getDeclaringClass();
+    _argTypes = method.getParameterTypes();
+    _handle = handle;
+    _bStatic = Modifier.isStatic( method.getModifiers() );
+    _bMethodOnThread = Thread.class.isAssignableFrom( _declaringClass );
+    _external = CommonServices.getEntityAccess().isExternal( _declaringClass );
+  }
+
+  public Object handleCall( Object ctx, Object... argValues )
+  {
+    if( argValues == null ? _argTypes.length != 0 : _argTypes.length != argValues.length )
+    {
+      throw new EvaluationException( "Wrong number of arguments for method " + _method.getName() + " in class " +
+                                     _declaringClass.getName() );
+    }
+
+    if( !_bStatic )
+    {
+      if( ctx == null )
+      {
+        throw new EvaluationException( "Tried to invoke method from null reference: " + _declaringClass.getName() + "#" + _method.getName() );
+      }
+      if( !_declaringClass.isInstance( ctx ) )
+      {
+        throw new EvaluationException( "Tried to invoke method from a context not compatible with method's declaring class.\nContext: " + ctx.getClass().getName() + "\nMethod: " + _declaringClass.getName() + "#" + _method.getName() );
+      }
+    }
+
+    Thread thread = null;
+    ClassLoader previousClassLoader = null;
+    if( !_bMethodOnThread && TypeSystem.getCurrentModule() != null )
+    {
+      ClassLoader gosuLoader = TypeSystem.getGosuClassLoader().getActualLoader();
+      thread = Thread.currentThread();
+      previousClassLoader = thread.getContextClassLoader();
+      if( previousClassLoader == gosuLoader )
+      {
+        thread = null;
+      }
+      else
+      {
+        thread.setContextClassLoader( gosuLoader );
+      }
+    }
+    try
+    {
+      if( _external && argValues != null && argValues.length > 0 )
+      {
+        argValues = CommonServices.getEntityAccess().convertToExternalIfNecessary( argValues, _argTypes, _declaringClass );
+      }
+
+      Object result = invoke( ctx, argValues );
+
+      if( _external )
+      {
+        return CommonServices.getEntityAccess().convertToInternalIfNecessary( result, _declaringClass );
+      }
+      else
+      {
+        return result;
+      }
+    }
+    finally
+    {
+      if( thread != null )
+      {
+        thread.setContextClassLoader( previousClassLoader );
+      }
+    }
+  }
+
+  private Object invoke( Object ctx, Object[] argValues )
+  {
+    try
+    {
+      return invokeSpread( _handle, ctx, argValues );
+    }
+    catch( InvocationTargetException e )
+    {
+      throw GosuExceptionUtil.forceThrow( e.getCause() );
+    }
+    catch( IllegalArgumentException e )
+    {
+      GosuExceptionUtil.throwArgMismatchException( e, "method \"" + GosuClassUtil.getShortClassName( _declaringClass ) + "#" + _method.getName() + "\"", _argTypes, argValues );
+      return null;
+    }
+    catch( Throwable t )
+    {
+      throw makeMethodCallEvaluationException( t );
+    }
+  }
+
+  private RuntimeException makeMethodCallEvaluationException( Throwable t )
+  {
+    String params = "";
+    for( int i = 0; i < _argTypes.length; i++ )
+    {
+      if( i != 0 )
+      {
+        params += ", ";
+      }
+      params += _argTypes[i].getName();
+    }
+    return new RuntimeException(
+      "could not invoke " + _method.getName() +
+      "(" + params + ")" +
+      " on class " + _declaringClass.getName(), t );
+  }
+
+  public Method getMethod()
+  {
+    return _method;
+  }
+}
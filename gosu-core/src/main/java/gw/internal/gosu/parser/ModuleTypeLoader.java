@@ -43,6 +43,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  */
@@ -387,6 +388,10 @@ public class ModuleTypeLoader implements ITypeLoaderStackInternal {
 
     // First, look for the type in the map by name
     IType foundType = findInCache( fqnNoArrays );
+    if( foundType == null && TypeLoadingLocks.canLoadStriped() )
+    {
+      foundType = loadTypeStriped( fqnNoArrays, skipJava );
+    }
     if( foundType == null )
     {
       TypeSystem.lock();
@@ -431,6 +436,70 @@ public class ModuleTypeLoader implements ITypeLoaderStackInternal {
     return foundType;
   }
 
+  /**
+   * Loads the type holding only the name's stripe, so independent names load concurrently. The
+   * result is cached under the global lock, unless the type system refreshed during the load, in
+   * which case null is returned and the caller loads again under the global lock.
+   */
+  private IType loadTypeStriped( String fqnNoArrays, boolean skipJava )
+  {
+    ReentrantLock stripe = TypeLoadingLocks.lock( fqnNoArrays );
+    try
+    {
+      IType foundType = findInCache( fqnNoArrays );
+      if( foundType != null )
+      {
+        return foundType;
+      }
+
+      TypeSystem.lock();
+      try
+      {
+        foundType = findInCaseInsenstiveCache( fqnNoArrays );
+        if( foundType != null )
+        {
+          _typesByName.add( fqnNoArrays, foundType );
+          return foundType;
+        }
+      }
+      finally
+      {
+        TypeSystem.unlock();
+      }
+
+      int iRefreshChecksum = TypeSystem.getRefreshChecksum();
+      Pair<IType, ITypeLoader> pair;
+      TypeSystem.pushModule( getModule() );
+      try
+      {
+        pair = loadType( fqnNoArrays, skipJava );
+      }
+      finally
+      {
+        TypeSystem.popModule( getModule() );
+      }
+
+      TypeSystem.lock();
+      try
+      {
+        if( iRefreshChecksum != TypeSystem.getRefreshChecksum() )
+        {
+          // A refresh cleared the caches while we were loading, the loaded type may be stale
+          return null;
+        }
+        return cacheLoadResult( fqnNoArrays, pair, skipJava );
+      }
+      finally
+      {
+        TypeSystem.unlock();
+      }
+    }
+    finally
+    {
+      TypeLoadingLocks.unlock( stripe );
+    }
+  }
+
   private IType findInCache( String fqnNoArrays )
   {
     IType foundType = _typesByName.get(fqnNoArrays);
@@ -502,6 +571,11 @@ public class ModuleTypeLoader implements ITypeLoaderStackInternal {
       TypeSystem.popModule( getModule() );
     }
 
+    return cacheLoadResult( fullyQualifiedName, pair, skipJava );
+  }
+
+  private IType cacheLoadResult( String fullyQualifiedName, Pair<IType, ITypeLoader> pair, boolean skipJava )
+  {
     IType type;
     if( pair != null )
     {
@@ -573,7 +647,7 @@ public class ModuleTypeLoader implements ITypeLoaderStackInternal {
         String prefix = fullyQualifiedName.substring(0, dotIdx);
         ITypeLoader typeLoader = _loadersByPrefix.get(prefix);
         if (typeLoader != null && typeLoader.isInited()) {
-          return new Pair<IType, ITypeLoader>(typeLoader.getType(fullyQualifiedName), typeLoader);
+          return new Pair<IType, ITypeLoader>(getTypeFromLoader(typeLoader, fullyQualifiedName), typeLoader);
         }
       }
     }
@@ -593,7 +667,7 @@ public class ModuleTypeLoader implements ITypeLoaderStackInternal {
           // Forbid going back into classloaders world (for example, we are loading Gosu type through URL handler)
           continue;
         }
-        type = loader.getType( fullyQualifiedName );
+        type = getTypeFromLoader( loader, fullyQualifiedName );
         if( type != null )
         {
           return new Pair<IType, ITypeLoader>(type, loader);
@@ -604,6 +678,27 @@ public class ModuleTypeLoader implements ITypeLoaderStackInternal {
     return null;
   }
 
+  /**
+   * On the striped path only loaders known to be safe to call concurrently run without the global
+   * lock, see {@link TypeLoadingLocks#isConcurrentLoader(ITypeLoader)}
+   */
+  private static IType getTypeFromLoader( ITypeLoader loader, String fullyQualifiedName )
+  {
+    if( TypeSystem.isLockHeldByCurrentThread() || TypeLoadingLocks.isConcurrentLoader( loader ) )
+    {
+      return loader.getType( fullyQualifiedName );
+    }
+    TypeSystem.lock();
+    try
+    {
+      return loader.getType( fullyQualifiedName );
+    }
+    finally
+    {
+      TypeSystem.unlock();
+    }
+  }
+
   private IType loadNamespaceType(String namespace)
   {
     for (int i = 0; i < _globalStack.size(); i++) {
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.internal.gosu.parser;
+
+import gw.lang.reflect.IType;
+import gw.lang.reflect.TypeSystem;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * An identity-keyed index of a generic type's parameterizations, in front of the map keyed by the
+ * names of the type parameters. A hit compares the type parameters by identity (primitives as
+ * their box types, like TypeSystem.boxPrimitiveTypeParams()) and allocates nothing.
+ * <p/>
+ * Inserts are lock-free: a bucket's chain of immutable entries is replaced with a CAS. Growing the
+ * table may drop an entry inserted concurrently, which only costs a later lookup by name.
+ */
+class ParameterizationIndex<T extends IType>
+{
+  private static final int INITIAL_CAPACITY = 4;
+
+  private final AtomicReference<AtomicReferenceArray<Entry<T>>> _table =
+    new AtomicReference<AtomicReferenceArray<Entry<T>>>( new AtomicReferenceArray<Entry<T>>( INITIAL_CAPACITY ) );
+  private final AtomicInteger _iSize = new AtomicInteger();
+
+  T get( IType[] paramTypes )
+  {
+    AtomicReferenceArray<Entry<T>> table = _table.get();
+    int iHash = hash( paramTypes );
+    for( Entry<T> e = table.get( iHash & (table.length() - 1) ); e != null; e = e._next )
+    {
+      if( e._iHash == iHash && matches( e._paramTypes, paramTypes ) )
+      {
+        return e._type;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @param boxedParamTypes The type parameters with primitives boxed, not modified afterwards
+   */
+  void put( IType[] boxedParamTypes, T type )
+  {
+    int iHash = hash( boxedParamTypes );
+    AtomicReferenceArray<Entry<T>> table;
+    while( true )
+    {
+      table = _table.get();
+      int i = iHash & (table.length() - 1);
+      Entry<T> head = table.get( i );
+      for( Entry<T> e = head; e != null; e = e._next )
+      {
+        if( e._iHash == iHash && matches( e._paramTypes, boxedParamTypes ) )
+        {
+          return;
+        }
+      }
+      if( table.compareAndSet( i, head, new Entry<T>( iHash, boxedParamTypes, type, head ) ) )
+      {
+        break;
+      }
+    }
+    if( _iSize.incrementAndGet() > table.length() * 3 / 4 )
+    {
+      grow( table );
+    }
+  }
+
+  private void grow( AtomicReferenceArray<Entry<T>> old )
+  {
+    AtomicReferenceArray<Entry<T>> table = new AtomicReferenceArray<Entry<T>>( old.length() * 2 );
+    for( int i = 0; i < old.length(); i++ )
+    {
+      for( Entry<T> e = old.get( i ); e != null; e = e._next )
+      {
+        int j = e._iHash & (table.length() - 1);
+        table.set( j, new Entry<T>( e._iHash, e._paramTypes, e._type, table.get( j ) ) );
+      }
+    }
+    _table.compareAndSet( old, table );
+  }
+
+  private static int hash( IType[] paramTypes )
+  {
+    int iHash = 1;
+    for( IType paramType : paramTypes )
+    {
+      iHash = 31 * iHash + System.identityHashCode( box( paramType ) );
+    }
+    return iHash ^ (iHash >>> 16);
+  }
+
+  private static boolean matches( IType[] boxedParamTypes, IType[] paramTypes )
+  {
+    if( boxedParamTypes.length != paramTypes.length )
+    {
+      return false;
+    }
+    for( int i = 0; i < paramTypes.length; i++ )
+    {
+      if( boxedParamTypes[i] != box( paramTypes[i] ) )
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static IType box( IType type )
+  {
+    return type.isPrimitive() ? TypeSystem.getBoxType( type ) : type;
+  }
+
+  private static class Entry<T>
+  {
+    private final int _iHash;
+    private final IType[] _paramTypes;
+    private final T _type;
+    private final Entry<T> _next;
+
+    Entry( int iHash, IType[] paramTypes, T type, Entry<T> next )
+    {
+      _iHash = iHash;
+      _paramTypes = paramTypes;
+      _type = type;
+      _next = next;
+    }
+  }
+}
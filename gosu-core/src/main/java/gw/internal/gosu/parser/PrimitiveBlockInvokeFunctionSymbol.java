@@ -0,0 +1,24 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.internal.gosu.parser;
+
+import gw.internal.gosu.parser.expressions.BlockExpression;
+
+/**
+ * The invoke function of a block compiled with the block's own primitive signature, so it can
+ * implement one of the {@link gw.lang.function.PrimitiveFunctions} interfaces. It shares the body of
+ * the block's erased invoke function, which then just delegates to it.
+ */
+public class PrimitiveBlockInvokeFunctionSymbol extends DynamicFunctionSymbol
+{
+  public PrimitiveBlockInvokeFunctionSymbol( DynamicFunctionSymbol erasedInvoke, BlockExpression block )
+  {
+    super( null, BlockClass.INVOKE_METHOD_NAME, block.getType(), block.getArgs(), (Object)erasedInvoke.getValueDirectly() );
+    _scriptPartId = erasedInvoke._scriptPartId;
+    setClassMember( true );
+    setPublic( true );
+    setFinal( true );
+  }
+}
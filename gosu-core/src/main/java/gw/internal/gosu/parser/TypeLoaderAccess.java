@@ -100,6 +100,10 @@ public class TypeLoaderAccess extends BaseService implements ITypeSystem
   private int _iRefreshChecksum = 0;
   private int _iSingleRefreshChecksum = 0;
 
+  // Set once a production runtime is initialized, after which types never change. Static so type
+  // refs can test it with a single field read.
+  private static volatile boolean g_bSealed;
+
   //------------------------------------------------------------
   // Type system caches
   //------------------------------------------------------------
@@ -424,6 +428,7 @@ public class TypeLoaderAccess extends BaseService implements ITypeSystem
 
   public void refresh( final boolean clearCachedTypes )
   {
+    checkNotSealed();
     IModule globalModule = TypeSystem.getGlobalModule();
 
     // dlank: should an exception be thrown if the server is not in dev mode?
@@ -465,6 +470,7 @@ public class TypeLoaderAccess extends BaseService implements ITypeSystem
 
   public void shutdown()
   {
+    unseal();
     TypeSystem.lock();
     try
     {
@@ -705,6 +711,7 @@ public class TypeLoaderAccess extends BaseService implements ITypeSystem
   }
 
   public void incrementChecksums() {
+    checkNotSealed();
     _iRefreshChecksum++;
     _iSingleRefreshChecksum++;
   }
@@ -1027,6 +1034,15 @@ public class TypeLoaderAccess extends BaseService implements ITypeSystem
   }
 
   public void refresh(ITypeRef typeRef) {
+    checkNotSealed();
+    refreshInternal(typeRef);
+  }
+
+  /**
+   * Refreshes a type on behalf of the type system itself e.g., to complete a lazily created proxy.
+   * Unlike {@link #refresh(ITypeRef)} this is allowed after the type system is sealed.
+   */
+  void refreshInternal(ITypeRef typeRef) {
     refreshTypes(new RefreshRequest(null, new String[]{typeRef.getName()}, typeRef.getTypeLoader(), RefreshKind.MODIFICATION));
   }
 
@@ -1038,6 +1054,7 @@ public class TypeLoaderAccess extends BaseService implements ITypeSystem
 
   public void refresh(IModule module)
   {
+    checkNotSealed();
     // dlank: should an exception be thrown if the server is not in dev mode?
     pushModule(module);
     TypeSystem.lock();
@@ -1071,6 +1088,7 @@ public class TypeLoaderAccess extends BaseService implements ITypeSystem
 
   @Override
   public void refreshed(IResource file, String typeName, RefreshKind refreshKind) {
+    checkNotSealed();
     IModule module = ExecutionEnvironment.instance().getModule(file);
     // The module will be null for files that are not part of any source root
     if (module != null) {
@@ -1392,4 +1410,47 @@ public class TypeLoaderAccess extends BaseService implements ITypeSystem
     return ExecutionEnvironment.isDefaultSingleModuleMode();
   }
 
+  @Override
+  public void seal() {
+    TypeSystem.lock();
+    try {
+      g_bSealed = true;
+    } finally {
+      TypeSystem.unlock();
+    }
+  }
+
+  /**
+   * Lifts the seal so the runtime can be uninitialized or reinitialized. Not part of the API,
+   * a sealed type system otherwise stays sealed.
+   */
+  public void unseal() {
+    TypeSystem.lock();
+    try {
+      g_bSealed = false;
+    } finally {
+      TypeSystem.unlock();
+    }
+  }
+
+  @Override
+  public boolean isSealed() {
+    return g_bSealed;
+  }
+
+  @Override
+  public boolean isTypeLoadingLockHeldByCurrentThread() {
+    return TypeLoadingLocks.isHeldByCurrentThread();
+  }
+
+  static boolean isTypeSystemSealed() {
+    return g_bSealed;
+  }
+
+  static void checkNotSealed() {
+    if (g_bSealed) {
+      throw new IllegalStateException("The type system is sealed, types cannot be refreshed");
+    }
+  }
+
 }
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.internal.gosu.parser;
+
+import gw.lang.reflect.IDefaultTypeLoader;
+import gw.lang.reflect.ITypeLoader;
+import gw.lang.reflect.TypeSystem;
+import gw.lang.reflect.gs.GosuClassTypeLoader;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped per-name locks for loading types outside of the global type system lock. Enabled with
+ * the "gosu.striped.type.loading" system property.
+ * <p/>
+ * Only the outermost load on a thread blocks on a stripe, and it holds no other type system lock
+ * while it waits. A load nested inside another (e.g. a supertype resolved while loading a subtype)
+ * only tries its stripe and proceeds unlocked if the stripe is busy, so cycles between threads
+ * can't deadlock; at worst the same name is loaded twice and the first result cached wins. A thread
+ * holding the global lock never waits on a stripe.
+ * <p/>
+ * The stripe only covers the name, the type loaders keep their own state. The Java and Gosu class
+ * loaders keep theirs in concurrent structures published complete, so they run under the stripe
+ * alone. Any other loader still runs under the global lock, see {@link #isConcurrentLoader}.
+ */
+public final class TypeLoadingLocks
+{
+  public static final String STRIPED_TYPE_LOADING_SYSTEM_PROP = "gosu.striped.type.loading";
+  private static final boolean ENABLED = Boolean.getBoolean( STRIPED_TYPE_LOADING_SYSTEM_PROP );
+
+  private static final int STRIPES = 64;
+  private static final ReentrantLock[] LOCKS = new ReentrantLock[STRIPES];
+  static
+  {
+    for( int i = 0; i < STRIPES; i++ )
+    {
+      LOCKS[i] = new ReentrantLock();
+    }
+  }
+
+  private static final ThreadLocal<int[]> DEPTH = new ThreadLocal<int[]>()
+  {
+    @Override
+    protected int[] initialValue()
+    {
+      return new int[1];
+    }
+  };
+
+  private static final AtomicLong ACQUISITIONS = new AtomicLong();
+  private static final AtomicLong CONTENDED_ACQUISITIONS = new AtomicLong();
+  private static final AtomicLong WAIT_NANOS = new AtomicLong();
+  private static final AtomicLong UNLOCKED_NESTED_LOADS = new AtomicLong();
+
+  private TypeLoadingLocks()
+  {
+  }
+
+  public static boolean isEnabled()
+  {
+    return ENABLED;
+  }
+
+  /**
+   * @return true if a type load on this thread may use the striped path i.e., the feature is enabled
+   *   and the thread doesn't already hold the global lock
+   */
+  static boolean canLoadStriped()
+  {
+    return ENABLED && !TypeSystem.isLockHeldByCurrentThread();
+  }
+
+  /**
+   * @return true if the loader's getType() may run concurrently with other loads and refreshes
+   */
+  static boolean isConcurrentLoader( ITypeLoader loader )
+  {
+    return loader instanceof IDefaultTypeLoader || loader.getClass() == GosuClassTypeLoader.class;
+  }
+
+  /**
+   * Acquires the stripe for the name. Must be paired with {@link #unlock} passing the returned lock,
+   * which may be null if this is a nested load and the stripe was busy.
+   */
+  static ReentrantLock lock( String fqn )
+  {
+    ReentrantLock lock = LOCKS[stripe( fqn )];
+    int[] depth = DEPTH.get();
+    ACQUISITIONS.incrementAndGet();
+    if( !lock.tryLock() )
+    {
+      if( depth[0] > 0 && !lock.isHeldByCurrentThread() )
+      {
+        // Don't wait while holding another stripe, see class comment
+        UNLOCKED_NESTED_LOADS.incrementAndGet();
+        depth[0]++;
+        return null;
+      }
+      CONTENDED_ACQUISITIONS.incrementAndGet();
+      long start = System.nanoTime();
+      lock.lock();
+      WAIT_NANOS.addAndGet( System.nanoTime() - start );
+    }
+    depth[0]++;
+    return lock;
+  }
+
+  /**
+   * @return true if the current thread is inside a striped load. The outermost load on a thread
+   *   always holds its stripe, so a thread with a nested load in progress holds one too.
+   */
+  static boolean isHeldByCurrentThread()
+  {
+    return DEPTH.get()[0] > 0;
+  }
+
+  static void unlock( ReentrantLock lock )
+  {
+    DEPTH.get()[0]--;
+    if( lock != null )
+    {
+      lock.unlock();
+    }
+  }
+
+  static int stripe( String fqn )
+  {
+    int h = fqn.hashCode();
+    h ^= (h >>> 20) ^ (h >>> 12);
+    h ^= (h >>> 7) ^ (h >>> 4);
+    return h & (STRIPES - 1);
+  }
+
+  public static long getAcquisitionCount()
+  {
+    return ACQUISITIONS.get();
+  }
+
+  public static long getContendedAcquisitionCount()
+  {
+    return CONTENDED_ACQUISITIONS.get();
+  }
+
+  public static long getWaitTime( TimeUnit unit )
+  {
+    return unit.convert( WAIT_NANOS.get(), TimeUnit.NANOSECONDS );
+  }
+
+  public static long getUnlockedNestedLoadCount()
+  {
+    return UNLOCKED_NESTED_LOADS.get();
+  }
+
+  public static void resetStatistics()
+  {
+    ACQUISITIONS.set( 0 );
+    CONTENDED_ACQUISITIONS.set( 0 );
+    WAIT_NANOS.set( 0 );
+    UNLOCKED_NESTED_LOADS.set( 0 );
+  }
+
+  public static String getStatistics()
+  {
+    return "type load stripes: " + getAcquisitionCount() + " acquired, " + getContendedAcquisitionCount() + " contended, " +
+           getWaitTime( TimeUnit.MILLISECONDS ) + "ms waiting, " + getUnlockedNestedLoadCount() + " nested loads unlocked; " +
+           "global lock: " + TypeSystem.getGlobalLockContentionCount() + " contended, " +
+           TypeSystem.getGlobalLockWaitTime( TimeUnit.MILLISECONDS ) + "ms waiting";
+  }
+}
@@ -1082,6 +1082,11 @@ public class TypeLord
   }
 
   public static boolean areGenericOrParameterizedTypesAssignable( IType to, IType from ) {
+    if( !(from instanceof CompoundType) && !to.isParameterizedType() && !to.isGenericType() )
+    {
+      // Not a generic case, see areGenericOrParameterizedTypesAssignableInternal(); skip the cache
+      return false;
+    }
     return ASSIGNABILITY_CACHE.get(Pair.make(to, from));
   }
 
@@ -21,6 +21,7 @@ import gw.lang.reflect.ITypeRef;
 import gw.lang.reflect.ITypeRefFactory;
 import gw.lang.reflect.RefreshKind;
 import gw.lang.reflect.TypeSystem;
+import gw.lang.reflect.gs.BytecodeOptions;
 import gw.lang.reflect.gs.IGosuClass;
 import gw.lang.reflect.gs.IGosuObject;
 import gw.lang.reflect.java.IJavaBackedType;
@@ -167,7 +168,7 @@ public class TypeRefFactory implements ITypeRefFactory
   }
 
   private Class<? extends AbstractTypeRef> generateProxyClass(Class<? extends IType> typeClass) {
-    ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    ClassWriter writer = new ClassWriter(BytecodeOptions.isComputeFrames() ? ClassWriter.COMPUTE_FRAMES : ClassWriter.COMPUTE_MAXS);
     ClassVisitor cv = writer;
     StringWriter trace = null;
     if (TRACE) {
@@ -221,7 +222,7 @@ public class TypeRefFactory implements ITypeRefFactory
   }
 
   private void compileHeader(ClassVisitor cv, String name, List<Class> interfaces) {
-     cv.visit( JAVA_VER,
+     cv.visit( BytecodeOptions.isComputeFrames() ? BytecodeOptions.getClassFileVersion() : JAVA_VER,
                Opcodes.ACC_PUBLIC,
                name.replace( '.', '/' ),
                null,
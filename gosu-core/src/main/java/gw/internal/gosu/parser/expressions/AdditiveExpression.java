@@ -264,4 +264,12 @@ public final class AdditiveExpression extends ArithmeticExpression implements IA
     }
   }
 
+  /**
+   * Converts an operand of a compiled string concatenation the same way evaluate() does.
+   */
+  public static String makeStringFrom( Object value )
+  {
+    return CommonServices.getCoercionManager().makeStringFrom( value );
+  }
+
 }
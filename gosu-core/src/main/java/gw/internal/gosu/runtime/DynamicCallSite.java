@@ -0,0 +1,295 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.internal.gosu.runtime;
+
+import gw.lang.reflect.IExpando;
+import gw.lang.reflect.IMethodInfo;
+import gw.lang.reflect.IPlaceholder;
+import gw.lang.reflect.IPropertyInfo;
+import gw.lang.reflect.IRelativeTypeInfo;
+import gw.lang.reflect.IType;
+import gw.lang.reflect.ITypeInfo;
+import gw.lang.reflect.ReflectUtil;
+import gw.lang.reflect.TypeSystem;
+import gw.lang.reflect.java.JavaTypes;
+
+/**
+ * A call site for a reflective member access i.e., a property get/set or a method call on a dynamic,
+ * placeholder or structure-typed receiver. Each site in generated code holds one of these in a
+ * synthetic static field and dispatches through it instead of through the static methods on
+ * {@link GosuRuntimeMethods}.
+ * <p/>
+ * The site keeps an inline cache of the members it resolved keyed on the runtime type of the
+ * receiver (and on the runtime types of the arguments for dynamic method calls). A site starts out
+ * empty, becomes monomorphic after the first call, polymorphic as more receiver types are seen
+ * and, once more than {@link #MAX_POLYMORPHIC_ENTRIES} types are seen, megamorphic -- from then on
+ * it always takes the slow path in {@link GosuRuntimeMethods}. The cache is discarded when the
+ * type system refreshes.
+ */
+public final class DynamicCallSite
+{
+  public static final int MAX_POLYMORPHIC_ENTRIES = 4;
+
+  private static final Entry[] EMPTY = new Entry[0];
+
+  private final String _strName;
+  private volatile Entry[] _entries;
+  private volatile boolean _bMegamorphic;
+  private volatile int _iRefreshChecksum;
+
+  /**
+   * Called once per site from generated code to create the site.
+   */
+  public static DynamicCallSite bootstrap( String strMemberName )
+  {
+    return new DynamicCallSite( strMemberName );
+  }
+
+  private DynamicCallSite( String strMemberName )
+  {
+    _strName = strMemberName;
+    _entries = EMPTY;
+    _iRefreshChecksum = TypeSystem.getSingleRefreshChecksum();
+  }
+
+  public String getMemberName()
+  {
+    return _strName;
+  }
+
+  public boolean isMegamorphic()
+  {
+    return _bMegamorphic;
+  }
+
+  int getEntryCount()
+  {
+    return _entries.length;
+  }
+
+  public Object getPropertyDynamically( Object root )
+  {
+    if( root == null )
+    {
+      throw new NullPointerException();
+    }
+    return getProperty( root, TypeSystem.getFromObject( root ) );
+  }
+
+  public Object getProperty( Object root, IType type )
+  {
+    if( root instanceof IExpando || !isCaching() )
+    {
+      return GosuRuntimeMethods.getProperty( root, type, _strName );
+    }
+
+    if( GosuRuntimeMethods.isDynamic( type ) )
+    {
+      type = TypeSystem.getFromObject( root );
+    }
+
+    Entry entry = findEntry( type, null );
+    if( entry == null )
+    {
+      IPropertyInfo pi = ReflectUtil.findProperty( type, _strName );
+      if( pi == null )
+      {
+        // The property may come from the receiver's runtime type or from $getMissingProperty; neither is cacheable
+        return GosuRuntimeMethods.getProperty( root, type, _strName );
+      }
+      entry = addEntry( new Entry( type, null, GosuRuntimeMethods.findDispatchMethod( type, "$getProperty", JavaTypes.STRING() ), pi, null ) );
+    }
+
+    Object ret = GosuRuntimeMethods.invokePropertyGetter( entry._dispatch, root, _strName );
+    if( ret != IPlaceholder.UNHANDLED )
+    {
+      return ret;
+    }
+    return entry._property.getAccessor().getValue( root );
+  }
+
+  public void setPropertyDynamically( Object root, Object value )
+  {
+    if( root == null )
+    {
+      throw new NullPointerException();
+    }
+    setProperty( root, TypeSystem.getFromObject( root ), value );
+  }
+
+  public void setProperty( Object root, IType type, Object value )
+  {
+    if( root instanceof IExpando || !isCaching() )
+    {
+      GosuRuntimeMethods.setProperty( root, type, _strName, value );
+      return;
+    }
+
+    if( GosuRuntimeMethods.isDynamic( type ) )
+    {
+      type = TypeSystem.getFromObject( root );
+    }
+
+    Entry entry = findEntry( type, null );
+    if( entry == null )
+    {
+      IPropertyInfo pi = ReflectUtil.findProperty( type, _strName );
+      if( pi == null )
+      {
+        GosuRuntimeMethods.setProperty( root, type, _strName, value );
+        return;
+      }
+      entry = addEntry( new Entry( type, null, GosuRuntimeMethods.findDispatchMethod( type, "$setProperty", JavaTypes.STRING(), JavaTypes.OBJECT() ), pi, null ) );
+    }
+
+    Object ret = GosuRuntimeMethods.invokePropertySetter( entry._dispatch, root, _strName );
+    if( ret != IPlaceholder.UNHANDLED )
+    {
+      return;
+    }
+    entry._property.getAccessor().setValue( root, value );
+  }
+
+  public Object invokeMethodInfo( IType type, IType[] parameterTypes, Object root, Object[] args )
+  {
+    if( root instanceof IExpando || !isCaching() )
+    {
+      return GosuRuntimeMethods.invokeMethodInfo( type, _strName, parameterTypes, root, args );
+    }
+
+    boolean bDynamicType = GosuRuntimeMethods.isDynamic( type );
+    IType[] argTypes;
+    if( bDynamicType )
+    {
+      type = TypeSystem.getFromObject( root );
+      argTypes = ReflectUtil.extractRuntimeTypes( args );
+    }
+    else
+    {
+      argTypes = GosuRuntimeMethods.replaceDynamicTypesWithRuntimeTypes( parameterTypes, args );
+    }
+
+    Entry entry = findEntry( type, argTypes );
+    if( entry == null )
+    {
+      IMethodInfo method;
+      if( bDynamicType )
+      {
+        method = ReflectUtil.findCallableMethod( _strName, argTypes, type );
+      }
+      else
+      {
+        ITypeInfo typeInfo = type.getTypeInfo();
+        method = typeInfo instanceof IRelativeTypeInfo
+                 ? ((IRelativeTypeInfo)typeInfo).getMethod( type, _strName, argTypes )
+                 : typeInfo.getMethod( _strName, argTypes );
+      }
+      if( method == null )
+      {
+        // Leave $invokeMissingMethod handling to the slow path
+        return GosuRuntimeMethods.invokeMethodInfo( type, _strName, parameterTypes, root, args );
+      }
+      entry = addEntry( new Entry( type, argTypes, GosuRuntimeMethods.findDispatchMethod( type, "$invokeMethod", JavaTypes.STRING(), JavaTypes.OBJECT().getArrayType() ), null, method ) );
+    }
+
+    Object ret = GosuRuntimeMethods.invokeMethodInvoker( entry._dispatch, root, _strName, args );
+    if( ret != IPlaceholder.UNHANDLED )
+    {
+      return ret;
+    }
+    if( bDynamicType )
+    {
+      args = ReflectUtil.coerceArgsIfNecessary( entry._method.getParameters(), args );
+    }
+    return entry._method.getCallHandler().handleCall( root, args );
+  }
+
+  private boolean isCaching()
+  {
+    int iChecksum = TypeSystem.getSingleRefreshChecksum();
+    if( iChecksum != _iRefreshChecksum )
+    {
+      // Resolved members may be stale after a refresh, start over
+      _entries = EMPTY;
+      _bMegamorphic = false;
+      _iRefreshChecksum = iChecksum;
+    }
+    return !_bMegamorphic;
+  }
+
+  private Entry findEntry( IType type, IType[] argTypes )
+  {
+    Entry[] entries = _entries;
+    //noinspection ForLoopReplaceableByForEach
+    for( int i = 0; i < entries.length; i++ )
+    {
+      Entry entry = entries[i];
+      if( entry.matches( type, argTypes ) )
+      {
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  private Entry addEntry( Entry entry )
+  {
+    // Copy-on-write, losing an entry to a racing thread only costs another lookup
+    Entry[] entries = _entries;
+    if( entries.length == MAX_POLYMORPHIC_ENTRIES )
+    {
+      _bMegamorphic = true;
+      _entries = EMPTY;
+      return entry;
+    }
+    Entry[] newEntries = new Entry[entries.length + 1];
+    System.arraycopy( entries, 0, newEntries, 0, entries.length );
+    newEntries[entries.length] = entry;
+    _entries = newEntries;
+    return entry;
+  }
+
+  private static final class Entry
+  {
+    private final IType _type;
+    private final IType[] _argTypes;
+    private final IMethodInfo _dispatch;
+    private final IPropertyInfo _property;
+    private final IMethodInfo _method;
+
+    private Entry( IType type, IType[] argTypes, IMethodInfo dispatch, IPropertyInfo property, IMethodInfo method )
+    {
+      _type = type;
+      _argTypes = argTypes == null ? null : argTypes.clone();
+      _dispatch = dispatch;
+      _property = property;
+      _method = method;
+    }
+
+    private boolean matches( IType type, IType[] argTypes )
+    {
+      if( _type != type )
+      {
+        return false;
+      }
+      if( _argTypes == argTypes )
+      {
+        return true;
+      }
+      if( _argTypes == null || argTypes == null || _argTypes.length != argTypes.length )
+      {
+        return false;
+      }
+      for( int i = 0; i < argTypes.length; i++ )
+      {
+        if( _argTypes[i] != argTypes[i] )
+        {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
@@ -57,7 +57,7 @@ public class GosuRuntimeMethods {
     return propertyInfo.getAccessor().getValue( root );
   }
 
-  private static boolean isDynamic( IType type )
+  static boolean isDynamic( IType type )
   {
     return (type instanceof IPlaceholder && ((IPlaceholder)type).isPlaceholder()) ||
            (type instanceof IGosuClass && ((IGosuClass)type).isStructure());
@@ -65,16 +65,11 @@ public class GosuRuntimeMethods {
 
   private static Object invokePropertyGetter( String dispatchName, Object root, IType type, String propertyName )
   {
-    ITypeInfo typeInfo = type.getTypeInfo();
-    IMethodInfo method;
-    if( typeInfo instanceof IRelativeTypeInfo )
-    {
-      method = ((IRelativeTypeInfo) typeInfo).getMethod( type, dispatchName, JavaTypes.STRING() );
-    }
-    else
-    {
-      method = typeInfo.getMethod( dispatchName, JavaTypes.STRING() );
-    }
+    return invokePropertyGetter( findDispatchMethod( type, dispatchName, JavaTypes.STRING() ), root, propertyName );
+  }
+
+  static Object invokePropertyGetter( IMethodInfo method, Object root, String propertyName )
+  {
     return method == null
            ? IPlaceholder.UNHANDLED
            : method.getCallHandler().handleCall( root, propertyName );
@@ -121,16 +116,11 @@ public class GosuRuntimeMethods {
 
   private static Object invokePropertySetter( String dispatchName, Object root, IType type, String propertyName, Object... args )
   {
-    ITypeInfo typeInfo = type.getTypeInfo();
-    IMethodInfo method;
-    if( typeInfo instanceof IRelativeTypeInfo )
-    {
-      method = ((IRelativeTypeInfo) typeInfo).getMethod( type, dispatchName, JavaTypes.STRING(), JavaTypes.OBJECT() );
-    }
-    else
-    {
-      method = typeInfo.getMethod( dispatchName, JavaTypes.STRING(), JavaTypes.OBJECT() );
-    }
+    return invokePropertySetter( findDispatchMethod( type, dispatchName, JavaTypes.STRING(), JavaTypes.OBJECT() ), root, propertyName, args );
+  }
+
+  static Object invokePropertySetter( IMethodInfo method, Object root, String propertyName, Object... args )
+  {
     return method == null
            ? IPlaceholder.UNHANDLED
            : method.getCallHandler().handleCall( root, propertyName, args );
@@ -252,7 +242,7 @@ public class GosuRuntimeMethods {
     return method.getCallHandler().handleCall( root, args );
   }
 
-  private static IType[] replaceDynamicTypesWithRuntimeTypes( IType[] parameterTypes, Object[] args ) {
+  static IType[] replaceDynamicTypesWithRuntimeTypes( IType[] parameterTypes, Object[] args ) {
     if( parameterTypes ==  null ) {
       return null;
     }
@@ -271,20 +261,25 @@ public class GosuRuntimeMethods {
   }
 
   private static Object invokeMethodInvoker( String dispatchName, Object root, IType type, String methodName, Object... args )
+  {
+    return invokeMethodInvoker( findDispatchMethod( type, dispatchName, JavaTypes.STRING(), JavaTypes.OBJECT().getArrayType() ), root, methodName, args );
+  }
+
+  static Object invokeMethodInvoker( IMethodInfo method, Object root, String methodName, Object... args )
+  {
+    return method == null
+           ? IPlaceholder.UNHANDLED
+           : method.getCallHandler().handleCall( root, methodName, args );
+  }
+
+  static IMethodInfo findDispatchMethod( IType type, String dispatchName, IType... paramTypes )
   {
     ITypeInfo typeInfo = type.getTypeInfo();
-    IMethodInfo method;
     if( typeInfo instanceof IRelativeTypeInfo )
     {
-      method = ((IRelativeTypeInfo)typeInfo).getMethod( type, dispatchName, JavaTypes.STRING(), JavaTypes.OBJECT().getArrayType() );
+      return ((IRelativeTypeInfo)typeInfo).getMethod( type, dispatchName, paramTypes );
     }
-    else
-    {
-      method = typeInfo.getMethod( dispatchName, JavaTypes.STRING(), JavaTypes.OBJECT().getArrayType() );
-    }
-    return method == null
-           ? IPlaceholder.UNHANDLED
-           : method.getCallHandler().handleCall( root, methodName, args );
+    return typeInfo.getMethod( dispatchName, paramTypes );
   }
 
   public static Class lookUpClass( String className ) {
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.internal.gosu;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * File helpers for the tests of the on-disk caches.
+ */
+public class TempFiles {
+
+  private TempFiles() {
+  }
+
+  public static File createTempDir(String prefix) throws IOException {
+    File dir = File.createTempFile(prefix, "");
+    dir.delete();
+    dir.mkdirs();
+    return dir;
+  }
+
+  public static void write(File file, String content) throws IOException {
+    file.getParentFile().mkdirs();
+    OutputStream out = new FileOutputStream(file);
+    try {
+      out.write(content.getBytes("UTF-8"));
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Writes the file and moves its timestamp forward, so a change is seen even within the file
+   * system's timestamp resolution
+   */
+  public static void rewrite(File file, String content) throws IOException {
+    long lastModified = file.lastModified();
+    write(file, content);
+    if (!file.setLastModified(lastModified + 2000)) {
+      throw new IOException("Cannot set the timestamp of " + file);
+    }
+  }
+
+  public static void delete(File file) {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        delete(child);
+      }
+    }
+    file.delete();
+  }
+}
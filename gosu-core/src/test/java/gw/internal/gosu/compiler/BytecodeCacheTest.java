@@ -0,0 +1,162 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.internal.gosu.compiler;
+
+import gw.lang.Gosu;
+import gw.lang.reflect.TypeSystem;
+import gw.lang.reflect.gs.IGosuClass;
+import junit.framework.Assert;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import static gw.internal.gosu.TempFiles.createTempDir;
+import static gw.internal.gosu.TempFiles.delete;
+import static gw.internal.gosu.TempFiles.write;
+
+public class BytecodeCacheTest extends Assert {
+
+  private static final String LIB = "package cached\n\nclass Lib {\n  function value() : int {\n    return 1\n  }\n}\n";
+  private static final String USER = "package cached\n\nclass User {\n  function use() : int {\n    return new Lib().value()\n  }\n}\n";
+
+  private static File _root;
+  private static File _src;
+  private static File _classes;
+  private static byte[] _libBytes;
+  private static byte[] _userBytes;
+
+  private File _dir;
+
+  @BeforeClass
+  public static void beforeTestClass() throws IOException {
+    _root = createTempDir("bytecodecache");
+    _src = new File(_root, "src");
+    write(new File(_src, "cached/Lib.gs"), LIB);
+    write(new File(_src, "cached/User.gs"), USER);
+    _classes = new File(_root, "classes");
+    write(new File(_classes, "j/Helper.class"), "helper");
+    Gosu.init(Arrays.asList(_src, _classes));
+    _libBytes = TypeSystem.getGosuClassLoader().getBytes((IGosuClass)TypeSystem.getByFullName("cached.Lib"));
+    _userBytes = TypeSystem.getGosuClassLoader().getBytes((IGosuClass)TypeSystem.getByFullName("cached.User"));
+  }
+
+  @AfterClass
+  public static void afterTestClass() {
+    delete(_root);
+  }
+
+  @Before
+  public void setUp() throws IOException {
+    _dir = new File(_root, "cache" + System.nanoTime());
+    write(new File(_src, "cached/Lib.gs"), LIB);
+  }
+
+  @After
+  public void tearDown() {
+    delete(_dir);
+  }
+
+  @Test
+  public void entriesSurviveAcrossInstances() {
+    BytecodeCache cache = new BytecodeCache(_dir);
+    assertNull(cache.load("cached/Lib"));
+    cache.store("cached/Lib", _libBytes);
+    cache.store("cached/User", _userBytes);
+    assertTrue(Arrays.equals(_libBytes, cache.load("cached/Lib")));
+
+    // As in the next run
+    BytecodeCache next = new BytecodeCache(_dir);
+    assertTrue(Arrays.equals(_libBytes, next.load("cached/Lib")));
+    assertTrue(Arrays.equals(_userBytes, next.load("cached/User")));
+    assertEquals(2, next.getHitCount());
+    assertEquals(0, next.getMissCount());
+  }
+
+  @Test
+  public void changedSourceInvalidatesTheEntryAndItsDependents() throws IOException {
+    BytecodeCache cache = new BytecodeCache(_dir);
+    cache.store("cached/Lib", _libBytes);
+    cache.store("cached/User", _userBytes);
+
+    write(new File(_src, "cached/Lib.gs"), LIB.replace("return 1", "return 2"));
+    BytecodeCache next = new BytecodeCache(_dir);
+    assertNull(next.load("cached/User"));
+    assertNull(next.load("cached/Lib"));
+    assertEquals(2, next.getMissCount());
+    assertFalse(new File(_dir, "cached.Lib.gbc").exists());
+    assertFalse(new File(_dir, "cached.User.gbc").exists());
+    assertTrue(next.getStatistics().contains("2 invalidated"));
+  }
+
+  @Test
+  public void truncatedEntryIsRecompiled() throws IOException {
+    new BytecodeCache(_dir).store("cached/Lib", _libBytes);
+    File entry = new File(_dir, "cached.Lib.gbc");
+    RandomAccessFile file = new RandomAccessFile(entry, "rw");
+    try {
+      file.setLength(file.length() / 2);
+    } finally {
+      file.close();
+    }
+
+    BytecodeCache next = new BytecodeCache(_dir);
+    assertNull(next.load("cached/Lib"));
+    assertFalse(entry.exists());
+    next.store("cached/Lib", _libBytes);
+    assertTrue(Arrays.equals(_libBytes, next.load("cached/Lib")));
+  }
+
+  @Test
+  public void corruptEntryIsRecompiled() throws IOException {
+    new BytecodeCache(_dir).store("cached/Lib", _libBytes);
+    File entry = new File(_dir, "cached.Lib.gbc");
+    write(entry, "not a cache entry");
+
+    BytecodeCache next = new BytecodeCache(_dir);
+    assertNull(next.load("cached/Lib"));
+    assertFalse(entry.exists());
+  }
+
+  @Test
+  public void changedEnvironmentDropsTheCache() throws IOException {
+    new BytecodeCache(_dir).store("cached/Lib", _libBytes);
+    OutputStream out = new FileOutputStream(new File(_dir, "environment"));
+    try {
+      out.write(new byte[]{0, 5, 'o', 't', 'h', 'e', 'r'});
+    } finally {
+      out.close();
+    }
+
+    BytecodeCache next = new BytecodeCache(_dir);
+    assertNull(next.load("cached/Lib"));
+    assertFalse(new File(_dir, "cached.Lib.gbc").exists());
+  }
+
+  @Test
+  public void changedClassFileInAClassPathDirectoryDropsTheCache() throws IOException {
+    new BytecodeCache(_dir).store("cached/Lib", _libBytes);
+
+    // Only a file below the directory changes, not the directory itself
+    File helper = new File(_classes, "j/Helper.class");
+    long lastModified = _classes.lastModified();
+    write(helper, "changed helper");
+    assertTrue(helper.setLastModified(helper.lastModified() + 2000));
+    assertTrue(new File(_classes, "j").setLastModified(lastModified));
+    assertTrue(_classes.setLastModified(lastModified));
+
+    BytecodeCache next = new BytecodeCache(_dir);
+    assertNull(next.load("cached/Lib"));
+    assertFalse(new File(_dir, "cached.Lib.gbc").exists());
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.internal.gosu.compiler;
+
+import gw.internal.gosu.ir.TransformingCompiler;
+import gw.lang.reflect.IType;
+import gw.lang.reflect.TypeSystem;
+import gw.lang.reflect.gs.BytecodeOptions;
+import gw.lang.reflect.gs.ICompilableType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures what stack map frames and the class file version cost and save: for each configuration
+ * it compiles the given Gosu classes, defines them in a throwaway loader and links them, which is
+ * when the JVM verifies them. The classes are not initialized, so no static code runs.
+ * <p/>
+ * Run it with gosu-core's test classes on the class path, in a JVM with an initialized type system
+ * e.g., from a Gosu program:
+ * <pre>
+ *   print( gw.internal.gosu.compiler.ClassVerificationBenchmark.run( {"foo.Bar", "foo.Baz"}, 20 ) )
+ * </pre>
+ */
+public class ClassVerificationBenchmark
+{
+  private static final Object[][] CONFIGURATIONS = {
+    {"Java 6, no frames", false, 50},
+    {"Java 6, frames", true, 50},
+    {"Java 8, frames", true, 52},
+  };
+
+  private ClassVerificationBenchmark()
+  {
+  }
+
+  /**
+   * @param typeNames The Gosu classes to compile and verify
+   * @param iIterations The number of times each configuration runs, after one warm-up run
+   * @return A report of the average time per iteration to compile, define and verify the classes
+   */
+  public static String run( List<String> typeNames, int iIterations )
+  {
+    List<ICompilableType> types = new ArrayList<ICompilableType>();
+    for( String typeName : typeNames )
+    {
+      IType type = TypeSystem.getByFullName( typeName );
+      if( !(type instanceof ICompilableType) || !type.isValid() )
+      {
+        throw new IllegalArgumentException( typeName + " is not a valid Gosu class" );
+      }
+      types.add( (ICompilableType)type );
+    }
+
+    boolean bComputeFrames = BytecodeOptions.isComputeFrames();
+    int iVersion = BytecodeOptions.getClassFileVersion();
+    StringBuilder report = new StringBuilder();
+    report.append( String.format( "%-20s %12s %12s %12s%n", "", "compile ms", "define ms", "verify ms" ) );
+    try
+    {
+      for( Object[] config : CONFIGURATIONS )
+      {
+        BytecodeOptions.setComputeFrames( (Boolean)config[1] );
+        BytecodeOptions.setClassFileVersion( (Integer)config[2] );
+        long[] times = new long[3];
+        measure( types, new long[3] );
+        for( int i = 0; i < iIterations; i++ )
+        {
+          measure( types, times );
+        }
+        report.append( String.format( "%-20s %12.3f %12.3f %12.3f%n", config[0],
+                                      toMillis( times[0], iIterations ),
+                                      toMillis( times[1], iIterations ),
+                                      toMillis( times[2], iIterations ) ) );
+      }
+    }
+    finally
+    {
+      BytecodeOptions.setComputeFrames( bComputeFrames );
+      BytecodeOptions.setClassFileVersion( iVersion );
+    }
+    return report.toString();
+  }
+
+  private static void measure( List<ICompilableType> types, long[] times )
+  {
+    List<byte[]> classBytes = new ArrayList<byte[]>();
+    long start = System.nanoTime();
+    for( ICompilableType type : types )
+    {
+      classBytes.add( TransformingCompiler.compileClass( type, false ) );
+    }
+    times[0] += System.nanoTime() - start;
+
+    ThrowawayLoader loader = new ThrowawayLoader( TypeSystem.getGosuClassLoader().getActualLoader() );
+    List<Class> classes = new ArrayList<Class>();
+    start = System.nanoTime();
+    for( int i = 0; i < types.size(); i++ )
+    {
+      classes.add( loader.define( GosuClassLoader.getJavaName( types.get( i ) ), classBytes.get( i ) ) );
+    }
+    times[1] += System.nanoTime() - start;
+
+    start = System.nanoTime();
+    for( Class cls : classes )
+    {
+      // Links the class, which verifies it
+      cls.getDeclaredMethods();
+    }
+    times[2] += System.nanoTime() - start;
+  }
+
+  private static double toMillis( long nanos, int iIterations )
+  {
+    return iIterations == 0 ? 0 : nanos / 1e6 / iIterations;
+  }
+
+  private static class ThrowawayLoader extends ClassLoader
+  {
+    ThrowawayLoader( ClassLoader parent )
+    {
+      super( parent );
+    }
+
+    Class define( String name, byte[] bytes )
+    {
+      return defineClass( name, bytes, 0, bytes.length );
+    }
+  }
+}
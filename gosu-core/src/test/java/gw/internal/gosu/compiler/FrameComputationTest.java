@@ -0,0 +1,143 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.internal.gosu.compiler;
+
+import gw.internal.gosu.parser.GosuFragmentParser;
+import gw.lang.Gosu;
+import gw.lang.parser.GosuParserFactory;
+import gw.lang.parser.ParserOptions;
+import gw.lang.parser.StandardSymbolTable;
+import gw.lang.reflect.TypeSystem;
+import gw.lang.reflect.gs.BytecodeOptions;
+import gw.lang.reflect.gs.ICompilableType;
+import gw.lang.reflect.gs.IGosuClass;
+import gw.lang.reflect.gs.IGosuFragment;
+import gw.lang.reflect.gs.IGosuProgram;
+import gw.lang.reflect.gs.IProgramInstance;
+import junit.framework.Assert;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+
+import static gw.internal.gosu.TempFiles.createTempDir;
+import static gw.internal.gosu.TempFiles.delete;
+import static gw.internal.gosu.TempFiles.write;
+
+/**
+ * Compiles with stack map frames for Java 8 class files, which the JVM verifies with the type
+ * checking verifier and no fallback, so a wrong frame fails to load.
+ */
+public class FrameComputationTest extends Assert {
+
+  private static final String SHAPES =
+    "package frames\n" +
+    "\n" +
+    "class Shapes {\n" +
+    "  static class Shape {\n" +
+    "    function area() : int {\n" +
+    "      return 0\n" +
+    "    }\n" +
+    "  }\n" +
+    "  static class Square extends Shape {\n" +
+    "    override function area() : int {\n" +
+    "      return 4\n" +
+    "    }\n" +
+    "  }\n" +
+    "  static class Circle extends Shape {\n" +
+    "    override function area() : int {\n" +
+    "      return 3\n" +
+    "    }\n" +
+    "  }\n" +
+    "  class Named {\n" +
+    "    var _name : String\n" +
+    "    construct( name : String ) {\n" +
+    "      _name = name\n" +
+    "    }\n" +
+    "    property get Name() : String {\n" +
+    "      return _name\n" +
+    "    }\n" +
+    "  }\n" +
+    "\n" +
+    "  function pick( square : boolean ) : int {\n" +
+    "    var shape = square ? new Square() : new Circle()\n" +
+    "    return shape.area()\n" +
+    "  }\n" +
+    "\n" +
+    "  function name( named : boolean ) : String {\n" +
+    "    var n = named ? new Named( \"a\" ) : null\n" +
+    "    var f = named ? \\ -> n.Name : \\ -> \"none\"\n" +
+    "    return f()\n" +
+    "  }\n" +
+    "}\n";
+
+  private static File _root;
+  private static boolean _bOldComputeFrames;
+  private static int _iOldVersion;
+
+  @BeforeClass
+  public static void beforeTestClass() throws IOException {
+    _root = createTempDir("frames");
+    write(new File(_root, "frames/Shapes.gs"), SHAPES);
+    _bOldComputeFrames = BytecodeOptions.isComputeFrames();
+    _iOldVersion = BytecodeOptions.getClassFileVersion();
+    BytecodeOptions.setComputeFrames(true);
+    BytecodeOptions.setClassFileVersion(52);
+    Gosu.init(Collections.singletonList(_root));
+  }
+
+  @AfterClass
+  public static void afterTestClass() {
+    BytecodeOptions.setComputeFrames(_bOldComputeFrames);
+    BytecodeOptions.setClassFileVersion(_iOldVersion);
+    delete(_root);
+  }
+
+  @Test
+  public void classWithInnerClassesAndBlocksLoads() throws Exception {
+    IGosuClass gsClass = (IGosuClass)TypeSystem.getByFullName("frames.Shapes");
+    assertEquals(52, getClassFileVersion(gsClass));
+
+    Class cls = gsClass.getBackingClass();
+    Object shapes = cls.newInstance();
+    assertEquals(4, cls.getMethod("pick", boolean.class).invoke(shapes, true));
+    assertEquals(3, cls.getMethod("pick", boolean.class).invoke(shapes, false));
+    assertEquals("a", cls.getMethod("name", boolean.class).invoke(shapes, true));
+    assertEquals("none", cls.getMethod("name", boolean.class).invoke(shapes, false));
+  }
+
+  @Test
+  public void programWithBlocksLoads() throws Exception {
+    IGosuProgram program = GosuParserFactory.createProgramParser().parseProgramOnly(
+      "var result = \"\"\n" +
+      "for( i in 0..1 ) {\n" +
+      "  var f = i == 0 ? \\ -> \"a\" : \\ -> \"b\"\n" +
+      "  result += f()\n" +
+      "}\n" +
+      "return result\n",
+      null, new ParserOptions()).getProgram();
+    assertTrue(program.isValid());
+    assertEquals(52, getClassFileVersion(program));
+
+    IProgramInstance instance = (IProgramInstance)program.getBackingClass().newInstance();
+    assertEquals("ab", instance.evaluate(null));
+  }
+
+  @Test
+  public void fragmentWithBlocksLoads() throws Exception {
+    IGosuFragment fragment = GosuFragmentParser.getInstance().parseExpressionOnly(
+      "{0, 1}.map( \\ i -> i == 0 ? \\ -> \"a\" : \\ -> \"b\" ).map( \\ f -> f() ).join( \"\" )",
+      new StandardSymbolTable(true), new ParserOptions());
+    assertEquals("ab", fragment.evaluate(null));
+  }
+
+  private static int getClassFileVersion(ICompilableType type) {
+    byte[] bytes = TypeSystem.getGosuClassLoader().getBytes(type);
+    return ((bytes[6] & 0xFF) << 8) | (bytes[7] & 0xFF);
+  }
+}
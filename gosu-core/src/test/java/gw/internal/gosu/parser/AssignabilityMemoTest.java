@@ -0,0 +1,168 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.internal.gosu.parser;
+
+import gw.lang.Gosu;
+import gw.lang.reflect.IType;
+import gw.lang.reflect.TypeSystem;
+import gw.lang.reflect.gs.IGosuClass;
+import gw.lang.reflect.gs.IGosuProgram;
+import gw.util.Pair;
+import junit.framework.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+public class AssignabilityMemoTest extends Assert {
+
+  private static final Class[] CLASSES = {
+    Object.class, String.class, CharSequence.class, Comparable.class, Serializable.class, Number.class,
+    Integer.class, Collection.class, List.class, AbstractList.class, ArrayList.class, RandomAccess.class
+  };
+
+  @BeforeClass
+  public static void beforeTestClass() {
+    Gosu.init();
+  }
+
+  @Test
+  public void storedResultIsReturnedForTheSameTypeOnly() {
+    AssignabilityMemo memo = new AssignabilityMemo();
+    IType string = TypeSystem.get(String.class);
+    memo.put(string, true, AssignabilityMemo.getEpoch());
+    assertEquals(Boolean.TRUE, memo.get(string));
+    assertNull(memo.get(TypeSystem.get(Integer.class)));
+  }
+
+  @Test
+  public void refreshInvalidatesTheMemo() {
+    AssignabilityMemo memo = new AssignabilityMemo();
+    IType string = TypeSystem.get(String.class);
+    int iEpoch = AssignabilityMemo.getEpoch();
+    memo.put(string, true, iEpoch);
+    TypeSystem.refresh(true);
+    assertNull(memo.get(string));
+
+    // A result computed across the refresh is discarded too
+    memo.put(string, true, iEpoch);
+    assertNull(memo.get(string));
+  }
+
+  @Test
+  public void unloadDropsTheMemoOfTheType() throws Exception {
+    IType charSequence = TypeSystem.get(CharSequence.class);
+    assertTrue(charSequence.isAssignableFrom(TypeSystem.get(String.class)));
+    IType javaType = charSequence instanceof AbstractTypeRef ? ((AbstractTypeRef)charSequence)._getType() : charSequence;
+    assertNotNull(getMemo(javaType));
+    charSequence.unloadTypeInfo();
+    assertNull(getMemo(javaType));
+  }
+
+  @Test
+  public void memoDoesNotKeepTheTypeReachable() {
+    AssignabilityMemo memo = new AssignabilityMemo();
+    IType type = fakeType(IType.class, true);
+    WeakReference<IType> ref = new WeakReference<IType>(type);
+    memo.put(type, true, AssignabilityMemo.getEpoch());
+    type = null;
+    for (int i = 0; i < 50 && ref.get() != null; i++) {
+      System.gc();
+    }
+    assertNull(ref.get());
+  }
+
+  @Test
+  public void programsAndUncompiledHeadersAreNotMemoized() {
+    AssignabilityMemo memo = new AssignabilityMemo();
+    int iEpoch = AssignabilityMemo.getEpoch();
+
+    IType program = fakeType(IGosuProgram.class, true);
+    memo.put(program, true, iEpoch);
+    assertNull(memo.get(program));
+
+    IType uncompiled = fakeType(IGosuClass.class, false);
+    memo.put(uncompiled, true, iEpoch);
+    assertNull(memo.get(uncompiled));
+
+    IType compiled = fakeType(IGosuClass.class, true);
+    memo.put(compiled, true, iEpoch);
+    assertEquals(Boolean.TRUE, memo.get(compiled));
+  }
+
+  @Test
+  public void memoizedResultsMatchTheJavaClasses() {
+    for (int i = 0; i < 2; i++) {
+      // The second time from the memo
+      for (Class to : CLASSES) {
+        for (Class from : CLASSES) {
+          assertEquals(to.getName() + " from " + from.getName(),
+                       to.isAssignableFrom(from), TypeSystem.get(to).isAssignableFrom(TypeSystem.get(from)));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void memoizedResultsMatchForParameterizedTypes() {
+    IType listOfString = TypeSystem.getByFullName("java.util.List<java.lang.String>");
+    IType arrayListOfString = TypeSystem.getByFullName("java.util.ArrayList<java.lang.String>");
+    IType arrayListOfInteger = TypeSystem.getByFullName("java.util.ArrayList<java.lang.Integer>");
+    for (int i = 0; i < 2; i++) {
+      assertTrue(listOfString.isAssignableFrom(arrayListOfString));
+      assertFalse(listOfString.isAssignableFrom(arrayListOfInteger));
+    }
+  }
+
+  @Test
+  public void shortCircuitMatchesTheCachedAnswer() {
+    for (Class to : CLASSES) {
+      for (Class from : CLASSES) {
+        IType toType = TypeSystem.get(to);
+        IType fromType = TypeSystem.get(from);
+        assertEquals(to.getName() + " from " + from.getName(),
+                     (boolean)TypeLord.ASSIGNABILITY_CACHE.get(Pair.make(toType, fromType)),
+                     TypeLord.areGenericOrParameterizedTypesAssignable(toType, fromType));
+      }
+    }
+  }
+
+  private static AssignabilityMemo getMemo(IType type) throws Exception {
+    Field field = JavaType.class.getDeclaredField("_assignabilityMemo");
+    field.setAccessible(true);
+    return (AssignabilityMemo)field.get(type);
+  }
+
+  /**
+   * @return A type of the given kind, only good as a memo key
+   */
+  private static IType fakeType(Class<? extends IType> kind, final boolean bHeaderCompiled) {
+    return (IType)Proxy.newProxyInstance(AssignabilityMemoTest.class.getClassLoader(), new Class[]{kind},
+      new InvocationHandler() {
+        public Object invoke(Object proxy, Method method, Object[] args) {
+          if (method.getName().equals("isHeaderCompiled")) {
+            return bHeaderCompiled;
+          }
+          if (method.getName().equals("equals")) {
+            return proxy == args[0];
+          }
+          if (method.getName().equals("hashCode")) {
+            return System.identityHashCode(proxy);
+          }
+          return null;
+        }
+      });
+  }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.internal.gosu.parser;
+
+import gw.config.CommonServices;
+import gw.fs.IDirectory;
+import gw.lang.Gosu;
+import gw.lang.reflect.TypeSystem;
+import gw.lang.reflect.gs.BytecodeOptions;
+import junit.framework.Assert;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+
+import static gw.internal.gosu.TempFiles.createTempDir;
+import static gw.internal.gosu.TempFiles.delete;
+import static gw.internal.gosu.TempFiles.write;
+
+public class ClassPathIndexFileTest extends Assert {
+
+  private static File _root;
+  private static String _oldCacheDir;
+
+  private File _cacheDir;
+  private File _jarA;
+  private File _jarB;
+  private File _classes;
+  private List<IDirectory> _roots;
+  private Set<String> _listed;
+
+  @BeforeClass
+  public static void beforeTestClass() throws IOException {
+    _root = createTempDir("classpathindex");
+    Gosu.init();
+    _oldCacheDir = BytecodeOptions.getBytecodeCacheDir();
+  }
+
+  @AfterClass
+  public static void afterTestClass() {
+    BytecodeOptions.setBytecodeCacheDir(_oldCacheDir);
+    delete(_root);
+  }
+
+  @Before
+  public void setUp() throws IOException {
+    File dir = new File(_root, "test" + System.nanoTime());
+    _cacheDir = new File(dir, "cache");
+    BytecodeOptions.setBytecodeCacheDir(_cacheDir.getPath());
+    _jarA = writeJar(new File(dir, "a.jar"), "a/One.class", "a/Two.class");
+    _jarB = writeJar(new File(dir, "b.jar"), "b/Three.class");
+    _classes = new File(dir, "classes");
+    write(new File(_classes, "c/Four.class"), "");
+    _roots = Arrays.asList(getIDirectory(_jarA), getIDirectory(_jarB), getIDirectory(_classes));
+    _listed = Collections.synchronizedSet(new HashSet<String>());
+  }
+
+  @After
+  public void tearDown() {
+    delete(_cacheDir.getParentFile());
+  }
+
+  @Test
+  public void storedListingsAreReusedWhileTheJarsAreUnchanged() {
+    List<List<String>> listings = list();
+    assertEquals(expected(), listings);
+    assertEquals(set("a.jar", "b.jar", "classes"), _listed);
+    assertTrue(getIndexFile().isFile());
+
+    // As in the next run, only the directory is listed again
+    _listed.clear();
+    assertEquals(listings, list());
+    assertEquals(set("classes"), _listed);
+  }
+
+  @Test
+  public void changedJarIsListedAgain() throws IOException {
+    list();
+    long lastModified = _jarA.lastModified();
+    writeJar(_jarA, "a/One.class", "a/Two.class", "a/Five.class");
+    assertTrue(_jarA.setLastModified(lastModified + 2000));
+
+    _listed.clear();
+    List<List<String>> listings = list();
+    assertEquals(Arrays.asList("a/Five.class", "a/One.class", "a/Two.class"), listings.get(0));
+    assertEquals(set("a.jar", "classes"), _listed);
+
+    // And stored
+    _listed.clear();
+    assertEquals(listings, list());
+    assertEquals(set("classes"), _listed);
+  }
+
+  @Test
+  public void directoryIsAlwaysListedAgain() throws IOException {
+    list();
+    File index = getIndexFile();
+    assertTrue(index.setLastModified(1000));
+
+    // The directories' timestamps don't change with a file added below them
+    File c = new File(_classes, "c");
+    long lastModified = c.lastModified();
+    write(new File(c, "Five.class"), "");
+    assertTrue(c.setLastModified(lastModified));
+
+    _listed.clear();
+    List<List<String>> listings = list();
+    assertEquals(Arrays.asList("c/Five.class", "c/Four.class"), listings.get(2));
+    assertEquals(set("classes"), _listed);
+
+    // Nothing of the directory is stored, so the index isn't written again
+    assertEquals(1000, index.lastModified());
+  }
+
+  private List<List<String>> list() {
+    return ClassPathIndexFile.list(TypeSystem.getGlobalModule(), "test", _roots,
+      new ClassPathIndexFile.Lister() {
+        public List<String> list(IDirectory root) {
+          File file = root.toJavaFile();
+          _listed.add(file.getName());
+          try {
+            return file.isDirectory() ? listDirectory(file, "", new ArrayList<String>()) : listJar(file);
+          } catch (IOException e) {
+            throw new RuntimeException(e);
+          }
+        }
+      });
+  }
+
+  private static List<List<String>> expected() {
+    return Arrays.asList(Arrays.asList("a/One.class", "a/Two.class"),
+                         Arrays.asList("b/Three.class"),
+                         Arrays.asList("c/Four.class"));
+  }
+
+  private File getIndexFile() {
+    File[] files = _cacheDir.listFiles();
+    assertNotNull(files);
+    assertEquals(1, files.length);
+    assertTrue(files[0].getName().startsWith("test."));
+    return files[0];
+  }
+
+  private static IDirectory getIDirectory(File file) {
+    return CommonServices.getFileSystem().getIDirectory(file);
+  }
+
+  private static List<String> listJar(File file) throws IOException {
+    List<String> paths = new ArrayList<String>();
+    JarFile jar = new JarFile(file);
+    try {
+      for (Enumeration<JarEntry> entries = jar.entries(); entries.hasMoreElements(); ) {
+        paths.add(entries.nextElement().getName());
+      }
+    } finally {
+      jar.close();
+    }
+    Collections.sort(paths);
+    return paths;
+  }
+
+  private static List<String> listDirectory(File dir, String path, List<String> paths) {
+    File[] children = dir.listFiles();
+    Arrays.sort(children);
+    for (File child : children) {
+      if (child.isDirectory()) {
+        listDirectory(child, path + child.getName() + '/', paths);
+      } else {
+        paths.add(path + child.getName());
+      }
+    }
+    return paths;
+  }
+
+  private static File writeJar(File file, String... paths) throws IOException {
+    file.getParentFile().mkdirs();
+    JarOutputStream out = new JarOutputStream(new FileOutputStream(file));
+    try {
+      for (String path : paths) {
+        out.putNextEntry(new JarEntry(path));
+        out.closeEntry();
+      }
+    } finally {
+      out.close();
+    }
+    return file;
+  }
+
+  private static Set<String> set(String... values) {
+    return new HashSet<String>(Arrays.asList(values));
+  }
+}
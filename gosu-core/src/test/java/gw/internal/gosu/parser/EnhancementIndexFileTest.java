@@ -0,0 +1,161 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.internal.gosu.parser;
+
+import gw.lang.Gosu;
+import gw.lang.reflect.gs.BytecodeOptions;
+import gw.lang.reflect.gs.GosuClassTypeLoader;
+import junit.framework.Assert;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static gw.internal.gosu.TempFiles.createTempDir;
+import static gw.internal.gosu.TempFiles.delete;
+import static gw.internal.gosu.TempFiles.rewrite;
+import static gw.internal.gosu.TempFiles.write;
+
+public class EnhancementIndexFileTest extends Assert {
+
+  private static final List<String> NAMES = Arrays.asList("indexed.TextEnh", "indexed.ListEnh");
+
+  private static File _root;
+  private static File _src;
+  private static String _oldCacheDir;
+
+  private File _cacheDir;
+
+  @BeforeClass
+  public static void beforeTestClass() throws IOException {
+    _root = createTempDir("enhancementindex");
+    _src = new File(_root, "src");
+    write(new File(_src, "indexed/TextEnh.gsx"), enhancement("TextEnh", "java.lang.String"));
+    write(new File(_src, "indexed/ListEnh.gsx"), "package indexed\n\nenhancement ListEnh<T> : java.util.List<T> {\n}\n");
+    // TextEnh after a rename
+    write(new File(_src, "indexed/RenamedEnh.gsx"), enhancement("RenamedEnh", "java.lang.String"));
+    Gosu.init(Collections.singletonList(_src));
+    _oldCacheDir = BytecodeOptions.getBytecodeCacheDir();
+  }
+
+  @AfterClass
+  public static void afterTestClass() {
+    BytecodeOptions.setBytecodeCacheDir(_oldCacheDir);
+    delete(_root);
+  }
+
+  @Before
+  public void setUp() throws IOException {
+    _cacheDir = new File(_root, "cache" + System.nanoTime());
+    BytecodeOptions.setBytecodeCacheDir(_cacheDir.getPath());
+    write(new File(_src, "indexed/TextEnh.gsx"), enhancement("TextEnh", "java.lang.String"));
+  }
+
+  @After
+  public void tearDown() {
+    delete(_cacheDir);
+  }
+
+  @Test
+  public void storedEntriesAreReusedWhileTheFilesAreUnchanged() throws IOException {
+    assertEquals(expected("indexed.TextEnh", "java.lang.String"), findEnhancedTypes(NAMES));
+    assertTrue(getIndexFile().isFile());
+
+    // Same path, size and timestamp, so the stored entry answers without tokenizing
+    File source = new File(_src, "indexed/TextEnh.gsx");
+    long lastModified = source.lastModified();
+    write(source, enhancement("TextEnh", "java.lang.Number"));
+    assertTrue(source.setLastModified(lastModified));
+    assertEquals(expected("indexed.TextEnh", "java.lang.String"), findEnhancedTypes(NAMES));
+  }
+
+  @Test
+  public void changedFileIsTokenizedAgain() throws IOException {
+    findEnhancedTypes(NAMES);
+    File source = new File(_src, "indexed/TextEnh.gsx");
+    rewrite(source, enhancement("TextEnh", "java.lang.Number"));
+    assertEquals(expected("indexed.TextEnh", "java.lang.Number"), findEnhancedTypes(NAMES));
+
+    // And stored
+    long lastModified = source.lastModified();
+    write(source, enhancement("TextEnh", "java.lang.Double"));
+    assertTrue(source.setLastModified(lastModified));
+    assertEquals(expected("indexed.TextEnh", "java.lang.Number"), findEnhancedTypes(NAMES));
+  }
+
+  @Test
+  public void removedEnhancementIsDroppedFromTheIndex() {
+    findEnhancedTypes(NAMES);
+    File index = getIndexFile();
+    long length = index.length();
+
+    List<String> names = Collections.singletonList("indexed.TextEnh");
+    Map<String, String> expected = new LinkedHashMap<String, String>();
+    expected.put("indexed.TextEnh", "java.lang.String");
+    assertEquals(expected, findEnhancedTypes(names));
+    assertTrue(index.length() < length);
+    assertEquals(getNewIndexLength(names), index.length());
+  }
+
+  @Test
+  public void renamedEnhancementIsIndexedUnderItsNewName() {
+    findEnhancedTypes(NAMES);
+    File index = getIndexFile();
+
+    List<String> names = Arrays.asList("indexed.RenamedEnh", "indexed.ListEnh");
+    assertEquals(expected("indexed.RenamedEnh", "java.lang.String"), findEnhancedTypes(names));
+    // The old name's entry is gone
+    assertEquals(getNewIndexLength(names), index.length());
+  }
+
+  private static Map<String, String> findEnhancedTypes(List<String> names) {
+    return EnhancementIndexFile.findEnhancedTypes(GosuClassTypeLoader.getDefaultClassLoader(), names);
+  }
+
+  private static Map<String, String> expected(String textName, String textType) {
+    Map<String, String> expected = new LinkedHashMap<String, String>();
+    expected.put(textName, textType);
+    expected.put("indexed.ListEnh", "java.util.List");
+    return expected;
+  }
+
+  /**
+   * @return The length of the index built from nothing for the enhancements
+   */
+  private long getNewIndexLength(List<String> names) {
+    File cacheDir = _cacheDir;
+    _cacheDir = new File(_root, "cache" + System.nanoTime());
+    BytecodeOptions.setBytecodeCacheDir(_cacheDir.getPath());
+    try {
+      findEnhancedTypes(names);
+      return getIndexFile().length();
+    } finally {
+      delete(_cacheDir);
+      _cacheDir = cacheDir;
+      BytecodeOptions.setBytecodeCacheDir(_cacheDir.getPath());
+    }
+  }
+
+  private File getIndexFile() {
+    File[] files = _cacheDir.listFiles();
+    assertNotNull(files);
+    assertEquals(1, files.length);
+    assertTrue(files[0].getName().startsWith("enhancements."));
+    return files[0];
+  }
+
+  private static String enhancement(String name, String enhancedType) {
+    return "package indexed\n\nenhancement " + name + " : " + enhancedType + " {\n}\n";
+  }
+}
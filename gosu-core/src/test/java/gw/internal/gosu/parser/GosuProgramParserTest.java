@@ -0,0 +1,127 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.internal.gosu.parser;
+
+import gw.lang.Gosu;
+import gw.lang.parser.ISymbolTable;
+import gw.lang.parser.ParserOptions;
+import gw.lang.parser.StandardSymbolTable;
+import gw.lang.parser.exceptions.ParseResultsException;
+import gw.lang.parser.resources.Res;
+import gw.lang.reflect.IType;
+import gw.lang.reflect.TypeSystem;
+import gw.lang.reflect.gs.IGosuProgram;
+import gw.lang.reflect.java.JavaTypes;
+import junit.framework.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class GosuProgramParserTest extends Assert {
+
+  @BeforeClass
+  public static void beforeTestClass() {
+    Gosu.init();
+  }
+
+  @Test
+  public void identicalInputsShareTheProgram() throws Exception {
+    IGosuProgram program = parse("x + 1", symbols(JavaTypes.INTEGER()), cached());
+    assertSame(program, parse("x + 1", symbols(JavaTypes.INTEGER()), cached()));
+    assertSame(JavaTypes.INTEGER(), program.getReturnType());
+  }
+
+  @Test
+  public void differentSourcesDoNotShareTheProgram() throws Exception {
+    assertNotSame(parse("x + 1", symbols(JavaTypes.INTEGER()), cached()),
+                  parse("x + 2", symbols(JavaTypes.INTEGER()), cached()));
+  }
+
+  @Test
+  public void differentSymbolTypesDoNotShareTheProgram() throws Exception {
+    IGosuProgram integers = parse("x + 1", symbols(JavaTypes.INTEGER()), cached());
+    IGosuProgram strings = parse("x + 1", symbols(JavaTypes.STRING()), cached());
+    assertNotSame(integers, strings);
+    assertSame(JavaTypes.STRING(), strings.getReturnType());
+  }
+
+  @Test
+  public void differentTypeUsesDoNotShareTheProgram() throws Exception {
+    IGosuProgram utils = parse("x + 1", symbols(JavaTypes.INTEGER()), cached().withTypeUsesMap(typeUses("java.util.*")));
+    assertSame(utils, parse("x + 1", symbols(JavaTypes.INTEGER()), cached().withTypeUsesMap(typeUses("java.util.*"))));
+    assertNotSame(utils, parse("x + 1", symbols(JavaTypes.INTEGER()), cached().withTypeUsesMap(typeUses("java.io.*"))));
+    assertNotSame(utils, parse("x + 1", symbols(JavaTypes.INTEGER()), cached()));
+  }
+
+  @Test
+  public void differentOptionsDoNotShareTheProgram() throws Exception {
+    IGosuProgram program = parse("x + 1", symbols(JavaTypes.INTEGER()), cached());
+    assertNotSame(program, parse("x + 1", symbols(JavaTypes.INTEGER()), cached().withExpectedType(JavaTypes.OBJECT())));
+    assertNotSame(program, parse("x + 1", symbols(JavaTypes.INTEGER()), cached().withGenRootExprAccess(true)));
+    assertNotSame(program, parse("x + 1", symbols(JavaTypes.INTEGER()), cached().withShouldOptimize(false)));
+
+    IGosuProgram ignoring = parse("x + 1", symbols(JavaTypes.INTEGER()), cached().withIgnoreWarning(Res.MSG_UNNECESSARY_COERCION));
+    assertNotSame(program, ignoring);
+    assertNotSame(ignoring, parse("x + 1", symbols(JavaTypes.INTEGER()), cached().withIgnoreWarning(Res.MSG_DEPRECATED_MEMBER)));
+    assertSame(ignoring, parse("x + 1", symbols(JavaTypes.INTEGER()), cached().withIgnoreWarning(Res.MSG_UNNECESSARY_COERCION)));
+  }
+
+  @Test
+  public void failuresAreRethrownAndNotCached() throws Exception {
+    ParseResultsException first = parseFailure("x +", symbols(JavaTypes.INTEGER()));
+    ParseResultsException second = parseFailure("x +", symbols(JavaTypes.INTEGER()));
+    // Compiled again rather than answered from the cache
+    assertNotSame(first, second);
+  }
+
+  @Test
+  public void refreshDiscardsThePrograms() throws Exception {
+    IGosuProgram program = parse("x + 1", symbols(JavaTypes.INTEGER()), cached());
+    TypeSystem.refresh(true);
+    IGosuProgram recompiled = parse("x + 1", symbols(JavaTypes.INTEGER()), cached());
+    assertNotSame(program, recompiled);
+    assertSame(recompiled, parse("x + 1", symbols(JavaTypes.INTEGER()), cached()));
+  }
+
+  @Test
+  public void nonCacheableOptionsBypassTheCache() throws Exception {
+    IGosuProgram program = parse("x + 1", symbols(JavaTypes.INTEGER()), cached().withCaptureSymbolsForEval(true));
+    assertNotSame(program, parse("x + 1", symbols(JavaTypes.INTEGER()), cached().withCaptureSymbolsForEval(true)));
+    assertNotSame(program, parse("x + 1", symbols(JavaTypes.INTEGER()), cached()));
+
+    // Not asked to cache
+    IGosuProgram uncached = parse("x + 1", symbols(JavaTypes.INTEGER()), new ParserOptions());
+    assertNotSame(uncached, parse("x + 1", symbols(JavaTypes.INTEGER()), new ParserOptions()));
+  }
+
+  private static IGosuProgram parse(String source, ISymbolTable symbols, ParserOptions options) throws ParseResultsException {
+    return new GosuProgramParser().parseExpressionOrProgram(source, symbols, options).getProgram();
+  }
+
+  private static ParseResultsException parseFailure(String source, ISymbolTable symbols) {
+    try {
+      parse(source, symbols, cached());
+      fail();
+      return null;
+    } catch (ParseResultsException e) {
+      return e;
+    }
+  }
+
+  private static ParserOptions cached() {
+    return new ParserOptions().asCachedProgram();
+  }
+
+  private static ISymbolTable symbols(IType xType) {
+    ISymbolTable symbols = new StandardSymbolTable();
+    symbols.putSymbol(new Symbol("x", xType, null));
+    return symbols;
+  }
+
+  private static TypeUsesMap typeUses(String typeUse) {
+    TypeUsesMap typeUses = new TypeUsesMap();
+    typeUses.addToTypeUses(typeUse);
+    return typeUses;
+  }
+}
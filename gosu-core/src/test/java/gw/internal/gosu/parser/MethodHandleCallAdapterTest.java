@@ -0,0 +1,199 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.internal.gosu.parser;
+
+import gw.lang.Gosu;
+import gw.lang.parser.EvaluationException;
+import gw.lang.reflect.IMethodCallHandler;
+import gw.lang.reflect.TypeSystem;
+import junit.framework.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+public class MethodHandleCallAdapterTest extends Assert {
+
+  @BeforeClass
+  public static void beforeTestClass() {
+    Gosu.init();
+  }
+
+  @Test
+  public void createUsesHandlesOnlyWhenEnabled() throws Exception {
+    IMethodCallHandler handler = MethodHandleCallAdapter.create(Target.class.getMethod("concat", String.class, int.class));
+    assertEquals(MethodHandleCallAdapter.isEnabled(), handler instanceof MethodHandleCallAdapter);
+  }
+
+  @Test
+  public void callsInstanceAndStaticMethods() throws Exception {
+    assertEquals("x1", adapter("concat", String.class, int.class).handleCall(new Target(), "x", 1));
+    assertEquals(3, adapter("add", int.class, int.class).handleCall(null, 1, 2));
+    // The receiver of a static method is ignored
+    assertEquals(3, adapter("add", int.class, int.class).handleCall(new Target(), 1, 2));
+    assertEquals("target", adapter("getName").handleCall(new Target()));
+    assertEquals("target", adapter("getName").handleCall(new Target(), (Object[])null));
+  }
+
+  @Test
+  public void checksTheArity() throws Exception {
+    assertEvaluationException("Wrong number of arguments", adapter("concat", String.class, int.class), new Target(), "x");
+    assertEvaluationException("Wrong number of arguments", adapter("concat", String.class, int.class), new Target(), (Object[])null);
+    assertEvaluationException("Wrong number of arguments", adapter("getName"), new Target(), "x");
+  }
+
+  @Test
+  public void checksTheReceiver() throws Exception {
+    assertEvaluationException("Tried to invoke method from null reference", adapter("getName"), null);
+    assertEvaluationException("Tried to invoke method from a context not compatible", adapter("getName"), "not a target");
+  }
+
+  @Test
+  public void reportsArgumentMismatchesLikeMethodInvoke() throws Exception {
+    assertArgMismatch(adapter("concat", String.class, int.class), new Target(), 1, 1);
+    // Unboxing null
+    assertArgMismatch(adapter("concat", String.class, int.class), new Target(), "x", null);
+    assertArgMismatch(new MethodCallAdapter(Target.class.getMethod("concat", String.class, int.class)), new Target(), "x", null);
+  }
+
+  @Test
+  public void rethrowsTheTargetsExceptionUnwrapped() throws Exception {
+    try {
+      adapter("fail").handleCall(new Target());
+      fail();
+    } catch (Exception e) {
+      assertSame(Target.FAILURE, e);
+    }
+  }
+
+  @Test
+  public void swapsTheContextClassLoaderForTheCall() throws Exception {
+    ClassLoader gosuLoader = TypeSystem.getGosuClassLoader().getActualLoader();
+    ClassLoader other = new ClassLoader(null) {};
+    Thread thread = Thread.currentThread();
+    ClassLoader original = thread.getContextClassLoader();
+    try {
+      thread.setContextClassLoader(other);
+      assertSame(gosuLoader, adapter("getContextClassLoader").handleCall(new Target()));
+      assertSame(other, thread.getContextClassLoader());
+
+      // Already the Gosu loader
+      thread.setContextClassLoader(gosuLoader);
+      assertSame(gosuLoader, adapter("getContextClassLoader").handleCall(new Target()));
+      assertSame(gosuLoader, thread.getContextClassLoader());
+
+      // Methods on threads manage their own loader
+      thread.setContextClassLoader(other);
+      Method getter = Thread.class.getMethod("getContextClassLoader");
+      assertSame(other, new MethodHandleCallAdapter(getter, MethodHandleCallAdapter.makeSpreadHandle(getter)).handleCall(thread));
+
+      // Restored when the target throws
+      try {
+        adapter("fail").handleCall(new Target());
+        fail();
+      } catch (Exception e) {
+        assertSame(Target.FAILURE, e);
+        assertSame(other, thread.getContextClassLoader());
+      }
+    } finally {
+      thread.setContextClassLoader(original);
+    }
+  }
+
+  @Test
+  public void propertyHandlesFailLikeMethodInvoke() throws Throwable {
+    Method getter = Target.class.getMethod("getName");
+    MethodHandle getHandle = MethodHandleCallAdapter.makeSpreadHandle(getter);
+    assertEquals("target", MethodHandleCallAdapter.invokeSpread(getHandle, new Target(), null));
+    assertIllegalArgument(getter, getHandle, "not a target");
+
+    Method setter = Target.class.getMethod("setCount", int.class);
+    MethodHandle setHandle = MethodHandleCallAdapter.makeSpreadHandle(setter);
+    Target target = new Target();
+    MethodHandleCallAdapter.invokeSpread(setHandle, target, new Object[]{5});
+    assertEquals(5, target._count);
+    assertIllegalArgument(setter, setHandle, target, "five");
+    assertIllegalArgument(setter, setHandle, target, new Object[]{null});
+
+    try {
+      MethodHandleCallAdapter.invokeSpread(MethodHandleCallAdapter.makeSpreadHandle(Target.class.getMethod("fail")), target, null);
+      fail();
+    } catch (InvocationTargetException e) {
+      assertSame(Target.FAILURE, e.getCause());
+    }
+  }
+
+  private static MethodHandleCallAdapter adapter(String name, Class... paramTypes) throws NoSuchMethodException {
+    Method method = Target.class.getMethod(name, paramTypes);
+    return new MethodHandleCallAdapter(method, MethodHandleCallAdapter.makeSpreadHandle(method));
+  }
+
+  private static void assertEvaluationException(String message, IMethodCallHandler handler, Object ctx, Object... args) {
+    try {
+      handler.handleCall(ctx, args);
+      fail();
+    } catch (EvaluationException e) {
+      assertTrue(e.getMessage(), e.getMessage().startsWith(message));
+    }
+  }
+
+  private static void assertArgMismatch(IMethodCallHandler handler, Object ctx, Object... args) {
+    try {
+      handler.handleCall(ctx, args);
+      fail();
+    } catch (RuntimeException e) {
+      assertTrue(e.getMessage(), e.getMessage().startsWith("Tried to pass values of types: "));
+      assertTrue(e.getCause() instanceof IllegalArgumentException);
+    }
+  }
+
+  private static void assertIllegalArgument(Method method, MethodHandle handle, Object ctx, Object... args) throws Throwable {
+    try {
+      method.invoke(ctx, args);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    try {
+      MethodHandleCallAdapter.invokeSpread(handle, ctx, args);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  public static class Target {
+    static final IOException FAILURE = new IOException("failed");
+
+    int _count;
+
+    public String concat(String s, int i) {
+      return s + i;
+    }
+
+    public static int add(int a, int b) {
+      return a + b;
+    }
+
+    public String getName() {
+      return "target";
+    }
+
+    public void setCount(int count) {
+      _count = count;
+    }
+
+    public ClassLoader getContextClassLoader() {
+      return Thread.currentThread().getContextClassLoader();
+    }
+
+    public void fail() throws IOException {
+      throw FAILURE;
+    }
+  }
+}
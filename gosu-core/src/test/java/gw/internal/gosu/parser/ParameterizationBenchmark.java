@@ -0,0 +1,93 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.internal.gosu.parser;
+
+import gw.lang.reflect.IType;
+import gw.lang.reflect.TypeSystem;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+/**
+ * Measures repeated lookups of an existing parameterization with getParameterizedType(), the
+ * time and, where the JVM can count them, the bytes allocated per lookup. A hit should allocate
+ * nothing.
+ * <p/>
+ * Run it with gosu-core's test classes on the class path, in a JVM with an initialized type system
+ * e.g., from a Gosu program:
+ * <pre>
+ *   print( gw.internal.gosu.parser.ParameterizationBenchmark.run( "java.util.Map", {"java.lang.String", "int"}, 1000000 ) )
+ * </pre>
+ */
+public class ParameterizationBenchmark
+{
+  private ParameterizationBenchmark()
+  {
+  }
+
+  /**
+   * @param strGenericType The generic type to parameterize
+   * @param paramTypeNames The type parameters
+   * @param iIterations The number of lookups measured, after as many warm-up lookups
+   * @return A report of the average time and allocation per lookup
+   */
+  public static String run( String strGenericType, List<String> paramTypeNames, int iIterations )
+  {
+    IType genericType = TypeSystem.getByFullName( strGenericType );
+    IType[] paramTypes = new IType[paramTypeNames.size()];
+    for( int i = 0; i < paramTypes.length; i++ )
+    {
+      paramTypes[i] = TypeSystem.getByFullName( paramTypeNames.get( i ) );
+    }
+
+    IType expected = genericType.getParameterizedType( paramTypes );
+    lookup( genericType, paramTypes, expected, iIterations );
+
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    long bytesBefore = getAllocatedBytes( threads );
+    long start = System.nanoTime();
+    lookup( genericType, paramTypes, expected, iIterations );
+    long nanos = System.nanoTime() - start;
+    long bytesAfter = getAllocatedBytes( threads );
+
+    StringBuilder report = new StringBuilder( expected.getName() ).append( '\n' );
+    report.append( String.format( "%12.1f ns/lookup%n", iIterations == 0 ? 0 : (double)nanos / iIterations ) );
+    if( bytesBefore < 0 || bytesAfter < 0 )
+    {
+      report.append( "  allocation not measurable on this JVM\n" );
+    }
+    else
+    {
+      report.append( String.format( "%12.1f bytes/lookup%n", iIterations == 0 ? 0 : (double)(bytesAfter - bytesBefore) / iIterations ) );
+    }
+    return report.toString();
+  }
+
+  private static void lookup( IType genericType, IType[] paramTypes, IType expected, int iIterations )
+  {
+    for( int i = 0; i < iIterations; i++ )
+    {
+      if( genericType.getParameterizedType( paramTypes ) != expected )
+      {
+        throw new IllegalStateException( "Parameterization changed during the benchmark" );
+      }
+    }
+  }
+
+  private static long getAllocatedBytes( ThreadMXBean threads )
+  {
+    // HotSpot's extension, the only way to count a thread's allocation without an agent
+    if( threads instanceof com.sun.management.ThreadMXBean )
+    {
+      com.sun.management.ThreadMXBean hotspotThreads = (com.sun.management.ThreadMXBean)threads;
+      if( hotspotThreads.isThreadAllocatedMemorySupported() && hotspotThreads.isThreadAllocatedMemoryEnabled() )
+      {
+        return hotspotThreads.getThreadAllocatedBytes( Thread.currentThread().getId() );
+      }
+    }
+    return -1;
+  }
+}
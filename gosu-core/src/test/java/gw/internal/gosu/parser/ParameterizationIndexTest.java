@@ -0,0 +1,109 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.internal.gosu.parser;
+
+import gw.lang.Gosu;
+import gw.lang.reflect.IType;
+import gw.lang.reflect.TypeSystem;
+import gw.lang.reflect.java.JavaTypes;
+import junit.framework.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Map;
+
+public class ParameterizationIndexTest extends Assert {
+
+  @BeforeClass
+  public static void beforeTestClass() {
+    Gosu.init();
+  }
+
+  @Test
+  public void hitReturnsTheIdenticalType() {
+    ParameterizationIndex<IType> index = new ParameterizationIndex<IType>();
+    IType listOfString = TypeSystem.getByFullName("java.util.List<java.lang.String>");
+    index.put(new IType[]{JavaTypes.STRING()}, listOfString);
+    assertSame(listOfString, index.get(new IType[]{JavaTypes.STRING()}));
+    assertNull(index.get(new IType[]{JavaTypes.INTEGER()}));
+    assertNull(index.get(new IType[]{JavaTypes.STRING(), JavaTypes.STRING()}));
+
+    // And through the generic type
+    IType list = TypeSystem.get(List.class);
+    assertSame(list.getParameterizedType(JavaTypes.STRING()), list.getParameterizedType(JavaTypes.STRING()));
+  }
+
+  @Test
+  public void entriesSurviveGrowing() {
+    ParameterizationIndex<IType> index = new ParameterizationIndex<IType>();
+    IType map = TypeSystem.get(Map.class);
+    IType[] args = {JavaTypes.STRING(), JavaTypes.INTEGER(), JavaTypes.LONG(), JavaTypes.DOUBLE(),
+                    JavaTypes.BOOLEAN(), JavaTypes.CHARACTER(), JavaTypes.OBJECT(), JavaTypes.NUMBER()};
+    for (IType key : args) {
+      for (IType value : args) {
+        index.put(new IType[]{key, value}, map.getParameterizedType(key, value));
+      }
+    }
+    for (IType key : args) {
+      for (IType value : args) {
+        assertSame(map.getParameterizedType(key, value), index.get(new IType[]{key, value}));
+      }
+    }
+  }
+
+  @Test
+  public void primitiveArgumentsMatchOnlyTheirOwnBoxType() {
+    ParameterizationIndex<IType> index = new ParameterizationIndex<IType>();
+    IType listOfInteger = TypeSystem.getByFullName("java.util.List<java.lang.Integer>");
+    // Stored boxed, as TypeSystem.boxPrimitiveTypeParams() names it
+    index.put(new IType[]{JavaTypes.INTEGER()}, listOfInteger);
+    assertSame(listOfInteger, index.get(new IType[]{JavaTypes.pINT()}));
+    assertSame(listOfInteger, index.get(new IType[]{JavaTypes.INTEGER()}));
+    assertNull(index.get(new IType[]{JavaTypes.pLONG()}));
+    assertNull(index.get(new IType[]{JavaTypes.LONG()}));
+    assertNull(index.get(new IType[]{JavaTypes.pSHORT()}));
+
+    // And through the generic type, the same as the name of the boxed parameters
+    IType list = TypeSystem.get(List.class);
+    assertSame(list.getParameterizedType(JavaTypes.INTEGER()), list.getParameterizedType(JavaTypes.pINT()));
+    assertNotSame(list.getParameterizedType(JavaTypes.pINT()), list.getParameterizedType(JavaTypes.pLONG()));
+    assertNotSame(list.getParameterizedType(JavaTypes.pLONG()), list.getParameterizedType(JavaTypes.INTEGER()));
+  }
+
+  @Test
+  public void unloadResetsTheIndex() throws Exception {
+    IType list = TypeSystem.get(List.class);
+    list.getParameterizedType(JavaTypes.STRING());
+    JavaType javaType = getJavaType(list);
+    assertNotNull(getIndex(javaType).get(new IType[]{JavaTypes.STRING()}));
+
+    list.unloadTypeInfo();
+    assertNull(getIndex(javaType).get(new IType[]{JavaTypes.STRING()}));
+  }
+
+  @Test
+  public void refreshResetsTheIndex() throws Exception {
+    IType list = TypeSystem.get(List.class);
+    list.getParameterizedType(JavaTypes.STRING());
+    JavaType javaType = getJavaType(list);
+    assertNotNull(getIndex(javaType).get(new IType[]{JavaTypes.STRING()}));
+
+    TypeSystem.refresh(true);
+    assertNull(getIndex(javaType).get(new IType[]{JavaTypes.STRING()}));
+  }
+
+  private static JavaType getJavaType(IType type) {
+    return (JavaType)(type instanceof AbstractTypeRef ? ((AbstractTypeRef)type)._getType() : type);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static ParameterizationIndex<IJavaTypeInternal> getIndex(JavaType type) throws Exception {
+    Field field = JavaType.class.getDeclaredField("_parameterizationIndex");
+    field.setAccessible(true);
+    return (ParameterizationIndex<IJavaTypeInternal>)field.get(type);
+  }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.internal.gosu.parser;
+
+import gw.lang.Gosu;
+import gw.lang.parser.TypeSystemAwareCache;
+import gw.util.concurrent.Cache;
+import junit.framework.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class TypeLoadingLocksTest extends Assert {
+
+  private static final String NAME = "test.StripedName";
+  private static final String OTHER = otherStripe(NAME);
+
+  @BeforeClass
+  public static void beforeTestClass() {
+    Gosu.init();
+  }
+
+  @Test
+  public void cacheMissHoldingAStripeDoesNotWaitForTheLoadInFlight() throws Exception {
+    final CountDownLatch entered = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch holding = new CountDownLatch(1);
+    final CountDownLatch go = new CountDownLatch(1);
+    final AtomicInteger loads = new AtomicInteger();
+    final Cache<String, String> cache = TypeSystemAwareCache.make("test", 10, new Cache.MissHandler<String, String>() {
+      public String load(String key) {
+        if (loads.incrementAndGet() == 1) {
+          entered.countDown();
+          await(release);
+        }
+        // Resolves a name on the stripe the other thread holds
+        ReentrantLock lock = TypeLoadingLocks.lock(NAME);
+        try {
+          return key + "!";
+        } finally {
+          TypeLoadingLocks.unlock(lock);
+        }
+      }
+    });
+    ExecutorService threads = Executors.newFixedThreadPool(2);
+    try {
+      Future<String> inFlight = threads.submit(new Callable<String>() {
+        public String call() {
+          return cache.get("a");
+        }
+      });
+      assertTrue(entered.await(10, TimeUnit.SECONDS));
+      Future<String> striped = threads.submit(new Callable<String>() {
+        public String call() {
+          ReentrantLock lock = TypeLoadingLocks.lock(NAME);
+          try {
+            assertTrue(TypeLoadingLocks.isHeldByCurrentThread());
+            holding.countDown();
+            await(go);
+            return cache.get("a");
+          } finally {
+            TypeLoadingLocks.unlock(lock);
+          }
+        }
+      });
+      assertTrue(holding.await(10, TimeUnit.SECONDS));
+      // The load in flight now needs the stripe, so waiting for it would deadlock
+      release.countDown();
+      go.countDown();
+      assertEquals("a!", striped.get(10, TimeUnit.SECONDS));
+      assertEquals("a!", inFlight.get(10, TimeUnit.SECONDS));
+      assertEquals(2, loads.get());
+      assertFalse(TypeLoadingLocks.isHeldByCurrentThread());
+    } finally {
+      release.countDown();
+      go.countDown();
+      threads.shutdownNow();
+    }
+  }
+
+  @Test
+  public void nestedLoadOnABusyStripeProceedsUnlocked() throws Exception {
+    CountDownLatch held = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService threads = Executors.newFixedThreadPool(2);
+    try {
+      Future<?> holder = threads.submit(holdStripe(NAME, held, release));
+      assertTrue(held.await(10, TimeUnit.SECONDS));
+      final long unlockedBefore = TypeLoadingLocks.getUnlockedNestedLoadCount();
+      final long contendedBefore = TypeLoadingLocks.getContendedAcquisitionCount();
+      Future<Boolean> nested = threads.submit(new Callable<Boolean>() {
+        public Boolean call() {
+          ReentrantLock outer = TypeLoadingLocks.lock(OTHER);
+          try {
+            ReentrantLock inner = TypeLoadingLocks.lock(NAME);
+            try {
+              return inner == null && TypeLoadingLocks.isHeldByCurrentThread();
+            } finally {
+              TypeLoadingLocks.unlock(inner);
+            }
+          } finally {
+            TypeLoadingLocks.unlock(outer);
+          }
+        }
+      });
+      // Returns while the stripe is still held, instead of waiting for it
+      assertTrue(nested.get(10, TimeUnit.SECONDS));
+      assertFalse(holder.isDone());
+      assertEquals(unlockedBefore + 1, TypeLoadingLocks.getUnlockedNestedLoadCount());
+      assertEquals(contendedBefore, TypeLoadingLocks.getContendedAcquisitionCount());
+      release.countDown();
+      holder.get(10, TimeUnit.SECONDS);
+    } finally {
+      release.countDown();
+      threads.shutdownNow();
+    }
+  }
+
+  @Test
+  public void outermostLoadWaitsForItsStripeAndIsCounted() throws Exception {
+    CountDownLatch held = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService threads = Executors.newFixedThreadPool(2);
+    try {
+      Future<?> holder = threads.submit(holdStripe(NAME, held, release));
+      assertTrue(held.await(10, TimeUnit.SECONDS));
+      long acquiredBefore = TypeLoadingLocks.getAcquisitionCount();
+      long contendedBefore = TypeLoadingLocks.getContendedAcquisitionCount();
+      long waitedBefore = TypeLoadingLocks.getWaitTime(TimeUnit.NANOSECONDS);
+      Future<?> waiter = threads.submit(holdStripe(NAME, new CountDownLatch(1), new CountDownLatch(0)));
+      Thread.sleep(50);
+      assertFalse(waiter.isDone());
+      release.countDown();
+      holder.get(10, TimeUnit.SECONDS);
+      waiter.get(10, TimeUnit.SECONDS);
+      assertEquals(acquiredBefore + 1, TypeLoadingLocks.getAcquisitionCount());
+      assertEquals(contendedBefore + 1, TypeLoadingLocks.getContendedAcquisitionCount());
+      assertTrue(TypeLoadingLocks.getWaitTime(TimeUnit.NANOSECONDS) > waitedBefore);
+      assertTrue(TypeLoadingLocks.getStatistics().startsWith("type load stripes: "));
+    } finally {
+      release.countDown();
+      threads.shutdownNow();
+    }
+  }
+
+  @Test
+  public void crossedNestedLoadsDoNotDeadlock() throws Exception {
+    // Each thread loads a name whose loading needs the name the other thread is loading
+    final CountDownLatch bothHeld = new CountDownLatch(2);
+    ExecutorService threads = Executors.newFixedThreadPool(2);
+    try {
+      Future<Boolean> first = threads.submit(crossedLoad(NAME, OTHER, bothHeld));
+      Future<Boolean> second = threads.submit(crossedLoad(OTHER, NAME, bothHeld));
+      assertTrue(first.get(10, TimeUnit.SECONDS));
+      assertTrue(second.get(10, TimeUnit.SECONDS));
+    } finally {
+      threads.shutdownNow();
+    }
+  }
+
+  private static Callable<Void> holdStripe(final String name, final CountDownLatch held, final CountDownLatch release) {
+    return new Callable<Void>() {
+      public Void call() {
+        ReentrantLock lock = TypeLoadingLocks.lock(name);
+        try {
+          held.countDown();
+          await(release);
+          return null;
+        } finally {
+          TypeLoadingLocks.unlock(lock);
+        }
+      }
+    };
+  }
+
+  private static Callable<Boolean> crossedLoad(final String name, final String dependency, final CountDownLatch bothHeld) {
+    return new Callable<Boolean>() {
+      public Boolean call() throws Exception {
+        ReentrantLock lock = TypeLoadingLocks.lock(name);
+        try {
+          bothHeld.countDown();
+          assertTrue(bothHeld.await(10, TimeUnit.SECONDS));
+          ReentrantLock nested = TypeLoadingLocks.lock(dependency);
+          try {
+            return nested == null;
+          } finally {
+            TypeLoadingLocks.unlock(nested);
+          }
+        } finally {
+          TypeLoadingLocks.unlock(lock);
+        }
+      }
+    };
+  }
+
+  private static String otherStripe(String name) {
+    for (int i = 0; ; i++) {
+      String other = name + i;
+      if (TypeLoadingLocks.stripe(other) != TypeLoadingLocks.stripe(name)) {
+        return other;
+      }
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      if (!latch.await(10, TimeUnit.SECONDS)) {
+        throw new IllegalStateException("not released");
+      }
+    } catch (InterruptedException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
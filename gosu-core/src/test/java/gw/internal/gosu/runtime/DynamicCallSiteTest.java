@@ -0,0 +1,238 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.internal.gosu.runtime;
+
+import gw.internal.gosu.dynamic.DynamicType;
+import gw.lang.Gosu;
+import gw.lang.reflect.IPlaceholder;
+import gw.lang.reflect.IType;
+import gw.lang.reflect.TypeSystem;
+import gw.lang.reflect.java.JavaTypes;
+import junit.framework.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Collections;
+
+public class DynamicCallSiteTest extends Assert {
+
+  @BeforeClass
+  public static void beforeTestClass() throws Exception {
+    // The test classes directory holds the Greeter structure
+    Gosu.init(Collections.singletonList(new File(DynamicCallSiteTest.class.getProtectionDomain().getCodeSource().getLocation().toURI())));
+  }
+
+  @Test
+  public void firstReceiverTypeMakesTheSiteMonomorphic() {
+    DynamicCallSite site = DynamicCallSite.bootstrap("Name");
+    assertEquals(0, site.getEntryCount());
+    assertEquals("a", site.getPropertyDynamically(new A()));
+    assertEquals(1, site.getEntryCount());
+    assertEquals("a", site.getPropertyDynamically(new A()));
+    assertEquals(1, site.getEntryCount());
+    assertFalse(site.isMegamorphic());
+  }
+
+  @Test
+  public void eachReceiverTypeAddsAnEntryUpToTheLimit() {
+    DynamicCallSite site = DynamicCallSite.bootstrap("Name");
+    Receiver[] receivers = {new A(), new B(), new C(), new D()};
+    for (int i = 0; i < receivers.length; i++) {
+      assertEquals(receivers[i].getName(), site.getPropertyDynamically(receivers[i]));
+      assertEquals(i + 1, site.getEntryCount());
+    }
+    assertEquals(DynamicCallSite.MAX_POLYMORPHIC_ENTRIES, site.getEntryCount());
+    for (Receiver receiver : receivers) {
+      assertEquals(receiver.getName(), site.getPropertyDynamically(receiver));
+    }
+    assertEquals(DynamicCallSite.MAX_POLYMORPHIC_ENTRIES, site.getEntryCount());
+    assertFalse(site.isMegamorphic());
+  }
+
+  @Test
+  public void fifthReceiverTypeMakesTheSiteMegamorphic() {
+    DynamicCallSite site = DynamicCallSite.bootstrap("Name");
+    for (Receiver receiver : new Receiver[]{new A(), new B(), new C(), new D()}) {
+      site.getPropertyDynamically(receiver);
+    }
+    assertEquals("e", site.getPropertyDynamically(new E()));
+    assertTrue(site.isMegamorphic());
+    assertEquals(0, site.getEntryCount());
+
+    // Still answers through the slow path, without caching
+    assertEquals("a", site.getPropertyDynamically(new A()));
+    assertEquals("e", site.getPropertyDynamically(new E()));
+    assertEquals(0, site.getEntryCount());
+  }
+
+  @Test
+  public void refreshDiscardsTheEntries() {
+    DynamicCallSite site = DynamicCallSite.bootstrap("Name");
+    for (Receiver receiver : new Receiver[]{new A(), new B(), new C(), new D(), new E()}) {
+      site.getPropertyDynamically(receiver);
+    }
+    assertTrue(site.isMegamorphic());
+    TypeSystem.refresh(true);
+    assertEquals("a", site.getPropertyDynamically(new A()));
+    assertFalse(site.isMegamorphic());
+    assertEquals(1, site.getEntryCount());
+
+    TypeSystem.refresh(true);
+    assertEquals("b", site.getPropertyDynamically(new B()));
+    assertEquals(1, site.getEntryCount());
+  }
+
+  @Test
+  public void setsProperties() {
+    DynamicCallSite site = DynamicCallSite.bootstrap("Name");
+    A a = new A();
+    site.setPropertyDynamically(a, "renamed");
+    assertEquals("renamed", a.getName());
+    assertEquals(1, site.getEntryCount());
+    site.setPropertyDynamically(a, "again");
+    assertEquals("again", a.getName());
+    assertEquals(1, site.getEntryCount());
+  }
+
+  @Test
+  public void dynamicCallsAreKeyedOnTheArgumentTypesToo() {
+    IType dynamicType = TypeSystem.getByFullName(DynamicType.QNAME);
+    IType[] paramTypes = {dynamicType};
+    DynamicCallSite site = DynamicCallSite.bootstrap("greet");
+    A a = new A();
+    assertEquals("a greets x", site.invokeMethodInfo(dynamicType, paramTypes, a, new Object[]{"x"}));
+    assertEquals(1, site.getEntryCount());
+    assertEquals("a greets 2 times", site.invokeMethodInfo(dynamicType, paramTypes, a, new Object[]{2}));
+    assertEquals(2, site.getEntryCount());
+    assertEquals("a greets y", site.invokeMethodInfo(dynamicType, paramTypes, a, new Object[]{"y"}));
+    assertEquals(2, site.getEntryCount());
+  }
+
+  @Test
+  public void staticallyTypedCallsAreKeyedOnTheReceiverType() {
+    IType type = TypeSystem.get(A.class);
+    IType[] paramTypes = {JavaTypes.STRING()};
+    DynamicCallSite site = DynamicCallSite.bootstrap("greet");
+    assertEquals("a greets x", site.invokeMethodInfo(type, paramTypes, new A(), new Object[]{"x"}));
+    assertEquals("a greets y", site.invokeMethodInfo(type, paramTypes, new A(), new Object[]{"y"}));
+    assertEquals(1, site.getEntryCount());
+  }
+
+  @Test
+  public void dispatchMethodsAnswerFirst() {
+    IType dynamicType = TypeSystem.getByFullName(DynamicType.QNAME);
+    Dispatching dispatching = new Dispatching();
+
+    DynamicCallSite getter = DynamicCallSite.bootstrap("Name");
+    assertEquals("$getProperty Name", getter.getPropertyDynamically(dispatching));
+    assertEquals("$getProperty Name", getter.getPropertyDynamically(dispatching));
+    assertEquals(1, getter.getEntryCount());
+
+    DynamicCallSite setter = DynamicCallSite.bootstrap("Name");
+    setter.setPropertyDynamically(dispatching, "value");
+    assertEquals("$setProperty Name", dispatching._lastSet);
+
+    DynamicCallSite method = DynamicCallSite.bootstrap("greet");
+    assertEquals("$invokeMethod greet 1", method.invokeMethodInfo(dynamicType, new IType[]{dynamicType}, dispatching, new Object[]{"x"}));
+    assertEquals(1, method.getEntryCount());
+
+    // Unhandled, falls through to the member
+    DynamicCallSite unhandled = DynamicCallSite.bootstrap("Title");
+    assertEquals("title", unhandled.getPropertyDynamically(dispatching));
+  }
+
+  @Test
+  public void structureTypedCallsAreKeyedOnTheRuntimeType() {
+    IType greeter = TypeSystem.getByFullName("gw.internal.gosu.runtime.Greeter");
+    DynamicCallSite property = DynamicCallSite.bootstrap("Name");
+    assertEquals("a", property.getProperty(new A(), greeter));
+    assertEquals("b", property.getProperty(new B(), greeter));
+    assertEquals("a", property.getProperty(new A(), greeter));
+    assertEquals(2, property.getEntryCount());
+
+    DynamicCallSite method = DynamicCallSite.bootstrap("greet");
+    IType[] paramTypes = {JavaTypes.STRING()};
+    assertEquals("a greets x", method.invokeMethodInfo(greeter, paramTypes, new A(), new Object[]{"x"}));
+    assertEquals("b greets x", method.invokeMethodInfo(greeter, paramTypes, new B(), new Object[]{"x"}));
+    assertEquals(2, method.getEntryCount());
+  }
+
+  public static abstract class Receiver {
+    public abstract String getName();
+
+    public String greet(String s) {
+      return getName() + " greets " + s;
+    }
+
+    public String greet(Integer times) {
+      return getName() + " greets " + times + " times";
+    }
+  }
+
+  public static class A extends Receiver {
+    private String _name = "a";
+
+    public String getName() {
+      return _name;
+    }
+
+    public void setName(String name) {
+      _name = name;
+    }
+  }
+
+  public static class B extends Receiver {
+    public String getName() {
+      return "b";
+    }
+  }
+
+  public static class C extends Receiver {
+    public String getName() {
+      return "c";
+    }
+  }
+
+  public static class D extends Receiver {
+    public String getName() {
+      return "d";
+    }
+  }
+
+  public static class E extends Receiver {
+    public String getName() {
+      return "e";
+    }
+  }
+
+  public static class Dispatching extends Receiver {
+    String _lastSet;
+
+    public String getName() {
+      return "name";
+    }
+
+    public void setName(String name) {
+    }
+
+    public String getTitle() {
+      return "title";
+    }
+
+    public Object $getProperty(String name) {
+      return name.equals("Name") ? "$getProperty " + name : IPlaceholder.UNHANDLED;
+    }
+
+    public Object $setProperty(String name, Object value) {
+      _lastSet = "$setProperty " + name;
+      return null;
+    }
+
+    public Object $invokeMethod(String name, Object[] args) {
+      return "$invokeMethod " + name + " " + args.length;
+    }
+  }
+}
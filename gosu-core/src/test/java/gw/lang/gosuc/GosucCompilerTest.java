@@ -0,0 +1,352 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.lang.gosuc;
+
+import gw.lang.Gosu;
+import gw.util.ClassFileSummary;
+import gw.util.StreamUtil;
+import junit.framework.Assert;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Runs gosuc in its own JVM over a small project written to a temporary directory.
+ */
+public class GosucCompilerTest extends Assert {
+
+  private static GosucProject _environment;
+
+  private File _dir;
+  private File _src;
+  private File _state;
+  private List<String> _output;
+
+  @BeforeClass
+  public static void beforeTestClass() {
+    Gosu.init();
+    // The SDK and global loaders of this JVM
+    _environment = new GosucProject();
+  }
+
+  @Before
+  public void setUp() throws IOException {
+    _dir = File.createTempFile("gosuc", "");
+    _dir.delete();
+    _dir.mkdirs();
+    _src = new File(_dir, "src");
+    _state = new File(_dir, "build.state");
+    writeSource("p/Lib.gs", "package p\n\nclass Lib {\n  function value() : int {\n    return 1\n  }\n}\n");
+    writeSource("p/User.gs", "package p\n\nclass User {\n  function use() : int {\n    return new Lib().value()\n  }\n}\n");
+    writeSource("q/Other.gs", "package q\n\nclass Other {\n  function name() : String {\n    return \"other\"\n  }\n}\n");
+    writeSource("r/Gone.gs", "package r\n\nclass Gone {\n}\n");
+    writeSource("r/Sibling.gs", "package r\n\nclass Sibling {\n}\n");
+  }
+
+  @After
+  public void tearDown() {
+    delete(_dir);
+  }
+
+  @Test
+  public void firstBuildIsFull() throws Exception {
+    compileIncremental();
+    assertOutput("Full build, 5 of 5 types to compile");
+    assertEquals(set("p.Lib", "p.User", "q.Other", "r.Gone", "r.Sibling"), getCompiledTypes());
+    assertTrue(classFile("p.Lib").isFile());
+    assertTrue(_state.isFile());
+  }
+
+  @Test
+  public void unchangedBuildCompilesNothing() throws Exception {
+    compileIncremental();
+    compileIncremental();
+    assertOutput("Incremental build, 0 of 5 types to compile");
+    assertEquals(set(), getCompiledTypes());
+    assertTrue(classFile("p.Lib").isFile());
+  }
+
+  @Test
+  public void bodyChangeDoesNotRecompileDependents() throws Exception {
+    compileIncremental();
+    writeSource("p/Lib.gs", "package p\n\nclass Lib {\n  function value() : int {\n    return 2\n  }\n}\n");
+    compileIncremental();
+    assertOutput("Incremental build, 1 of 5 types to compile");
+    assertEquals(set("p.Lib"), getCompiledTypes());
+  }
+
+  @Test
+  public void abiChangeRecompilesDependents() throws Exception {
+    compileIncremental();
+    writeSource("p/Lib.gs", "package p\n\nclass Lib {\n  function value() : int {\n    return 1\n  }\n  function added() : int {\n    return 2\n  }\n}\n");
+    compileIncremental();
+    assertOutput("Compiling 1 dependent types of changed signatures");
+    assertEquals(set("p.Lib", "p.User"), getCompiledTypes());
+  }
+
+  @Test
+  public void removedTypeIsDeletedAndItsPackageRecompiled() throws Exception {
+    compileIncremental();
+    assertTrue(classFile("r.Gone").isFile());
+    assertTrue(new File(_src, "r/Gone.gs").delete());
+    compileIncremental();
+    assertOutput("Incremental build, 1 of 4 types to compile");
+    assertEquals(set("r.Sibling"), getCompiledTypes());
+    assertFalse(classFile("r.Gone").exists());
+  }
+
+  @Test
+  public void changedEnvironmentForcesAFullBuild() throws Exception {
+    compileIncremental();
+    File lib = new File(_dir, "lib");
+    lib.mkdirs();
+    compileIncremental(lib.getPath());
+    assertOutput("Full build, 5 of 5 types to compile");
+    compileIncremental(lib.getPath());
+    assertOutput("Incremental build, 0 of 5 types to compile");
+  }
+
+  @Test
+  public void changedJavaClassInAClassPathDirectoryForcesAFullBuild() throws Exception {
+    File lib = new File(_dir, "lib");
+    compileJava(lib, "j/Helper.java", "package j;\n\npublic class Helper {\n  public int value() {\n    return 1;\n  }\n}\n");
+    writeSource("p/UsesJava.gs", "package p\n\nclass UsesJava {\n  function use() : int {\n    return new j.Helper().value()\n  }\n}\n");
+    compileIncremental(lib.getPath());
+    assertOutput("Full build, 6 of 6 types to compile");
+    compileIncremental(lib.getPath());
+    assertOutput("Incremental build, 0 of 6 types to compile");
+
+    // Only a file below the directory changes, not the directory itself
+    File helper = new File(lib, "j/Helper.class");
+    long lastModified = lib.lastModified();
+    compileJava(lib, "j/Helper.java", "package j;\n\npublic class Helper {\n  public Integer value() {\n    return 1;\n  }\n}\n");
+    assertTrue(helper.setLastModified(helper.lastModified() + 2000));
+    assertTrue(lib.setLastModified(lastModified));
+    assertTrue(new File(lib, "j").setLastModified(lastModified));
+    compileIncremental(lib.getPath());
+    assertOutput("Full build, 6 of 6 types to compile");
+    assertTrue(getCompiledTypes().contains("p.UsesJava"));
+  }
+
+  @Test
+  public void ownClassFilesOnTheClassPathDoNotForceAFullBuild() throws Exception {
+    // As in a Maven build, where the output directory is on the classpath
+    File out = new File(_dir, "out");
+    out.mkdirs();
+    compileIncremental(out.getPath());
+    compileIncremental(out.getPath());
+    assertOutput("Incremental build, 0 of 5 types to compile");
+    writeSource("p/Lib.gs", "package p\n\nclass Lib {\n  function value() : int {\n    return 2\n  }\n}\n");
+    compileIncremental(out.getPath());
+    assertOutput("Incremental build, 1 of 5 types to compile");
+  }
+
+  @Test
+  public void corruptStateForcesAFullBuild() throws Exception {
+    compileIncremental();
+    List<String> lines = readLines(_state);
+    // Truncated in the middle of an entry
+    write(_state, lines.get(0) + "\n" + lines.get(1) + "\np.Lib\t12");
+    compileIncremental();
+    assertOutput("Full build, 5 of 5 types to compile");
+    assertEquals(5, getCompiledTypes().size());
+
+    write(_state, "garbage");
+    compileIncremental();
+    assertOutput("Full build, 5 of 5 types to compile");
+    compileIncremental();
+    assertOutput("Incremental build, 0 of 5 types to compile");
+  }
+
+  @Test
+  public void parallelBuildMatchesSingleThreadedBuild() throws Exception {
+    // Types that load each other while they compile
+    for (int i = 0; i < 8; i++) {
+      writeSource("s/Chain" + i + ".gs", "package s\n\nclass Chain" + i + " {\n  function next() : " +
+                                         (i < 7 ? "Chain" + (i + 1) : "p.User") + " {\n    return null\n  }\n" +
+                                         "  static class Inner {\n    var _outer : Chain" + i + "\n  }\n}\n");
+    }
+    File single = new File(_dir, "single");
+    gosuc(single, Collections.<String>emptyList());
+    List<String> singleOutput = _output;
+    assertNoOutput("Compiled ");
+    File parallel = new File(_dir, "parallel");
+    gosuc(parallel, Collections.<String>emptyList(), GosucArg.THREADS.getName(), "4");
+    assertOutput("Compiled ", "using 4 thread(s)");
+    assertEquals(getCompiledTypes(singleOutput), getCompiledTypes(_output));
+
+    Map<String, File> singleFiles = listClassFiles(single, "", new TreeMap<String, File>());
+    Map<String, File> parallelFiles = listClassFiles(parallel, "", new TreeMap<String, File>());
+    assertEquals(singleFiles.keySet(), parallelFiles.keySet());
+    assertTrue(singleFiles.containsKey("s/Chain0$Inner.class"));
+    for (String path : singleFiles.keySet()) {
+      ClassFileSummary expected = ClassFileSummary.read(StreamUtil.getContent(new FileInputStream(singleFiles.get(path))));
+      ClassFileSummary actual = ClassFileSummary.read(StreamUtil.getContent(new FileInputStream(parallelFiles.get(path))));
+      assertEquals(path, expected.getSignatures(), actual.getSignatures());
+      assertEquals(path, expected.getReferences(), actual.getReferences());
+    }
+  }
+
+  @Test
+  public void verboseBuildReportsTheSummary() throws Exception {
+    gosuc(new File(_dir, "verbose"), Collections.<String>emptyList(), GosucArg.VERBOSE.getName());
+    assertOutput("Compiled ", "using 1 thread(s)");
+  }
+
+  private void compileJava(File out, String path, String source) throws IOException {
+    File file = new File(new File(_dir, "java"), path);
+    file.getParentFile().mkdirs();
+    write(file, source);
+    out.mkdirs();
+    JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+    assertEquals(0, javac.run(null, null, null, "-d", out.getPath(), file.getPath()));
+  }
+
+  private void compileIncremental(String... classpath) throws Exception {
+    gosuc(new File(_dir, "out"), Arrays.asList(classpath), GosucArg.INCREMENTAL.getName(), _state.getPath());
+  }
+
+  private void gosuc(File out, List<String> classpath, String... args) throws Exception {
+    GosucModule module = new GosucModule("main", Collections.singletonList(_src.getPath()), classpath, out.getPath(),
+                                         Collections.<GosucDependency>emptyList());
+    GosucProject project = new GosucProject("gosuc_test", _environment.getSdk(), Collections.singletonList(module),
+                                            _environment.getGlobalLoaders());
+    File projectFile = new File(_dir, "test.gosuc");
+    write(projectFile, project.write());
+
+    List<String> command = new ArrayList<String>();
+    command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(Gosuc.class.getName());
+    // In the order gosuc expects them
+    command.add(GosucArg.PROJECT.getName());
+    command.add(projectFile.getPath());
+    command.addAll(Arrays.asList(args));
+    Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+    process.getOutputStream().close();
+    _output = readLines(process.getInputStream());
+    assertEquals(String.valueOf(_output), 0, process.waitFor());
+  }
+
+  private Set<String> getCompiledTypes() {
+    return getCompiledTypes(_output);
+  }
+
+  private static Set<String> getCompiledTypes(List<String> output) {
+    Set<String> types = new HashSet<String>();
+    for (String line : output) {
+      if (line.startsWith("Compiling ") && line.endsWith("...")) {
+        types.add(line.substring("Compiling ".length(), line.length() - "...".length()));
+      }
+      assertFalse(String.valueOf(output), line.startsWith("Error: "));
+    }
+    return types;
+  }
+
+  private void assertOutput(String line) {
+    assertTrue(String.valueOf(_output), _output.contains(line));
+  }
+
+  private void assertNoOutput(String prefix) {
+    for (String line : _output) {
+      assertFalse(String.valueOf(_output), line.startsWith(prefix));
+    }
+  }
+
+  private void assertOutput(String prefix, String part) {
+    for (String line : _output) {
+      if (line.startsWith(prefix) && line.contains(part)) {
+        return;
+      }
+    }
+    fail(String.valueOf(_output));
+  }
+
+  private static Map<String, File> listClassFiles(File dir, String path, Map<String, File> files) {
+    File[] children = dir.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        if (child.isDirectory()) {
+          listClassFiles(child, path + child.getName() + '/', files);
+        } else if (child.getName().endsWith(".class")) {
+          files.put(path + child.getName(), child);
+        }
+      }
+    }
+    return files;
+  }
+
+  private File classFile(String typeName) {
+    return new File(new File(_dir, "out"), typeName.replace('.', File.separatorChar) + ".class");
+  }
+
+  private void writeSource(String path, String source) throws IOException {
+    File file = new File(_src, path);
+    file.getParentFile().mkdirs();
+    write(file, source);
+  }
+
+  private static Set<String> set(String... values) {
+    return new HashSet<String>(Arrays.asList(values));
+  }
+
+  private static void write(File file, String content) throws IOException {
+    Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+    try {
+      writer.write(content);
+    } finally {
+      writer.close();
+    }
+  }
+
+  private static List<String> readLines(File file) throws IOException {
+    return readLines(new FileInputStream(file));
+  }
+
+  private static List<String> readLines(InputStream in) throws IOException {
+    List<String> lines = new ArrayList<String>();
+    BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+    try {
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        lines.add(line);
+      }
+    } finally {
+      reader.close();
+    }
+    return lines;
+  }
+
+  private static void delete(File file) {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        delete(child);
+      }
+    }
+    file.delete();
+  }
+}
@@ -0,0 +1,6 @@
+package gw.internal.gosu.runtime
+
+structure Greeter {
+  property get Name() : String
+  function greet( s : String ) : String
+}
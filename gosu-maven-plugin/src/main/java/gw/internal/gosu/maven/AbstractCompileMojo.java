@@ -4,7 +4,10 @@
 
 package gw.internal.gosu.maven;
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.google.common.io.Files;
 import gw.config.AbstractPlatformHelper;
 import gw.config.CommonServices;
@@ -12,6 +15,7 @@ import gw.config.IPlatformHelper;
 import gw.config.Registry;
 import gw.fs.IDirectory;
 import gw.lang.GosuShop;
+import gw.lang.gosuc.IncrementalBuildState;
 import gw.lang.init.GosuInitialization;
 import gw.lang.reflect.IType;
 import gw.lang.reflect.ITypeLoader;
@@ -38,9 +42,22 @@ import java.net.JarURLConnection;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  */
@@ -80,9 +97,28 @@ public abstract class AbstractCompileMojo extends AbstractMojo {
   @Parameter(defaultValue = "false")
   protected boolean ignoreErrors;
 
+  /**
+   * Number of threads to compile with.
+   */
+  @Parameter(property = "gosu.compile.threads", defaultValue = "1")
+  protected int threads;
+
+  /**
+   * Compile only the types that changed since the last build and the types that depend on their
+   * signatures, see {@link IncrementalBuildState}. The build state is kept in the build directory.
+   */
+  @Parameter(property = "gosu.compile.incremental", defaultValue = "false")
+  protected boolean incremental;
+
   // We need really global lock due to the URL#handlers being JVM-wide global.
   private static Object LOCK = "reallygloballock";
 
+  private final AtomicLong parseNanos = new AtomicLong();
+  private final AtomicLong generateNanos = new AtomicLong();
+  private final AtomicLong writeNanos = new AtomicLong();
+  private IncrementalBuildState state;
+  private Map<String, Long> sourceFingerprints;
+
   @Override
   public void execute() throws MojoExecutionException, MojoFailureException {
     if (skip) {
@@ -192,29 +228,153 @@ public abstract class AbstractCompileMojo extends AbstractMojo {
     // FIXME-isd: Iterate through gosu classes in the source directories only...
     ITypeLoader typeLoader = TypeSystem.getTypeLoader(GosuClassTypeLoader.class, TypeSystem.getCurrentModule());
     Set<? extends CharSequence> allTypeNames = typeLoader.getAllTypeNames();
-    int count = 0;
+    List<String> typeNames = Lists.newArrayList();
     for (CharSequence cs : allTypeNames) {
       String typeName = cs.toString();
       if (includeType(typeName)) {
-        IType type = TypeSystem.getByFullName(typeName);
-        if (type instanceof IGosuClass) {
-          IGosuClass gosuClass = (IGosuClass) type;
-
-          // Write class + inner classes
-          String fileName = type.getName().replace('.', '/');
-          count += compileClass(gosuClass, fileName);
-        }
+        typeNames.add(typeName);
+      }
+    }
+
+    long start = System.nanoTime();
+    int count = incremental ? compileIncremental(typeNames) : compileBatch(typeNames, null);
+    getLog().info("Compiled " + count + " Gosu types to the " + getOutputFolder() + " in " + toMillis(System.nanoTime() - start) +
+            "ms using " + Math.max(1, threads) + " thread(s) (load and parse " + toMillis(parseNanos.get()) +
+            "ms, generate " + toMillis(generateNanos.get()) + "ms, write " + toMillis(writeNanos.get()) + "ms)");
+  }
+
+  private int compileIncremental(List<String> typeNames) throws IOException {
+    List<File> classPath = Lists.newArrayList(getDependencies());
+    classPath.addAll(getJreClassPath());
+    classPath.addAll(getClassPath());
+    File stateFile = new File(mavenProject.getBuild().getDirectory(), "gosu-" + getOutputFolder().getName() + ".state");
+    state = IncrementalBuildState.load(stateFile, IncrementalBuildState.fingerprintFiles(classPath, typeNames));
+    sourceFingerprints = new LinkedHashMap<String, Long>();
+    for (String typeName : typeNames) {
+      sourceFingerprints.put(typeName, IncrementalBuildState.fingerprintSource(TypeSystem.getByFullNameIfValid(typeName)));
+    }
+
+    Collection<String> batch = state.getTypesToCompile(sourceFingerprints);
+    getLog().info((state.isFullBuild() ? "Full build, " : "Incremental build, ") + batch.size() + " of " +
+            sourceFingerprints.size() + " Gosu types to compile");
+    Set<String> compiled = Sets.newHashSet();
+    int count = 0;
+    while (!batch.isEmpty()) {
+      compiled.addAll(batch);
+      Set<String> dependents = Collections.synchronizedSet(new LinkedHashSet<String>());
+      count += compileBatch(batch, dependents);
+      dependents.removeAll(compiled);
+      if (!dependents.isEmpty()) {
+        getLog().info("Compiling " + dependents.size() + " dependent Gosu types of changed signatures");
+      }
+      batch = dependents;
+    }
+    state.save();
+    return count;
+  }
+
+  /**
+   * @param dependents If compiling incrementally, collects the types to compile next
+   */
+  private int compileBatch(Collection<String> typeNames, Set<String> dependents) throws IOException {
+    if (threads > 1) {
+      return compileParallel(typeNames, dependents);
+    }
+    int count = 0;
+    for (String typeName : typeNames) {
+      count += compileTypeName(typeName, dependents);
+    }
+    return count;
+  }
+
+  /**
+   * Compiles the types on a pool of worker threads, each type with its inner classes. Types that
+   * depend on each other are still parsed in order by the type system's locking.
+   */
+  private int compileParallel(Collection<String> typeNames, final Set<String> dependents) throws IOException {
+    final IModule module = TypeSystem.getCurrentModule();
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+      private final AtomicInteger index = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "gosu-compile-" + index.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    try {
+      List<Future<Integer>> results = Lists.newArrayList();
+      for (final String typeName : typeNames) {
+        results.add(executor.submit(new Callable<Integer>() {
+          @Override
+          public Integer call() throws IOException {
+            TypeSystem.pushModule(module);
+            try {
+              return compileTypeName(typeName, dependents);
+            } finally {
+              TypeSystem.popModule(module);
+            }
+          }
+        }));
+      }
+      int count = 0;
+      for (Future<Integer> result : results) {
+        count += result.get();
       }
+      return count;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause(), IOException.class);
+      throw new IOException(e.getCause());
+    } finally {
+      executor.shutdownNow();
     }
-    getLog().info("Compiled " + count + " Gosu types to the " + getOutputFolder());
   }
 
-  private int compileClass(IGosuClass gosuClass, String fileName) throws IOException {
-    writeClassToDisk(gosuClass, fileName);
+  private int compileTypeName(String typeName, Set<String> dependents) throws IOException {
+    long start = System.nanoTime();
+    IType type = TypeSystem.getByFullName(typeName);
+    int count = 0;
+    Map<File, byte[]> classFiles = Maps.newHashMap();
+    boolean success = true;
+    if (type instanceof IGosuClass) {
+      IGosuClass gosuClass = (IGosuClass) type;
+      gosuClass.isValid();
+      parseNanos.addAndGet(System.nanoTime() - start);
+
+      // Write class + inner classes
+      String fileName = type.getName().replace('.', '/');
+      count = compileClass(gosuClass, fileName, classFiles);
+      success = count == classFiles.size();
+    } else {
+      parseNanos.addAndGet(System.nanoTime() - start);
+    }
+
+    if (state != null) {
+      if (!(type instanceof IGosuClass)) {
+        dependents.addAll(state.recordSkipped(typeName, sourceFingerprints.get(typeName)));
+      } else if (success) {
+        dependents.addAll(state.recordCompiled((IGosuClass) type, sourceFingerprints.get(typeName), classFiles));
+      } else {
+        state.recordFailed(typeName);
+      }
+    }
+    return count;
+  }
+
+  private static long toMillis(long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+
+  private int compileClass(IGosuClass gosuClass, String fileName, Map<File, byte[]> classFiles) throws IOException {
+    writeClassToDisk(gosuClass, fileName, classFiles);
 
     int count = 1;
     for (IGosuClass innerClass : gosuClass.getInnerClasses()) {
-      compileClass(innerClass, fileName + '$' + innerClass.getRelativeName());
+      compileClass(innerClass, fileName + '$' + innerClass.getRelativeName(), classFiles);
       count++;
     }
     return count;
@@ -297,8 +457,9 @@ public abstract class AbstractCompileMojo extends AbstractMojo {
     return globalModule;
   }
 
-  private void writeClassToDisk(IGosuClass type, String fileName) throws IOException {
+  private void writeClassToDisk(IGosuClass type, String fileName, Map<File, byte[]> classFiles) throws IOException {
     File outputFile = new File(getOutputFolder(), fileName + ".class");
+    long start = System.nanoTime();
     byte[] bytes = null;
     if (ignoreErrors) {
       try {
@@ -310,9 +471,13 @@ public abstract class AbstractCompileMojo extends AbstractMojo {
     } else {
       bytes = type.compile();
     }
+    long generated = System.nanoTime();
+    generateNanos.addAndGet(generated - start);
     if (bytes != null) {
       outputFile.getParentFile().mkdirs();
       Files.write(bytes, outputFile);
+      writeNanos.addAndGet(System.nanoTime() - generated);
+      classFiles.put(outputFile, bytes);
     }
   }
 
@@ -16,6 +16,7 @@ uses gw.xml.XmlParseOptions
 uses gw.xml.ws.AsyncResponse
 uses gw.xml.ws.WsdlFault
 uses gw.xml.ws.WebServiceException
+uses java.util.concurrent.CountDownLatch
 uses java.util.concurrent.TimeUnit
 uses java.util.concurrent.TimeoutException
 uses gw.xsd.w3c.xml.attributes.Lang
@@ -31,18 +32,20 @@ uses java.util.Collections
 uses gw.internal.xml.ws.rt.DigestAuthentication
 uses gw.xml.ws.HttpHeaders
 uses gw.internal.xml.ws.server.WebservicesServletBase
+uses gw.internal.xml.ws.WsiClientExecutor
 
 final class AsyncResponseImpl<T, E extends XmlElement> extends AsyncResponse<T, E> implements AsyncResponseInternal<T, E> {
 
   var _port : WsdlPortImpl
   var _opTypeData : WsdlOperationInfo
-  var _thread : Thread
+  var _call : Runnable
   var _requestEnvelope : E
   var _responseEnvelope : E
   var _throwable : Throwable
-  var _done : boolean
+  var _done = new CountDownLatch( 1 )
   var _soapVersion : SoapVersion
   var _started : boolean
+  var _submitted : WsiClientExecutor.Call
   var _requestTransform( is : InputStream ) : InputStream
   var _responseTransform( is : InputStream ) : InputStream
   var _responseHttpHeaders : HttpHeaders
@@ -68,7 +71,7 @@ final class AsyncResponseImpl<T, E extends XmlElement> extends AsyncResponse<T,
     _opTypeData = opTypeData
     _port = port
     _requestEnvelope = reqEnv
-    _thread = new Thread( "WSI-AsyncResponse" ) {
+    _call = new Runnable() {
       override function run()
       {
         var is : InputStream
@@ -77,6 +80,9 @@ final class AsyncResponseImpl<T, E extends XmlElement> extends AsyncResponse<T,
           var httpHeaders = port.Config.Http.RequestHeaders
           while ( true ) {
             var conn = gw.internal.xml.ws.WebservicesClientConnector.forURI( port.Address )
+            if ( WsiClientExecutor.HttpTimeout > 0 ) {
+              conn.setTimeout( WsiClientExecutor.HttpTimeout )
+            }
             if ( _soapVersion == SOAP_12 ) {
               var contentType = "application/soap+xml;charset=${charset}"
               if ( opTypeData != null && opTypeData.SoapAction != null ) {
@@ -176,12 +182,13 @@ final class AsyncResponseImpl<T, E extends XmlElement> extends AsyncResponse<T,
           _throwable = t
         } 
         finally {
-          using ( _thread as IMonitorLock ) {
-            _done = true
-            _thread.notifyAll()
+          try {
+            if ( is != null ) {
+              is.close()
+            }
           }
-          if ( is != null ) {
-            is.close()
+          finally {
+            _done.countDown()
           }
         }
       }
@@ -278,30 +285,29 @@ final class AsyncResponseImpl<T, E extends XmlElement> extends AsyncResponse<T,
       return _responseEnvelope
     }
     start()
-    var endTime = System.currentTimeMillis() + unit.toMillis( timeout )
-    using ( _thread as IMonitorLock ) {
-      if (timeout == 0) {
-        if (!_done) {
-          throw new TimeoutException()
-        }
-      } else if (timeout > 0) {
-        while (!_done) {
-          var remaining = endTime - System.currentTimeMillis()
-          if (remaining <= 0) {
-            throw new TimeoutException()
-          }
-          _thread.wait( remaining )
-        }
-      } else {
-        while (!_done) {
-          _thread.wait()
-        }
+    if (timeout == 0) {
+      if (_done.Count != 0) {
+        throw new TimeoutException()
       }
-      if (_throwable != null) {
-        throw GosuExceptionUtil.forceThrow( _throwable )
+    } else if (timeout > 0) {
+      // the time in line for a pool thread counts against the timeout too
+      var deadline = System.nanoTime() + unit.toNanos( timeout )
+      if (_submitted != null && !_submitted.awaitRunning( timeout, unit )) {
+        throw new TimeoutException()
       }
-      return _responseEnvelope
+      if (!_done.await( deadline - System.nanoTime(), TimeUnit.NANOSECONDS )) {
+        throw new TimeoutException()
+      }
+    } else {
+      if (_submitted != null) {
+        _submitted.awaitRunning()
+      }
+      _done.await()
+    }
+    if (_throwable != null) {
+      throw GosuExceptionUtil.forceThrow( _throwable )
     }
+    return _responseEnvelope
   }
 
   /**
@@ -346,7 +352,7 @@ final class AsyncResponseImpl<T, E extends XmlElement> extends AsyncResponse<T,
     if ( ! _started ) {
       _started = true
       if ( _responseEnvelope == null ) {
-        _thread.start()
+        _submitted = WsiClientExecutor.execute( _call )
       }
     }
   }
@@ -358,7 +364,7 @@ final class AsyncResponseImpl<T, E extends XmlElement> extends AsyncResponse<T,
     }
     _started = true
     if ( _responseEnvelope == null ) {
-      _thread.run()
+      _call.run()
     }
   }
 
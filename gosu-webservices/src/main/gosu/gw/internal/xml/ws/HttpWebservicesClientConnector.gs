@@ -26,6 +26,12 @@ class HttpWebservicesClientConnector extends WebservicesClientConnector {
     _conn.setRequestProperty( key, value )
   }
 
+  override function setTimeout( millis : long ) {
+    var timeout = millis > Integer.MAX_VALUE ? Integer.MAX_VALUE : millis as int
+    _conn.ConnectTimeout = timeout
+    _conn.ReadTimeout = timeout
+  }
+
   override property get OutputStream() : OutputStream {
     try {
       return _conn.OutputStream
@@ -11,6 +11,12 @@ abstract class WebservicesClientConnector {
 
   var _uri : URI as URI
 
+  /**
+   * Creates the connectors for http and https addresses, replacing the HttpURLConnection based
+   * one e.g., with a connector on a pooling HTTP client. Null restores the default.
+   */
+  static var _httpConnectorFactory( uri : URI ) : WebservicesClientConnector as HttpConnectorFactory
+
   static function forURI( uri: URI ) : WebservicesClientConnector {
     if ( uri.Scheme == "local" ) {
       return new LocalWebservicesClientConnector( uri )
@@ -19,6 +25,10 @@ abstract class WebservicesClientConnector {
       return new FileWebservicesClientConnector( uri )
     }
     else {
+      var factory = _httpConnectorFactory
+      if ( factory != null ) {
+        return factory( uri )
+      }
       return new HttpWebservicesClientConnector( uri )
     }
   }
@@ -28,6 +38,12 @@ abstract class WebservicesClientConnector {
   }
   
   abstract function setHttpHeader( key : String, value : String )
+
+  /**
+   * Limits how long connecting and waiting for the response may take, if the transport can
+   */
+  function setTimeout( millis : long ) {
+  }
   
   abstract property get OutputStream() : OutputStream
   
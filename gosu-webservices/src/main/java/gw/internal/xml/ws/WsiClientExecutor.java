@@ -0,0 +1,211 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.internal.xml.ws;
+
+import gw.lang.reflect.TypeSystem;
+import gw.lang.reflect.module.IModule;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs started asynchronous web service calls (see AsyncResponse.start()) on a shared, bounded
+ * pool of daemon threads instead of a new thread per call, and counts the calls for monitoring.
+ * <p/>
+ * The pool has gosu.wsi.client.threads threads (64 by default), idle threads time out, and calls
+ * beyond that wait in line. Set your own executor with {@link #setExecutor(ExecutorService)} e.g.,
+ * one shared with the rest of the application.
+ * <p/>
+ * A call runs with the context class loader and the Gosu module of the thread that started it.
+ * Other thread locals aren't carried over, an executor of your own can wrap the calls to do that.
+ * A call waiting for the response of another call that hasn't started yet runs that call itself,
+ * so calls nested in pooled calls can't use up the pool and deadlock.
+ * <p/>
+ * The port's CallTimeout limits how long a caller waits for the response, both in line for a thread
+ * and while the call runs. Connect and read timeouts of the HTTP transport are separate,
+ * gosu.wsi.client.http.timeout milliseconds (5 minutes by default, 0 for the JDK's), so a call to
+ * an unresponsive server can't hold a pool thread forever.
+ */
+public class WsiClientExecutor {
+
+  private static final int DEFAULT_THREADS = Integer.getInteger( "gosu.wsi.client.threads", 64 );
+  private static final int HTTP_TIMEOUT = Integer.getInteger( "gosu.wsi.client.http.timeout", 5 * 60 * 1000 );
+
+  private static final ThreadLocal<Boolean> IN_CALL = new ThreadLocal<Boolean>();
+
+  private static volatile ExecutorService _executor;
+  private static final AtomicInteger _queued = new AtomicInteger();
+  private static final AtomicInteger _inFlight = new AtomicInteger();
+  private static final AtomicLong _completed = new AtomicLong();
+
+  private WsiClientExecutor() {
+  }
+
+  /**
+   * @return The started call, to wait for it to run
+   */
+  public static Call execute( Runnable call ) {
+    Call started = new Call( call );
+    _queued.incrementAndGet();
+    try {
+      getExecutor().execute( started );
+    }
+    catch ( RuntimeException ex ) {
+      _queued.decrementAndGet();
+      throw ex;
+    }
+    return started;
+  }
+
+  /**
+   * @param executor The executor for asynchronous calls, or null to go back to the default pool.
+   *   The previous executor is not shut down.
+   */
+  public static synchronized void setExecutor( ExecutorService executor ) {
+    _executor = executor;
+  }
+
+  /**
+   * @return The connect and read timeout in milliseconds for HTTP transports, or 0 for the JDK's
+   */
+  public static int getHttpTimeout() {
+    return HTTP_TIMEOUT;
+  }
+
+  /**
+   * @return The number of started calls waiting for a thread
+   */
+  public static int getQueuedCalls() {
+    return _queued.get();
+  }
+
+  /**
+   * @return The number of calls running now
+   */
+  public static int getInFlightCalls() {
+    return _inFlight.get();
+  }
+
+  /**
+   * @return The number of calls finished, successfully or not
+   */
+  public static long getCompletedCalls() {
+    return _completed.get();
+  }
+
+  private static ExecutorService getExecutor() {
+    ExecutorService executor = _executor;
+    if ( executor == null ) {
+      synchronized ( WsiClientExecutor.class ) {
+        executor = _executor;
+        if ( executor == null ) {
+          ThreadPoolExecutor pool = new ThreadPoolExecutor( DEFAULT_THREADS, DEFAULT_THREADS, 60, TimeUnit.SECONDS,
+                                                            new LinkedBlockingQueue<Runnable>(), new ClientThreadFactory() );
+          pool.allowCoreThreadTimeOut( true );
+          _executor = executor = pool;
+        }
+      }
+    }
+    return executor;
+  }
+
+  /**
+   * A started call. It runs once, on a pool thread or on a pooled call waiting for it.
+   */
+  public static final class Call implements Runnable {
+    private final Runnable _call;
+    private final ClassLoader _contextLoader;
+    private final IModule _module;
+    private final AtomicBoolean _claimed = new AtomicBoolean();
+    private final CountDownLatch _running = new CountDownLatch( 1 );
+
+    private Call( Runnable call ) {
+      Thread thread = Thread.currentThread();
+      _call = call;
+      _contextLoader = thread.getContextClassLoader();
+      _module = TypeSystem.getCurrentModule();
+    }
+
+    @Override
+    public void run() {
+      if ( _claimed.compareAndSet( false, true ) ) {
+        runClaimed();
+      }
+    }
+
+    /**
+     * Waits until the call is running or done. A pooled call waiting for a call still in line
+     * runs it on its own thread instead, since the pool may have no other thread to give it.
+     */
+    public void awaitRunning() throws InterruptedException {
+      if ( IN_CALL.get() != null && _claimed.compareAndSet( false, true ) ) {
+        runClaimed();
+      }
+      else {
+        _running.await();
+      }
+    }
+
+    /**
+     * As {@link #awaitRunning()}, for at most the given time
+     *
+     * @return False if the call is still waiting for a thread
+     */
+    public boolean awaitRunning( long timeout, TimeUnit unit ) throws InterruptedException {
+      if ( IN_CALL.get() != null && _claimed.compareAndSet( false, true ) ) {
+        runClaimed();
+        return true;
+      }
+      return _running.await( timeout, unit );
+    }
+
+    private void runClaimed() {
+      _queued.decrementAndGet();
+      _inFlight.incrementAndGet();
+      _running.countDown();
+      Thread thread = Thread.currentThread();
+      ClassLoader contextLoader = thread.getContextClassLoader();
+      Boolean inCall = IN_CALL.get();
+      IN_CALL.set( Boolean.TRUE );
+      thread.setContextClassLoader( _contextLoader );
+      if ( _module != null ) {
+        TypeSystem.pushModule( _module );
+      }
+      try {
+        _call.run();
+      }
+      finally {
+        if ( _module != null ) {
+          TypeSystem.popModule( _module );
+        }
+        thread.setContextClassLoader( contextLoader );
+        if ( inCall == null ) {
+          IN_CALL.remove();
+        }
+        _inFlight.decrementAndGet();
+        _completed.incrementAndGet();
+      }
+    }
+  }
+
+  private static class ClientThreadFactory implements ThreadFactory {
+    private final AtomicInteger _count = new AtomicInteger();
+
+    @Override
+    public Thread newThread( Runnable r ) {
+      Thread thread = new Thread( r, "WSI-AsyncResponse-" + _count.incrementAndGet() );
+      thread.setDaemon( true );
+      return thread;
+    }
+  }
+
+}
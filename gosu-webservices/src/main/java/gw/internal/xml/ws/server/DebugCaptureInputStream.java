@@ -0,0 +1,62 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.internal.xml.ws.server;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Captures what is read through it for a debug log message, see {@link DebugCaptureOutputStream},
+ * so a request can be logged while it is parsed instead of buffered first.
+ */
+public class DebugCaptureInputStream extends FilterInputStream {
+
+  private final DebugCaptureOutputStream _capture;
+
+  public DebugCaptureInputStream( InputStream in, DebugCaptureOutputStream capture ) {
+    super( in );
+    _capture = capture;
+  }
+
+  @Override
+  public int read() throws IOException {
+    int b = super.read();
+    if ( b >= 0 ) {
+      _capture.write( b );
+    }
+    return b;
+  }
+
+  @Override
+  public int read( byte[] b, int off, int len ) throws IOException {
+    int n = super.read( b, off, len );
+    if ( n > 0 ) {
+      _capture.write( b, off, n );
+    }
+    return n;
+  }
+
+  @Override
+  public long skip( long n ) throws IOException {
+    // Skipped bytes are read so they're captured too
+    byte[] buffer = new byte[(int) Math.min( n, 8192 )];
+    long skipped = 0;
+    while ( skipped < n ) {
+      int read = read( buffer, 0, (int) Math.min( n - skipped, buffer.length ) );
+      if ( read < 0 ) {
+        break;
+      }
+      skipped += read;
+    }
+    return skipped;
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+}
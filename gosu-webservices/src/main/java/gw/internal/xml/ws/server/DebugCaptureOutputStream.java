@@ -0,0 +1,94 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.internal.xml.ws.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+
+/**
+ * Keeps the first bytes written for a debug log message and counts the rest, so logging a
+ * message of any size takes a bounded amount of memory.
+ * <p/>
+ * The limit is gosu.wsi.debug.log.limit bytes, 64K by default, or whatever
+ * {@link #setDefaultLimit(int)} sets.
+ */
+public class DebugCaptureOutputStream extends OutputStream {
+
+  public static final String LIMIT_SYSTEM_PROP = "gosu.wsi.debug.log.limit";
+
+  private static volatile int _defaultLimit = Integer.getInteger( LIMIT_SYSTEM_PROP, 64 * 1024 );
+
+  private final ByteArrayOutputStream _captured = new ByteArrayOutputStream();
+  private final int _limit;
+  private long _count;
+
+  public DebugCaptureOutputStream() {
+    this( _defaultLimit );
+  }
+
+  public DebugCaptureOutputStream( int limit ) {
+    _limit = limit;
+  }
+
+  @Override
+  public void write( int b ) throws IOException {
+    if ( _count < _limit ) {
+      _captured.write( b );
+    }
+    _count++;
+  }
+
+  @Override
+  public void write( byte[] b, int off, int len ) throws IOException {
+    if ( _count < _limit ) {
+      _captured.write( b, off, (int) Math.min( len, _limit - _count ) );
+    }
+    _count += len;
+  }
+
+  public static int getDefaultLimit() {
+    return _defaultLimit;
+  }
+
+  /**
+   * @param limit the number of bytes new captures keep
+   */
+  public static void setDefaultLimit( int limit ) {
+    if ( limit < 0 ) {
+      throw new IllegalArgumentException( "Negative limit: " + limit );
+    }
+    _defaultLimit = limit;
+  }
+
+  public int getLimit() {
+    return _limit;
+  }
+
+  /**
+   * @return the number of bytes written, captured or not
+   */
+  public long getCount() {
+    return _count;
+  }
+
+  public boolean isTruncated() {
+    return _count > _limit;
+  }
+
+  /**
+   * @param charset the charset of the captured bytes, or null for UTF-8
+   * @return the captured text, noting how much was left out
+   */
+  public String toString( String charset ) throws UnsupportedEncodingException {
+    String text = _captured.toString( charset == null ? "UTF-8" : charset );
+    if ( isTruncated() ) {
+      text += "\n... [truncated, " + _count + " bytes total]";
+    }
+    return text;
+  }
+
+}
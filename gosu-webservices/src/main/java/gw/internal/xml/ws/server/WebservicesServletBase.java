@@ -32,6 +32,7 @@ import gw.internal.xml.xsd.typeprovider.schemaparser.SoapVersion;
 import gw.lang.function.Function1;
 import gw.lang.parser.ISource;
 import gw.lang.reflect.IAnnotationInfo;
+import gw.lang.reflect.IHasJavaClass;
 import gw.lang.reflect.IMethodInfo;
 import gw.lang.reflect.IType;
 import gw.lang.reflect.ITypeInfo;
@@ -74,9 +75,9 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.PrintWriter;
-import java.io.StringReader;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
@@ -94,6 +95,8 @@ import java.util.TreeSet;
 import java.util.UUID;
 import java.util.WeakHashMap;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * This class is the base class for exposing web services via an app server
@@ -103,7 +106,8 @@ public abstract class WebservicesServletBase extends HttpServlet implements ITyp
   public static final String CONFIG_PARAM_AVAILABLE_SERVICES = "AvailableServices";
   public static final String CONFIG_PARAM_HIDE_SERVICE_LIST_PAGE = "HideListPage";
 
-  private Set<String> _availableServices = new HashSet<String>();
+  // Updated under the type system lock, read lock-free on every request
+  private Set<String> _availableServices = Collections.newSetFromMap( new ConcurrentHashMap<String, Boolean>() );
   private boolean _hideServiceListPage;
   private boolean _initializedFromConfig;
 
@@ -124,9 +128,12 @@ public abstract class WebservicesServletBase extends HttpServlet implements ITyp
   };
   private static ILogger _logger;
   private static ILogger _requestLogger;
-  private Map<String, ILogger> _loggers = new HashMap<String, ILogger>();
+  private static volatile boolean _loggedTruncation;
+  private final ConcurrentMap<String, ILogger> _loggers = new ConcurrentHashMap<String, ILogger>();
   private static final Map<String, Pair<String, String>> RESOURCES = new HashMap<String, Pair<String, String>>();
-  private static final Map<IGosuClass, WsiInvocationContextImpl.WebService> _webservices = new HashMap<IGosuClass, WsiInvocationContextImpl.WebService>();
+  // The dispatch table, one entry per web service built for its current backing class. Requests read it
+  // lock-free, an entry is built under the type system lock and replaced when the class is recompiled.
+  private static final ConcurrentMap<IGosuClass, WsiInvocationContextImpl.WebService> _webservices = new ConcurrentHashMap<IGosuClass, WsiInvocationContextImpl.WebService>();
   private static LockingLazyVar<WebservicesServletBase> _defaultLocalWebservicesServlet = new LockingLazyVar<WebservicesServletBase>() {
     @Override
     protected WebservicesServletBase init() {
@@ -139,7 +146,8 @@ public abstract class WebservicesServletBase extends HttpServlet implements ITyp
   };
   private static Class<? extends WebservicesServletBase> _defaultLocalWebservicesServletClass = GosuWebservicesServlet.class;
   private final boolean _wsiLocal;
-  private boolean _initialized;
+  private final WsdlDocumentCache _documents = new WsdlDocumentCache( new DocumentGenerator() );
+  private volatile boolean _initialized;
   private IType _requestTransformType;
   private IType _responseTransformType;
   private IType _requestXmlTransformType;
@@ -148,6 +156,8 @@ public abstract class WebservicesServletBase extends HttpServlet implements ITyp
   private IType _wsiParseOptionsAnnotationType;
   private IType _wsiSerializationOptionsAnnotationType;
   private static final ThreadLocal<WeakHashMap<WsiRequestLocal, ?>> _requestLocals = new ThreadLocal<WeakHashMap<WsiRequestLocal, ?>>();
+  // The If-None-Match header of the schema request being served
+  private static final ThreadLocal<String> _ifNoneMatch = new ThreadLocal<String>();
   private static Set<WebservicesServletBaseListenerForTesting> _listenersForTesting = new HashSet<WebservicesServletBaseListenerForTesting>();
 
   public static final Map<QName, WsdlFault.FaultCode> SOAP11_FAULT_TO_GENERIC_FAULT = new HashMap<QName, WsdlFault.FaultCode>();
@@ -442,7 +452,7 @@ public abstract class WebservicesServletBase extends HttpServlet implements ITyp
 
       OutputStream os;
       if ( webservice._responseTransform != null ) {
-        os = new ByteArrayOutputStream();
+        os = new ResponseBuffer();
       } else {
         os = responseAdapter.getOutputStream();
       }
@@ -463,26 +473,32 @@ public abstract class WebservicesServletBase extends HttpServlet implements ITyp
           charset = httpMediaType.getFirstParameter( "charset" );
         }
 
-       // log request if desired
+       // log request if desired, captured as it's parsed rather than buffered up front
         ILogger wsLogger = getLogger(webservice._serviceInfo.getWebserviceType().getName());
+        DebugCaptureOutputStream requestCapture = null;
         if (wsLogger.isDebugEnabled()) {
-          ByteArrayOutputStream baos = new ByteArrayOutputStream();
-          StreamUtil.copy(is,baos);
-          wsLogger.debug(">>>\n" + (charset == null ? baos.toString("UTF-8") : baos.toString(charset)));
-          is = new ByteArrayInputStream(baos.toByteArray());
+          requestCapture = new DebugCaptureOutputStream();
+          is = new DebugCaptureInputStream(is, requestCapture);
         }
 
         if ( webservice._requestTransform != null ) {
           is = (InputStream) webservice._requestTransform.invoke( is );
         }
-        // if charset is specified in content-type http header, use that, otherwise use charset embedded in XML
-        if ( charset == null ) {
-          envelope = XmlElementInternals.instance().parse( is, webservice._parseOptions, webservice._typeResolver );
+        try {
+          // The whole envelope is parsed into an XmlElement tree, since request XML transforms, header
+          // accessors and the invocation handler all take one.
+          // if charset is specified in content-type http header, use that, otherwise use charset embedded in XML
+          if ( charset == null ) {
+            envelope = XmlElementInternals.instance().parse( is, webservice._parseOptions, webservice._typeResolver );
+          }
+          else {
+            envelope = XmlElementInternals.instance().parse( new InputStreamReader( is, charset ), webservice._parseOptions, webservice._typeResolver );
+          }
         }
-        else {
-          byte[] content = StreamUtil.getContent( is );
-          String xmlString = new String( content, charset );
-          envelope = XmlElementInternals.instance().parse( new StringReader( xmlString ), webservice._parseOptions, webservice._typeResolver );
+        finally {
+          if ( requestCapture != null ) {
+            logCapture( wsLogger, ">>>\n", requestCapture, charset );
+          }
         }
         context.setRequestEnvelope( envelope );
         context.setRequestSoapHeaders( getHeadersFromEnvelope( envelope, soapVersion ) );
@@ -529,7 +545,9 @@ public abstract class WebservicesServletBase extends HttpServlet implements ITyp
           webservice._responseXmlTransform.invoke( responseEnvelopeXml );
         }
         if (wsLogger.isDebugEnabled()) {
-          wsLogger.debug("<<<\n" + responseEnvelopeXml.asUTFString());
+          DebugCaptureOutputStream responseCapture = new DebugCaptureOutputStream();
+          responseEnvelopeXml.writeTo(responseCapture);
+          logCapture( wsLogger, "<<<\n", responseCapture, null );
         }
         writeResponseEnvelope( responseEnvelopeXml, os, context, webservice, responseAdapter, soapVersion );
 
@@ -540,9 +558,7 @@ public abstract class WebservicesServletBase extends HttpServlet implements ITyp
       } finally {
         try {
           if ( webservice._responseTransform != null ) {
-            ByteArrayOutputStream baos = (ByteArrayOutputStream) os;
-            byte[] bytes = baos.toByteArray();
-            InputStream in = (InputStream) webservice._responseTransform.invoke( new ByteArrayInputStream( bytes ) );
+            InputStream in = (InputStream) webservice._responseTransform.invoke( ( (ResponseBuffer) os ).toInputStream() );
             StreamUtil.copy( in, responseAdapter.getOutputStream() );
           }
         } finally {
@@ -565,12 +581,10 @@ public abstract class WebservicesServletBase extends HttpServlet implements ITyp
   private ILogger getLogger(String name) {
     ILogger logger = _loggers.get(name);
     if (logger == null) {
-      synchronized (_loggers) {
-        logger = _loggers.get(name);
-        if (logger == null) {
-          logger = XmlServices.getLogger(name);
-          _loggers.put(name, logger);
-        }
+      logger = XmlServices.getLogger(name);
+      ILogger existing = _loggers.putIfAbsent(name, logger);
+      if (existing != null) {
+        logger = existing;
       }
     }
     return logger;
@@ -846,7 +860,11 @@ public abstract class WebservicesServletBase extends HttpServlet implements ITyp
 
   private WsiInvocationContextImpl.WebService getWebServiceForType( IType type ) {
     IGosuClass gosuClass = (IGosuClass) type;
-    WsiInvocationContextImpl.WebService webservice;
+    WsiInvocationContextImpl.WebService webservice = _webservices.get( gosuClass );
+    //noinspection ObjectEquality
+    if ( webservice != null && webservice._backingClass == gosuClass.getBackingClass() ) {
+      return webservice;
+    }
     TypeSystem.lock();
     try {
       webservice = _webservices.get( gosuClass );
@@ -854,7 +872,7 @@ public abstract class WebservicesServletBase extends HttpServlet implements ITyp
       Class<?> backingClass = gosuClass.getBackingClass();
       //noinspection ObjectEquality
       if ( webservice != null && webservice._backingClass != backingClass ) {
-        _webservices.remove( gosuClass );
+        // Left in place for requests already dispatched, replaced below
         webservice = null;
       }
       if ( webservice == null ) {
@@ -1019,6 +1037,7 @@ public abstract class WebservicesServletBase extends HttpServlet implements ITyp
         webservice._serializationOptions = serializationOptions;
         webservice._typeResolver = typeResolver;
         webservice._serviceInfo = serviceInfo;
+        // Publishes the fully built entry, concurrent requests see either it or the one it replaces
         _webservices.put( gosuClass, webservice );
       }
     } finally {
@@ -1142,16 +1161,16 @@ public abstract class WebservicesServletBase extends HttpServlet implements ITyp
           send404NotFound( responseAdapter );
         }
       } else if ( path.endsWith( XSD_SUFFIX ) ) {
-        doGetXSD( responseAdapter, path.substring( 1 ) );
+        dispatchGetXSD( request, responseAdapter, path.substring( 1 ) );
       } else if ( path.endsWith( WSDL_SUFFIX ) ) {
-        doGetXSD( responseAdapter, path.substring( 1 ) );
+        dispatchGetXSD( request, responseAdapter, path.substring( 1 ) );
       } else if ( path.endsWith( GX_SUFFIX ) ) {
-        doGetXSD( responseAdapter, path.substring( 1 ) );
+        dispatchGetXSD( request, responseAdapter, path.substring( 1 ) );
       } else {
         if ( queryStr != null && queryStr.equalsIgnoreCase( "wsdl" ) ) {
           Pair<IType, SoapVersion> pair = getWebServiceInfo(request);
           if ( pair != null ) {
-            doGetWSDL( responseAdapter, pair.getFirst(), request.getRequestURL() );
+            doGetWSDL( responseAdapter, pair.getFirst(), request.getRequestURL(), request.getHttpHeaders().getHeader( "If-None-Match" ) );
           } else {
             getILogger().info( "Webservices servlet: 404 Not Found (WSDL): " + path );
             send404NotFound( responseAdapter );
@@ -1345,38 +1364,64 @@ public abstract class WebservicesServletBase extends HttpServlet implements ITyp
     }
   }
 
-  protected void doGetXSD( WebservicesResponseAdapter responseAdapter, String path ) throws ServletException {
+  private void dispatchGetXSD( WebservicesRequest request, WebservicesResponseAdapter responseAdapter, String path ) throws ServletException {
+    // Passed on the side, so subclasses overriding doGetXSD() still get called and can defer to it
+    _ifNoneMatch.set( request.getHttpHeaders().getHeader( "If-None-Match" ) );
     try {
-      boolean found = false;
-      OUTER: 
-      for ( XmlSchemaResourceTypeLoaderBase<?> typeLoader : TypeSystem.getGlobalModule().getTypeLoaders( XmlSchemaResourceTypeLoaderBase.class ) ) {
-        final Collection<String> namespaces = typeLoader.getAllSchemaNamespaces();
-        for ( String ns : namespaces ) {
-          final XmlSchemaIndex si = typeLoader.getSchemaForNamespace( ns );
-          if ( si.getXSDSourcePath().equals( path ) ) {
-            found = true;
-            responseAdapter.setContentType( "text/xml" );
-            StreamUtil.copy( si.getXSDSource().getInputStream( false ), responseAdapter.getOutputStream() );
-            responseAdapter.setStatus( HttpServletResponse.SC_OK );
-            break OUTER;
-          }
+      doGetXSD( responseAdapter, path );
+    }
+    finally {
+      _ifNoneMatch.remove();
+    }
+  }
+
+  protected void doGetXSD( WebservicesResponseAdapter responseAdapter, String path ) throws ServletException {
+    WsdlDocumentCache.Document document = _documents.getXsd( path );
+    if ( document == null ) {
+      getILogger().info( "Webservices servlet: 404 Not Found (XSD): " + path );
+      send404NotFound( responseAdapter );
+    }
+    else {
+      sendDocument( responseAdapter, document, _ifNoneMatch.get() );
+    }
+  }
+
+  /**
+   * @return the content of the schema at the path, or null if there is none
+   */
+  byte[] findXSD( String path ) throws IOException {
+    for ( XmlSchemaResourceTypeLoaderBase<?> typeLoader : TypeSystem.getGlobalModule().getTypeLoaders( XmlSchemaResourceTypeLoaderBase.class ) ) {
+      final Collection<String> namespaces = typeLoader.getAllSchemaNamespaces();
+      for ( String ns : namespaces ) {
+        final XmlSchemaIndex si = typeLoader.getSchemaForNamespace( ns );
+        if ( si.getXSDSourcePath().equals( path ) ) {
+          return StreamUtil.getContent( si.getXSDSource().getInputStream( false ) );
         }
       }
-      if ( !found ) {
-        getILogger().info( "Webservices servlet: 404 Not Found (XSD): " + path );
-        send404NotFound( responseAdapter );
-      }
-    } catch ( IOException ex ) {
-      throw GosuExceptionUtil.forceThrow( ex );
     }
+    return null;
   }
 
-  private void doGetWSDL( WebservicesResponseAdapter responseAdapter, IType type, String requestURL ) {
+  private void doGetWSDL( WebservicesResponseAdapter responseAdapter, IType type, String requestURL, String ifNoneMatch ) {
+    String xsdRootURL = getXsdRootURL( type );
+    sendDocument( responseAdapter, _documents.getWsdl( type.getName(), getBackingClass( type ), requestURL, xsdRootURL ), ifNoneMatch );
+  }
+
+  private static Class<?> getBackingClass( IType type ) {
+    return type instanceof IHasJavaClass ? ((IHasJavaClass) type).getBackingClass() : null;
+  }
+
+  private void sendDocument( WebservicesResponseAdapter responseAdapter, WsdlDocumentCache.Document document, String ifNoneMatch ) {
     try {
-      String xsdRootURL = getXsdRootURL( type );
-      WsiServiceInfo serviceInfo = WsiUtilities.generateWsdl( type, requestURL, xsdRootURL, this );
+      responseAdapter.getHttpHeaders().setHeader( "ETag", document.getETag() );
+      if ( WsdlDocumentCache.matches( document, ifNoneMatch ) ) {
+        responseAdapter.setStatus( HttpServletResponse.SC_NOT_MODIFIED );
+        responseAdapter.commitHttpHeaders();
+        return;
+      }
       responseAdapter.setContentType( "text/xml" );
-      serviceInfo.getWsdl().writeTo( responseAdapter.getOutputStream(), new XmlSerializationOptions().withSort( false ) );
+      responseAdapter.commitHttpHeaders();
+      responseAdapter.getOutputStream().write( document.getBytes() );
       responseAdapter.setStatus( HttpServletResponse.SC_OK );
     } catch ( IOException e ) {
       throw GosuExceptionUtil.forceThrow( e );
@@ -1406,12 +1451,7 @@ public abstract class WebservicesServletBase extends HttpServlet implements ITyp
     if ( _wsiLocal ) {
       return true;
     }
-    TypeSystem.lock();
-    try {
-      return _availableServices.contains( type.getName() );
-    } finally {
-      TypeSystem.unlock();
-    }
+    return _availableServices.contains( type.getName() );
   }
 
   private String getXsdRootURL( IType type ) {
@@ -1524,10 +1564,46 @@ public abstract class WebservicesServletBase extends HttpServlet implements ITyp
 
   @Override
   public void refreshedTypes( RefreshRequest request ) {
+    _documents.clear();
   }
 
   @Override
   public void refreshed() {
+    _documents.clear();
     onRefreshTypeSystem();
   }
+
+  private static void logCapture( ILogger logger, String prefix, DebugCaptureOutputStream capture, String charset ) throws IOException {
+    logger.debug( prefix + capture.toString( charset ) );
+    if ( capture.isTruncated() && !_loggedTruncation ) {
+      _loggedTruncation = true;
+      logger.warn( "Web service debug logging keeps the first " + capture.getLimit() + " bytes of each message, " +
+                   "this one had " + capture.getCount() + ". Set " + DebugCaptureOutputStream.LIMIT_SYSTEM_PROP +
+                   " or call DebugCaptureOutputStream.setDefaultLimit() to change it." );
+    }
+  }
+
+  private class DocumentGenerator implements WsdlDocumentCache.Generator {
+    @Override
+    public WsdlDocumentCache.Document generateWsdl( String typeName, String requestURL, String xsdRootURL ) {
+      IType type = TypeSystem.getByFullName( typeName );
+      Class<?> backingClass = getBackingClass( type );
+      WsiServiceInfo serviceInfo = WsiUtilities.generateWsdl( type, requestURL, xsdRootURL, WebservicesServletBase.this );
+      return new WsdlDocumentCache.Document( backingClass, serviceInfo.getWsdl().bytes( new XmlSerializationOptions().withSort( false ) ) );
+    }
+
+    @Override
+    public byte[] findXsd( String path ) throws IOException {
+      return findXSD( path );
+    }
+  }
+
+  /**
+   * Holds a response for the response transform, handing it over without another copy
+   */
+  private static class ResponseBuffer extends ByteArrayOutputStream {
+    InputStream toInputStream() {
+      return new ByteArrayInputStream( buf, 0, count );
+    }
+  }
 }
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.internal.xml.ws.server;
+
+import gw.util.GosuExceptionUtil;
+import gw.util.concurrent.Cache;
+import gw.util.fingerprint.FP64;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+
+/**
+ * The serialized WSDLs and schemas a {@link WebservicesServletBase} serves, so polling them doesn't
+ * regenerate the WSDL or search the schemas every time. Each servlet has its own cache, so nothing
+ * here outlives the servlet. A WSDL is cached per web service and request URL, and regenerated when
+ * the web service's class is recompiled. Schemas that aren't found aren't cached. The servlet
+ * clears the cache when the type system refreshes.
+ */
+class WsdlDocumentCache {
+
+  static final int SIZE = Integer.getInteger( "gosu.wsi.document.cache.size", 500 );
+
+  /**
+   * Produces the documents on a cache miss
+   */
+  interface Generator {
+    /**
+     * @return The WSDL of the web service, with the class it was generated from
+     */
+    Document generateWsdl( String typeName, String requestURL, String xsdRootURL );
+
+    /**
+     * @return The content of the schema at the path, or null if there is none
+     */
+    byte[] findXsd( String path ) throws IOException;
+  }
+
+  private final Cache<Key, Document> _documents;
+
+  WsdlDocumentCache( final Generator generator ) {
+    _documents = Cache.make( "WSI Document Cache", SIZE,
+                             new Cache.MissHandler<Key, Document>() {
+                               public Document load( Key key ) {
+                                 return key.generate( generator );
+                               }
+                             } );
+  }
+
+  /**
+   * @param backingClass The web service's current class, the cached WSDL is regenerated if it
+   *   came from another one
+   */
+  Document getWsdl( String typeName, Class<?> backingClass, String requestURL, String xsdRootURL ) {
+    Key key = new WsdlKey( typeName, requestURL, xsdRootURL );
+    Document document = _documents.get( key );
+    if ( !document.isGeneratedFrom( backingClass ) ) {
+      // The web service was recompiled
+      _documents.evict( key );
+      document = _documents.get( key );
+    }
+    return document;
+  }
+
+  /**
+   * @return The schema at the path, or null if there is none
+   */
+  Document getXsd( String path ) {
+    // A miss loads null, which the cache doesn't keep, so probing for schemas can't fill it
+    return _documents.get( new XsdKey( path ) );
+  }
+
+  void clear() {
+    _documents.clear();
+  }
+
+  /**
+   * @param ifNoneMatch The request's If-None-Match header, may be null
+   * @return True if the client already has this document
+   */
+  static boolean matches( Document document, String ifNoneMatch ) {
+    if ( ifNoneMatch == null ) {
+      return false;
+    }
+    for ( String tag : ifNoneMatch.split( "," ) ) {
+      tag = tag.trim();
+      if ( tag.startsWith( "W/" ) ) {
+        tag = tag.substring( 2 );
+      }
+      if ( tag.equals( "*" ) || tag.equals( document.getETag() ) ) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  static class Document {
+    // Weak, so a cached WSDL doesn't keep the class loader of a recompiled web service alive
+    private final WeakReference<Class<?>> _backingClass;
+    private final byte[] _bytes;
+    private final String _eTag;
+
+    Document( Class<?> backingClass, byte[] bytes ) {
+      _backingClass = new WeakReference<Class<?>>( backingClass );
+      _bytes = bytes;
+      _eTag = '"' + new FP64( bytes ).toHexString() + '"';
+    }
+
+    boolean isGeneratedFrom( Class<?> backingClass ) {
+      //noinspection ObjectEquality
+      return _backingClass.get() == backingClass;
+    }
+
+    byte[] getBytes() {
+      return _bytes;
+    }
+
+    String getETag() {
+      return _eTag;
+    }
+  }
+
+  private abstract static class Key {
+    protected final String _path;
+
+    Key( String path ) {
+      _path = path;
+    }
+
+    abstract Document generate( Generator generator );
+
+    @Override
+    public boolean equals( Object o ) {
+      return o != null && o.getClass() == getClass() && _path.equals( ((Key) o)._path );
+    }
+
+    @Override
+    public int hashCode() {
+      return _path.hashCode();
+    }
+  }
+
+  private static class WsdlKey extends Key {
+    private final String _typeName;
+    private final String _xsdRootURL;
+
+    WsdlKey( String typeName, String requestURL, String xsdRootURL ) {
+      // The request URL names the service, it's the key
+      super( requestURL );
+      _typeName = typeName;
+      _xsdRootURL = xsdRootURL;
+    }
+
+    @Override
+    Document generate( Generator generator ) {
+      return generator.generateWsdl( _typeName, _path, _xsdRootURL );
+    }
+
+    @Override
+    public boolean equals( Object o ) {
+      return super.equals( o ) && _typeName.equals( ((WsdlKey) o)._typeName );
+    }
+  }
+
+  private static class XsdKey extends Key {
+    XsdKey( String path ) {
+      super( path );
+    }
+
+    @Override
+    Document generate( Generator generator ) {
+      try {
+        byte[] bytes = generator.findXsd( _path );
+        return bytes == null ? null : new Document( null, bytes );
+      }
+      catch ( IOException e ) {
+        throw GosuExceptionUtil.forceThrow( e );
+      }
+    }
+  }
+
+}
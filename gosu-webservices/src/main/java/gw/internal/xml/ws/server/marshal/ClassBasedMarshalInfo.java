@@ -14,13 +14,14 @@ import gw.internal.xml.config.XmlServices;
 import gw.internal.xml.ws.WsiAdditions;
 import gw.internal.xml.ws.server.WsiServiceInfo;
 import gw.lang.parser.IParsedElement;
+import gw.lang.parser.TypeSystemAwareCache;
 import gw.lang.parser.resources.Res;
 import gw.lang.reflect.IPropertyInfo;
 import gw.lang.reflect.IType;
 import gw.lang.reflect.java.IJavaType;
 import gw.lang.reflect.java.JavaTypes;
-import gw.util.GosuExceptionUtil;
 import gw.util.Pair;
+import gw.util.concurrent.Cache;
 import gw.util.concurrent.LocklessLazyVar;
 import gw.xml.XmlElement;
 import gw.xml.XmlSchemaAccess;
@@ -45,6 +46,13 @@ public abstract class ClassBasedMarshalInfo extends MarshalInfo implements Addit
 
     }
   };
+  private static final TypeSystemAwareCache<MarshallerKey, ClassBasedMarshaller> MARSHALLERS =
+    TypeSystemAwareCache.make( "WSI Marshaller Cache", 1000,
+                               new Cache.MissHandler<MarshallerKey, ClassBasedMarshaller>() {
+                                 public ClassBasedMarshaller load( MarshallerKey key ) {
+                                   return key.make();
+                                 }
+                               } );
   protected final IType _type;
   protected boolean _isComponent;
 
@@ -107,24 +115,32 @@ public abstract class ClassBasedMarshalInfo extends MarshalInfo implements Addit
     schema.declareNamespace(GW_XSD_NAMESPACE.get(), "gw");
   }
 
+  /**
+   * @return The shared marshalling plan of this info's type, see {@link ClassBasedMarshaller}
+   */
+  ClassBasedMarshaller getMarshaller() {
+    MarshallerKey key = new MarshallerKey( this );
+    ClassBasedMarshaller marshaller = MARSHALLERS.get( key );
+    if ( !marshaller.isCurrent( _type ) ) {
+      // The class was recompiled
+      MARSHALLERS.evict( key );
+      marshaller = MARSHALLERS.get( key );
+    }
+    return marshaller;
+  }
+
   @Override
   public Object unmarshal( XmlElement componentElement, UnmarshalContext context ) {
-    URI nsURI;
-    try {
-      nsURI = new URI( WsiAdditions.getInstance().getTargetNamespace( _type ) );
-    }
-    catch ( URISyntaxException e ) {
-      throw GosuExceptionUtil.forceThrow(e);
-    }
     Object obj = null;
     if (componentElement != null) {
-      obj = _type.getTypeInfo().getConstructor().getConstructor().newInstance();
-      for (Map.Entry<String,IPropertyInfo> prop : getProperties(_type).entrySet()) {
-        XmlElement child = componentElement.getChild(new QName(nsURI.toString(), prop.getKey()));
+      ClassBasedMarshaller marshaller = getMarshaller();
+      obj = marshaller.newInstance( _type );
+      for (ClassBasedMarshaller.Property prop : marshaller.getProperties()) {
+        XmlElement child = componentElement.getChild(prop.getQName());
         if (child != null) {
-          Object childObj = XmlServices.unmarshal(prop.getValue().getFeatureType(), child, context);
+          Object childObj = XmlServices.unmarshal(prop.getFeatureType(), child, context);
           if (childObj != null) {
-            prop.getValue().getAccessor().setValue(obj, childObj);
+            prop.setValue(obj, childObj);
           }
         }
       }
@@ -138,19 +154,27 @@ public abstract class ClassBasedMarshalInfo extends MarshalInfo implements Addit
       throw new RuntimeException("Recursion on " + obj);
     }
     context.getSeen().add(obj);
+    ClassBasedMarshaller marshaller = getMarshaller();
     URI nsURI;
-    try {
-      nsURI = new URI( WsiAdditions.getInstance().getTargetNamespace( type ) );
-      returnEl.declareNamespace(nsURI, "pogo");
-    } catch (URISyntaxException e) {
-      throw new RuntimeException("on " + returnEl, e);
-    }
-    for (Map.Entry<String,IPropertyInfo> prop : getProperties(_type).entrySet()) {
-      Object childObj = prop.getValue().getAccessor().getValue(obj);
+    //noinspection ObjectEquality
+    boolean bOwnNamespace = type == _type;
+    if ( bOwnNamespace ) {
+      nsURI = marshaller.getNamespace();
+    }
+    else {
+      try {
+        nsURI = new URI( WsiAdditions.getInstance().getTargetNamespace( type ) );
+      } catch (URISyntaxException e) {
+        throw new RuntimeException("on " + returnEl, e);
+      }
+    }
+    returnEl.declareNamespace(nsURI, "pogo");
+    for (ClassBasedMarshaller.Property prop : marshaller.getProperties()) {
+      Object childObj = prop.getValue(obj);
       if (childObj != null) {
-        XmlElement childEl = new XmlElement(new QName(nsURI.toString(), prop.getKey()));
+        XmlElement childEl = new XmlElement(bOwnNamespace ? prop.getQName() : new QName(nsURI.toString(), prop.getName()));
         returnEl.addChild(childEl);
-        XmlServices.marshal(childEl, prop.getValue().getFeatureType(), childObj, context);
+        XmlServices.marshal(childEl, prop.getFeatureType(), childObj, context);
       }
     }
     context.getSeen().remove(obj);
@@ -190,6 +214,35 @@ public abstract class ClassBasedMarshalInfo extends MarshalInfo implements Addit
     return partType;
   }
 
+  /**
+   * Marshallers are shared by all infos of the same kind for the same type, the kind decides the properties
+   */
+  private static class MarshallerKey {
+    private final ClassBasedMarshalInfo _info;
+
+    MarshallerKey( ClassBasedMarshalInfo info ) {
+      _info = info;
+    }
+
+    ClassBasedMarshaller make() {
+      return ClassBasedMarshaller.make( _info._type, _info.getProperties( _info._type ) );
+    }
+
+    @Override
+    public boolean equals( Object o ) {
+      if ( !(o instanceof MarshallerKey) ) {
+        return false;
+      }
+      ClassBasedMarshalInfo that = ((MarshallerKey)o)._info;
+      return _info.getClass() == that.getClass() && _info._type.equals( that._type );
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * _info.getClass().hashCode() + _info._type.hashCode();
+    }
+  }
+
   private void checkMarshalInfoType(IParsedElement parsedElement, Map.Entry<String, IPropertyInfo> prop, String newLabel, MarshalInfo marshalInfo) {
     if (marshalInfo instanceof SimpleValueMarshalInfo) {
     }
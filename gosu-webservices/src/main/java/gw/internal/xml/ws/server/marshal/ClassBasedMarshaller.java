@@ -0,0 +1,223 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.internal.xml.ws.server.marshal;
+
+import gw.internal.xml.ws.WsiAdditions;
+import gw.lang.reflect.IHasJavaClass;
+import gw.lang.reflect.IPropertyInfo;
+import gw.lang.reflect.IType;
+import gw.util.GosuExceptionUtil;
+
+import javax.xml.namespace.QName;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Map;
+
+/**
+ * The marshalling plan of an exportable or remotable type, built once per type and backing class
+ * and shared by every marshal and unmarshal of it: the properties in element order with their
+ * element QNames, and where the backing class has them, its no-arg constructor and bean accessor
+ * methods to call directly instead of going through the type info on every object.
+ */
+class ClassBasedMarshaller {
+  private final Class<?> _backingClass;
+  private final Constructor<?> _constructor;
+  private final URI _namespace;
+  private final Property[] _properties;
+
+  private ClassBasedMarshaller( Class<?> backingClass, Constructor<?> constructor, URI namespace, Property[] properties ) {
+    _backingClass = backingClass;
+    _constructor = constructor;
+    _namespace = namespace;
+    _properties = properties;
+  }
+
+  /**
+   * @param properties The properties to marshal, by name in element order
+   */
+  static ClassBasedMarshaller make( IType type, Map<String, IPropertyInfo> properties ) {
+    URI namespace;
+    try {
+      namespace = new URI( WsiAdditions.getInstance().getTargetNamespace( type ) );
+    }
+    catch ( URISyntaxException e ) {
+      throw GosuExceptionUtil.forceThrow( e );
+    }
+    Class<?> backingClass = getBackingClass( type );
+    Property[] props = new Property[properties.size()];
+    int i = 0;
+    for ( Map.Entry<String, IPropertyInfo> entry : properties.entrySet() ) {
+      IPropertyInfo pi = entry.getValue();
+      Method getter = findGetter( backingClass, pi.getName() );
+      Method setter = getter == null ? null : findSetter( backingClass, pi.getName(), getter.getReturnType() );
+      if ( setter == null ) {
+        getter = null;
+      }
+      props[i++] = new Property( new QName( namespace.toString(), entry.getKey() ), pi, getter, setter );
+    }
+    return new ClassBasedMarshaller( backingClass, findConstructor( backingClass ), namespace, props );
+  }
+
+  /**
+   * @return True if this plan was built for the type's current backing class
+   */
+  boolean isCurrent( IType type ) {
+    //noinspection ObjectEquality
+    return getBackingClass( type ) == _backingClass;
+  }
+
+  URI getNamespace() {
+    return _namespace;
+  }
+
+  Property[] getProperties() {
+    return _properties;
+  }
+
+  Object newInstance( IType type ) {
+    if ( _constructor == null ) {
+      return type.getTypeInfo().getConstructor().getConstructor().newInstance();
+    }
+    try {
+      return _constructor.newInstance();
+    }
+    catch ( InvocationTargetException e ) {
+      throw GosuExceptionUtil.forceThrow( e.getCause() );
+    }
+    catch ( Exception e ) {
+      throw GosuExceptionUtil.forceThrow( e );
+    }
+  }
+
+  private static Class<?> getBackingClass( IType type ) {
+    return type instanceof IHasJavaClass ? ((IHasJavaClass)type).getBackingClass() : null;
+  }
+
+  private static Constructor<?> findConstructor( Class<?> backingClass ) {
+    if ( backingClass == null || Modifier.isAbstract( backingClass.getModifiers() ) ) {
+      return null;
+    }
+    try {
+      return makeAccessible( backingClass.getConstructor() );
+    }
+    catch ( NoSuchMethodException e ) {
+      return null;
+    }
+  }
+
+  private static Method findGetter( Class<?> backingClass, String name ) {
+    if ( backingClass == null ) {
+      return null;
+    }
+    Method getter = findMethod( backingClass, "get" + name );
+    if ( getter == null ) {
+      getter = findMethod( backingClass, "is" + name );
+      if ( getter != null && getter.getReturnType() != boolean.class ) {
+        getter = null;
+      }
+    }
+    return getter == null || getter.getReturnType() == void.class ? null : makeAccessible( getter );
+  }
+
+  private static Method findSetter( Class<?> backingClass, String name, Class<?> valueClass ) {
+    Method setter = findMethod( backingClass, "set" + name, valueClass );
+    return setter == null ? null : makeAccessible( setter );
+  }
+
+  private static Method findMethod( Class<?> backingClass, String name, Class<?>... params ) {
+    try {
+      Method method = backingClass.getMethod( name, params );
+      return Modifier.isStatic( method.getModifiers() ) ? null : method;
+    }
+    catch ( NoSuchMethodException e ) {
+      return null;
+    }
+  }
+
+  private static <T extends java.lang.reflect.AccessibleObject> T makeAccessible( T member ) {
+    try {
+      // Public members of a non-public class aren't accessible otherwise
+      member.setAccessible( true );
+      return member;
+    }
+    catch ( SecurityException e ) {
+      return null;
+    }
+  }
+
+  static class Property {
+    private final QName _qname;
+    private final IPropertyInfo _propertyInfo;
+    private final IType _featureType;
+    private final Method _getter;
+    private final Method _setter;
+
+    Property( QName qname, IPropertyInfo propertyInfo, Method getter, Method setter ) {
+      _qname = qname;
+      _propertyInfo = propertyInfo;
+      _featureType = propertyInfo.getFeatureType();
+      _getter = getter;
+      _setter = setter;
+    }
+
+    QName getQName() {
+      return _qname;
+    }
+
+    String getName() {
+      return _qname.getLocalPart();
+    }
+
+    IType getFeatureType() {
+      return _featureType;
+    }
+
+    /**
+     * @return True if the value is read and written through the backing class's bean methods
+     */
+    boolean isDirect() {
+      return _getter != null;
+    }
+
+    Object getValue( Object obj ) {
+      if ( _getter == null ) {
+        return _propertyInfo.getAccessor().getValue( obj );
+      }
+      try {
+        return _getter.invoke( obj );
+      }
+      catch ( InvocationTargetException e ) {
+        throw GosuExceptionUtil.forceThrow( e.getCause() );
+      }
+      catch ( IllegalAccessException e ) {
+        throw GosuExceptionUtil.forceThrow( e );
+      }
+    }
+
+    void setValue( Object obj, Object value ) {
+      if ( _setter == null ) {
+        _propertyInfo.getAccessor().setValue( obj, value );
+        return;
+      }
+      try {
+        _setter.invoke( obj, value );
+      }
+      catch ( IllegalArgumentException e ) {
+        // The value needs a coercion the accessor knows about
+        _propertyInfo.getAccessor().setValue( obj, value );
+      }
+      catch ( InvocationTargetException e ) {
+        throw GosuExceptionUtil.forceThrow( e.getCause() );
+      }
+      catch ( IllegalAccessException e ) {
+        throw GosuExceptionUtil.forceThrow( e );
+      }
+    }
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.internal.xml.ws;
+
+import gw.lang.Gosu;
+import gw.lang.reflect.TypeSystem;
+import gw.lang.reflect.module.IModule;
+import junit.framework.Assert;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class WsiClientExecutorTest extends Assert {
+
+  private ExecutorService _singleThread;
+
+  @BeforeClass
+  public static void beforeTestClass() {
+    Gosu.init();
+  }
+
+  @Before
+  public void installSingleThreadExecutor() throws Exception {
+    _singleThread = Executors.newSingleThreadExecutor();
+    // start the thread now, so it can't inherit anything from the test below
+    _singleThread.submit( new Runnable() {
+      @Override
+      public void run() {
+      }
+    } ).get();
+    WsiClientExecutor.setExecutor( _singleThread );
+  }
+
+  @After
+  public void restoreDefaultExecutor() {
+    WsiClientExecutor.setExecutor( null );
+    _singleThread.shutdownNow();
+  }
+
+  @Test
+  public void callRunsWithTheCallersContextClassLoader() throws Exception {
+    final AtomicReference<ClassLoader> seen = new AtomicReference<ClassLoader>();
+    final CountDownLatch done = new CountDownLatch( 1 );
+    ClassLoader callerLoader = new URLClassLoader( new URL[0] );
+    ClassLoader previous = Thread.currentThread().getContextClassLoader();
+    Thread.currentThread().setContextClassLoader( callerLoader );
+    try {
+      WsiClientExecutor.execute( new Runnable() {
+        @Override
+        public void run() {
+          seen.set( Thread.currentThread().getContextClassLoader() );
+          done.countDown();
+        }
+      } );
+    }
+    finally {
+      Thread.currentThread().setContextClassLoader( previous );
+    }
+    assertTrue( done.await( 10, TimeUnit.SECONDS ) );
+    assertSame( callerLoader, seen.get() );
+  }
+
+  @Test
+  public void callRunsInTheCallersModule() throws Exception {
+    final AtomicReference<IModule> seen = new AtomicReference<IModule>();
+    final CountDownLatch done = new CountDownLatch( 1 );
+    IModule callerModule = TypeSystem.getCurrentModule();
+    assertNotNull( callerModule );
+    WsiClientExecutor.execute( new Runnable() {
+      @Override
+      public void run() {
+        seen.set( TypeSystem.getCurrentModule() );
+        done.countDown();
+      }
+    } );
+    assertTrue( done.await( 10, TimeUnit.SECONDS ) );
+    assertSame( callerModule, seen.get() );
+  }
+
+  @Test
+  public void pooledCallWaitingForAQueuedCallRunsItInstead() throws Exception {
+    final CountDownLatch innerRan = new CountDownLatch( 1 );
+    final CountDownLatch outerDone = new CountDownLatch( 1 );
+    WsiClientExecutor.execute( new Runnable() {
+      @Override
+      public void run() {
+        // the only pool thread is busy with this call, the nested one can only wait in line
+        WsiClientExecutor.Call inner = WsiClientExecutor.execute( new Runnable() {
+          @Override
+          public void run() {
+            innerRan.countDown();
+          }
+        } );
+        try {
+          inner.awaitRunning();
+        }
+        catch ( InterruptedException ex ) {
+          return;
+        }
+        if ( innerRan.getCount() == 0 ) {
+          outerDone.countDown();
+        }
+      }
+    } );
+    assertTrue( outerDone.await( 10, TimeUnit.SECONDS ) );
+  }
+
+  @Test
+  public void waitingForAThreadIsBoundedByTheTimeout() throws Exception {
+    final CountDownLatch release = new CountDownLatch( 1 );
+    WsiClientExecutor.execute( new Runnable() {
+      @Override
+      public void run() {
+        try {
+          release.await();
+        }
+        catch ( InterruptedException ex ) {
+          // shutting down
+        }
+      }
+    } );
+    final CountDownLatch queuedRan = new CountDownLatch( 1 );
+    WsiClientExecutor.Call queued = WsiClientExecutor.execute( new Runnable() {
+      @Override
+      public void run() {
+        queuedRan.countDown();
+      }
+    } );
+    try {
+      // the only pool thread is busy
+      assertFalse( queued.awaitRunning( 100, TimeUnit.MILLISECONDS ) );
+    }
+    finally {
+      release.countDown();
+    }
+    assertTrue( queued.awaitRunning( 10, TimeUnit.SECONDS ) );
+    assertTrue( queuedRan.await( 10, TimeUnit.SECONDS ) );
+  }
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.internal.xml.ws.server;
+
+import gw.lang.reflect.IType;
+import gw.lang.reflect.TypeSystem;
+import gw.lang.reflect.module.IModule;
+import gw.util.GosuExceptionUtil;
+import gw.xml.XmlElement;
+import gw.xml.XmlException;
+import gw.xml.ws.HttpHeaders;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Measures how web service dispatch scales with request threads: each thread posts the same SOAP
+ * request to the servlet, the way the local web services connector does, and the report gives the
+ * total requests per millisecond for each number of threads. With a lock-free dispatch table it
+ * should grow with the threads, up to the number of cores.
+ * <p/>
+ * Run it with the gosu-webservices test classes on the class path, in a JVM with an initialized
+ * type system e.g., from a Gosu program:
+ * <pre>
+ *   var envelope = "&lt;soap12:Envelope xmlns:soap12=\"http://www.w3.org/2003/05/soap-envelope\"&gt;" +
+ *                  "&lt;soap12:Body&gt;&lt;ping xmlns=\"http://example.com/foo/MyWebService\"/&gt;&lt;/soap12:Body&gt;" +
+ *                  "&lt;/soap12:Envelope&gt;"
+ *   print( gw.internal.xml.ws.server.WebServiceDispatchBenchmark.run( "foo.MyWebService", envelope, {1, 2, 4, 8}, 100000 ) )
+ * </pre>
+ */
+public class WebServiceDispatchBenchmark
+{
+  private WebServiceDispatchBenchmark()
+  {
+  }
+
+  /**
+   * @param strWebServiceType A valid @WsiWebService type
+   * @param strEnvelope A SOAP 1.2 request envelope for one of the type's operations, ideally a cheap one
+   * @param threadCounts The numbers of concurrent threads to measure
+   * @param iIterations The number of requests each thread posts
+   * @return A report of the throughput for each number of threads
+   */
+  public static String run( String strWebServiceType, String strEnvelope, List<Integer> threadCounts, int iIterations )
+  {
+    IType type = TypeSystem.getByFullName( strWebServiceType );
+    String strError = WebservicesServletBase.checkWebServiceForErrors( type );
+    if( strError != null )
+    {
+      throw new IllegalArgumentException( strWebServiceType + ": " + strError );
+    }
+    WebservicesServletBase servlet = WebservicesServletBase.getDefaultLocalWebservicesServlet();
+    String strPath = '/' + type.getName().replace( '.', '/' );
+    byte[] envelope = getBytes( strEnvelope );
+
+    // Builds the dispatch table entry, checks the request is answered and warms up
+    checkResponse( strWebServiceType, post( servlet, strPath, envelope ) );
+    measure( servlet, strPath, envelope, 1, iIterations );
+
+    StringBuilder report = new StringBuilder( type.getName() ).append( '\n' );
+    for( int iThreads : threadCounts )
+    {
+      long nanos = measure( servlet, strPath, envelope, iThreads, iIterations );
+      double requestsPerMilli = nanos == 0 ? 0 : (double)iThreads * iIterations / (nanos / 1e6);
+      report.append( String.format( "%4d threads %14.1f requests/ms%n", iThreads, requestsPerMilli ) );
+    }
+    return report.toString();
+  }
+
+  private static long measure( final WebservicesServletBase servlet, final String strPath, final byte[] envelope,
+                               int iThreads, final int iIterations )
+  {
+    // The caller's module, as the local connector does
+    final IModule module = TypeSystem.getCurrentModule();
+    final CountDownLatch start = new CountDownLatch( 1 );
+    final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    List<Thread> threads = new ArrayList<Thread>( iThreads );
+    for( int i = 0; i < iThreads; i++ )
+    {
+      Thread thread = new Thread( "Web service dispatch benchmark " + i )
+      {
+        @Override
+        public void run()
+        {
+          TypeSystem.pushModule( module );
+          try
+          {
+            start.await();
+            for( int j = 0; j < iIterations; j++ )
+            {
+              if( post( servlet, strPath, envelope )._out.size() == 0 )
+              {
+                throw new IllegalStateException( "Web service no longer answers during the benchmark" );
+              }
+            }
+          }
+          catch( Throwable t )
+          {
+            failure.compareAndSet( null, t );
+          }
+          finally
+          {
+            TypeSystem.popModule( module );
+          }
+        }
+      };
+      thread.setDaemon( true );
+      thread.start();
+      threads.add( thread );
+    }
+
+    long startTime = System.nanoTime();
+    start.countDown();
+    try
+    {
+      for( Thread thread : threads )
+      {
+        thread.join();
+      }
+    }
+    catch( InterruptedException e )
+    {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException( e );
+    }
+    long nanos = System.nanoTime() - startTime;
+    if( failure.get() != null )
+    {
+      throw GosuExceptionUtil.forceThrow( failure.get() );
+    }
+    return nanos;
+  }
+
+  private static Response post( WebservicesServletBase servlet, String strPath, byte[] envelope )
+  {
+    Response response = new Response();
+    try
+    {
+      servlet.doPost( new Request( strPath, envelope ), response );
+    }
+    catch( Exception e )
+    {
+      throw GosuExceptionUtil.forceThrow( e );
+    }
+    return response;
+  }
+
+  /**
+   * Faults don't set the status, so the envelope is checked for one
+   */
+  private static void checkResponse( String strWebServiceType, Response response )
+  {
+    if( response._iStatus == HttpServletResponse.SC_NOT_FOUND || response._out.size() == 0 )
+    {
+      throw new IllegalArgumentException( strWebServiceType + " is not available to local requests" );
+    }
+    XmlElement envelope = XmlElement.parse( response._out.toByteArray() );
+    for( XmlElement part : envelope.getChildren() )
+    {
+      for( XmlElement content : part.getChildren() )
+      {
+        if( content.getQName().getLocalPart().equals( "Fault" ) )
+        {
+          throw new IllegalArgumentException( "The request envelope gets a fault:\n" + envelope.asUTFString() );
+        }
+      }
+    }
+  }
+
+  private static byte[] getBytes( String str )
+  {
+    try
+    {
+      return str.getBytes( "UTF-8" );
+    }
+    catch( UnsupportedEncodingException e )
+    {
+      throw GosuExceptionUtil.forceThrow( e );
+    }
+  }
+
+  private static class Request extends WebservicesRequest
+  {
+    private final String _strPath;
+    private final byte[] _content;
+    private final HttpHeaders _headers = new HttpHeaders();
+
+    Request( String strPath, byte[] content )
+    {
+      _strPath = strPath;
+      _content = content;
+      _headers.setHeader( "Content-Type", "application/soap+xml; charset=UTF-8" );
+    }
+
+    @Override
+    public String getPathInfo()
+    {
+      return _strPath;
+    }
+
+    @Override
+    public String getQueryString()
+    {
+      return null;
+    }
+
+    @Override
+    public String getRequestURL()
+    {
+      return "http://localhost" + _strPath;
+    }
+
+    @Override
+    public InputStream getInputStream()
+    {
+      return new ByteArrayInputStream( _content );
+    }
+
+    @Override
+    public HttpHeaders getHttpHeaders()
+    {
+      return _headers;
+    }
+
+    @Override
+    public void createSession()
+    {
+    }
+
+    @Override
+    public HttpServletRequest getHttpServletRequest()
+    {
+      return null;
+    }
+  }
+
+  private static class Response extends WebservicesResponseAdapter
+  {
+    private final ByteArrayOutputStream _out = new ByteArrayOutputStream();
+    private final HttpHeaders _headers = new HttpHeaders();
+    private int _iStatus;
+
+    @Override
+    public void sendError( int error, XmlException ex )
+    {
+      throw ex;
+    }
+
+    @Override
+    public void setStatus( int status )
+    {
+      _iStatus = status;
+    }
+
+    @Override
+    public void setContentType( String contentType )
+    {
+      _headers.setHeader( "Content-Type", contentType );
+    }
+
+    @Override
+    public OutputStream getOutputStream()
+    {
+      return _out;
+    }
+
+    @Override
+    public HttpHeaders getHttpHeaders()
+    {
+      return _headers;
+    }
+
+    @Override
+    public void commitHttpHeaders()
+    {
+    }
+  }
+}
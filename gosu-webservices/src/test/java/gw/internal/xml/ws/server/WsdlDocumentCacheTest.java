@@ -0,0 +1,122 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.internal.xml.ws.server;
+
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+public class WsdlDocumentCacheTest extends Assert {
+
+  @Test
+  public void ifNoneMatchWithTheETagMatches() {
+    WsdlDocumentCache.Document document = new WsdlDocumentCache.Document( null, bytes( "<schema/>" ) );
+    String eTag = document.getETag();
+    assertTrue( WsdlDocumentCache.matches( document, eTag ) );
+    assertTrue( WsdlDocumentCache.matches( document, "W/" + eTag ) );
+    assertTrue( WsdlDocumentCache.matches( document, "\"other\", " + eTag ) );
+    assertTrue( WsdlDocumentCache.matches( document, "*" ) );
+  }
+
+  @Test
+  public void ifNoneMatchWithoutTheETagDoesNotMatch() {
+    WsdlDocumentCache.Document document = new WsdlDocumentCache.Document( null, bytes( "<schema/>" ) );
+    assertFalse( WsdlDocumentCache.matches( document, null ) );
+    assertFalse( WsdlDocumentCache.matches( document, "\"other\"" ) );
+    assertFalse( WsdlDocumentCache.matches( document, new WsdlDocumentCache.Document( null, bytes( "<changed/>" ) ).getETag() ) );
+  }
+
+  @Test
+  public void eTagFollowsTheContent() {
+    assertEquals( new WsdlDocumentCache.Document( null, bytes( "<a/>" ) ).getETag(),
+                  new WsdlDocumentCache.Document( String.class, bytes( "<a/>" ) ).getETag() );
+    assertFalse( new WsdlDocumentCache.Document( null, bytes( "<a/>" ) ).getETag().equals(
+                 new WsdlDocumentCache.Document( null, bytes( "<b/>" ) ).getETag() ) );
+  }
+
+  @Test
+  public void schemaIsCachedButMissesAreNot() {
+    CountingGenerator generator = new CountingGenerator();
+    generator._schemas.put( "foo/bar.xsd", bytes( "<schema/>" ) );
+    WsdlDocumentCache cache = new WsdlDocumentCache( generator );
+
+    assertNotNull( cache.getXsd( "foo/bar.xsd" ) );
+    assertNotNull( cache.getXsd( "foo/bar.xsd" ) );
+    assertEquals( 1, generator._xsdLookups );
+
+    assertNull( cache.getXsd( "foo/missing.xsd" ) );
+    assertNull( cache.getXsd( "foo/missing.xsd" ) );
+    assertEquals( 3, generator._xsdLookups );
+  }
+
+  @Test
+  public void wsdlIsCachedWhileTheBackingClassIsTheSame() {
+    CountingGenerator generator = new CountingGenerator();
+    WsdlDocumentCache cache = new WsdlDocumentCache( generator );
+
+    WsdlDocumentCache.Document first = cache.getWsdl( "foo.Service", generator._backingClass, "http://host/foo/Service", "../" );
+    WsdlDocumentCache.Document second = cache.getWsdl( "foo.Service", generator._backingClass, "http://host/foo/Service", "../" );
+    assertSame( first, second );
+    assertEquals( 1, generator._wsdlGenerations );
+  }
+
+  @Test
+  public void wsdlIsRegeneratedWhenTheBackingClassChanges() {
+    CountingGenerator generator = new CountingGenerator();
+    WsdlDocumentCache cache = new WsdlDocumentCache( generator );
+
+    WsdlDocumentCache.Document before = cache.getWsdl( "foo.Service", generator._backingClass, "http://host/foo/Service", "../" );
+    generator._backingClass = Integer.class;
+    WsdlDocumentCache.Document after = cache.getWsdl( "foo.Service", generator._backingClass, "http://host/foo/Service", "../" );
+    assertEquals( 2, generator._wsdlGenerations );
+    assertFalse( WsdlDocumentCache.matches( after, before.getETag() ) );
+  }
+
+  @Test
+  public void clearDropsEverything() {
+    CountingGenerator generator = new CountingGenerator();
+    generator._schemas.put( "foo/bar.xsd", bytes( "<schema/>" ) );
+    WsdlDocumentCache cache = new WsdlDocumentCache( generator );
+
+    cache.getXsd( "foo/bar.xsd" );
+    cache.getWsdl( "foo.Service", generator._backingClass, "http://host/foo/Service", "../" );
+    cache.clear();
+    cache.getXsd( "foo/bar.xsd" );
+    cache.getWsdl( "foo.Service", generator._backingClass, "http://host/foo/Service", "../" );
+    assertEquals( 2, generator._xsdLookups );
+    assertEquals( 2, generator._wsdlGenerations );
+  }
+
+  private static byte[] bytes( String s ) {
+    try {
+      return s.getBytes( "UTF-8" );
+    }
+    catch ( IOException e ) {
+      throw new RuntimeException( e );
+    }
+  }
+
+  private static class CountingGenerator implements WsdlDocumentCache.Generator {
+    private final Map<String, byte[]> _schemas = new HashMap<String, byte[]>();
+    private Class<?> _backingClass = String.class;
+    private int _wsdlGenerations;
+    private int _xsdLookups;
+
+    @Override
+    public WsdlDocumentCache.Document generateWsdl( String typeName, String requestURL, String xsdRootURL ) {
+      _wsdlGenerations++;
+      return new WsdlDocumentCache.Document( _backingClass, bytes( "<definitions name='" + typeName + "' generation='" + _wsdlGenerations + "'/>" ) );
+    }
+
+    @Override
+    public byte[] findXsd( String path ) {
+      _xsdLookups++;
+      return _schemas.get( path );
+    }
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2013 Guidewire Software, Inc.
+ */
+
+package gw.internal.xml.ws.server.marshal;
+
+import gw.lang.Gosu;
+import gw.lang.reflect.IPropertyInfo;
+import gw.lang.reflect.IType;
+import gw.lang.reflect.TypeSystem;
+import junit.framework.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class ClassBasedMarshallerTest extends Assert {
+
+  @BeforeClass
+  public static void beforeTestClass() {
+    Gosu.init();
+  }
+
+  @Test
+  public void beanPropertiesUseTheirMethodsAndFieldsTheAccessor() {
+    ClassBasedMarshaller marshaller = makeMarshaller( "Name", "Count", "Flag", "Note" );
+    assertTrue( getProperty( marshaller, "Name" ).isDirect() );
+    assertTrue( getProperty( marshaller, "Count" ).isDirect() );
+    assertTrue( getProperty( marshaller, "Flag" ).isDirect() );
+    assertFalse( getProperty( marshaller, "Note" ).isDirect() );
+  }
+
+  @Test
+  public void valuesRoundTripThroughBothPaths() {
+    IType type = TypeSystem.get( Bean.class );
+    ClassBasedMarshaller marshaller = makeMarshaller( "Name", "Count", "Flag", "Note" );
+    assertTrue( marshaller.isCurrent( type ) );
+
+    Bean source = new Bean();
+    source.setName( "a" );
+    source.setCount( 3 );
+    source.setFlag( true );
+    source.Note = "b";
+
+    // As the marshal and unmarshal loops do
+    Object copy = marshaller.newInstance( type );
+    assertTrue( copy instanceof Bean );
+    for ( ClassBasedMarshaller.Property prop : marshaller.getProperties() ) {
+      prop.setValue( copy, prop.getValue( source ) );
+    }
+    Bean target = (Bean)copy;
+    assertEquals( "a", target.getName() );
+    assertEquals( 3, target.getCount() );
+    assertTrue( target.isFlag() );
+    assertEquals( "b", target.Note );
+  }
+
+  @Test
+  public void propertiesKeepTheElementOrderAndNames() {
+    ClassBasedMarshaller marshaller = makeMarshaller( "Note", "Name" );
+    ClassBasedMarshaller.Property[] props = marshaller.getProperties();
+    assertEquals( 2, props.length );
+    assertEquals( "Note", props[0].getName() );
+    assertEquals( "Name", props[1].getName() );
+    assertEquals( marshaller.getNamespace().toString(), props[0].getQName().getNamespaceURI() );
+  }
+
+  private static ClassBasedMarshaller makeMarshaller( String... names ) {
+    IType type = TypeSystem.get( Bean.class );
+    Map<String, IPropertyInfo> properties = new LinkedHashMap<String, IPropertyInfo>();
+    for ( String name : names ) {
+      IPropertyInfo pi = type.getTypeInfo().getProperty( name );
+      assertNotNull( name, pi );
+      properties.put( name, pi );
+    }
+    return ClassBasedMarshaller.make( type, properties );
+  }
+
+  private static ClassBasedMarshaller.Property getProperty( ClassBasedMarshaller marshaller, String name ) {
+    for ( ClassBasedMarshaller.Property prop : marshaller.getProperties() ) {
+      if ( prop.getName().equals( name ) ) {
+        return prop;
+      }
+    }
+    throw new AssertionError( name );
+  }
+
+  public static class Bean {
+    // No bean methods, so it goes through the type info's accessor
+    public String Note;
+    private String _name;
+    private int _iCount;
+    private boolean _bFlag;
+
+    public String getName() {
+      return _name;
+    }
+
+    public void setName( String name ) {
+      _name = name;
+    }
+
+    public int getCount() {
+      return _iCount;
+    }
+
+    public void setCount( int iCount ) {
+      _iCount = iCount;
+    }
+
+    public boolean isFlag() {
+      return _bFlag;
+    }
+
+    public void setFlag( boolean bFlag ) {
+      _bFlag = bFlag;
+    }
+  }
+}
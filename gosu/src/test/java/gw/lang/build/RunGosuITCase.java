@@ -177,6 +177,199 @@ public class RunGosuITCase {
             .hasStdOut("TestOptions.Foo: baz\nTestOptions.Bar: true");
   }
 
+  @Test
+  public void sealed() {
+    GosuRunner gosu = new GosuRunner()
+            .withWorkingDir(_name.getMethodName())
+            .withGosuOpts("-Dgosu.sealed=true")
+            .run("proxies.gsp");
+    assertThat(gosu)
+            .hasZeroExitCode()
+            .hasNoStderr()
+            .hasStdOut("true\n[A]\nk->v");
+  }
+
+  @Test
+  public void typeLiteralsResolveTheSameWhenCached() {
+    GosuRunner uncached = new GosuRunner()
+            .withWorkingDir("type literals")
+            .run("typeliterals.gsp");
+    assertThat(uncached)
+            .hasZeroExitCode()
+            .hasNoStderr();
+    GosuRunner cached = new GosuRunner()
+            .withWorkingDir("type literals")
+            .withGosuOpts("-Dgosu.cache.type.literals=true")
+            .run("typeliterals.gsp");
+    assertThat(cached)
+            .hasZeroExitCode()
+            .hasNoStderr()
+            .hasStdOut(GosuStringUtil.join("\n", uncached._stdout.getLines()));
+    assertThat(cached._stdout.getLines()).contains("java.lang.String", "java.lang.Integer", "java.util.List<java.lang.Integer>");
+  }
+
+  @Test
+  public void blocksAreDistinctUnlessCached() {
+    String common =
+            "ran\n" +
+            "[a, bb, ccc]\n" +
+            "42\n" +
+            "8\n" +
+            "10\n" +
+            "15\n" +
+            "false\n" +
+            "9000000000000000000\n" +
+            "2.5\n" +
+            "5\n" +
+            "B";
+    GosuRunner uncached = new GosuRunner()
+            .withWorkingDir("blocks")
+            .run("blocks.gsp");
+    assertThat(uncached)
+            .hasZeroExitCode()
+            .hasNoStderr()
+            .hasStdOut("false\nfalse\n2\n" + common);
+    GosuRunner cached = new GosuRunner()
+            .withWorkingDir("blocks")
+            .withGosuOpts("-Dgosu.cache.blocks=true")
+            .run("blocks.gsp");
+    assertThat(cached)
+            .hasZeroExitCode()
+            .hasNoStderr()
+            .hasStdOut("true\nfalse\n1\n" + common);
+  }
+
+  @Test
+  public void stripedTypeLoadingFromManyThreads() {
+    GosuRunner gosu = new GosuRunner()
+            .withWorkingDir("striped loading")
+            .withGosuOpts("-Dgosu.striped.type.loading=true")
+            .run("loadtypes.gsp");
+    assertThat(gosu)
+            .hasZeroExitCode()
+            .hasNoStderr()
+            .hasStdOut(
+                    "true\n" +
+                    "true\n" +
+                    "[]\n" +
+                    "striped.Node\n" +
+                    "java.util.List<striped.Edge>\n" +
+                    "true\n" +
+                    "true\n" +
+                    "true");
+  }
+
+  @Test
+  public void stringConcatenation() {
+    GosuRunner gosu = new GosuRunner()
+            .withWorkingDir("string concatenation")
+            .run("concat.gsp");
+    assertThat(gosu)
+            .hasZeroExitCode()
+            .hasNoStderr()
+            .hasStdOut(
+                    "b1-2\n" +
+                    "i34000000000\n" +
+                    "1.5f2.25\n" +
+                    "c|truec\n" +
+                    "d4.50.75\n" +
+                    "nullx\n" +
+                    "xnull\n" +
+                    "xnullnull\n" +
+                    "nullnull!\n" +
+                    "boxed 4270.5false\n" +
+                    "1.10 42\n" +
+                    "3x\n" +
+                    "x12\n" +
+                    "x3\n" +
+                    "3x\n" +
+                    "x12\n" +
+                    "(ab1)2\n" +
+                    "ab1cd\n" +
+                    "s3\n" +
+                    "cost 250c\n" +
+                    "cost $2.50!\n" +
+                    "$2.50/42/3");
+  }
+
+  @Test
+  public void compiledComparisonsMatchTheRuntime() {
+    GosuRunner gosu = new GosuRunner()
+            .withWorkingDir("comparisons")
+            .run("compare.gsp");
+    assertThat(gosu)
+            .hasZeroExitCode()
+            .hasNoStderr()
+            .hasStdOut(
+                    "[]\n" +
+                    "true\n" +
+                    "false\n" +
+                    "true\n" +
+                    "false\n" +
+                    "true\n" +
+                    "false\n" +
+                    "false\n" +
+                    "true\n" +
+                    "true");
+  }
+
+  @Test
+  public void lazySequencesMatchTheEagerMethods() {
+    String expected =
+            "[]\n" +
+            "[]\n" +
+            "null\n" +
+            "0\n" +
+            "false\n" +
+            "true\n" +
+            "[]\n" +
+            "4\n" +
+            "4\n" +
+            "[1, 9, 25]\n" +
+            "5\n" +
+            "11\n" +
+            "16\n" +
+            "true\n" +
+            "19\n" +
+            "Naturals.lazy().where(...).take(3)\n" +
+            "19\n" +
+            "18\n" +
+            "15\n" +
+            "false\n" +
+            "true\n" +
+            "998\n" +
+            "null";
+    GosuRunner gosu = new GosuRunner()
+            .withWorkingDir("lazy sequences")
+            .run("lazy.gsp");
+    assertThat(gosu)
+            .hasZeroExitCode()
+            .hasNoStderr()
+            .hasStdOut(expected);
+    GosuRunner fused = new GosuRunner()
+            .withWorkingDir("lazy sequences")
+            .withGosuOpts("-Dgosu.fuse.iterable.chains=true")
+            .run("lazy.gsp");
+    assertThat(fused)
+            .hasZeroExitCode()
+            .hasNoStderr()
+            .hasStdOut(expected);
+  }
+
+  @Test
+  public void parallelCollectionsMatchTheSequentialMethods() {
+    GosuRunner gosu = new GosuRunner()
+            .withWorkingDir("parallel collections")
+            .run("parallel.gsp");
+    assertThat(gosu)
+            .hasZeroExitCode()
+            .hasNoStderr()
+            .hasStdOut(
+                    "[]\n" +
+                    "[false, true]\n" +
+                    "[true, true]");
+  }
+
   private static GosuAssert assertThat(GosuRunner gosu) {
     return new GosuAssert(gosu);
   }
@@ -234,6 +427,11 @@ public class RunGosuITCase {
       return this;
     }
 
+    GosuRunner withGosuOpts(String gosuOpts) {
+      _runner.withEnvironmentVariable("GOSU_OPTS", gosuOpts);
+      return this;
+    }
+
     GosuRunner withInput(String input) {
       _input = input;
       return this;
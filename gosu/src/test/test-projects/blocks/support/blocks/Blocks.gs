@@ -0,0 +1,47 @@
+package blocks
+
+uses java.lang.Runnable
+uses java.util.Comparator
+
+class Blocks {
+
+  // Captures nothing, a single instance when block caching is on
+  static function doubler() : block(x : int) : int {
+    return \ x -> x * 2
+  }
+
+  // Captures a parameter, always a new instance
+  static function multiplier( n : int ) : block(x : int) : int {
+    return \ x -> x * n
+  }
+
+  static function runnable() : Runnable {
+    return \ -> print( "ran" )
+  }
+
+  static function byLength() : Comparator<String> {
+    return \ a : String, b : String -> a.length() - b.length()
+  }
+
+  // Primitive signatures with a specialized invoke method
+  static function isPositive() : block(x : int) : boolean {
+    return \ x -> x > 0
+  }
+
+  static function square() : block(x : long) : long {
+    return \ x -> x * x
+  }
+
+  static function half() : block(d : double) : double {
+    return \ d -> d / 2
+  }
+
+  static function sum() : block(a : int, b : int) : int {
+    return \ a, b -> a + b
+  }
+
+  // Primitive signature without a specialized invoke method
+  static function toChar() : block(i : int) : char {
+    return \ i -> (i + 65) as char
+  }
+}
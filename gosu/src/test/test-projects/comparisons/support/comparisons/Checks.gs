@@ -0,0 +1,27 @@
+package comparisons
+
+uses java.util.ArrayList
+uses java.util.Arrays
+uses java.util.List
+uses gw.lang.reflect.IType
+uses gw.internal.gosu.ir.transform.expression.EqualityExpressionTransformer
+uses gw.internal.gosu.ir.transform.expression.RelationalExpressionTransformer
+
+class Checks {
+  static var _mismatches : List<String> as Mismatches = new ArrayList<String>()
+
+  // Compares the compiled ==, !=, <, <=, > and >= with the runtime evaluate() the compiler used to call
+  static function check( lhs : Object, lhsType : IType, rhs : Object, rhsType : IType, compiled : boolean[] ) {
+    var expected = new boolean[] {
+      EqualityExpressionTransformer.evaluate( lhs, lhsType, true, rhs, rhsType ),
+      EqualityExpressionTransformer.evaluate( lhs, lhsType, false, rhs, rhsType ),
+      RelationalExpressionTransformer.evaluate( lhs, lhsType, "<", rhs, rhsType ),
+      RelationalExpressionTransformer.evaluate( lhs, lhsType, "<=", rhs, rhsType ),
+      RelationalExpressionTransformer.evaluate( lhs, lhsType, ">", rhs, rhsType ),
+      RelationalExpressionTransformer.evaluate( lhs, lhsType, ">=", rhs, rhsType ) }
+    if( !Arrays.equals( expected, compiled ) ) {
+      _mismatches.add( lhsType.Name + " " + lhs + " vs " + rhsType.Name + " " + rhs + ": " +
+                       Arrays.toString( compiled ) + " expected " + Arrays.toString( expected ) )
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package comparisons
+
+uses java.lang.Byte
+uses java.lang.Double
+uses java.lang.Integer
+uses java.lang.Long
+uses java.lang.Short
+
+// Operand types that differ and aren't both primitive, compiled as direct numeric comparisons
+class MixedNumbers {
+
+  static function byteBoxedInt( a : Byte, b : int ) {
+    Checks.check( a, statictypeof a, b, statictypeof b, new boolean[] { a == b, a != b, a < b, a <= b, a > b, a >= b } )
+  }
+
+  static function byteBoxedShortBoxed( a : Byte, b : Short ) {
+    Checks.check( a, statictypeof a, b, statictypeof b, new boolean[] { a == b, a != b, a < b, a <= b, a > b, a >= b } )
+  }
+
+  static function shortLongBoxed( a : short, b : Long ) {
+    Checks.check( a, statictypeof a, b, statictypeof b, new boolean[] { a == b, a != b, a < b, a <= b, a > b, a >= b } )
+  }
+
+  static function integerLong( a : Integer, b : long ) {
+    Checks.check( a, statictypeof a, b, statictypeof b, new boolean[] { a == b, a != b, a < b, a <= b, a > b, a >= b } )
+  }
+
+  static function intLongBoxed( a : int, b : Long ) {
+    Checks.check( a, statictypeof a, b, statictypeof b, new boolean[] { a == b, a != b, a < b, a <= b, a > b, a >= b } )
+  }
+
+  static function longBoxedInteger( a : Long, b : Integer ) {
+    Checks.check( a, statictypeof a, b, statictypeof b, new boolean[] { a == b, a != b, a < b, a <= b, a > b, a >= b } )
+  }
+
+  static function integerDouble( a : Integer, b : double ) {
+    Checks.check( a, statictypeof a, b, statictypeof b, new boolean[] { a == b, a != b, a < b, a <= b, a > b, a >= b } )
+  }
+
+  static function shortBoxedDouble( a : Short, b : double ) {
+    Checks.check( a, statictypeof a, b, statictypeof b, new boolean[] { a == b, a != b, a < b, a <= b, a > b, a >= b } )
+  }
+
+  static function longDoubleBoxed( a : long, b : Double ) {
+    Checks.check( a, statictypeof a, b, statictypeof b, new boolean[] { a == b, a != b, a < b, a <= b, a > b, a >= b } )
+  }
+
+  static function doubleBoxedLongBoxed( a : Double, b : Long ) {
+    Checks.check( a, statictypeof a, b, statictypeof b, new boolean[] { a == b, a != b, a < b, a <= b, a > b, a >= b } )
+  }
+
+  static function doubleBoxedDouble( a : Double, b : double ) {
+    Checks.check( a, statictypeof a, b, statictypeof b, new boolean[] { a == b, a != b, a < b, a <= b, a > b, a >= b } )
+  }
+
+  static function doubleDoubleBoxed( a : double, b : Double ) {
+    Checks.check( a, statictypeof a, b, statictypeof b, new boolean[] { a == b, a != b, a < b, a <= b, a > b, a >= b } )
+  }
+}
@@ -0,0 +1,8 @@
+package comparisons
+
+class Release extends Version {
+
+  construct( number : int ) {
+    super( number )
+  }
+}
@@ -0,0 +1,18 @@
+package comparisons
+
+class Version implements Comparable<Version> {
+  var _number : int as Number
+
+  construct( number : int ) {
+    _number = number
+  }
+
+  override function compareTo( other : Version ) : int {
+    return _number - other.Number
+  }
+
+  // A Comparable left-hand side and a subtype on the right, compiled to compareTo()
+  static function versionRelease( a : Version, b : Release ) {
+    Checks.check( a, statictypeof a, b, statictypeof b, new boolean[] { a == b, a != b, a < b, a <= b, a > b, a >= b } )
+  }
+}
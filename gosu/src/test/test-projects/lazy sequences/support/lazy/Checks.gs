@@ -0,0 +1,15 @@
+package lazy
+
+uses java.util.ArrayList
+uses java.util.List
+
+class Checks {
+  static var _mismatches : List<String> as Mismatches = new ArrayList<String>()
+
+  // Compares the result of a lazy sequence with that of the eager enhancement method
+  static function check( operation : String, lazy : Object, eager : Object ) {
+    if( lazy != eager ) {
+      _mismatches.add( operation + ": " + lazy + " expected " + eager )
+    }
+  }
+}
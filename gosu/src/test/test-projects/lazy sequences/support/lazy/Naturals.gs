@@ -0,0 +1,38 @@
+package lazy
+
+uses java.lang.Iterable
+uses java.lang.UnsupportedOperationException
+uses java.util.Iterator
+
+// The numbers from 1 on, without end, counting how many were handed out
+class Naturals implements Iterable<Integer> {
+  var _handedOut : int as HandedOut
+
+  override function iterator() : Iterator<Integer> {
+    return new Counter( this )
+  }
+
+  static class Counter implements Iterator<Integer> {
+    var _owner : Naturals
+    var _next : int = 1
+
+    construct( owner : Naturals ) {
+      _owner = owner
+    }
+
+    override function hasNext() : boolean {
+      return true
+    }
+
+    override function next() : Integer {
+      _owner.HandedOut = _owner.HandedOut + 1
+      var n = _next
+      _next = _next + 1
+      return n
+    }
+
+    override function remove() {
+      throw new UnsupportedOperationException()
+    }
+  }
+}
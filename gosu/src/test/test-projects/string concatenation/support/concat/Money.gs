@@ -0,0 +1,13 @@
+package concat
+
+class Money {
+  var _cents : int as Cents
+
+  construct( cents : int ) {
+    _cents = cents
+  }
+
+  override function toString() : String {
+    return _cents + "c"
+  }
+}
@@ -0,0 +1,17 @@
+package concat
+
+uses java.lang.Integer
+uses gw.lang.parser.StandardCoercionManager
+
+class MoneyCoercionManager extends StandardCoercionManager {
+
+  override function makeStringFrom( obj : Object ) : String {
+    if( obj typeis Money ) {
+      return "$" + obj.Cents / 100 + "." + obj.Cents % 100
+    }
+    if( obj typeis Integer ) {
+      return "int:" + obj.intValue()
+    }
+    return super.makeStringFrom( obj )
+  }
+}
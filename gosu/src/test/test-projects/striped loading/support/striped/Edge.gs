@@ -0,0 +1,12 @@
+package striped
+
+// Refers to Node, which refers back to Edge
+class Edge {
+  var _from : Node as From
+  var _to : Node as To
+
+  construct( from : Node, to : Node ) {
+    _from = from
+    _to = to
+  }
+}
@@ -0,0 +1,4 @@
+package striped
+
+class Leaf extends Node {
+}
@@ -0,0 +1,13 @@
+package striped
+
+uses java.util.List
+
+class Node {
+  var _edges : List<Edge> as Edges = {}
+
+  function connect( to : Node ) : Edge {
+    var edge = new Edge( this, to )
+    _edges.add( edge )
+    return edge
+  }
+}
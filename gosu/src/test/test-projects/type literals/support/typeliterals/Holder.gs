@@ -0,0 +1,20 @@
+package typeliterals
+
+uses java.util.List
+
+class Holder<T> {
+
+  // Depends on the type argument of each instance, never cached
+  function typeName() : String {
+    return T.Name
+  }
+
+  function listTypeName() : String {
+    return List<T>.Name
+  }
+
+  // Constant, cached once per class when type literal caching is on
+  static function arrayTypeName() : String {
+    return String[][].Name
+  }
+}